@@ -43,6 +43,12 @@ import org.slf4j.LoggerFactory;
 import javax.servlet.jsp.el.ELException;
 import javax.servlet.jsp.el.ExpressionEvaluator;
 import java.io.IOException;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
 
 /**
  * Falcon cleanup handler for cleaning up work, temp and log files
@@ -56,6 +62,9 @@ public abstract class AbstractCleanupHandler {
     public static final ExpressionEvaluator EVALUATOR = new ExpressionEvaluatorImpl();
     public static final ExpressionHelper RESOLVER = ExpressionHelper.get();
 
+    private static final String JOB_DIR_PREFIX = "job-";
+    private static final String JOB_TIME_FORMAT = "yyyy-MM-dd-HH-mm";
+
     protected long getRetention(Entity entity, TimeUnit timeUnit)
         throws FalconException {
 
@@ -94,24 +103,6 @@ public abstract class AbstractCleanupHandler {
         return RuntimeProperties.get().getProperty("log.cleanup.frequency." + timeunit + ".retention", defaultValue);
     }
 
-    protected FileStatus[] getAllLogs(FileSystem fs, Cluster cluster,
-                                      Entity entity) throws FalconException {
-        FileStatus[] paths;
-        try {
-            Path logPath = getLogPath(cluster, entity);
-            paths = fs.globStatus(logPath);
-        } catch (IOException e) {
-            throw new FalconException(e);
-        }
-
-        return paths;
-    }
-
-    private Path getLogPath(Cluster cluster, Entity entity) {
-        // logsPath = base log path + relative path
-        return new Path(EntityUtil.getLogPath(cluster, entity), getRelativeLogPath());
-    }
-
     private FileSystem getFileSystemAsEntityOwner(Cluster cluster,
                                                   Entity entity) throws FalconException {
         try {
@@ -128,7 +119,15 @@ public abstract class AbstractCleanupHandler {
         }
     }
 
-    protected void delete(String clusterName, Entity entity, long retention) throws FalconException {
+    /**
+     * Deletes the logs of the entity on the cluster that are older than the retention.
+     *
+     * The job directories are named after the nominal time of the instance, so only those whose nominal time has
+     * crossed the retention threshold are listed further, and of those only the ones the watermark of the entity
+     * doesn't rule out. A job directory whose logs have all expired is deleted in one call.
+     */
+    void delete(String clusterName, Entity entity, long retention,
+                LogCleanupWatermarks watermarks) throws FalconException {
         Cluster currentCluster = STORE.get(EntityType.CLUSTER, clusterName);
         if (!isClusterInCurrentColo(currentCluster.getColo())) {
             LOG.info("Ignoring cleanup for {}: {} in cluster: {} as this does not belong to current colo",
@@ -139,38 +138,115 @@ public abstract class AbstractCleanupHandler {
         LOG.info("Cleaning up logs for {}: {} in cluster: {} with retention: {}",
                 entity.getEntityType(), entity.getName(), clusterName, retention);
 
+        String key = entity.getEntityType() + "/" + entity.getName() + "/" + clusterName;
+        LogCleanupWatermarks.Watermark watermark = watermarks.get(key);
+        if (watermark != null && watermark.getRetention() != retention) {
+            watermark = null; // expiries recorded with another retention no longer hold
+        }
+
+        long now = System.currentTimeMillis();
+        long threshold = now - retention;
+        long nextExpiry = watermark == null ? Long.MAX_VALUE : watermark.getPendingExpiry(now);
         FileSystem fs = getFileSystemAsEntityOwner(currentCluster, entity);
-        FileStatus[] logs = getAllLogs(fs, currentCluster, entity);
-        deleteInternal(fs, currentCluster, entity, retention, logs);
+        Path logPath = EntityUtil.getLogPath(currentCluster, entity);
+        DateFormat jobTimeFormat = getJobTimeFormat();
+        int depth = getRelativeLogPath().split("/").length - 1;
+        int skipped = 0;
+        int deleted = 0;
+        try {
+            FileStatus[] jobs = fs.globStatus(new Path(logPath, JOB_DIR_PREFIX + "*"));
+            for (FileStatus job : jobs == null ? new FileStatus[0] : jobs) {
+                long nominalTime = getNominalTime(jobTimeFormat, job.getPath().getName());
+                if (nominalTime > threshold || (watermark != null && !watermark.isDue(nominalTime, now)
+                        && !isModified(fs, job, depth - 1, watermark))) {
+                    skipped++;
+                    continue;
+                }
+
+                Expiry expiry = new Expiry(retention);
+                if (deleteExpired(fs, job, depth, threshold, expiry)) {
+                    delete(fs, job.getPath());
+                    deleted++;
+                }
+                nextExpiry = Math.min(nextExpiry, expiry.next);
+            }
+
+            if (deleted > 0) {
+                deleteParentIfEmpty(fs, logPath);
+            }
+        } catch (IOException e) {
+            throw new FalconException("Unable to delete logs in: " + logPath + " for entity " + entity.getName()
+                    + " for cluster: " + clusterName, e);
+        }
+
+        watermarks.put(key, new LogCleanupWatermarks.Watermark(now, retention, nextExpiry));
+        LOG.info("Deleted {} job directories for cluster: {}, entity: {}, skipped {} without expired logs",
+                deleted, clusterName, entity.getName(), skipped);
     }
 
-    private void deleteInternal(FileSystem fs, Cluster cluster, Entity entity,
-                                long retention, FileStatus[] logs) throws FalconException {
-        if (logs == null || logs.length == 0) {
-            LOG.info("Nothing to delete for cluster: {}, entity: {}", cluster.getName(),
-                    entity.getName());
-            return;
+    /**
+     * Whether dir, or a directory up to depth levels under it, changed since the last run. New logs only change
+     * the modification time of the directory they are added to, not of the ones above it.
+     */
+    private boolean isModified(FileSystem fs, FileStatus dir, int depth,
+                               LogCleanupWatermarks.Watermark watermark) throws IOException {
+        if (watermark.isModified(dir.getModificationTime())) {
+            return true;
         }
+        if (depth > 0) {
+            FileStatus[] children = fs.listStatus(dir.getPath());
+            for (FileStatus child : children == null ? new FileStatus[0] : children) {
+                if (child.isDirectory() && isModified(fs, child, depth - 1, watermark)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
 
-        long now = System.currentTimeMillis();
+    /**
+     * Deletes the expired logs, depth levels under dir, and the directories left empty under dir.
+     *
+     * @return true if every entry under dir is an expired log, in which case dir is left for the caller to delete
+     */
+    private boolean deleteExpired(FileSystem fs, FileStatus dir, int depth, long threshold,
+                                  Expiry expiry) throws IOException {
+        FileStatus[] children = fs.listStatus(dir.getPath());
+        if (children == null || children.length == 0) {
+            return false;
+        }
 
-        for (FileStatus log : logs) {
-            if (now - log.getModificationTime() > retention) {
-                try {
-                    boolean isDeleted = fs.delete(log.getPath(), true);
-                    LOG.error(isDeleted ? "Deleted path: {}" : "Unable to delete path: {}",
-                            log.getPath());
-                    deleteParentIfEmpty(fs, log.getPath().getParent());
-                } catch (IOException e) {
-                    throw new FalconException(" Unable to delete log file : "
-                            + log.getPath() + " for entity " + entity.getName()
-                            + " for cluster: " + cluster.getName(), e);
+        List<Path> expired = new ArrayList<Path>();
+        for (FileStatus child : children) {
+            if (depth > 1) {
+                // only directories lead to logs further down
+                if (child.isDirectory() && deleteExpired(fs, child, depth - 1, threshold, expiry)) {
+                    expired.add(child.getPath());
                 }
+            } else if (child.getModificationTime() < threshold) {
+                expired.add(child.getPath());
             } else {
-                LOG.info("Retention limit: {} is less than modification {} for path: {}", retention,
-                        (now - log.getModificationTime()), log.getPath());
+                LOG.info("Retention limit: {} is less than modification {} for path: {}", expiry.retention,
+                        (threshold + expiry.retention - child.getModificationTime()), child.getPath());
+                expiry.keep(child.getModificationTime());
             }
         }
+
+        if (expired.size() == children.length) {
+            return true;
+        }
+        for (Path path : expired) {
+            delete(fs, path);
+        }
+        return false;
+    }
+
+    private void delete(FileSystem fs, Path path) throws IOException {
+        if (fs.delete(path, true)) {
+            LOG.info("Deleted path: {}", path);
+        } else {
+            LOG.error("Unable to delete path: {}", path);
+        }
     }
 
     private void deleteParentIfEmpty(FileSystem fs, Path parent) throws IOException {
@@ -182,12 +258,70 @@ public abstract class AbstractCleanupHandler {
         }
     }
 
-    public abstract void cleanup() throws FalconException;
+    private static DateFormat getJobTimeFormat() {
+        DateFormat format = new SimpleDateFormat(JOB_TIME_FORMAT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        format.setLenient(false);
+        return format;
+    }
 
+    /**
+     * Nominal time of the instance a job directory holds the logs of, -1 if the name doesn't carry one.
+     */
+    private static long getNominalTime(DateFormat format, String jobDir) {
+        String time = jobDir.substring(JOB_DIR_PREFIX.length());
+        if (time.length() != JOB_TIME_FORMAT.length()) {
+            return -1;
+        }
+        try {
+            return format.parse(time).getTime();
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Cleans up the logs of all the entities handled by this handler.
+     *
+     * @throws FalconException if the logs of any entity couldn't be cleaned up
+     */
+    public void cleanup() throws FalconException {
+        LogCleanupRun run = new LogCleanupRun();
+        cleanup(run);
+        run.execute();
+    }
+
+    /**
+     * Adds the logs of all the entities handled by this handler to the run.
+     *
+     * @param run run to add the logs to
+     * @throws FalconException
+     */
+    public abstract void cleanup(LogCleanupRun run) throws FalconException;
+
+    /**
+     * Path of the logs relative to the log path of the entity, starting with the job directory.
+     */
     protected abstract String getRelativeLogPath();
 
     protected boolean isClusterInCurrentColo(String colo) {
         final String currentColo = StartupProperties.get().getProperty("current.colo", "default");
         return DeploymentUtil.isEmbeddedMode() || currentColo.equals(colo);
     }
+
+    /**
+     * Earliest time at which a log kept by the cleanup expires.
+     */
+    private static final class Expiry {
+        private final long retention;
+        private long next = Long.MAX_VALUE;
+
+        private Expiry(long retention) {
+            this.retention = retention;
+        }
+
+        private void keep(long modificationTime) {
+            next = Math.min(next, modificationTime + retention);
+        }
+    }
 }
@@ -29,14 +29,14 @@ import java.util.Collection;
 public class FeedCleanupHandler extends AbstractCleanupHandler {
 
     @Override
-    public void cleanup() throws FalconException {
+    public void cleanup(LogCleanupRun run) throws FalconException {
         Collection<String> feeds = STORE.getEntities(EntityType.FEED);
         for (String feedName : feeds) {
             Feed feed = STORE.get(EntityType.FEED, feedName);
             long retention = getRetention(feed, feed.getFrequency().getTimeUnit());
 
             for (org.apache.falcon.entity.v0.feed.Cluster cluster : feed.getClusters().getClusters()) {
-                delete(cluster.getName(), feed, retention);
+                run.add(this, cluster.getName(), feed, retention);
             }
         }
     }
@@ -0,0 +1,159 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.falcon.cleanup;
+
+import org.apache.falcon.FalconException;
+import org.apache.falcon.entity.v0.Entity;
+import org.apache.falcon.security.CurrentUser;
+import org.apache.falcon.util.DaemonThreadFactory;
+import org.apache.falcon.util.StartupProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A single run of the log cleanup, cleaning up the clusters in parallel.
+ *
+ * The logs of the entities on a cluster are cleaned up one after another on a thread of that cluster, so that a
+ * slow or unreachable cluster holds up only its own logs. A failure for one entity doesn't stop the cleanup of the
+ * others; the failures are reported together once all the clusters are done.
+ */
+public class LogCleanupRun {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LogCleanupRun.class);
+
+    private final LogCleanupWatermarks watermarks = LogCleanupWatermarks.load();
+    private final Map<String, List<Target>> targets = new LinkedHashMap<String, List<Target>>();
+
+    void add(AbstractCleanupHandler handler, String clusterName, Entity entity, long retention) {
+        List<Target> clusterTargets = targets.get(clusterName);
+        if (clusterTargets == null) {
+            clusterTargets = new ArrayList<Target>();
+            targets.put(clusterName, clusterTargets);
+        }
+        clusterTargets.add(new Target(handler, clusterName, entity, retention));
+    }
+
+    /**
+     * Cleans up the logs added to this run and waits for all the clusters to complete.
+     *
+     * @throws FalconException if the logs of any entity couldn't be cleaned up
+     */
+    public void execute() throws FalconException {
+        int threads = Math.min(Integer.parseInt(StartupProperties.get().getProperty(
+                "falcon.cleanup.service.threads", "10")), targets.size());
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(threads, 1),
+                new DaemonThreadFactory("log-cleanup"));
+
+        List<String> failures = new ArrayList<String>();
+        FalconException cause = null;
+        try {
+            List<Future<List<FalconException>>> futures = new ArrayList<Future<List<FalconException>>>();
+            for (final List<Target> clusterTargets : targets.values()) {
+                // the handler switches to the owner of the entity, so every entity starts from the caller's user
+                final List<Callable<Void>> deletes = new ArrayList<Callable<Void>>();
+                for (final Target target : clusterTargets) {
+                    deletes.add(CurrentUser.withCurrentUser(new Callable<Void>() {
+                        @Override
+                        public Void call() throws FalconException {
+                            target.handler.delete(target.clusterName, target.entity, target.retention, watermarks);
+                            return null;
+                        }
+                    }));
+                }
+                futures.add(executor.submit(new Callable<List<FalconException>>() {
+                    @Override
+                    public List<FalconException> call() {
+                        return cleanup(clusterTargets, deletes);
+                    }
+                }));
+            }
+
+            for (Future<List<FalconException>> future : futures) {
+                for (FalconException failure : future.get()) {
+                    failures.add(failure.getMessage());
+                    cause = cause == null ? failure : cause;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FalconException("Interrupted while cleaning up logs", e);
+        } catch (ExecutionException e) {
+            throw new FalconException("Unable to clean up logs", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            saveWatermarks();
+        }
+
+        if (failures.size() == 1) {
+            throw cause;
+        } else if (!failures.isEmpty()) {
+            throw new FalconException("Unable to clean up logs of " + failures.size() + " entities. " + failures,
+                    cause);
+        }
+    }
+
+    // deletes the logs of the targets on a cluster one after another, collecting the failures
+    private List<FalconException> cleanup(List<Target> clusterTargets, List<Callable<Void>> deletes) {
+        List<FalconException> failures = new ArrayList<FalconException>();
+        for (int i = 0; i < deletes.size(); i++) {
+            Target target = clusterTargets.get(i);
+            try {
+                deletes.get(i).call();
+            } catch (Exception e) {
+                LOG.error("Unable to clean up logs for {}: {} in cluster: {}", target.entity.getEntityType(),
+                        target.entity.getName(), target.clusterName, e);
+                failures.add(e instanceof FalconException ? (FalconException) e : new FalconException(e));
+            }
+        }
+        return failures;
+    }
+
+    private void saveWatermarks() {
+        try {
+            watermarks.save();
+        } catch (IOException e) {
+            // the next run lists the logs again from the previous watermarks
+            LOG.warn("Unable to save log cleanup watermarks", e);
+        }
+    }
+
+    private static final class Target {
+        private final AbstractCleanupHandler handler;
+        private final String clusterName;
+        private final Entity entity;
+        private final long retention;
+
+        private Target(AbstractCleanupHandler handler, String clusterName, Entity entity, long retention) {
+            this.handler = handler;
+            this.clusterName = clusterName;
+            this.entity = entity;
+            this.retention = retention;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.falcon.cleanup;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.falcon.util.StartupProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Watermarks of the log cleanup for each entity on each cluster, kept in a properties file on the falcon server.
+ *
+ * A watermark records when the logs were last cleaned up, the retention threshold used then and the earliest
+ * time at which a log kept back then expires. A job directory that had crossed the threshold by the last run,
+ * holds no log due to expire and, like the directories under it that the logs are in, hasn't changed since is
+ * not listed again.
+ */
+final class LogCleanupWatermarks {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LogCleanupWatermarks.class);
+
+    private static final String WATERMARK_FILE = "watermarks.properties";
+
+    private final File file;
+    private final Map<String, Watermark> watermarks = new ConcurrentHashMap<String, Watermark>();
+
+    private LogCleanupWatermarks(File file) {
+        this.file = file;
+    }
+
+    static LogCleanupWatermarks load() {
+        File basePath = new File(StartupProperties.get().getProperty(
+                "falcon.cleanup.watermark.path", "/tmp/falcon/cleanup"));
+        LogCleanupWatermarks watermarks = new LogCleanupWatermarks(new File(basePath, WATERMARK_FILE));
+        if (!watermarks.file.exists()) {
+            return watermarks;
+        }
+
+        Properties properties = new Properties();
+        InputStream in = null;
+        try {
+            in = new FileInputStream(watermarks.file);
+            properties.load(in);
+        } catch (IOException e) {
+            // losing the watermarks only costs a full listing of the logs
+            LOG.warn("Unable to read log cleanup watermarks from {}, listing all logs", watermarks.file, e);
+            return watermarks;
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+
+        for (String key : properties.stringPropertyNames()) {
+            Watermark watermark = Watermark.parse(properties.getProperty(key));
+            if (watermark == null) {
+                LOG.warn("Ignoring invalid log cleanup watermark {}={}", key, properties.getProperty(key));
+            } else {
+                watermarks.watermarks.put(key, watermark);
+            }
+        }
+        return watermarks;
+    }
+
+    Watermark get(String key) {
+        return watermarks.get(key);
+    }
+
+    void put(String key, Watermark watermark) {
+        watermarks.put(key, watermark);
+    }
+
+    synchronized void save() throws IOException {
+        File basePath = file.getParentFile();
+        if (!basePath.exists() && !basePath.mkdirs()) {
+            throw new IOException("Unable to create log cleanup watermark path " + basePath);
+        }
+
+        Properties properties = new Properties();
+        for (Map.Entry<String, Watermark> entry : watermarks.entrySet()) {
+            properties.setProperty(entry.getKey(), entry.getValue().toString());
+        }
+
+        File tmp = new File(basePath, WATERMARK_FILE + ".tmp");
+        FileOutputStream out = new FileOutputStream(tmp, false);
+        try {
+            properties.store(out, "Log cleanup watermarks");
+            out.getChannel().force(false);
+        } finally {
+            out.close();
+        }
+        if (!tmp.renameTo(file)) {
+            // renameTo does not replace an existing file on every platform
+            if (!file.delete() || !tmp.renameTo(file)) {
+                throw new IOException("Unable to move log cleanup watermarks to " + file);
+            }
+        }
+    }
+
+    /**
+     * State left behind by a cleanup of the logs of an entity on a cluster.
+     */
+    static final class Watermark {
+        private final long lastRun;
+        private final long retention;
+        private final long nextExpiry;
+
+        Watermark(long lastRun, long retention, long nextExpiry) {
+            this.lastRun = lastRun;
+            this.retention = retention;
+            this.nextExpiry = nextExpiry;
+        }
+
+        /**
+         * Whether a job directory has to be listed again whether or not it changed, given its nominal time. A
+         * directory whose name doesn't parse has a nominal time of -1 and is always listed.
+         */
+        boolean isDue(long nominalTime, long now) {
+            return nominalTime < 0 || nominalTime > lastRun - retention || now >= nextExpiry;
+        }
+
+        /**
+         * Whether a directory with the given modification time changed since the last run.
+         */
+        boolean isModified(long modificationTime) {
+            return modificationTime >= lastRun;
+        }
+
+        /**
+         * Earliest expiry of a log in the job directories that aren't listed again, Long.MAX_VALUE if all are.
+         */
+        long getPendingExpiry(long now) {
+            return now < nextExpiry ? nextExpiry : Long.MAX_VALUE;
+        }
+
+        long getRetention() {
+            return retention;
+        }
+
+        static Watermark parse(String value) {
+            String[] parts = value.split(",");
+            if (parts.length != 3) {
+                return null;
+            }
+            try {
+                return new Watermark(Long.parseLong(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return lastRun + "," + retention + "," + nextExpiry;
+        }
+    }
+}
@@ -29,14 +29,14 @@ import java.util.Collection;
 public class ProcessCleanupHandler extends AbstractCleanupHandler {
 
     @Override
-    public void cleanup() throws FalconException {
+    public void cleanup(LogCleanupRun run) throws FalconException {
         Collection<String> processes = STORE.getEntities(EntityType.PROCESS);
         for (String processName : processes) {
             Process process = STORE.get(EntityType.PROCESS, processName);
             long retention = getRetention(process, process.getFrequency().getTimeUnit());
 
             for (org.apache.falcon.entity.v0.process.Cluster cluster : process.getClusters().getClusters()) {
-                delete(cluster.getName(), process, retention);
+                run.add(this, cluster.getName(), process, retention);
             }
         }
     }
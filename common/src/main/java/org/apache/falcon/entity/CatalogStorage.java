@@ -381,6 +381,13 @@ public class CatalogStorage extends Configured implements Storage {
         // partition listing
     }
 
+    @Override
+    public List<FeedInstanceStatus> getListing(Feed feed, String clusterName, LocationType locationType,
+                                               Date start, Date end, boolean withSize) throws FalconException {
+        // the size of a partition comes with it from the metastore
+        return getListing(feed, clusterName, locationType, start, end);
+    }
+
     @Override
     public List<FeedInstanceStatus> getListing(Feed feed, String clusterName, LocationType locationType,
                                                Date start, Date end) throws FalconException {
@@ -62,7 +62,6 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -81,11 +80,6 @@ import java.util.TimeZone;
 public final class EntityUtil {
     public static final Logger LOG = LoggerFactory.getLogger(EntityUtil.class);
 
-    private static final long MINUTE_IN_MS = 60 * 1000L;
-    private static final long HOUR_IN_MS = 60 * MINUTE_IN_MS;
-    private static final long DAY_IN_MS = 24 * HOUR_IN_MS;
-    private static final long MONTH_IN_MS = 31 * DAY_IN_MS;
-    private static final long ONE_MS = 1;
     public static final String MR_JOB_PRIORITY = "jobPriority";
 
     public static final String SUCCEEDED_FILE_NAME = "_SUCCESS";
@@ -310,34 +304,8 @@ public final class EntityUtil {
             return startTime;
         }
 
-        Calendar startCal = Calendar.getInstance(timezone);
-        startCal.setTime(startTime);
-
-        int count = 0;
-        switch (frequency.getTimeUnit()) {
-        case months:
-            count = (int) ((referenceTime.getTime() - startTime.getTime()) / MONTH_IN_MS);
-            break;
-        case days:
-            count = (int) ((referenceTime.getTime() - startTime.getTime()) / DAY_IN_MS);
-            break;
-        case hours:
-            count = (int) ((referenceTime.getTime() - startTime.getTime()) / HOUR_IN_MS);
-            break;
-        case minutes:
-            count = (int) ((referenceTime.getTime() - startTime.getTime()) / MINUTE_IN_MS);
-            break;
-        default:
-        }
-
-        final int freq = frequency.getFrequencyAsInt();
-        if (count > 2) {
-            startCal.add(frequency.getTimeUnit().getCalendarUnit(), ((count - 2) / freq) * freq);
-        }
-        while (startCal.getTime().before(referenceTime)) {
-            startCal.add(frequency.getTimeUnit().getCalendarUnit(), freq);
-        }
-        return startCal.getTime();
+        InstanceClock clock = new InstanceClock(startTime.getTime(), frequency, timezone);
+        return new Date(clock.getInstanceTime(clock.getNextInstanceIndex(referenceTime.getTime())));
     }
 
 
@@ -383,55 +351,12 @@ public final class EntityUtil {
             return -1;
         }
 
-        if (tz == null) {
-            tz = TimeZone.getTimeZone("UTC");
-        }
-
-        Calendar startCal = Calendar.getInstance(tz);
-        startCal.setTime(startTime);
-
-        int count = 0;
-        switch (frequency.getTimeUnit()) {
-        case months:
-            count = (int) ((instanceTime.getTime() - startTime.getTime()) / MONTH_IN_MS);
-            break;
-        case days:
-            count = (int) ((instanceTime.getTime() - startTime.getTime()) / DAY_IN_MS);
-            break;
-        case hours:
-            count = (int) ((instanceTime.getTime() - startTime.getTime()) / HOUR_IN_MS);
-            break;
-        case minutes:
-            count = (int) ((instanceTime.getTime() - startTime.getTime()) / MINUTE_IN_MS);
-            break;
-        default:
-        }
-
-        final int freq = frequency.getFrequencyAsInt();
-        if (count > 2) {
-            startCal.add(frequency.getTimeUnit().getCalendarUnit(), (count / freq) * freq);
-            count = (count / freq);
-        } else {
-            count = 0;
-        }
-        while (startCal.getTime().before(instanceTime)) {
-            startCal.add(frequency.getTimeUnit().getCalendarUnit(), freq);
-            count++;
-        }
-        return count + 1;
+        InstanceClock clock = new InstanceClock(startTime.getTime(), frequency, tz);
+        return (int) clock.getNextInstanceIndex(instanceTime.getTime()) + 1;
     }
 
     public static Date getNextInstanceTime(Date instanceTime, Frequency frequency, TimeZone tz, int instanceCount) {
-        if (tz == null) {
-            tz = TimeZone.getTimeZone("UTC");
-        }
-        Calendar insCal = Calendar.getInstance(tz);
-        insCal.setTime(instanceTime);
-
-        final int freq = frequency.getFrequencyAsInt() * instanceCount;
-        insCal.add(frequency.getTimeUnit().getCalendarUnit(), freq);
-
-        return insCal.getTime();
+        return new Date(new InstanceClock(instanceTime.getTime(), frequency, tz).getInstanceTime(instanceCount));
     }
 
     public static String md5(Entity entity) throws FalconException {
@@ -921,20 +846,13 @@ public final class EntityUtil {
      * @return  instance(before or on) the referenceTime
      */
     public static Date getPreviousInstanceTime(Date startTime, Frequency frequency, TimeZone tz, Date referenceTime) {
-        if (tz == null) {
-            tz = TimeZone.getTimeZone("UTC");
-        }
-        Calendar insCal = Calendar.getInstance(tz);
-        insCal.setTime(startTime);
-
-        int instanceCount = getInstanceSequence(startTime, frequency, tz, referenceTime) - 1;
-        final int freq = frequency.getFrequencyAsInt() * instanceCount;
-        insCal.add(frequency.getTimeUnit().getCalendarUnit(), freq);
-
-        while (insCal.getTime().after(referenceTime)) {
-            insCal.add(frequency.getTimeUnit().getCalendarUnit(), frequency.getFrequencyAsInt() * -1);
+        InstanceClock clock = new InstanceClock(startTime.getTime(), frequency, tz);
+        long instance = clock.getInstanceIndex(referenceTime.getTime());
+        if (instance < 0) {
+            // before the start, at least two instances back are returned
+            instance = Math.min(instance, -2);
         }
-        return insCal.getTime();
+        return new Date(clock.getInstanceTime(instance));
     }
 
     /**
@@ -986,19 +904,13 @@ public final class EntityUtil {
     public static List<Date> getInstanceTimes(Date startTime, Frequency frequency, TimeZone timeZone,
                                               Date startRange, Date endRange) {
         List<Date> result = new LinkedList<>();
-        if (timeZone == null) {
-            timeZone = TimeZone.getTimeZone("UTC");
-        }
-
-        Date current = getPreviousInstanceTime(startTime, frequency, timeZone, startRange);
-        while (true) {
-            Date nextStartTime = getNextStartTime(startTime, frequency, timeZone, current);
-            if (nextStartTime.after(endRange)){
-                break;
-            }
-            result.add(nextStartTime);
-            // this is required because getNextStartTime returns greater than or equal to referenceTime
-            current = new Date(nextStartTime.getTime() + ONE_MS); // 1 milli seconds later
+        InstanceClock clock = new InstanceClock(startTime.getTime(), frequency, timeZone);
+        // the range starts with the instance at or before its start, if it's not before the first instance
+        long instance = Math.max(0, clock.getInstanceIndex(startRange.getTime()));
+        long instanceTime = clock.getInstanceTime(instance);
+        while (instanceTime <= endRange.getTime()) {
+            result.add(new Date(instanceTime));
+            instanceTime = clock.getInstanceTime(++instance);
         }
         return result;
     }
@@ -23,7 +23,9 @@ import org.apache.falcon.FalconException;
 import org.apache.falcon.LifeCycle;
 import org.apache.falcon.Tag;
 import org.apache.falcon.entity.common.FeedDataPath;
+import org.apache.falcon.entity.common.FeedPathTemplate;
 import org.apache.falcon.entity.v0.Entity;
+import org.apache.falcon.entity.v0.EntityGraph;
 import org.apache.falcon.entity.v0.EntityType;
 import org.apache.falcon.entity.v0.Frequency;
 import org.apache.falcon.entity.v0.datasource.DatasourceType;
@@ -49,7 +51,6 @@ import org.apache.falcon.entity.v0.process.Process;
 import org.apache.falcon.expression.ExpressionHelper;
 import org.apache.falcon.lifecycle.FeedLifecycleStage;
 import org.apache.falcon.resource.APIResult;
-import org.apache.falcon.resource.EntityList;
 import org.apache.falcon.resource.FeedInstanceResult;
 import org.apache.falcon.resource.SchedulableEntityInstance;
 import org.apache.falcon.util.BuildProperties;
@@ -72,6 +73,7 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 
 /**
@@ -84,6 +86,11 @@ public final class FeedHelper {
 
     public static final String FORMAT = "yyyyMMddHHmm";
 
+    // compiled feed location templates are dropped all at once past this size
+    private static final int MAX_CACHED_TEMPLATES = 10000;
+    private static final Map<String, FeedPathTemplate> PATH_TEMPLATES =
+            new ConcurrentHashMap<String, FeedPathTemplate>();
+
     private FeedHelper() {}
 
     public static Cluster getCluster(Feed feed, String clusterName) {
@@ -201,7 +208,7 @@ public final class FeedHelper {
                                         Configuration conf) throws URISyntaxException {
         Storage.TYPE storageType = Storage.TYPE.valueOf(type);
         if (storageType == Storage.TYPE.FILESYSTEM) {
-            return new FileSystemStorage(storageUriTemplate);
+            return new FileSystemStorage(storageUriTemplate, conf);
         } else if (storageType == Storage.TYPE.TABLE) {
             return new CatalogStorage(storageUriTemplate, conf);
         }
@@ -325,9 +332,7 @@ public final class FeedHelper {
         throws FalconException {
 
         Properties properties = getClusterProperties(clusterEntity);
-        ExpressionHelper expHelp = ExpressionHelper.get();
-        expHelp.setPropertiesForVariable(properties);
-        return expHelp.evaluateFullExpression(exp, String.class);
+        return ExpressionHelper.get().evaluateFullExpression(exp, String.class, properties);
     }
 
     public static String getStagingPath(boolean isSource,
@@ -456,58 +461,26 @@ public final class FeedHelper {
      */
     //consider just the first occurrence of the pattern
     public static Date getDate(String templatePath, Path instancePath, TimeZone timeZone) {
-        String path = instancePath.toString();
-        Matcher matcher = FeedDataPath.PATTERN.matcher(templatePath);
-        Calendar cal = Calendar.getInstance(timeZone);
-        int lastEnd = 0;
-
-        Set<FeedDataPath.VARS> matchedVars = new HashSet<>();
-        while (matcher.find()) {
-            FeedDataPath.VARS pathVar = FeedDataPath.VARS.from(matcher.group());
-            String pad = templatePath.substring(lastEnd, matcher.start());
-            if (!path.startsWith(pad)) {
-                //Template and path do not match
-                return null;
-            }
-
-            int value;
-            try {
-                value = Integer.parseInt(path.substring(pad.length(), pad.length() + pathVar.getValueSize()));
-            } catch (NumberFormatException e) {
-                //Not a valid number for variable
-                return null;
-            }
-
-            pathVar.setCalendar(cal, value);
-            lastEnd = matcher.end();
-            path = path.substring(pad.length() + pathVar.getValueSize());
-            matchedVars.add(pathVar);
-        }
-
-        String remTemplatePath = templatePath.substring(lastEnd);
-        //Match the remaining constant at the end
-        //Handling case where feed instancePath has partitions
-        if (StringUtils.isNotEmpty(path) && StringUtils.isNotEmpty(remTemplatePath)
-                && !path.contains(remTemplatePath)) {
-            return null;
-        }
-
+        long time = getPathTemplate(templatePath).getTime(instancePath.toString(), timeZone);
+        return time == FeedPathTemplate.NO_MATCH ? null : new Date(time);
+    }
 
-        //Reset other fields
-        for (FeedDataPath.VARS var : FeedDataPath.VARS.values()) {
-            if (!matchedVars.contains(var)) {
-                switch (var.getCalendarField()) {
-                case Calendar.DAY_OF_MONTH:
-                    cal.set(var.getCalendarField(), 1);
-                    break;
-                default:
-                    cal.set(var.getCalendarField(), 0);
-                }
+    /**
+     * Returns the compiled form of a feed location's path template, compiling it only once.
+     *
+     * @param templatePath template path from feed definition
+     * @return compiled template
+     */
+    public static FeedPathTemplate getPathTemplate(String templatePath) {
+        FeedPathTemplate template = PATH_TEMPLATES.get(templatePath);
+        if (template == null) {
+            if (PATH_TEMPLATES.size() >= MAX_CACHED_TEMPLATES) {
+                PATH_TEMPLATES.clear();
             }
-            cal.set(Calendar.SECOND, 0);
-            cal.set(Calendar.MILLISECOND, 0);
+            template = FeedPathTemplate.compile(templatePath);
+            PATH_TEMPLATES.put(templatePath, template);
         }
-        return cal.getTime();
+        return template;
     }
 
     public static Path getFeedBasePath(String feedPath) throws IOException {
@@ -599,15 +572,8 @@ public final class FeedHelper {
      * @return Process which produces the given feed.
      */
     public static Process getProducerProcess(Feed feed) throws FalconException {
-
-        EntityList dependencies = EntityUtil.getEntityDependencies(feed);
-
-        for (EntityList.EntityElement e : dependencies.getElements()) {
-            if (e.tag.contains(EntityList.OUTPUT_TAG)) {
-                return EntityUtil.getEntity(EntityType.PROCESS, e.name);
-            }
-        }
-        return null;
+        Set<Entity> producers = EntityGraph.get().getUpstream(feed, 1);
+        return producers.isEmpty() ? null : (Process) producers.iterator().next();
     }
 
     /**
@@ -635,11 +601,10 @@ public final class FeedHelper {
             }
         }
 
-        ExpressionHelper.setReferenceDate(producerStartDate);
         ExpressionHelper evaluator = ExpressionHelper.get();
         // producerInstance = feedInstanceTime + (difference between producer process and feed)
         // the feedInstance before or equal to this time is the required one
-        Date relativeFeedInstance = evaluator.evaluate(outputInstance, Date.class);
+        Date relativeFeedInstance = evaluator.evaluate(outputInstance, Date.class, producerStartDate);
         Date feedInstanceActual = EntityUtil.getPreviousInstanceTime(feedCluster.getValidity().getStart(),
                 feed.getFrequency(), feed.getTimezone(), relativeFeedInstance);
         Long producerInstanceTime = feedInstanceTime.getTime() + (producerStartDate.getTime()
@@ -687,13 +652,8 @@ public final class FeedHelper {
      */
     public static Set<Process> getConsumerProcesses(Feed feed) throws FalconException {
         Set<Process> result = new HashSet<>();
-        EntityList dependencies = EntityUtil.getEntityDependencies(feed);
-
-        for (EntityList.EntityElement e : dependencies.getElements()) {
-            if (e.tag.contains(EntityList.INPUT_TAG)) {
-                Process consumer = EntityUtil.getEntity(EntityType.PROCESS, e.name);
-                result.add(consumer);
-            }
+        for (Entity consumer : EntityGraph.get().getDownstream(feed, 1)) {
+            result.add((Process) consumer);
         }
         return result;
     }
@@ -737,9 +697,8 @@ public final class FeedHelper {
             */
 
             // Step 1.a & 1.b
-            ExpressionHelper.setReferenceDate(processStartDate);
             ExpressionHelper evaluator = ExpressionHelper.get();
-            Date startRelative = evaluator.evaluate(in.getStart(), Date.class);
+            Date startRelative = evaluator.evaluate(in.getStart(), Date.class, processStartDate);
             Date startTimeActual = EntityUtil.getPreviousInstanceTime(feedStartDate,
                     feed.getFrequency(), feed.getTimezone(), startRelative);
             Long offset = processStartDate.getTime() - startTimeActual.getTime();
@@ -756,12 +715,10 @@ public final class FeedHelper {
                 Date nextConsumerInstance = EntityUtil.getNextStartTime(processStartDate,
                         consumer.getFrequency(), consumer.getTimezone(), currentInstance);
 
-                ExpressionHelper.setReferenceDate(nextConsumerInstance);
-                evaluator = ExpressionHelper.get();
-                Date inputStart = evaluator.evaluate(in.getStart(), Date.class);
+                Date inputStart = evaluator.evaluate(in.getStart(), Date.class, nextConsumerInstance);
                 Long rangeStart = EntityUtil.getPreviousInstanceTime(feedStartDate, feed.getFrequency(),
                         feed.getTimezone(), inputStart).getTime();
-                Long rangeEnd = evaluator.evaluate(in.getEnd(), Date.class).getTime();
+                Long rangeEnd = evaluator.evaluate(in.getEnd(), Date.class, nextConsumerInstance).getTime();
                 if (rangeStart <= feedInstancetime.getTime() && feedInstancetime.getTime() <= rangeEnd) {
                     if (!nextConsumerInstance.before(processCluster.getValidity().getStart())
                             && nextConsumerInstance.before(processCluster.getValidity().getEnd())) {
@@ -779,12 +736,10 @@ public final class FeedHelper {
                 Date nextConsumerInstance = EntityUtil.getPreviousInstanceTime(processStartDate,
                         consumer.getFrequency(), consumer.getTimezone(), currentInstance);
 
-                ExpressionHelper.setReferenceDate(nextConsumerInstance);
-                evaluator = ExpressionHelper.get();
-                Date inputStart = evaluator.evaluate(in.getStart(), Date.class);
+                Date inputStart = evaluator.evaluate(in.getStart(), Date.class, nextConsumerInstance);
                 Long rangeStart = EntityUtil.getPreviousInstanceTime(feedStartDate, feed.getFrequency(),
                         feed.getTimezone(), inputStart).getTime();
-                Long rangeEnd = evaluator.evaluate(in.getEnd(), Date.class).getTime();
+                Long rangeEnd = evaluator.evaluate(in.getEnd(), Date.class, nextConsumerInstance).getTime();
                 if (rangeStart <= feedInstancetime.getTime() && feedInstancetime.getTime() <= rangeEnd) {
                     if (!nextConsumerInstance.before(processCluster.getValidity().getStart())
                             && nextConsumerInstance.before(processCluster.getValidity().getEnd())) {
@@ -806,7 +761,8 @@ public final class FeedHelper {
         for (String cluster : clusters) {
             Feed feed = (Feed) entityObject;
             Storage storage = createStorage(cluster, feed);
-            List<FeedInstanceStatus> feedListing = storage.getListing(feed, cluster, LocationType.DATA, start, end);
+            List<FeedInstanceStatus> feedListing = storage.getListing(feed, cluster, LocationType.DATA,
+                    start, end, true);
             FeedInstanceResult.Instance[] instances = new FeedInstanceResult.Instance[feedListing.size()];
             int index = 0;
             for (FeedInstanceStatus feedStatus : feedListing) {
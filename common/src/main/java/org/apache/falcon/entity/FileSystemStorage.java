@@ -22,6 +22,8 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.falcon.FalconException;
 import org.apache.falcon.Pair;
 import org.apache.falcon.entity.common.FeedDataPath;
+import org.apache.falcon.entity.common.FeedPathTemplate;
+import org.apache.falcon.entity.common.FeedPathWalker;
 import org.apache.falcon.entity.v0.AccessControlList;
 import org.apache.falcon.entity.v0.SchemaHelper;
 import org.apache.falcon.entity.v0.cluster.Cluster;
@@ -29,14 +31,14 @@ import org.apache.falcon.entity.v0.feed.Feed;
 import org.apache.falcon.entity.v0.feed.Location;
 import org.apache.falcon.entity.v0.feed.LocationType;
 import org.apache.falcon.entity.v0.feed.Locations;
-import org.apache.falcon.expression.ExpressionHelper;
+import org.apache.falcon.expression.SubstitutionTemplate;
 import org.apache.falcon.hadoop.HadoopClientFactory;
 import org.apache.falcon.retention.EvictedInstanceSerDe;
 import org.apache.falcon.retention.EvictionHelper;
 import org.apache.falcon.security.CurrentUser;
+import org.apache.falcon.util.DaemonThreadFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.conf.Configured;
-import org.apache.hadoop.fs.ContentSummary;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -44,7 +46,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.servlet.jsp.el.ELException;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.text.DateFormat;
@@ -52,13 +56,21 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * A file system implementation of a feed storage.
@@ -66,6 +78,13 @@ import java.util.regex.Pattern;
 public class FileSystemStorage extends Configured implements Storage {
 
     private static final Logger LOG = LoggerFactory.getLogger(FileSystemStorage.class);
+    /**
+     * Number of threads deleting the instances of a feed location during eviction. Eviction runs in the
+     * Oozie launcher, so it is read from the configuration of the eviction action.
+     */
+    public static final String EVICTION_THREADS = "falcon.retention.eviction.threads";
+    public static final int DEFAULT_EVICTION_THREADS = 10;
+
     private final StringBuffer instancePaths = new StringBuffer();
     private final StringBuilder instanceDates = new StringBuilder();
 
@@ -76,6 +95,7 @@ public class FileSystemStorage extends Configured implements Storage {
 
     private final String storageUrl;
     private final List<Location> locations;
+    private int evictionThreads = DEFAULT_EVICTION_THREADS;
 
     public FileSystemStorage(Feed feed) {
         this(FILE_SYSTEM_URL, feed.getLocations());
@@ -136,6 +156,18 @@ public class FileSystemStorage extends Configured implements Storage {
         this.locations = rawLocations;
     }
 
+    /**
+     * Create an instance from the URI Template, with the eviction settings of the given configuration.
+     *
+     * @param uriTemplate the uri template from org.apache.falcon.entity.FileSystemStorage#getUriTemplate
+     * @param conf configuration of the eviction action
+     * @throws URISyntaxException
+     */
+    protected FileSystemStorage(String uriTemplate, Configuration conf) throws URISyntaxException {
+        this(uriTemplate);
+        this.evictionThreads = conf.getInt(EVICTION_THREADS, DEFAULT_EVICTION_THREADS);
+    }
+
     @Override
     public TYPE getType() {
         return TYPE.FILESYSTEM;
@@ -329,63 +361,112 @@ public class FileSystemStorage extends Configured implements Storage {
         DateFormat dateFormat = new SimpleDateFormat(FeedHelper.FORMAT);
         dateFormat.setTimeZone(timeZone);
         Path feedBasePath = fs.makeQualified(FeedHelper.getFeedBasePath(feedPath));
-        for (Path path : toBeDeleted) {
-            deleteInstance(fs, path, feedBasePath);
+        List<Path> deleted = new ArrayList<Path>();
+        IOException failure = deleteInstances(fs, toBeDeleted, deleted);
+        for (Path path : deleted) {
             Date date = FeedHelper.getDate(feedPath, new Path(path.toUri().getPath()), timeZone);
             instanceDates.append(dateFormat.format(date)).append(',');
             instancePaths.append(path).append(EvictedInstanceSerDe.INSTANCEPATH_SEPARATOR);
         }
+        deleteEmptyParents(fs, deleted, feedBasePath);
+        if (failure != null) {
+            throw failure;
+        }
     }
 
     private List<Path> discoverInstanceToDelete(String inPath, TimeZone timeZone, Date start, FileSystem fs)
         throws IOException {
-        FileStatus[] files = findFilesForFeed(fs, inPath);
-        if (files == null || files.length == 0) {
+        LOG.info("Searching for instances of {} before {}", inPath, start);
+        List<Path> files = FeedPathWalker.compile(inPath).findInstancesBefore(fs, timeZone, start.getTime());
+        if (files.isEmpty()) {
             return Collections.emptyList();
         }
 
         List<Path> toBeDeleted = new ArrayList<Path>();
-        for (FileStatus file : files) {
-            Date date = FeedHelper.getDate(inPath, new Path(file.getPath().toUri().getPath()), timeZone);
-            LOG.debug("Considering {}", file.getPath().toUri().getPath());
-            LOG.debug("Date: {}", date);
-            if (date != null && !isDateInRange(date, start)) {
-                toBeDeleted.add(file.getPath());
+        FeedPathTemplate template = FeedHelper.getPathTemplate(inPath);
+        for (Path file : files) {
+            String path = file.toUri().getPath();
+            long time = template.getTime(path, timeZone);
+            LOG.debug("Considering {} with time {}", path, time);
+            if (time != FeedPathTemplate.NO_MATCH && time < start.getTime()) {
+                toBeDeleted.add(file);
             }
         }
         return toBeDeleted;
     }
 
-    private FileStatus[] findFilesForFeed(FileSystem fs, String feedBasePath) throws IOException {
-        Matcher matcher = FeedDataPath.PATTERN.matcher(feedBasePath);
-        while (matcher.find()) {
-            String var = feedBasePath.substring(matcher.start(), matcher.end());
-            feedBasePath = feedBasePath.replaceAll(Pattern.quote(var), "*");
-            matcher = FeedDataPath.PATTERN.matcher(feedBasePath);
-        }
-        LOG.info("Searching for {}", feedBasePath);
-        return fs.globStatus(new Path(feedBasePath));
-    }
+    /**
+     * Deletes the instances in parallel, on at most {@link #EVICTION_THREADS} threads.
+     *
+     * @param deleted instances deleted, in the order of paths
+     * @return failure to delete an instance, null if all of them were deleted
+     */
+    private IOException deleteInstances(final FileSystem fs, List<Path> paths, List<Path> deleted)
+        throws IOException {
+        int threads = Math.min(evictionThreads, paths.size());
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(threads, 1),
+                new DaemonThreadFactory("FeedEvictor"));
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>(paths.size());
+            for (final Path path : paths) {
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws IOException {
+                        return fs.delete(path, true);
+                    }
+                }));
+            }
 
-    private boolean isDateInRange(Date date, Date start) {
-        //ignore end ( && date.compareTo(end) <= 0 )
-        return date.compareTo(start) >= 0;
+            IOException failure = null;
+            for (int i = 0; i < paths.size(); i++) {
+                Path path = paths.get(i);
+                try {
+                    if (results.get(i).get()) {
+                        LOG.info("Deleted instance: {}", path);
+                        deleted.add(path);
+                        continue;
+                    }
+                    LOG.error("Unable to delete instance: {}", path);
+                } catch (ExecutionException e) {
+                    LOG.error("Unable to delete instance: {}", path, e.getCause());
+                }
+                if (failure == null) {
+                    failure = new IOException("Unable to delete instance: " + path);
+                }
+            }
+            return failure;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while deleting instances");
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
-    private void deleteInstance(FileSystem fs, Path path, Path feedBasePath) throws IOException {
-        if (fs.delete(path, true)) {
-            LOG.info("Deleted instance: {}", path);
-        }else{
-            throw new IOException("Unable to delete instance: " + path);
+    /**
+     * Deletes the directories left empty by the deleted instances in one pass from the deepest up to, but not
+     * including, the feed base path. Each directory is listed once, after all of its children were checked.
+     */
+    private void deleteEmptyParents(FileSystem fs, List<Path> deleted, Path feedBasePath) throws IOException {
+        TreeSet<Path> parents = new TreeSet<Path>(new Comparator<Path>() {
+            @Override
+            public int compare(Path first, Path second) {
+                int depth = second.depth() - first.depth();
+                return depth != 0 ? depth : first.compareTo(second);
+            }
+        });
+        for (Path path : deleted) {
+            addParent(parents, path, feedBasePath);
         }
-        deleteParentIfEmpty(fs, path.getParent(), feedBasePath);
-    }
 
-    private void deleteParentIfEmpty(FileSystem fs, Path parent, Path feedBasePath) throws IOException {
-        if (feedBasePath.equals(parent)) {
-            LOG.info("Not deleting feed base path: {}", parent);
-        } else {
-            FileStatus[] files = fs.listStatus(parent);
+        while (!parents.isEmpty()) {
+            Path parent = parents.pollFirst();
+            FileStatus[] files;
+            try {
+                files = fs.listStatus(parent);
+            } catch (FileNotFoundException e) {
+                continue;
+            }
             if (files != null && files.length == 0) {
                 LOG.info("Parent path: {} is empty, deleting path", parent);
                 if (fs.delete(parent, true)) {
@@ -393,15 +474,36 @@ public class FileSystemStorage extends Configured implements Storage {
                 } else {
                     throw new IOException("Unable to delete parent path:" + parent);
                 }
-                deleteParentIfEmpty(fs, parent.getParent(), feedBasePath);
+                addParent(parents, parent, feedBasePath);
             }
         }
     }
 
+    private static void addParent(Set<Path> parents, Path path, Path feedBasePath) {
+        Path parent = path.getParent();
+        if (parent != null && parent.depth() > feedBasePath.depth()) {
+            parents.add(parent);
+        }
+    }
+
     @Override
-    @SuppressWarnings("MagicConstant")
     public List<FeedInstanceStatus> getListing(Feed feed, String clusterName, LocationType locationType,
                                                Date start, Date end) throws FalconException {
+        return getListing(feed, clusterName, locationType, start, end, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The existing instances are found with a walk of the instance path template and each of them is listed
+     * once, for the availability flag. Without sizes, an instance without availability flag is taken as
+     * available if it holds a file with data or a directory. Sizes are computed in parallel and cached until
+     * the modification time of the instance changes.
+     */
+    @Override
+    @SuppressWarnings("MagicConstant")
+    public List<FeedInstanceStatus> getListing(Feed feed, String clusterName, LocationType locationType,
+                                               Date start, Date end, boolean withSize) throws FalconException {
 
         Calendar calendar = Calendar.getInstance();
         List<Location> clusterSpecificLocation = FeedHelper.
@@ -409,43 +511,33 @@ public class FileSystemStorage extends Configured implements Storage {
         Location location = getLocation(clusterSpecificLocation, locationType);
         try {
             FileSystem fileSystem = HadoopClientFactory.get().createProxiedFileSystem(getConf());
-            Cluster cluster = ClusterHelper.getCluster(clusterName);
-            Properties baseProperties = FeedHelper.getClusterProperties(cluster);
-            baseProperties.putAll(FeedHelper.getFeedProperties(feed));
             List<FeedInstanceStatus> instances = new ArrayList<FeedInstanceStatus>();
             Date feedStart = FeedHelper.getCluster(feed, clusterName).getValidity().getStart();
             TimeZone tz = feed.getTimezone();
             Date alignedStart = EntityUtil.getNextStartTime(feedStart, feed.getFrequency(), tz, start);
 
             String basePath = location.getPath();
+            SubstitutionTemplate pathTemplate = getInstancePathTemplate(feed, clusterName, location);
+            // a single instance is looked up directly, walking the tree down to it would take more calls
+            calendar.setTime(alignedStart);
+            calendar.add(feed.getFrequency().getTimeUnit().getCalendarUnit(), feed.getFrequency().getFrequencyAsInt());
+            Map<String, FileStatus> existing = calendar.getTime().after(end) ? null
+                    : findInstances(fileSystem, pathTemplate, tz, alignedStart, end);
+            List<FeedInstanceStatus> available = new ArrayList<FeedInstanceStatus>();
+            List<FileStatus> availableStatuses = new ArrayList<FileStatus>();
             while (!end.before(alignedStart)) {
-                Properties allProperties = ExpressionHelper.getTimeVariables(alignedStart, tz);
-                allProperties.putAll(baseProperties);
-                String feedInstancePath = ExpressionHelper.substitute(basePath, allProperties);
-                FileStatus fileStatus = getFileStatus(fileSystem, new Path(feedInstancePath));
+                String feedInstancePath = pathTemplate.render(alignedStart.getTime(), tz);
+                FileStatus fileStatus = existing == null ? getFileStatus(fileSystem, new Path(feedInstancePath))
+                        : existing.get(fileSystem.makeQualified(new Path(feedInstancePath)).toUri().getPath());
                 FeedInstanceStatus instance = new FeedInstanceStatus(feedInstancePath);
 
                 Date date = FeedHelper.getDate(basePath, new Path(feedInstancePath), tz);
                 instance.setInstance(SchemaHelper.formatDateUTC(date));
                 if (fileStatus != null) {
                     instance.setCreationTime(fileStatus.getModificationTime());
-                    ContentSummary contentSummary = fileSystem.getContentSummary(fileStatus.getPath());
-                    if (contentSummary != null) {
-                        long size = contentSummary.getSpaceConsumed();
-                        instance.setSize(size);
-                        if (!StringUtils.isEmpty(feed.getAvailabilityFlag())) {
-                            FileStatus doneFile = getFileStatus(fileSystem,
-                                    new Path(fileStatus.getPath(), feed.getAvailabilityFlag()));
-                            if (doneFile != null) {
-                                instance.setStatus(FeedInstanceStatus.AvailabilityStatus.AVAILABLE);
-                            } else {
-                                instance.setStatus(FeedInstanceStatus.AvailabilityStatus.PARTIAL);
-                            }
-                        } else {
-                            instance.setStatus(size > 0 ? FeedInstanceStatus.AvailabilityStatus.AVAILABLE
-                                    : FeedInstanceStatus.AvailabilityStatus.EMPTY);
-                        }
-                    }
+                    setStatus(fileSystem, feed, instance, fileStatus, !withSize);
+                    available.add(instance);
+                    availableStatuses.add(fileStatus);
                 }
                 instances.add(instance);
                 calendar.setTime(alignedStart);
@@ -453,6 +545,18 @@ public class FileSystemStorage extends Configured implements Storage {
                         feed.getFrequency().getFrequencyAsInt());
                 alignedStart = calendar.getTime();
             }
+
+            if (withSize && !available.isEmpty()) {
+                long[] sizes = InstanceSizeCache.get().getSizes(fileSystem, availableStatuses);
+                for (int i = 0; i < sizes.length; i++) {
+                    FeedInstanceStatus instance = available.get(i);
+                    instance.setSize(sizes[i]);
+                    if (StringUtils.isEmpty(feed.getAvailabilityFlag())) {
+                        instance.setStatus(sizes[i] > 0 ? FeedInstanceStatus.AvailabilityStatus.AVAILABLE
+                                : FeedInstanceStatus.AvailabilityStatus.EMPTY);
+                    }
+                }
+            }
             return instances;
         } catch (IOException e) {
             LOG.error("Unable to retrieve listing for {}:{}", locationType, getStorageUrl(), e);
@@ -460,12 +564,109 @@ public class FileSystemStorage extends Configured implements Storage {
         }
     }
 
+    /**
+     * Sets the status of an existing instance from a listing of the instance: its availability flag or, if the
+     * feed has none and the size is not computed, whether it holds data. An instance holds data when a file
+     * anywhere under it is not empty, which is when its computed size is more than 0.
+     */
+    private void setStatus(FileSystem fileSystem, Feed feed, FeedInstanceStatus instance, FileStatus fileStatus,
+                           boolean withoutSize) throws IOException {
+        String availabilityFlag = feed.getAvailabilityFlag();
+        if (StringUtils.isEmpty(availabilityFlag) && !withoutSize) {
+            return;
+        }
+
+        FileStatus[] children = null;
+        try {
+            children = fileSystem.listStatus(fileStatus.getPath());
+        } catch (FileNotFoundException e) {
+            // deleted since it was found
+        }
+        boolean hasFlag = false;
+        for (FileStatus child : children == null ? new FileStatus[0] : children) {
+            hasFlag |= child.getPath().getName().equals(availabilityFlag);
+        }
+        if (!hasFlag && availabilityFlag != null && availabilityFlag.contains(Path.SEPARATOR)) {
+            hasFlag = getFileStatus(fileSystem, new Path(fileStatus.getPath(), availabilityFlag)) != null;
+        }
+
+        if (!StringUtils.isEmpty(availabilityFlag)) {
+            instance.setStatus(hasFlag ? FeedInstanceStatus.AvailabilityStatus.AVAILABLE
+                    : FeedInstanceStatus.AvailabilityStatus.PARTIAL);
+        } else {
+            instance.setStatus(hasData(fileSystem, children) ? FeedInstanceStatus.AvailabilityStatus.AVAILABLE
+                    : FeedInstanceStatus.AvailabilityStatus.EMPTY);
+        }
+    }
+
+    // whether a file under the given statuses is not empty, looking into the directories only if no file at the
+    // level is
+    private static boolean hasData(FileSystem fileSystem, FileStatus[] statuses) throws IOException {
+        if (statuses == null) {
+            return false;
+        }
+        for (FileStatus status : statuses) {
+            if (!status.isDirectory() && status.getLen() > 0) {
+                return true;
+            }
+        }
+        for (FileStatus status : statuses) {
+            if (status.isDirectory()) {
+                try {
+                    if (hasData(fileSystem, fileSystem.listStatus(status.getPath()))) {
+                        return true;
+                    }
+                } catch (FileNotFoundException e) {
+                    // deleted since it was found
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the existing instances between start and end with a walk of the instance path template pruned to the
+     * range, rather than looking up each instance path.
+     *
+     * @return status of the instances by path, without scheme and authority
+     */
+    private Map<String, FileStatus> findInstances(FileSystem fileSystem, SubstitutionTemplate pathTemplate,
+                                                  TimeZone tz, Date start, Date end) throws IOException {
+        Map<String, FileStatus> instances = new HashMap<String, FileStatus>();
+        String template = fileSystem.makeQualified(new Path(pathTemplate.renderTimeTemplate())).toUri().getPath();
+        for (FileStatus status : FeedPathWalker.compile(template).findInstances(fileSystem, tz, start.getTime(),
+                end.getTime())) {
+            instances.put(status.getPath().toUri().getPath(), status);
+        }
+        return instances;
+    }
+
+    /**
+     * Returns the template of the instance paths of a location of the feed on the cluster, bound to the cluster
+     * and feed properties, so that only the time variables are left to render per instance.
+     */
+    public SubstitutionTemplate getInstancePathTemplate(Feed feed, String clusterName, LocationType locationType)
+        throws FalconException {
+        List<Location> clusterSpecificLocation = FeedHelper.
+                getLocations(FeedHelper.getCluster(feed, clusterName), feed);
+        return getInstancePathTemplate(feed, clusterName, getLocation(clusterSpecificLocation, locationType));
+    }
+
+    private SubstitutionTemplate getInstancePathTemplate(Feed feed, String clusterName, Location location)
+        throws FalconException {
+        Cluster cluster = ClusterHelper.getCluster(clusterName);
+        Properties baseProperties = FeedHelper.getClusterProperties(cluster);
+        baseProperties.putAll(FeedHelper.getFeedProperties(feed));
+        return SubstitutionTemplate.compile(location.getPath()).bind(baseProperties);
+    }
+
     @Override
     public FeedInstanceStatus.AvailabilityStatus getInstanceAvailabilityStatus(Feed feed, String clusterName,
                                                                    LocationType locationType,
                                                                    Date instanceTime) throws FalconException {
 
-        List<FeedInstanceStatus> result = getListing(feed, clusterName, locationType, instanceTime, instanceTime);
+        List<FeedInstanceStatus> result = getListing(feed, clusterName, locationType, instanceTime, instanceTime,
+                false);
         if (result.isEmpty()) {
             return FeedInstanceStatus.AvailabilityStatus.MISSING;
         } else {
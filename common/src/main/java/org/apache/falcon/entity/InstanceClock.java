@@ -0,0 +1,247 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.falcon.entity;
+
+import org.apache.falcon.entity.v0.Frequency;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nominal times of the instances of an entity, i.e. the times start + n * frequency in the entity's time zone.
+ *
+ * Instance n is at the time a {@link Calendar} gives when adding n times the frequency to the start time in a
+ * single step, but it is computed with plain arithmetic: minutes and hours are fixed durations, days keep the wall
+ * clock time of the start across daylight saving changes and months also keep the day of month, capped to the
+ * length of the month. A calendar is still used for times before the gregorian calendar was in use and for months
+ * within a day of a time zone transition. The instance at or before a given time is found in constant time too.
+ *
+ * Instances are immutable and thread safe.
+ */
+public final class InstanceClock {
+
+    private static final long MINUTE_IN_MS = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR_IN_MS = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY_IN_MS = TimeUnit.DAYS.toMillis(1);
+
+    // 1600-01-01T00:00Z, times from there on are computed without a calendar
+    private static final long MIN_GREGORIAN_TIME = -11676096000000L;
+
+    private final long start;
+    private final Frequency.TimeUnit timeUnit;
+    private final int frequency;
+    private final TimeZone timeZone;
+
+    // start time as seen in the time zone
+    private final int startOffset;
+    private final long startDay;
+    private final long startTimeOfDay;
+    private final int startYear;
+    private final int startMonth;
+    private final int startDayOfMonth;
+
+    public InstanceClock(long startTime, Frequency freq, TimeZone tz) {
+        this.start = startTime;
+        this.timeUnit = freq.getTimeUnit();
+        this.frequency = freq.getFrequencyAsInt();
+        this.timeZone = tz == null ? TimeZone.getTimeZone("UTC") : tz;
+
+        startOffset = timeZone.getOffset(start);
+        startDay = floorDiv(start + startOffset, DAY_IN_MS);
+        startTimeOfDay = start + startOffset - startDay * DAY_IN_MS;
+        long yearMonthDay = getDate(startDay);
+        startYear = (int) (yearMonthDay / 10000);
+        startMonth = (int) (yearMonthDay / 100 % 100);
+        startDayOfMonth = (int) (yearMonthDay % 100);
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * Returns the nominal time of instance n, where instance 0 is at the start time.
+     * Negative n gives the times the instances before the start would have had.
+     *
+     * @param n instance index
+     * @return instance time in millis since epoch
+     */
+    public long getInstanceTime(long n) {
+        switch (timeUnit) {
+        case minutes:
+            return start + n * frequency * MINUTE_IN_MS;
+
+        case hours:
+            return start + n * frequency * HOUR_IN_MS;
+
+        case days:
+            return start < MIN_GREGORIAN_TIME ? addWithCalendar(n) : getDayInstanceTime(n);
+
+        case months:
+            return start < MIN_GREGORIAN_TIME ? addWithCalendar(n) : getMonthInstanceTime(n);
+
+        default:
+            throw new IllegalArgumentException("Unhandled time unit " + timeUnit);
+        }
+    }
+
+    /**
+     * Returns the index of the last instance at or before the given time, negative if the time is before the start.
+     *
+     * @param time time in millis since epoch
+     * @return instance index
+     */
+    public long getInstanceIndex(long time) {
+        long n;
+        switch (timeUnit) {
+        case minutes:
+            return floorDiv(time - start, frequency * MINUTE_IN_MS);
+
+        case hours:
+            return floorDiv(time - start, frequency * HOUR_IN_MS);
+
+        case days:
+            n = floorDiv(getLocalDay(time) - startDay, frequency);
+            break;
+
+        case months:
+            long yearMonthDay = getDate(getLocalDay(time));
+            long months = (yearMonthDay / 10000 - startYear) * 12 + yearMonthDay / 100 % 100 - startMonth;
+            n = floorDiv(months, frequency);
+            break;
+
+        default:
+            throw new IllegalArgumentException("Unhandled time unit " + timeUnit);
+        }
+
+        // the estimate from the local date is off by one instance at most, unless the calendar had to be used
+        while (getInstanceTime(n) > time) {
+            n--;
+        }
+        while (getInstanceTime(n + 1) <= time) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Returns the index of the first instance at or after the given time.
+     *
+     * @param time time in millis since epoch
+     * @return instance index
+     */
+    public long getNextInstanceIndex(long time) {
+        long n = getInstanceIndex(time);
+        return getInstanceTime(n) == time ? n : n + 1;
+    }
+
+    // same as Calendar.add(DAY_OF_MONTH) on the start, which keeps the wall clock time unless it doesn't exist
+    private long getDayInstanceTime(long n) {
+        long day = startDay + n * frequency;
+        long time = day * DAY_IN_MS + startTimeOfDay - startOffset;
+        if (time < MIN_GREGORIAN_TIME) {
+            return addWithCalendar(n);
+        }
+
+        int offset = timeZone.getOffset(time);
+        if (offset != startOffset) {
+            long adjusted = time + startOffset - offset;
+            if (getLocalDay(adjusted) == day) {
+                return adjusted;
+            }
+        }
+        return time;
+    }
+
+    // same as Calendar.add(MONTH) on the start, which caps the day to the length of the month
+    private long getMonthInstanceTime(long n) {
+        long months = startYear * 12L + startMonth - 1 + n * frequency;
+        long year = floorDiv(months, 12);
+        int month = (int) (months - year * 12) + 1;
+        int dayOfMonth = Math.min(startDayOfMonth, getMonthLength(year, month));
+        long localTime = getEpochDay(year, month, dayOfMonth) * DAY_IN_MS + startTimeOfDay;
+        if (localTime < MIN_GREGORIAN_TIME + DAY_IN_MS) {
+            return addWithCalendar(n);
+        }
+
+        int offset = timeZone.getOffset(localTime - timeZone.getRawOffset());
+        long time = localTime - offset;
+        if (timeZone.getOffset(time - DAY_IN_MS) != offset || timeZone.getOffset(time + DAY_IN_MS) != offset) {
+            // wall clock times around a transition are resolved by the calendar
+            return addWithCalendar(n);
+        }
+        return time;
+    }
+
+    private long addWithCalendar(long n) {
+        Calendar cal = Calendar.getInstance(timeZone);
+        cal.setTimeInMillis(start);
+        cal.add(timeUnit.getCalendarUnit(), (int) (n * frequency));
+        return cal.getTimeInMillis();
+    }
+
+    private long getLocalDay(long time) {
+        return floorDiv(time + timeZone.getOffset(time), DAY_IN_MS);
+    }
+
+    // days since 1970-01-01 in the proleptic gregorian calendar
+    private static long getEpochDay(long year, int month, int dayOfMonth) {
+        // count years from march, so that the leap day is the last day of the year
+        long y = month <= 2 ? year - 1 : year;
+        long era = floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + dayOfMonth - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    // inverse of getEpochDay, as year * 10000 + month * 100 + day of month
+    private static long getDate(long epochDay) {
+        long days = epochDay + 719468;
+        long era = floorDiv(days, 146097);
+        long dayOfEra = days - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthOfYear = (5 * dayOfYear + 2) / 153;
+        long dayOfMonth = dayOfYear - (153 * monthOfYear + 2) / 5 + 1;
+        long month = monthOfYear < 10 ? monthOfYear + 3 : monthOfYear - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 10000 + month * 100 + dayOfMonth;
+    }
+
+    private static int getMonthLength(long year, int month) {
+        switch (month) {
+        case 2:
+            return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+        case 4:
+        case 6:
+        case 9:
+        case 11:
+            return 30;
+        default:
+            return 31;
+        }
+    }
+
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        return (x % y != 0 && (x < 0) != (y < 0)) ? q - 1 : q;
+    }
+}
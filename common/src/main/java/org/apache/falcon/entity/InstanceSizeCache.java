@@ -0,0 +1,162 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.falcon.entity;
+
+import org.apache.falcon.security.CurrentUser;
+import org.apache.falcon.util.DaemonThreadFactory;
+import org.apache.falcon.util.StartupProperties;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.security.UserGroupInformation;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sizes of feed instances for listings, computed with a content summary of each instance on a pool of threads
+ * and cached by file system, user and path until the modification time of the instance changes or the entry
+ * expires. Users may see different parts of an instance, so the size one of them gets isn't served to another.
+ *
+ * A content summary walks the whole instance on the namenode, so an instance unchanged since the last listing
+ * isn't walked again. A directory gets a new modification time when entries are added to or removed from it,
+ * not when files deeper down change, so an entry is only kept for a limited time, and the size of an instance
+ * still empty is not cached at all, as that is what an instance being written looks like.
+ */
+final class InstanceSizeCache {
+
+    private static final InstanceSizeCache INSTANCE = new InstanceSizeCache(
+            Integer.parseInt(StartupProperties.get().getProperty("feed.listing.size.threads", "10")),
+            Integer.parseInt(StartupProperties.get().getProperty("feed.listing.size.cache.entries", "10000")),
+            TimeUnit.SECONDS.toMillis(
+                    Long.parseLong(StartupProperties.get().getProperty("feed.listing.size.cache.ttl.secs", "600"))));
+
+    private final ExecutorService executor;
+    private final Map<String, CachedSize> sizes;
+    private final long ttlMillis;
+
+    InstanceSizeCache(int threads, final int maxEntries, long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.executor = Executors.newFixedThreadPool(threads, new DaemonThreadFactory("instance-size"));
+        this.sizes = new LinkedHashMap<String, CachedSize>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedSize> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    static InstanceSizeCache get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the space consumed by each instance, computing those not cached in parallel.
+     *
+     * @param fs file system of the instances
+     * @param instances status of the instances
+     * @return sizes in the order of the instances
+     * @throws IOException
+     */
+    long[] getSizes(final FileSystem fs, List<FileStatus> instances) throws IOException {
+        long[] result = new long[instances.size()];
+        long now = System.currentTimeMillis();
+        String prefix = fs.getUri() + " " + getUser() + " ";
+        List<Future<Long>> futures = new ArrayList<Future<Long>>(instances.size());
+        for (int i = 0; i < instances.size(); i++) {
+            final FileStatus instance = instances.get(i);
+            CachedSize cached;
+            synchronized (sizes) {
+                cached = sizes.get(prefix + instance.getPath().toUri().getPath());
+            }
+            if (cached != null && cached.modificationTime == instance.getModificationTime()
+                    && now - cached.computedAt < ttlMillis) {
+                result[i] = cached.size;
+                futures.add(null);
+            } else {
+                futures.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws IOException {
+                        return fs.getContentSummary(instance.getPath()).getSpaceConsumed();
+                    }
+                }));
+            }
+        }
+
+        try {
+            for (int i = 0; i < instances.size(); i++) {
+                if (futures.get(i) != null) {
+                    result[i] = futures.get(i).get();
+                    String key = prefix + instances.get(i).getPath().toUri().getPath();
+                    synchronized (sizes) {
+                        if (result[i] > 0) {
+                            sizes.put(key, new CachedSize(instances.get(i).getModificationTime(), now, result[i]));
+                        } else {
+                            sizes.remove(key);
+                        }
+                    }
+                }
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while computing instance sizes");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Unable to compute instance sizes", e.getCause());
+        } finally {
+            for (Future<Long> future : futures) {
+                if (future != null) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    // the user the proxied file systems are created for
+    private static String getUser() throws IOException {
+        return CurrentUser.isAuthenticated() ? CurrentUser.getUser()
+                : UserGroupInformation.getCurrentUser().getShortUserName();
+    }
+
+    /**
+     * Size of an instance with the modification time of the instance and the time it was computed at.
+     */
+    private static final class CachedSize {
+        private final long modificationTime;
+        private final long computedAt;
+        private final long size;
+
+        private CachedSize(long modificationTime, long computedAt, long size) {
+            this.modificationTime = modificationTime;
+            this.computedAt = computedAt;
+            this.size = size;
+        }
+    }
+}
@@ -89,11 +89,19 @@ public interface Storage extends Configurable {
     void validateACL(AccessControlList acl) throws FalconException;
 
     /**
-     * Get Feed Listing for a feed between a date range.
+     * Get Feed Listing for a feed between a date range, without the size of the instances unless it comes
+     * with the listing for free.
      */
     List<FeedInstanceStatus> getListing(Feed feed, String cluster, LocationType locationType,
                                         Date start, Date end) throws FalconException;
 
+    /**
+     * Get Feed Listing for a feed between a date range, computing the size of the instances only if asked to.
+     * Without sizes, the status of the instances is derived from their listing alone.
+     */
+    List<FeedInstanceStatus> getListing(Feed feed, String cluster, LocationType locationType,
+                                        Date start, Date end, boolean withSize) throws FalconException;
+
 
     /**
      * Checks the availability status for a given feed instance.
@@ -31,22 +31,26 @@ public final class FeedDataPath {
      * Standard variables for feed time components.
      */
     public enum VARS {
-        YEAR("([0-9]{4})", Calendar.YEAR, 4),
-        MONTH("(0[1-9]|1[0-2])", Calendar.MONTH, 2),
-        DAY("(0[1-9]|1[0-9]|2[0-9]|3[0-1])", Calendar.DAY_OF_MONTH, 2),
-        HOUR("([0-1][0-9]|2[0-4])", Calendar.HOUR_OF_DAY, 2),
-        MINUTE("([0-5][0-9]|60)", Calendar.MINUTE, 2);
+        YEAR("([0-9]{4})", Calendar.YEAR, 4, 0, 9999),
+        MONTH("(0[1-9]|1[0-2])", Calendar.MONTH, 2, 1, 12),
+        DAY("(0[1-9]|1[0-9]|2[0-9]|3[0-1])", Calendar.DAY_OF_MONTH, 2, 1, 31),
+        HOUR("([0-1][0-9]|2[0-4])", Calendar.HOUR_OF_DAY, 2, 0, 24),
+        MINUTE("([0-5][0-9]|60)", Calendar.MINUTE, 2, 0, 60);
 
         private final Pattern pattern;
         private final String valuePattern;
         private final int calendarField;
         private final int valueSize;
+        private final int minValue;
+        private final int maxValue;
 
-        private VARS(String patternRegularExpression, int calField, int numDigits) {
+        private VARS(String patternRegularExpression, int calField, int numDigits, int min, int max) {
             pattern = Pattern.compile("\\$\\{" + name() + "\\}");
             this.valuePattern = patternRegularExpression;
             this.calendarField = calField;
             this.valueSize = numDigits;
+            this.minValue = min;
+            this.maxValue = max;
         }
 
         public String getValuePattern() {
@@ -65,6 +69,13 @@ public final class FeedDataPath {
             return valueSize;
         }
 
+        /**
+         * Checks if the value parsed from {@link #getValueSize()} digits is allowed by the value pattern.
+         */
+        public boolean isValidValue(int value) {
+            return value >= minValue && value <= maxValue;
+        }
+
         public void setCalendar(Calendar cal, int value) {
             if (this == MONTH) {
                 cal.set(calendarField, value - 1);
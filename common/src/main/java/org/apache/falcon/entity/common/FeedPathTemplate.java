@@ -0,0 +1,336 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.falcon.entity.common;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+
+/**
+ * A feed path template like /data/${YEAR}/${MONTH}/${DAY} compiled into literal parts and fixed width
+ * variable slots, to match instance paths without regular expressions.
+ *
+ * Each variable takes exactly {@link FeedDataPath.VARS#getValueSize()} digits of the instance path, so a
+ * template always matches paths of the same length. Instances are immutable and thread safe.
+ *
+ * {@link #getTime(String, TimeZone)} extracts the instance time of a path with plain arithmetic, falling back
+ * to a {@link Calendar} only for dates it can't compute exactly that way, i.e. before the gregorian calendar was
+ * in use or within a day of a time zone transition.
+ */
+public final class FeedPathTemplate {
+
+    /**
+     * Returned by {@link #getTime(String, TimeZone)} when the path doesn't match the template.
+     */
+    public static final long NO_MATCH = Long.MIN_VALUE;
+
+    // dates from this year on are computed without a calendar, well clear of the julian to gregorian cutover
+    private static final int MIN_GREGORIAN_YEAR = 1600;
+    private static final long ONE_DAY = TimeUnit.DAYS.toMillis(1);
+
+    private final String template;
+    // for each part, either the literal text or null if the part is a variable
+    private final String[] literals;
+    private final FeedDataPath.VARS[] vars;
+    private final int length;
+
+    private FeedPathTemplate(String template, String[] literals, FeedDataPath.VARS[] vars) {
+        this.template = template;
+        this.literals = literals;
+        this.vars = vars;
+        int len = 0;
+        for (int i = 0; i < literals.length; i++) {
+            len += literals[i] != null ? literals[i].length() : vars[i].getValueSize();
+        }
+        this.length = len;
+    }
+
+    /**
+     * Compiles a feed path template. Text which is not a complete variable is matched as is.
+     *
+     * @param template feed path template
+     * @return compiled template
+     */
+    public static FeedPathTemplate compile(String template) {
+        List<String> literals = new ArrayList<String>();
+        List<FeedDataPath.VARS> vars = new ArrayList<FeedDataPath.VARS>();
+        Matcher matcher = FeedDataPath.PATTERN.matcher(template);
+        int currentIndex = 0;
+        while (matcher.find()) {
+            if (matcher.start() > currentIndex) {
+                literals.add(template.substring(currentIndex, matcher.start()));
+                vars.add(null);
+            }
+            literals.add(null);
+            vars.add(FeedDataPath.VARS.from(matcher.group()));
+            currentIndex = matcher.end();
+        }
+        if (currentIndex < template.length()) {
+            literals.add(template.substring(currentIndex));
+            vars.add(null);
+        }
+        return new FeedPathTemplate(template, literals.toArray(new String[literals.size()]),
+                vars.toArray(new FeedDataPath.VARS[vars.size()]));
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * @return length of the instance paths matched by this template
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Checks if the instance path matches the whole template.
+     */
+    public boolean matches(String path) {
+        return path.length() == length && matchesAt(path, 0);
+    }
+
+    /**
+     * Checks if the instance path, starting at offset, begins with a match of the whole template.
+     */
+    public boolean matchesAt(String path, int offset) {
+        if (path.length() - offset < length) {
+            return false;
+        }
+
+        int index = offset;
+        for (int i = 0; i < literals.length; i++) {
+            if (literals[i] != null) {
+                if (!path.startsWith(literals[i], index)) {
+                    return false;
+                }
+                index += literals[i].length();
+            } else {
+                if (parseValue(path, index, vars[i]) < 0) {
+                    return false;
+                }
+                index += vars[i].getValueSize();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the instance path, starting at offset, could be the start of a match of this template.
+     * Only the first character of a leading literal and the whole of a leading variable are checked.
+     */
+    public boolean startsAt(String path, int offset) {
+        if (literals.length == 0 || offset >= path.length()) {
+            return false;
+        }
+        if (literals[0] != null) {
+            return path.charAt(offset) == literals[0].charAt(0);
+        }
+        return parseValue(path, offset, vars[0]) >= 0;
+    }
+
+    /**
+     * Extracts the instance time from an actual data path, e.g. /path/2014/05/06 maps to 2014-05-06T00:00Z for
+     * the template /path/${YEAR}/${MONTH}/${DAY}. Only the literal text at the end of the template may be
+     * followed by more text (partitions) in the path. Time components missing from the template are taken as
+     * the start of their range, and values out of their range roll over into the next larger component.
+     *
+     * @param path actual data path
+     * @param timeZone time zone of the path's time components
+     * @return instance time in millis since epoch, or {@link #NO_MATCH} if the path doesn't match the template
+     */
+    public long getTime(String path, TimeZone timeZone) {
+        int year = 0;
+        int month = 1;
+        int day = 1;
+        int hour = 0;
+        int minute = 0;
+
+        int index = 0;
+        for (int i = 0; i < literals.length; i++) {
+            if (literals[i] != null) {
+                if (i == literals.length - 1) {
+                    // trailing text of the template only has to be found in the rest of the path
+                    if (index < path.length() && path.indexOf(literals[i], index) < 0) {
+                        return NO_MATCH;
+                    }
+                } else if (!path.startsWith(literals[i], index)) {
+                    return NO_MATCH;
+                }
+                index += literals[i].length();
+                continue;
+            }
+
+            int value = parseInt(path, index, vars[i].getValueSize());
+            if (value == Integer.MIN_VALUE) {
+                return NO_MATCH;
+            }
+            index += vars[i].getValueSize();
+            switch (vars[i]) {
+            case YEAR:
+                year = value;
+                break;
+            case MONTH:
+                month = value;
+                break;
+            case DAY:
+                day = value;
+                break;
+            case HOUR:
+                hour = value;
+                break;
+            default:
+                minute = value;
+            }
+        }
+
+        return getTime(year, month, day, hour, minute, timeZone);
+    }
+
+    /**
+     * Extracts the values of the variables of a path which matches the whole template, into an array indexed by
+     * the ordinal of {@link FeedDataPath.VARS}. Numbers out of the range of their variable are extracted as is,
+     * as {@link #getTime(String, TimeZone)} rolls them over.
+     *
+     * @param path text to match, e.g. a single component of an instance path
+     * @param values values of the variables, left unchanged for variables missing from the template
+     * @return false if the path doesn't match the template
+     */
+    boolean getValues(String path, int[] values) {
+        if (path.length() != length) {
+            return false;
+        }
+
+        int index = 0;
+        for (int i = 0; i < literals.length; i++) {
+            if (literals[i] != null) {
+                if (!path.startsWith(literals[i], index)) {
+                    return false;
+                }
+                index += literals[i].length();
+            } else {
+                int value = parseInt(path, index, vars[i].getValueSize());
+                if (value == Integer.MIN_VALUE) {
+                    return false;
+                }
+                values[vars[i].ordinal()] = value;
+                index += vars[i].getValueSize();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the time of local date and time components in a time zone, components out of their range rolling
+     * over into the next larger component.
+     */
+    static long getTime(int year, int month, int day, int hour, int minute, TimeZone timeZone) {
+        if (year >= MIN_GREGORIAN_YEAR) {
+            long localTime = ((getEpochDay(year, month, day) * 24 + hour) * 60 + minute) * 60000L;
+            int offset = timeZone.getOffset(localTime - timeZone.getRawOffset());
+            long time = localTime - offset;
+            if (timeZone.getOffset(time - ONE_DAY) == offset && timeZone.getOffset(time + ONE_DAY) == offset) {
+                return time;
+            }
+        }
+
+        Calendar cal = Calendar.getInstance(timeZone);
+        cal.clear();
+        cal.set(year, month - 1, day, hour, minute, 0);
+        return cal.getTimeInMillis();
+    }
+
+    // days since 1970-01-01 in the proleptic gregorian calendar, month and day may be out of their range
+    private static long getEpochDay(int year, int month, int day) {
+        int monthIndex = month - 1;
+        long y = year + monthIndex / 12;
+        int m = monthIndex % 12 + 1;
+        if (m < 1) {
+            y--;
+            m += 12;
+        }
+        // count years from march, so that the leap day is the last day of the year
+        if (m <= 2) {
+            y--;
+        }
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (m > 2 ? m - 3 : m + 9) + 2) / 5;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468 + day - 1;
+    }
+
+    // same as Integer.parseInt on the substring, with Integer.MIN_VALUE for text which isn't a number
+    private static int parseInt(String path, int offset, int size) {
+        if (offset + size > path.length()) {
+            return Integer.MIN_VALUE;
+        }
+
+        int index = offset;
+        boolean negative = false;
+        char first = path.charAt(index);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            index++;
+            if (size == 1) {
+                return Integer.MIN_VALUE;
+            }
+        }
+
+        int value = 0;
+        for (; index < offset + size; index++) {
+            char c = path.charAt(index);
+            if (c < '0' || c > '9') {
+                return Integer.MIN_VALUE;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses the digits of a variable at the given offset of an instance path.
+     *
+     * @return value of the variable, or -1 if the text isn't a valid value for it
+     */
+    static int parseValue(String path, int offset, FeedDataPath.VARS var) {
+        int size = var.getValueSize();
+        if (offset + size > path.length()) {
+            return -1;
+        }
+
+        int value = 0;
+        for (int i = offset; i < offset + size; i++) {
+            char c = path.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return var.isValidValue(value) ? value : -1;
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+}
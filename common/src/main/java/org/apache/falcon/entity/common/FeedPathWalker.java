@@ -0,0 +1,258 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.falcon.entity.common;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds the instance paths of a feed path template like /data/${YEAR}/${MONTH}/${DAY} by walking the file system
+ * one path component at a time, instead of globbing the whole tree.
+ *
+ * The leading components without variables are not listed. At each component with variables, the directories
+ * reached so far are listed and their children are matched against the component. The time components known
+ * from the matched names give the earliest and the latest instance time a subtree may hold, so subtrees which
+ * only hold instances outside of the range looked for are never listed.
+ *
+ * Instances are immutable and thread safe.
+ */
+public final class FeedPathWalker {
+
+    private static final int UNKNOWN = Integer.MIN_VALUE;
+    // the time bounds of a subtree are computed in local time, a day of slack covers any time zone transition
+    private static final long SLACK = TimeUnit.DAYS.toMillis(1);
+
+    private final String template;
+    private final String basePath;
+    // components after the base path, with the compiled template of those which have variables, null otherwise
+    private final String[] components;
+    private final FeedPathTemplate[] templates;
+
+    private FeedPathWalker(String template, String basePath, String[] components, FeedPathTemplate[] templates) {
+        this.template = template;
+        this.basePath = basePath;
+        this.components = components;
+        this.templates = templates;
+    }
+
+    /**
+     * Compiles the path of a feed location, without scheme and authority.
+     *
+     * @param template feed path template
+     * @return compiled walker
+     */
+    public static FeedPathWalker compile(String template) {
+        List<String> parts = new ArrayList<String>();
+        for (String part : template.split("/")) {
+            if (!part.isEmpty()) {
+                parts.add(part);
+            }
+        }
+
+        StringBuilder base = new StringBuilder();
+        int first = 0;
+        while (first < parts.size() && !FeedDataPath.PATTERN.matcher(parts.get(first)).find()) {
+            base.append('/').append(parts.get(first));
+            first++;
+        }
+        if (base.length() == 0 || !template.startsWith("/")) {
+            base.insert(0, template.startsWith("/") ? "/" : ".");
+        }
+
+        int count = parts.size() - first;
+        String[] components = new String[count];
+        FeedPathTemplate[] templates = new FeedPathTemplate[count];
+        for (int i = 0; i < count; i++) {
+            components[i] = parts.get(first + i);
+            if (FeedDataPath.PATTERN.matcher(components[i]).find()) {
+                templates[i] = FeedPathTemplate.compile(components[i]);
+            }
+        }
+        return new FeedPathWalker(template, base.toString(), components, templates);
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * Finds the instance paths which may hold instances before the given time. Subtrees which can only hold
+     * later instances are not listed, the caller still has to check the time of each path returned.
+     *
+     * @param fs file system of the feed
+     * @param timeZone time zone of the time components of the paths
+     * @param before time in millis since epoch
+     * @return qualified instance paths
+     * @throws IOException
+     */
+    public List<Path> findInstancesBefore(FileSystem fs, TimeZone timeZone, long before) throws IOException {
+        List<FileStatus> instances = findInstances(fs, timeZone, Long.MIN_VALUE, before - 1);
+        List<Path> paths = new ArrayList<Path>(instances.size());
+        for (FileStatus instance : instances) {
+            paths.add(instance.getPath());
+        }
+        return paths;
+    }
+
+    /**
+     * Finds the instance paths which may hold instances between start and end, both inclusive. Subtrees which
+     * can only hold instances outside of the range are not listed, the caller still has to check the time of
+     * each path returned.
+     *
+     * @param fs file system of the feed
+     * @param timeZone time zone of the time components of the paths
+     * @param start time in millis since epoch
+     * @param end time in millis since epoch
+     * @return status of the instance paths, with qualified paths
+     * @throws IOException
+     */
+    public List<FileStatus> findInstances(FileSystem fs, TimeZone timeZone, long start, long end)
+        throws IOException {
+        Path base = fs.makeQualified(new Path(basePath));
+        if (components.length == 0) {
+            FileStatus status = getFileStatus(fs, base);
+            return status == null ? Collections.<FileStatus>emptyList() : Collections.singletonList(status);
+        }
+
+        int[] fields = new int[FeedDataPath.VARS.values().length];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = UNKNOWN;
+        }
+
+        List<Node> level = Collections.singletonList(new Node(base, null, fields));
+        for (int i = 0; i < components.length && !level.isEmpty(); i++) {
+            boolean leaf = i == components.length - 1;
+            List<Node> next = new ArrayList<Node>();
+            for (Node node : level) {
+                if (templates[i] == null) {
+                    Path path = new Path(node.path, components[i]);
+                    if (!leaf) {
+                        next.add(new Node(path, null, node.fields));
+                    } else {
+                        FileStatus status = getFileStatus(fs, path);
+                        if (status != null) {
+                            next.add(new Node(status.getPath(), status, node.fields));
+                        }
+                    }
+                    continue;
+                }
+
+                for (FileStatus child : listStatus(fs, node.path)) {
+                    if (!leaf && !child.isDirectory()) {
+                        continue;
+                    }
+                    int[] childFields = node.fields.clone();
+                    if (templates[i].getValues(child.getPath().getName(), childFields)
+                            && mayOverlap(childFields, timeZone, start, end)) {
+                        next.add(new Node(child.getPath(), child, childFields));
+                    }
+                }
+            }
+            level = next;
+        }
+
+        List<FileStatus> instances = new ArrayList<FileStatus>(level.size());
+        for (Node node : level) {
+            instances.add(node.status);
+        }
+        return instances;
+    }
+
+    private static FileStatus getFileStatus(FileSystem fs, Path path) throws IOException {
+        try {
+            return fs.getFileStatus(path);
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static FileStatus[] listStatus(FileSystem fs, Path path) throws IOException {
+        try {
+            FileStatus[] children = fs.listStatus(path);
+            return children == null ? new FileStatus[0] : children;
+        } catch (FileNotFoundException e) {
+            return new FileStatus[0];
+        }
+    }
+
+    /**
+     * Checks if a subtree may hold instances in the range, from the time components known so far. The others are
+     * taken at the start of their range for the earliest instance time of the subtree, and at the end of it for
+     * the latest. Subtrees with no known year or with a value out of its range are always walked.
+     */
+    private static boolean mayOverlap(int[] fields, TimeZone timeZone, long start, long end) {
+        for (FeedDataPath.VARS var : FeedDataPath.VARS.values()) {
+            int value = fields[var.ordinal()];
+            if (value != UNKNOWN && !var.isValidValue(value)) {
+                return true;
+            }
+        }
+
+        int year = fields[FeedDataPath.VARS.YEAR.ordinal()];
+        if (year == UNKNOWN) {
+            return true;
+        }
+
+        long earliest = FeedPathTemplate.getTime(year, getField(fields, FeedDataPath.VARS.MONTH, 1),
+                getField(fields, FeedDataPath.VARS.DAY, 1), getField(fields, FeedDataPath.VARS.HOUR, 0),
+                getField(fields, FeedDataPath.VARS.MINUTE, 0), timeZone);
+        if (earliest - SLACK > end) {
+            return false;
+        }
+        // the largest values roll over, which is beyond the latest instance and so still a bound
+        long latest = FeedPathTemplate.getTime(year, getField(fields, FeedDataPath.VARS.MONTH, 12),
+                getField(fields, FeedDataPath.VARS.DAY, 31), getField(fields, FeedDataPath.VARS.HOUR, 24),
+                getField(fields, FeedDataPath.VARS.MINUTE, 60), timeZone);
+        return latest + SLACK >= start;
+    }
+
+    private static int getField(int[] fields, FeedDataPath.VARS var, int defaultValue) {
+        int value = fields[var.ordinal()];
+        return value == UNKNOWN ? defaultValue : value;
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+
+    /**
+     * A path reached by the walk with the time components matched along the way.
+     */
+    private static final class Node {
+        private final Path path;
+        // null for the paths of components without variables, which are not listed
+        private final FileStatus status;
+        private final int[] fields;
+
+        private Node(Path path, FileStatus status, int[] fields) {
+            this.path = path;
+            this.status = status;
+            this.fields = fields;
+        }
+    }
+}
@@ -70,6 +70,9 @@ public final class FeedLocationStore implements ConfigurationChangeListener {
     protected final FeedPathStore<FeedLookupResult.FeedProperties> store = new
             RadixTree<FeedLookupResult.FeedProperties>();
 
+    // shared so that the compiled path templates of the tree are reused across lookups
+    private final FalconRadixUtils.FeedRegexAlgorithm feedRegexAlgorithm = new FalconRadixUtils.FeedRegexAlgorithm();
+
     private static FeedLocationStore instance = new FeedLocationStore();
 
     private FeedLocationStore(){
@@ -155,6 +158,6 @@ public final class FeedLocationStore implements ConfigurationChangeListener {
 
 
     public Collection<FeedLookupResult.FeedProperties> reverseLookup(String path) {
-        return store.find(path, new FalconRadixUtils.FeedRegexAlgorithm());
+        return store.find(path, feedRegexAlgorithm);
     }
 }
@@ -30,22 +30,45 @@ import org.apache.falcon.service.ConfigurationChangeListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * An in-memory graph of entities and relationship among themselves.
+ *
+ * Nodes are interned to int ids and edges are kept as int arrays per node, both the undirected relationships
+ * returned by {@link #getDependents(Entity)} and the direction of data flow between feeds and processes, i.e.
+ * from an input feed to its process and from a process to its output feeds. The graph is updated incrementally
+ * as entities are added and removed, and the transitive upstream and downstream entities of a node are cached
+ * until the graph next changes.
  */
 public final class EntityGraph implements ConfigurationChangeListener {
 
     private static final Logger LOG = LoggerFactory.getLogger(EntityGraph.class);
 
+    private static final int[] NO_EDGES = new int[0];
+
     private static EntityGraph instance = new EntityGraph();
 
-    private Map<Node, Set<Node>> graph = new ConcurrentHashMap<Node, Set<Node>>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Node, Integer> nodeIds = new HashMap<Node, Integer>();
+    private final List<Node> nodes = new ArrayList<Node>();
+    private int[][] neighbours = new int[16][];
+    private int[][] downstream = new int[16][];
+    private int[][] upstream = new int[16][];
+
+    // transitive closures keyed by node id and depth, dropped whenever an edge changes
+    private final Map<Long, int[]> downstreamClosures = new ConcurrentHashMap<Long, int[]>();
+    private final Map<Long, int[]> upstreamClosures = new ConcurrentHashMap<Long, int[]>();
 
     private EntityGraph() {
     }
@@ -55,30 +78,121 @@ public final class EntityGraph implements ConfigurationChangeListener {
     }
 
     public Set<Entity> getDependents(Entity entity) throws FalconException {
-        Node entityNode = new Node(entity.getEntityType(), entity.getName());
-        if (graph.containsKey(entityNode)) {
-            ConfigurationStore store = ConfigurationStore.get();
-            Set<Entity> dependents = new HashSet<Entity>();
-            for (Node node : graph.get(entityNode)) {
-                Entity dependentEntity = store.get(node.type, node.name);
-                if (dependentEntity != null) {
-                    dependents.add(dependentEntity);
-                } else {
-                    LOG.error("Dependent entity {} was not found in configuration store.", node);
+        int[] dependents;
+        lock.readLock().lock();
+        try {
+            Integer id = nodeIds.get(new Node(entity.getEntityType(), entity.getName()));
+            dependents = id == null ? NO_EDGES : getEdges(neighbours, id);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return dependents.length == 0 ? null : toEntities(dependents);
+    }
+
+    /**
+     * Returns the entities data flows to from the given entity, i.e. the processes consuming a feed and the
+     * feeds produced by a process, and so on up to the given depth.
+     *
+     * @param entity feed or process
+     * @param depth number of edges to follow, 1 for the direct consumers or outputs only
+     * @return downstream entities, empty if there are none
+     */
+    public Set<Entity> getDownstream(Entity entity, int depth) throws FalconException {
+        return toEntities(getClosure(entity, depth, downstream, downstreamClosures));
+    }
+
+    /**
+     * Returns the entities data flows from into the given entity, i.e. the processes producing a feed and the
+     * feeds consumed by a process, and so on up to the given depth.
+     *
+     * @param entity feed or process
+     * @param depth number of edges to follow, 1 for the direct producers or inputs only
+     * @return upstream entities, empty if there are none
+     */
+    public Set<Entity> getUpstream(Entity entity, int depth) throws FalconException {
+        return toEntities(getClosure(entity, depth, upstream, upstreamClosures));
+    }
+
+    private int[] getClosure(Entity entity, int depth, int[][] edges, Map<Long, int[]> closures) {
+        lock.readLock().lock();
+        try {
+            Integer id = nodeIds.get(new Node(entity.getEntityType(), entity.getName()));
+            if (id == null || depth < 1) {
+                return NO_EDGES;
+            }
+
+            Long key = ((long) id << 32) | depth;
+            int[] closure = closures.get(key);
+            if (closure == null) {
+                closure = traverse(id, depth, edges);
+                closures.put(key, closure);
+            }
+            return closure;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // breadth first walk of the edges from the node, up to the given depth
+    private int[] traverse(int id, int depth, int[][] edges) {
+        boolean[] visited = new boolean[nodes.size()];
+        visited[id] = true;
+        int[] found = new int[nodes.size()];
+        int count = 0;
+        for (int next : getEdges(edges, id)) {
+            if (!visited[next]) {
+                visited[next] = true;
+                found[count++] = next;
+            }
+        }
+        int levelStart = 0;
+        for (int d = 1; d < depth && levelStart < count; d++) {
+            int levelEnd = count;
+            for (int i = levelStart; i < levelEnd; i++) {
+                for (int next : getEdges(edges, found[i])) {
+                    if (!visited[next]) {
+                        visited[next] = true;
+                        found[count++] = next;
+                    }
                 }
             }
-            return dependents;
-        } else {
-            return null;
+            levelStart = levelEnd;
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    private Set<Entity> toEntities(int[] ids) throws FalconException {
+        Node[] dependentNodes = new Node[ids.length];
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < ids.length; i++) {
+                dependentNodes[i] = nodes.get(ids[i]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        ConfigurationStore store = ConfigurationStore.get();
+        Set<Entity> dependents = new HashSet<Entity>();
+        for (Node node : dependentNodes) {
+            Entity dependentEntity = store.get(node.type, node.name);
+            if (dependentEntity != null) {
+                dependents.add(dependentEntity);
+            } else {
+                LOG.error("Dependent entity {} was not found in configuration store.", node);
+            }
         }
+        return dependents;
     }
 
     @Override
     public void onAdd(Entity entity) throws FalconException {
         Map<Node, Set<Node>> nodeEdges = null;
+        Map<Node, Set<Node>> flowEdges = null;
         switch (entity.getEntityType()) {
         case PROCESS:
             nodeEdges = getEdgesFor((Process) entity);
+            flowEdges = getFlowEdgesFor((Process) entity);
             break;
         case FEED:
             nodeEdges = getEdgesFor((Feed) entity);
@@ -90,13 +204,29 @@ public final class EntityGraph implements ConfigurationChangeListener {
         }
         LOG.debug("Adding edges for {}: {}", entity.getName(), nodeEdges);
 
-        for (Map.Entry<Node, Set<Node>> entry : nodeEdges.entrySet()) {
-            LOG.debug("Adding edges : {} for {}", entry.getValue(), entry.getKey());
-            if (graph.containsKey(entry.getKey())) {
-                graph.get(entry.getKey()).addAll(entry.getValue());
-            } else {
-                graph.put(entry.getKey(), entry.getValue());
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Node, Set<Node>> entry : nodeEdges.entrySet()) {
+                LOG.debug("Adding edges : {} for {}", entry.getValue(), entry.getKey());
+                int from = intern(entry.getKey());
+                for (Node to : entry.getValue()) {
+                    addEdge(neighbours, from, intern(to));
+                }
             }
+            if (flowEdges != null) {
+                for (Map.Entry<Node, Set<Node>> entry : flowEdges.entrySet()) {
+                    int from = intern(entry.getKey());
+                    for (Node to : entry.getValue()) {
+                        int toId = intern(to);
+                        addEdge(downstream, from, toId);
+                        addEdge(upstream, toId, from);
+                    }
+                }
+            }
+            downstreamClosures.clear();
+            upstreamClosures.clear();
+        } finally {
+            lock.writeLock().unlock();
         }
         LOG.debug("Merged edges to graph {}", entity.getName());
     }
@@ -104,9 +234,11 @@ public final class EntityGraph implements ConfigurationChangeListener {
     @Override
     public void onRemove(Entity entity) throws FalconException {
         Map<Node, Set<Node>> nodeEdges = null;
+        Map<Node, Set<Node>> flowEdges = null;
         switch (entity.getEntityType()) {
         case PROCESS:
             nodeEdges = getEdgesFor((Process) entity);
+            flowEdges = getFlowEdgesFor((Process) entity);
             break;
         case FEED:
             nodeEdges = getEdgesFor((Feed) entity);
@@ -117,13 +249,80 @@ public final class EntityGraph implements ConfigurationChangeListener {
             return;
         }
 
-        for (Map.Entry<Node, Set<Node>> entry : nodeEdges.entrySet()) {
-            if (graph.containsKey(entry.getKey())) {
-                graph.get(entry.getKey()).removeAll(entry.getValue());
-                if (graph.get(entry.getKey()).isEmpty()) {
-                    graph.remove(entry.getKey());
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Node, Set<Node>> entry : nodeEdges.entrySet()) {
+                Integer from = nodeIds.get(entry.getKey());
+                if (from == null) {
+                    continue;
+                }
+                for (Node to : entry.getValue()) {
+                    Integer toId = nodeIds.get(to);
+                    if (toId != null) {
+                        removeEdge(neighbours, from, toId);
+                    }
+                }
+            }
+            if (flowEdges != null) {
+                for (Map.Entry<Node, Set<Node>> entry : flowEdges.entrySet()) {
+                    Integer from = nodeIds.get(entry.getKey());
+                    for (Node to : entry.getValue()) {
+                        Integer toId = nodeIds.get(to);
+                        if (from != null && toId != null) {
+                            removeEdge(downstream, from, toId);
+                            removeEdge(upstream, toId, from);
+                        }
+                    }
                 }
             }
+            downstreamClosures.clear();
+            upstreamClosures.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ids are never reused, entity names are few enough to keep them all
+    private int intern(Node node) {
+        Integer id = nodeIds.get(node);
+        if (id == null) {
+            id = nodes.size();
+            nodes.add(node);
+            nodeIds.put(node, id);
+            if (id == neighbours.length) {
+                neighbours = Arrays.copyOf(neighbours, id * 2);
+                downstream = Arrays.copyOf(downstream, id * 2);
+                upstream = Arrays.copyOf(upstream, id * 2);
+            }
+        }
+        return id;
+    }
+
+    private static int[] getEdges(int[][] edges, int id) {
+        return id < edges.length && edges[id] != null ? edges[id] : NO_EDGES;
+    }
+
+    private static void addEdge(int[][] edges, int from, int to) {
+        int[] current = getEdges(edges, from);
+        for (int id : current) {
+            if (id == to) {
+                return;
+            }
+        }
+        int[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = to;
+        edges[from] = updated;
+    }
+
+    private static void removeEdge(int[][] edges, int from, int to) {
+        int[] current = getEdges(edges, from);
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == to) {
+                int[] updated = Arrays.copyOf(current, current.length - 1);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                edges[from] = updated;
+                return;
+            }
         }
     }
 
@@ -176,6 +375,29 @@ public final class EntityGraph implements ConfigurationChangeListener {
         return nodeEdges;
     }
 
+    // edges in the direction of data flow, from input feeds to the process and from the process to output feeds
+    private Map<Node, Set<Node>> getFlowEdgesFor(Process process) {
+        Map<Node, Set<Node>> flowEdges = new HashMap<Node, Set<Node>>();
+        Node processNode = new Node(EntityType.PROCESS, process.getName());
+        Set<Node> outputFeeds = new HashSet<Node>();
+        flowEdges.put(processNode, outputFeeds);
+        if (process.getInputs() != null) {
+            for (Input input : process.getInputs().getInputs()) {
+                Node feedNode = new Node(EntityType.FEED, input.getFeed());
+                if (!flowEdges.containsKey(feedNode)) {
+                    flowEdges.put(feedNode, new HashSet<Node>());
+                }
+                flowEdges.get(feedNode).add(processNode);
+            }
+        }
+        if (process.getOutputs() != null) {
+            for (Output output : process.getOutputs().getOutputs()) {
+                outputFeeds.add(new Node(EntityType.FEED, output.getFeed()));
+            }
+        }
+        return flowEdges;
+    }
+
     private Map<Node, Set<Node>> getEdgesFor(Feed feed) {
         Map<Node, Set<Node>> nodeEdges = new HashMap<Node, Set<Node>>();
         Node feedNode = new Node(EntityType.FEED, feed.getName());
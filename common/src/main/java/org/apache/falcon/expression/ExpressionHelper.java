@@ -18,40 +18,59 @@
 
 package org.apache.falcon.expression;
 
+import org.apache.commons.el.Coercions;
+import org.apache.commons.el.Expression;
 import org.apache.commons.el.ExpressionEvaluatorImpl;
+import org.apache.commons.el.ExpressionString;
 import org.apache.falcon.FalconException;
 import org.apache.falcon.entity.common.FeedDataPath;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.servlet.jsp.el.ELException;
-import javax.servlet.jsp.el.ExpressionEvaluator;
 import javax.servlet.jsp.el.FunctionMapper;
 import javax.servlet.jsp.el.VariableResolver;
 import java.lang.reflect.Method;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * Helper for evaluating expressions.
+ *
+ * Expressions are parsed once and kept in a cache, and the functions they call are resolved from a table built
+ * when the class is loaded. The reference date and variables an expression is evaluated against are held in a
+ * per thread evaluation context; the evaluate methods taking a reference date or variables install their own
+ * context for the duration of the call and restore the previous one afterwards, so that they neither depend on
+ * nor disturb what an earlier {@link #setReferenceDate(Date)} left behind on the thread.
  */
 public final class ExpressionHelper implements FunctionMapper, VariableResolver {
 
     private static final Logger LOG = LoggerFactory.getLogger(ExpressionHelper.class);
     private static final ExpressionHelper INSTANCE = new ExpressionHelper();
 
-    private static final ThreadLocal<Properties> THREAD_VARIABLES = new ThreadLocal<Properties>();
+    private static final ThreadLocal<EvaluationContext> CONTEXT = new ThreadLocal<EvaluationContext>();
 
     private static final Pattern SYS_PROPERTY_PATTERN = Pattern.compile("\\$\\{[A-Za-z0-9_.]+\\}");
 
-    private static final ExpressionEvaluator EVALUATOR = new ExpressionEvaluatorImpl();
+    // the library keeps its own unbounded cache of parsed expressions, bypassed for the bounded one below
+    private static final ExpressionEvaluatorImpl EVALUATOR = new ExpressionEvaluatorImpl(true);
     private static final ExpressionHelper RESOLVER = ExpressionHelper.get();
+    private static final org.apache.commons.el.Logger EL_LOGGER = new org.apache.commons.el.Logger(System.out);
+
+    private static final Map<String, Method> FUNCTIONS = getFunctions();
+
+    // parsed expressions by expression string, cleared when it grows past the limit
+    private static final int MAX_CACHED_EXPRESSIONS = 10000;
+    private static final ConcurrentHashMap<String, Object> EXPRESSIONS = new ConcurrentHashMap<String, Object>();
 
     public static final ThreadLocal<SimpleDateFormat> FORMATTER = new ThreadLocal<SimpleDateFormat>() {
         @Override
@@ -77,51 +96,120 @@ public final class ExpressionHelper implements FunctionMapper, VariableResolver
         return evaluateFullExpression("${" + expression + "}", clazz);
     }
 
+    /**
+     * Evaluates the expression against the given reference date, leaving the evaluation context of the
+     * calling thread as it was.
+     */
+    public <T> T evaluate(String expression, Class<T> clazz, Date date) throws FalconException {
+        return evaluateFullExpression("${" + expression + "}", clazz, new EvaluationContext(date, null));
+    }
+
     @SuppressWarnings("unchecked")
     public <T> T evaluateFullExpression(String expression, Class<T> clazz) throws FalconException {
         try {
-            return (T) EVALUATOR.evaluate(expression, clazz, RESOLVER, RESOLVER);
+            Object parsed = parse(expression);
+            Object value;
+            if (parsed instanceof Expression) {
+                value = ((Expression) parsed).evaluate(RESOLVER, RESOLVER, EL_LOGGER);
+            } else if (parsed instanceof ExpressionString) {
+                value = ((ExpressionString) parsed).evaluate(RESOLVER, RESOLVER, EL_LOGGER);
+            } else {
+                value = parsed;
+            }
+            return (T) Coercions.coerce(value, clazz, EL_LOGGER);
         } catch (ELException e) {
             throw new FalconException("Unable to evaluate " + expression, e);
         }
     }
 
+    /**
+     * Evaluates the full expression with the given variables, leaving the evaluation context of the
+     * calling thread as it was.
+     */
+    public <T> T evaluateFullExpression(String expression, Class<T> clazz, Properties variables)
+        throws FalconException {
+        return evaluateFullExpression(expression, clazz, new EvaluationContext(null, variables));
+    }
+
+    private <T> T evaluateFullExpression(String expression, Class<T> clazz, EvaluationContext context)
+        throws FalconException {
+        EvaluationContext previous = CONTEXT.get();
+        CONTEXT.set(context);
+        try {
+            return evaluateFullExpression(expression, clazz);
+        } finally {
+            if (previous == null) {
+                CONTEXT.remove();
+            } else {
+                CONTEXT.set(previous);
+            }
+        }
+    }
+
+    private static Object parse(String expression) throws ELException {
+        if (expression == null) {
+            throw new ELException("Expression is null");
+        }
+
+        Object parsed = EXPRESSIONS.get(expression);
+        if (parsed == null) {
+            parsed = EVALUATOR.parseExpressionString(expression);
+            if (EXPRESSIONS.size() >= MAX_CACHED_EXPRESSIONS) {
+                EXPRESSIONS.clear();
+            }
+            EXPRESSIONS.put(expression, parsed);
+        }
+        return parsed;
+    }
+
     @Override
     public Method resolveFunction(String prefix, String name) {
+        Method method = FUNCTIONS.get(name);
+        if (method == null) {
+            throw new UnsupportedOperationException("Not found " + prefix + ":" + name);
+        }
+        return method;
+    }
+
+    private static Map<String, Method> getFunctions() {
+        Map<String, Method> functions = new HashMap<String, Method>();
         for (Method method : ExpressionHelper.class.getDeclaredMethods()) {
-            if (method.getName().equals(name)) {
-                return method;
+            if (!functions.containsKey(method.getName())) {
+                functions.put(method.getName(), method);
             }
         }
-        throw new UnsupportedOperationException("Not found " + prefix + ":" + name);
+        return functions;
     }
 
     public void setPropertiesForVariable(Properties properties) {
-        THREAD_VARIABLES.set(properties);
+        CONTEXT.set(new EvaluationContext(getReferenceDate(), properties));
     }
 
     @Override
     public Object resolveVariable(String field) {
-        return THREAD_VARIABLES.get().get(field);
+        EvaluationContext context = CONTEXT.get();
+        Properties variables = context == null ? null : context.getVariables();
+        return variables == null ? null : variables.get(field);
     }
 
-    private static ThreadLocal<Date> referenceDate = new ThreadLocal<Date>();
-
     public static void setReferenceDate(Date date) {
-        referenceDate.set(date);
-        Properties variables = getTimeVariables(date, TimeZone.getTimeZone("UTC"));
-        THREAD_VARIABLES.set(variables);
+        CONTEXT.set(new EvaluationContext(date, null));
+    }
+
+    private static Date getReferenceDate() {
+        EvaluationContext context = CONTEXT.get();
+        return context == null ? null : context.referenceDate;
     }
 
     public static Properties getTimeVariables(Date date, TimeZone tz) {
         Properties vars = new Properties();
-        Calendar cal = Calendar.getInstance(tz);
-        cal.setTime(date);
-        vars.put(FeedDataPath.VARS.YEAR.name(), String.format("%04d", cal.get(Calendar.YEAR)));
-        vars.put(FeedDataPath.VARS.MONTH.name(), String.format("%02d", (cal.get(Calendar.MONTH) + 1)));
-        vars.put(FeedDataPath.VARS.DAY.name(), String.format("%02d", cal.get(Calendar.DAY_OF_MONTH)));
-        vars.put(FeedDataPath.VARS.HOUR.name(), String.format("%02d", cal.get(Calendar.HOUR_OF_DAY)));
-        vars.put(FeedDataPath.VARS.MINUTE.name(), String.format("%02d", cal.get(Calendar.MINUTE)));
+        int[] fields = SubstitutionTemplate.getTimeFields(date.getTime(), tz);
+        StringBuilder value = new StringBuilder(4);
+        for (FeedDataPath.VARS var : FeedDataPath.VARS.values()) {
+            value.setLength(0);
+            SubstitutionTemplate.appendPadded(value, fields[var.ordinal()], var.getValueSize());
+            vars.put(var.name(), value.toString());
+        }
         return vars;
     }
 
@@ -129,7 +217,7 @@ public final class ExpressionHelper implements FunctionMapper, VariableResolver
         int day;
         Calendar nominalTime = Calendar.getInstance();
         nominalTime.setTimeZone(TimeZone.getTimeZone("UTC"));
-        nominalTime.setTime(referenceDate.get());
+        nominalTime.setTime(getReferenceDate());
         int currentWeekDay = nominalTime.get(Calendar.DAY_OF_WEEK);
         int weekDay = DayOfWeek.valueOf(weekDayName).ordinal() + 1; //to map to Calendar.SUNDAY ...
         day = weekDay - currentWeekDay;
@@ -170,51 +258,51 @@ public final class ExpressionHelper implements FunctionMapper, VariableResolver
     }
 
     public static Date now(int hour, int minute) {
-        return getRelative(referenceDate.get(), Calendar.SECOND, 0, 0, hour, minute);
+        return getRelative(getReferenceDate(), Calendar.SECOND, 0, 0, hour, minute);
     }
 
     public static Date today(int hour, int minute) {
-        return getRelative(referenceDate.get(), Calendar.DAY_OF_MONTH, 0, 0, hour, minute);
+        return getRelative(getReferenceDate(), Calendar.DAY_OF_MONTH, 0, 0, hour, minute);
     }
 
     public static Date yesterday(int hour, int minute) {
-        return getRelative(referenceDate.get(), Calendar.DAY_OF_MONTH, 0, -1, hour, minute);
+        return getRelative(getReferenceDate(), Calendar.DAY_OF_MONTH, 0, -1, hour, minute);
     }
 
     public static Date currentMonth(int day, int hour, int minute) {
-        return getRelative(referenceDate.get(), Calendar.MONTH, 0, day, hour, minute);
+        return getRelative(getReferenceDate(), Calendar.MONTH, 0, day, hour, minute);
     }
 
     public static Date lastMonth(int day, int hour, int minute) {
-        return getRelative(referenceDate.get(), Calendar.MONTH, -1, day, hour, minute);
+        return getRelative(getReferenceDate(), Calendar.MONTH, -1, day, hour, minute);
     }
 
     public static Date currentWeek(String weekDay, int hour, int minute) {
         int day = getDayOffset(weekDay);
-        return getRelative(referenceDate.get(), Calendar.DAY_OF_MONTH, 0, day, hour, minute);
+        return getRelative(getReferenceDate(), Calendar.DAY_OF_MONTH, 0, day, hour, minute);
     }
 
     public static Date lastWeek(String weekDay, int hour, int minute) {
         int day = getDayOffset(weekDay);
-        return getRelative(referenceDate.get(), Calendar.DAY_OF_MONTH, 0, day - 7, hour, minute);
+        return getRelative(getReferenceDate(), Calendar.DAY_OF_MONTH, 0, day - 7, hour, minute);
     }
 
     public static Date currentYear(int month, int day, int hour, int minute) {
-        return getRelative(referenceDate.get(), Calendar.YEAR, month, day, hour, minute);
+        return getRelative(getReferenceDate(), Calendar.YEAR, month, day, hour, minute);
     }
 
     public static Date lastYear(int month, int day, int hour, int minute) {
-        return getRelative(referenceDate.get(), Calendar.YEAR, month - 12, day, hour, minute);
+        return getRelative(getReferenceDate(), Calendar.YEAR, month - 12, day, hour, minute);
     }
 
     public static Date latest(int n) {
         //by pass Falcon validations
-        return referenceDate.get();
+        return getReferenceDate();
     }
 
     public static Date future(int n, int limit) {
         //by pass Falcon validations
-        return referenceDate.get();
+        return getReferenceDate();
     }
 
     public static long hours(int val) {
@@ -242,6 +330,11 @@ public final class ExpressionHelper implements FunctionMapper, VariableResolver
     }
 
     public static String substitute(String originalValue, Properties properties) {
+        return SubstitutionTemplate.compile(originalValue).render(properties);
+    }
+
+    // substitution by repeated pattern matching, for values which may expand into more variables
+    static String substituteWithPattern(String originalValue, Properties properties) {
         Matcher envVarMatcher = SYS_PROPERTY_PATTERN.matcher(originalValue);
         while (envVarMatcher.find()) {
             String envVar = originalValue.substring(envVarMatcher.start() + 2,
@@ -257,4 +350,24 @@ public final class ExpressionHelper implements FunctionMapper, VariableResolver
         return originalValue;
     }
 
+    /**
+     * Reference date and variables expressions are evaluated against. Without explicit variables, the time
+     * variables of the reference date in UTC are used, computed when first asked for.
+     */
+    private static final class EvaluationContext {
+        private final Date referenceDate;
+        private Properties variables;
+
+        private EvaluationContext(Date referenceDate, Properties variables) {
+            this.referenceDate = referenceDate;
+            this.variables = variables;
+        }
+
+        private Properties getVariables() {
+            if (variables == null && referenceDate != null) {
+                variables = getTimeVariables(referenceDate, TimeZone.getTimeZone("UTC"));
+            }
+            return variables;
+        }
+    }
 }
@@ -0,0 +1,345 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.falcon.expression;
+
+import org.apache.falcon.entity.common.FeedDataPath;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A text with ${name} variables, like the location path /data/${YEAR}/${MONTH}/${DAY}, compiled into literal
+ * and variable segments, so that it can be rendered in a single pass.
+ *
+ * Rendering gives the same text as {@link ExpressionHelper#substitute(String, Properties)}: a variable is
+ * replaced by its property, or else by the environment variable of the same name, and is left as is when
+ * neither is set. A template can be bound to properties which are the same for all instances, after which
+ * the time variables of {@link FeedDataPath.VARS} are rendered from an instance time without building
+ * properties. Values with a '$' may be expanded again by substitute, so rendering falls back to it for those.
+ *
+ * Instances are immutable and thread safe.
+ */
+public final class SubstitutionTemplate {
+
+    private static final long DAY_IN_MS = TimeUnit.DAYS.toMillis(1);
+    // 1600-01-01T00:00Z, local dates from there on are computed without a calendar
+    private static final long MIN_GREGORIAN_TIME = -11676096000000L;
+
+    private final String template;
+    // for each segment, either the literal text or null if the segment is a variable
+    private final String[] literals;
+    private final String[] names;
+    private final FeedDataPath.VARS[] timeVars;
+    private final boolean hasVariables;
+    // properties bound to the template, null if none
+    private final Properties properties;
+
+    private SubstitutionTemplate(String template, String[] literals, String[] names, Properties properties) {
+        this.template = template;
+        this.literals = literals;
+        this.names = names;
+        this.properties = properties;
+        this.timeVars = new FeedDataPath.VARS[names.length];
+        boolean variables = false;
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] != null) {
+                variables = true;
+                timeVars[i] = getTimeVar(names[i]);
+            }
+        }
+        this.hasVariables = variables;
+    }
+
+    /**
+     * Compiles a text with ${name} variables, where a name is made of letters, digits, '_' and '.'.
+     *
+     * @param template text to compile
+     * @return compiled template
+     */
+    public static SubstitutionTemplate compile(String template) {
+        List<String> literals = new ArrayList<String>();
+        List<String> names = new ArrayList<String>();
+        int literalStart = 0;
+        int index = template.indexOf("${");
+        while (index >= 0) {
+            int end = getVariableEnd(template, index);
+            if (end < 0) {
+                index = template.indexOf("${", index + 1);
+                continue;
+            }
+
+            if (index > literalStart) {
+                literals.add(template.substring(literalStart, index));
+                names.add(null);
+            }
+            literals.add(null);
+            names.add(template.substring(index + 2, end));
+            literalStart = end + 1;
+            index = template.indexOf("${", literalStart);
+        }
+        if (literalStart < template.length()) {
+            literals.add(template.substring(literalStart));
+            names.add(null);
+        }
+        return new SubstitutionTemplate(template, literals.toArray(new String[literals.size()]),
+                names.toArray(new String[names.size()]), null);
+    }
+
+    // index of the closing brace of a variable starting at index, or -1 if there is no valid variable there
+    private static int getVariableEnd(String text, int index) {
+        int i = index + 2;
+        while (i < text.length() && isNameChar(text.charAt(i))) {
+            i++;
+        }
+        return i > index + 2 && i < text.length() && text.charAt(i) == '}' ? i : -1;
+    }
+
+    private static boolean isNameChar(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_' || c == '.';
+    }
+
+    private static FeedDataPath.VARS getTimeVar(String name) {
+        for (FeedDataPath.VARS var : FeedDataPath.VARS.values()) {
+            if (var.name().equals(name)) {
+                return var;
+            }
+        }
+        return null;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * Binds the template to properties, replacing the variables which have a property, and those other than
+     * the time variables which have an environment variable, with their values once.
+     *
+     * @param props values of the variables, taking precedence over the time variables
+     * @return template bound to the properties
+     */
+    public SubstitutionTemplate bind(Properties props) {
+        List<String> boundLiterals = new ArrayList<String>();
+        List<String> boundNames = new ArrayList<String>();
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < literals.length; i++) {
+            String value = literals[i];
+            if (names[i] != null) {
+                value = props.getProperty(names[i]);
+                if (value == null && timeVars[i] == null) {
+                    value = System.getenv(names[i]);
+                }
+                if (value != null && value.indexOf('$') >= 0) {
+                    // the value may form variables with the text around it, which substitute expands
+                    return new SubstitutionTemplate(template, literals, names, props);
+                }
+                if (value == null && timeVars[i] == null) {
+                    value = "${" + names[i] + "}";
+                }
+            }
+
+            if (value != null) {
+                literal.append(value);
+            } else {
+                if (literal.length() > 0) {
+                    boundLiterals.add(literal.toString());
+                    boundNames.add(null);
+                    literal.setLength(0);
+                }
+                boundLiterals.add(null);
+                boundNames.add(names[i]);
+            }
+        }
+        if (literal.length() > 0) {
+            boundLiterals.add(literal.toString());
+            boundNames.add(null);
+        }
+        return new SubstitutionTemplate(template, boundLiterals.toArray(new String[boundLiterals.size()]),
+                boundNames.toArray(new String[boundNames.size()]), props);
+    }
+
+    /**
+     * Renders the template with the given properties, same as
+     * {@link ExpressionHelper#substitute(String, Properties)} on the template text.
+     */
+    public String render(Properties props) {
+        if (!hasVariables) {
+            return literals.length == 0 ? "" : literals[0];
+        }
+
+        StringBuilder result = new StringBuilder(template.length() + 16);
+        for (int i = 0; i < literals.length; i++) {
+            if (names[i] == null) {
+                result.append(literals[i]);
+                continue;
+            }
+
+            String value = props.getProperty(names[i]);
+            if (value == null) {
+                value = System.getenv(names[i]);
+            }
+            if (value == null) {
+                result.append("${").append(names[i]).append('}');
+            } else if (value.indexOf('$') >= 0) {
+                return ExpressionHelper.substituteWithPattern(template, props);
+            } else {
+                result.append(value);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Renders the template for an instance time, same as {@link ExpressionHelper#substitute(String, Properties)}
+     * on the template text with the time variables of {@link ExpressionHelper#getTimeVariables(Date, TimeZone)}
+     * and the bound properties on top of them.
+     *
+     * @param time instance time in millis since epoch
+     * @param timeZone time zone of the time variables
+     * @return rendered text
+     */
+    public String render(long time, TimeZone timeZone) {
+        if (!hasVariables) {
+            return literals.length == 0 ? "" : literals[0];
+        }
+
+        int[] fields = getTimeFields(time, timeZone);
+        StringBuilder result = new StringBuilder(template.length() + 16);
+        for (int i = 0; i < literals.length; i++) {
+            if (names[i] == null) {
+                result.append(literals[i]);
+                continue;
+            }
+
+            String value = properties == null ? null : properties.getProperty(names[i]);
+            if (value == null && timeVars[i] != null) {
+                appendPadded(result, fields[timeVars[i].ordinal()], timeVars[i].getValueSize());
+                continue;
+            }
+            if (value == null) {
+                value = System.getenv(names[i]);
+            }
+
+            if (value == null) {
+                result.append("${").append(names[i]).append('}');
+            } else if (value.indexOf('$') >= 0) {
+                Properties allProperties = ExpressionHelper.getTimeVariables(new Date(time), timeZone);
+                if (properties != null) {
+                    allProperties.putAll(properties);
+                }
+                return ExpressionHelper.substituteWithPattern(template, allProperties);
+            } else {
+                result.append(value);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Renders the template with the bound properties, leaving the time variables without a property as they are,
+     * e.g. the path template of the instances of a feed location bound to the cluster and feed properties.
+     */
+    public String renderTimeTemplate() {
+        if (!hasVariables) {
+            return literals.length == 0 ? "" : literals[0];
+        }
+
+        StringBuilder result = new StringBuilder(template.length() + 16);
+        for (int i = 0; i < literals.length; i++) {
+            if (names[i] == null) {
+                result.append(literals[i]);
+                continue;
+            }
+
+            String value = properties == null ? null : properties.getProperty(names[i]);
+            if (value == null && timeVars[i] == null) {
+                value = System.getenv(names[i]);
+            }
+            if (value == null) {
+                result.append("${").append(names[i]).append('}');
+            } else if (value.indexOf('$') >= 0) {
+                return ExpressionHelper.substituteWithPattern(template, properties);
+            } else {
+                result.append(value);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Returns the calendar fields of a time in a time zone, indexed by the ordinal of {@link FeedDataPath.VARS}.
+     */
+    static int[] getTimeFields(long time, TimeZone timeZone) {
+        int[] fields = new int[FeedDataPath.VARS.values().length];
+        if (time < MIN_GREGORIAN_TIME + DAY_IN_MS) {
+            Calendar cal = Calendar.getInstance(timeZone);
+            cal.setTimeInMillis(time);
+            fields[FeedDataPath.VARS.YEAR.ordinal()] = cal.get(Calendar.YEAR);
+            fields[FeedDataPath.VARS.MONTH.ordinal()] = cal.get(Calendar.MONTH) + 1;
+            fields[FeedDataPath.VARS.DAY.ordinal()] = cal.get(Calendar.DAY_OF_MONTH);
+            fields[FeedDataPath.VARS.HOUR.ordinal()] = cal.get(Calendar.HOUR_OF_DAY);
+            fields[FeedDataPath.VARS.MINUTE.ordinal()] = cal.get(Calendar.MINUTE);
+            return fields;
+        }
+
+        long localTime = time + timeZone.getOffset(time);
+        long epochDay = floorDiv(localTime, DAY_IN_MS);
+        int timeOfDay = (int) (localTime - epochDay * DAY_IN_MS);
+
+        // civil date of the day, counting years from march so that the leap day is the last day of the year
+        long days = epochDay + 719468;
+        long era = floorDiv(days, 146097);
+        long dayOfEra = days - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthOfYear = (5 * dayOfYear + 2) / 153;
+        int month = (int) (monthOfYear < 10 ? monthOfYear + 3 : monthOfYear - 9);
+
+        fields[FeedDataPath.VARS.YEAR.ordinal()] = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+        fields[FeedDataPath.VARS.MONTH.ordinal()] = month;
+        fields[FeedDataPath.VARS.DAY.ordinal()] = (int) (dayOfYear - (153 * monthOfYear + 2) / 5 + 1);
+        fields[FeedDataPath.VARS.HOUR.ordinal()] = timeOfDay / 3600000;
+        fields[FeedDataPath.VARS.MINUTE.ordinal()] = timeOfDay / 60000 % 60;
+        return fields;
+    }
+
+    // same as String.format("%0<width>d", value) for non negative values
+    static void appendPadded(StringBuilder builder, int value, int width) {
+        for (int limit = 10, digits = 1; digits < width; digits++, limit *= 10) {
+            if (value < limit) {
+                builder.append('0');
+            }
+        }
+        builder.append(value);
+    }
+
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        return (x % y != 0 && (x < 0) != (y < 0)) ? q - 1 : q;
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+}
@@ -30,6 +30,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -129,6 +130,36 @@ public final class CurrentUser {
         CURRENT_USER.remove();
     }
 
+    /**
+     * Wraps a task to run on another thread as the user of the calling thread, with the same authenticated and
+     * proxy user, or as no user if none is authenticated. The user is cleared once the task is done.
+     *
+     * @param callable task
+     * @param <T> result of the task
+     * @return task running as the current user
+     */
+    public static <T> Callable<T> withCurrentUser(final Callable<T> callable) {
+        CurrentUser current = CURRENT_USER.get();
+        final String authenticatedUser = current == null ? null : current.authenticatedUser;
+        final String proxyUser = current == null ? null : current.proxyUser;
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                clear();
+                if (authenticatedUser != null) {
+                    CurrentUser user = new CurrentUser(authenticatedUser);
+                    user.proxyUser = proxyUser;
+                    CURRENT_USER.set(user);
+                }
+                try {
+                    return callable.call();
+                } finally {
+                    clear();
+                }
+            }
+        };
+    }
+
     /**
      * Checks if the authenticate method is already called.
      *
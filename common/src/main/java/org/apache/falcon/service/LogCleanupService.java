@@ -29,6 +29,7 @@ import org.apache.falcon.FalconException;
 import org.apache.falcon.aspect.GenericAlert;
 import org.apache.falcon.cleanup.AbstractCleanupHandler;
 import org.apache.falcon.cleanup.FeedCleanupHandler;
+import org.apache.falcon.cleanup.LogCleanupRun;
 import org.apache.falcon.cleanup.ProcessCleanupHandler;
 import org.apache.falcon.expression.ExpressionHelper;
 import org.apache.falcon.util.StartupProperties;
@@ -65,8 +66,10 @@ public class LogCleanupService implements FalconService {
         public void run() {
             try {
                 LOG.info("Cleaning up logs at: {}", new Date());
-                processCleanupHandler.cleanup();
-                feedCleanupHandler.cleanup();
+                LogCleanupRun cleanupRun = new LogCleanupRun();
+                processCleanupHandler.cleanup(cleanupRun);
+                feedCleanupHandler.cleanup(cleanupRun);
+                cleanupRun.execute();
             } catch (Throwable t) {
                 LOG.error("Error in cleanup task: ", t);
                 GenericAlert.alertLogCleanupServiceFailed(
@@ -20,10 +20,10 @@ package org.apache.falcon.util;
 
 import org.apache.commons.lang3.StringUtils;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
@@ -33,22 +33,41 @@ import java.util.Set;
  * Each node contains a part of the key, links to it's children and a collection of values
  * stored against the key(if the node is the suffix of a key)
  *
+ * Children are kept in an array and the values in a set which are both replaced, never modified, when the
+ * node changes. A node can hence be shallow copied with {@link #copy()} and the copy modified without
+ * affecting readers of the original.
  */
 public class RadixNode<T> {
 
+    @SuppressWarnings("rawtypes")
+    private static final RadixNode[] NO_CHILDREN = new RadixNode[0];
+
     private String key;
 
-    private List<RadixNode<T>> children;
+    private RadixNode<T>[] children;
 
     private boolean isTerminal;
 
     private Set<T> values;
 
+    @SuppressWarnings("unchecked")
     public RadixNode(){
         key = "";
-        children = new LinkedList<RadixNode<T>>();
+        children = NO_CHILDREN;
         isTerminal = false;
-        values = new HashSet<T>();
+        values = Collections.emptySet();
+    }
+
+    /**
+     * Returns a shallow copy of this node, sharing the children and values until either is changed.
+     */
+    public RadixNode<T> copy() {
+        RadixNode<T> node = new RadixNode<T>();
+        node.key = key;
+        node.children = children;
+        node.isTerminal = isTerminal;
+        node.values = values;
+        return node;
     }
 
     public String getKey() {
@@ -60,11 +79,57 @@ public class RadixNode<T> {
     }
 
     public List<RadixNode<T>> getChildren() {
-        return children;
+        return Collections.unmodifiableList(Arrays.asList(children));
+    }
+
+    @SuppressWarnings("unchecked")
+    public void setChildren(List<RadixNode<T>> newChildren) {
+        children = newChildren.isEmpty() ? NO_CHILDREN : newChildren.toArray(new RadixNode[newChildren.size()]);
     }
 
-    public void setChildren(List<RadixNode<T>> children) {
-        this.children = children;
+    public int getChildCount() {
+        return children.length;
+    }
+
+    public RadixNode<T> getChild(int index) {
+        return children[index];
+    }
+
+    /**
+     * Finds the child whose key starts with the given character.
+     *
+     * @return index of the child or -1 if there is none
+     */
+    public int indexOfChild(char firstChar) {
+        for (int i = 0; i < children.length; i++) {
+            if (children[i].getKey().charAt(0) == firstChar) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public void setChild(int index, RadixNode<T> child) {
+        RadixNode<T>[] newChildren = children.clone();
+        newChildren[index] = child;
+        children = newChildren;
+    }
+
+    public void addChild(RadixNode<T> child) {
+        RadixNode<T>[] newChildren = Arrays.copyOf(children, children.length + 1);
+        newChildren[children.length] = child;
+        children = newChildren;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void removeChild(int index) {
+        if (children.length == 1) {
+            children = NO_CHILDREN;
+            return;
+        }
+        RadixNode<T>[] newChildren = Arrays.copyOf(children, children.length - 1);
+        System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+        children = newChildren;
     }
 
     public boolean isTerminal() {
@@ -90,19 +155,27 @@ public class RadixNode<T> {
     }
 
     public void setValues(Collection<T> newValues) {
-        values = new HashSet<T>();
-        values.addAll(newValues);
+        values = newValues.isEmpty() ? Collections.<T>emptySet() : new HashSet<T>(newValues);
     }
 
     public void addValue(T value){
-        values.add(value);
+        if (!values.contains(value)) {
+            Set<T> newValues = new HashSet<T>(values);
+            newValues.add(value);
+            values = newValues;
+        }
     }
 
     public void removeValue(T value) {
-        values.remove(value);
+        if (values.contains(value)) {
+            Set<T> newValues = new HashSet<T>(values);
+            newValues.remove(value);
+            setValues(newValues);
+        }
     }
+
     public void removeAll() {
-        values.clear();
+        values = Collections.emptySet();
     }
 
     public boolean containsValue(T value){
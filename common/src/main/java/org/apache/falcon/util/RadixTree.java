@@ -25,12 +25,11 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Formattable;
 import java.util.Formatter;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 
 
@@ -54,6 +53,9 @@ import java.util.List;
  *    |--2[[value2]]*
  *    |-random[[random]]*
  *
+ * Nodes reachable from the root are never modified. Writers, which are serialized, copy the nodes on the path
+ * to the change and publish a new root, so readers traverse a consistent snapshot without taking any lock.
+ *
  * For more details on Radix Tree please refer
  * <a href="http://en.wikipedia.org/wiki/Radix_tree">Radix Tree</a>
  * @param <T> Type of value being stored against the key.
@@ -61,13 +63,14 @@ import java.util.List;
 public class RadixTree<T> implements FeedPathStore<T>, Formattable {
     private static final Logger LOG = LoggerFactory.getLogger(RadixTree.class);
 
-    protected RadixNode<T> root;
+    protected volatile RadixNode<T> root;
 
-    private int size;
+    private volatile int size;
 
     public RadixTree(){
-        root = new RadixNode<T>();
-        root.setKey("");
+        RadixNode<T> node = new RadixNode<T>();
+        node.setKey("");
+        root = node;
         size = 0;
     }
 
@@ -79,7 +82,7 @@ public class RadixTree<T> implements FeedPathStore<T>, Formattable {
      * @return number of keys in the tree.
      */
     @Override
-    public synchronized int getSize() {
+    public int getSize() {
         return size;
     }
 
@@ -93,14 +96,16 @@ public class RadixTree<T> implements FeedPathStore<T>, Formattable {
     public synchronized void insert(@Nullable String key, @Nonnull T value){
         if (key != null && !key.trim().isEmpty()){
             LOG.debug("Insert called for key: {} and value: {}", key.trim(), value);
-            insertKeyRecursive(key.trim(), value, root);
+            root = insertKeyRecursive(key.trim(), value, root);
         }
     }
 
-    private void insertKeyRecursive(String remainingText, T value, RadixNode<T> currentNode){
+    // returns the copy of currentNode which has the key inserted in its sub tree
+    private RadixNode<T> insertKeyRecursive(String remainingText, T value, RadixNode<T> currentNode){
 
         int currentMatchLength = currentNode.getMatchLength(remainingText);
         String newRemainingText = remainingText.substring(currentMatchLength, remainingText.length());
+        RadixNode<T> newNode = currentNode.copy();
 
         // if root or current node key is subset of the input key GO DOWN
         if (currentNode.isRoot()
@@ -108,47 +113,35 @@ public class RadixTree<T> implements FeedPathStore<T>, Formattable {
                 && currentMatchLength < remainingText.length())){
 
             // if a path to go down exists then go down that path
-            boolean foundPath = false;
-            for(RadixNode<T> child: currentNode.getChildren()){
-                if (child.getKey().charAt(0) == newRemainingText.charAt(0)){
-                    insertKeyRecursive(newRemainingText, value, child);
-                    foundPath = true;
-                    break;
-                }
-            }
-            // else create a new node.
-            if (!foundPath){
+            int index = currentNode.indexOfChild(newRemainingText.charAt(0));
+            if (index >= 0) {
+                newNode.setChild(index, insertKeyRecursive(newRemainingText, value, currentNode.getChild(index)));
+            } else {
+                // else create a new node.
                 RadixNode<T> node = new RadixNode<T>();
                 node.setKey(newRemainingText);
                 node.addValue(value);
                 node.setTerminal(true);
-                currentNode.getChildren().add(node);
+                newNode.addChild(node);
                 size += 1;
             }
         }else if (currentMatchLength == remainingText.length() && currentMatchLength < currentNode.getKey().length()){
             // if remainingText is subset of the current node key
-            RadixNode<T> node = new RadixNode<T>();
-            node.setChildren(currentNode.getChildren());
+            RadixNode<T> node = currentNode.copy();
             node.setKey(currentNode.getKey().substring(currentMatchLength));
-            node.setValues(currentNode.getValues());
-            node.setTerminal(currentNode.isTerminal());
 
-            currentNode.setChildren(new LinkedList<RadixNode<T>>());
-            currentNode.getChildren().add(node);
-            currentNode.setTerminal(true);
-            currentNode.setKey(currentNode.getKey().substring(0, currentMatchLength));
-            currentNode.removeAll();
-            currentNode.addValue(value);
+            newNode.setChildren(Collections.singletonList(node));
+            newNode.setTerminal(true);
+            newNode.setKey(currentNode.getKey().substring(0, currentMatchLength));
+            newNode.removeAll();
+            newNode.addValue(value);
 
             size += 1;
 
         }else if (currentMatchLength < remainingText.length() && currentMatchLength < currentNode.getKey().length()){
 
             //add new Node and move all current node's children and value to it
-            RadixNode<T> node = new RadixNode<T>();
-            node.setChildren(currentNode.getChildren());
-            node.setTerminal(currentNode.isTerminal());
-            node.setValues(currentNode.getValues());
+            RadixNode<T> node = currentNode.copy();
             node.setKey(currentNode.getKey().substring(currentMatchLength, currentNode.getKey().length()));
 
             // add node for the text
@@ -158,23 +151,21 @@ public class RadixTree<T> implements FeedPathStore<T>, Formattable {
             node2.addValue(value);
 
             //update current node to be new root
-            currentNode.setTerminal(false);
-            currentNode.setKey(currentNode.getKey().substring(0, currentMatchLength));
-            currentNode.setChildren(new LinkedList<RadixNode<T>>());
-            currentNode.getChildren().add(node);
-            currentNode.getChildren().add(node2);
+            newNode.setTerminal(false);
+            newNode.removeAll();
+            newNode.setKey(currentNode.getKey().substring(0, currentMatchLength));
+            newNode.setChildren(Collections.<RadixNode<T>>emptyList());
+            newNode.addChild(node);
+            newNode.addChild(node2);
 
             size += 1;
         }else if (currentMatchLength == remainingText.length() && currentMatchLength == currentNode.getKey().length()){
             // if current node key and input key both match equally
-            if (currentNode.isTerminal()){
-                currentNode.addValue(value);
-            }else {
-                currentNode.setTerminal(true);
-                currentNode.addValue(value);
-            }
+            newNode.setTerminal(true);
+            newNode.addValue(value);
             size += 1;
         }
+        return newNode;
     }
 
     /**
@@ -189,7 +180,7 @@ public class RadixTree<T> implements FeedPathStore<T>, Formattable {
      */
     @Override
     @Nullable
-    public synchronized Collection<T> find(@Nonnull String key, FalconRadixUtils.INodeAlgorithm algorithm) {
+    public Collection<T> find(@Nonnull String key, FalconRadixUtils.INodeAlgorithm algorithm) {
         if (key != null && !key.trim().isEmpty()) {
             if (algorithm == null) {
                 algorithm = new FalconRadixUtils.StringAlgorithm();
@@ -250,98 +241,99 @@ public class RadixTree<T> implements FeedPathStore<T>, Formattable {
     public synchronized boolean delete(@Nonnull String key, @Nonnull T value) {
         if (key != null && !key.trim().isEmpty()){
             LOG.debug("Delete called for key:{}", key.trim());
-            return recursiveDelete(key, null, root, value);
+            RadixNode<T> currentRoot = root;
+            RadixNode<T> newRoot = recursiveDelete(key, currentRoot, value);
+            if (newRoot != currentRoot) {
+                root = newRoot;
+                return true;
+            }
         }
         return false;
     }
 
-    private boolean recursiveDelete(String key, RadixNode<T> parent, RadixNode<T> currentNode, T value){
+    // returns currentNode if nothing was deleted, null if the node was removed or else the changed copy of the node
+    private RadixNode<T> recursiveDelete(String key, RadixNode<T> currentNode, T value){
         LOG.debug("Recursing with key: {}, currentNode: {}", key, currentNode.getKey());
         if (!key.startsWith(currentNode.getKey())){
             LOG.debug("Current node's key: {} is not a prefix of the remaining input key: {}",
                     currentNode.getKey(), key);
-            return false;
+            return currentNode;
         }
 
         if (StringUtils.equals(key, currentNode.getKey())){
             LOG.trace("Current node's key:{} and the input key:{} matched", currentNode.getKey(), key);
-            if (currentNode.getValues().contains(value)){
-                LOG.debug("Given value is found in the collection of values against the given key");
-                currentNode.removeValue(value);
-                size -= 1;
-                if (currentNode.getValues().size() == 0){
-                    LOG.debug("Exact match between current node's key: {} and remaining input key: {}",
-                        currentNode.getKey(), key);
-                    if (currentNode.isTerminal()){
-                        //if child has no children & only one value, then delete and compact parent if needed
-                        if (currentNode.getChildren().size() == 0){
-                            Iterator<RadixNode<T>> it = parent.getChildren().iterator();
-                            while(it.hasNext()){
-                                if (StringUtils.equals(it.next().getKey(), currentNode.getKey())){
-                                    it.remove();
-                                    LOG.debug("Deleting the node");
-                                    break;
-                                }
-                            }
-                        }else if (currentNode.getChildren().size() > 1){
-                            // if child has more than one children just mark non terminal
-                            currentNode.setTerminal(false);
-                        }else if (currentNode.getChildren().size() == 1){
-                            // if child has only one child then compact node
-                            LOG.debug("compacting node with child as node to be deleted has only 1 child");
-                            RadixNode<T> child = currentNode.getChildren().get(0);
-                            currentNode.setChildren(child.getChildren());
-                            currentNode.setTerminal(child.isTerminal());
-                            currentNode.setKey(currentNode.getKey() + child.getKey());
-                            currentNode.setValues(child.getValues());
-                        }
-
-                        //parent can't be null as root will never match with input key as it is not a terminal node.
-                        if (!parent.isTerminal() && !parent.isRoot()){
-                            // if only one child left in parent and parent is not root then join parent
-                            // and the only child key
-                            if (parent.getChildren().size() == 1){
-                                RadixNode<T> onlyChild = parent.getChildren().get(0);
-                                String onlyChildKey = onlyChild.getKey();
-                                LOG.debug("Compacting child: {} and parent: {}", onlyChildKey, parent.getKey());
-                                parent.setKey(parent.getKey() + onlyChildKey);
-                                parent.setChildren(onlyChild.getChildren());
-                                parent.setTerminal(onlyChild.isTerminal());
-                                parent.setValues(onlyChild.getValues());
-                            }
-                        }
-                        return true;
-                    }else{
-                        LOG.debug("Key found only as a prefix and not at a terminal node");
-                        return false;
-                    }
-                }
-                return true;
-            }else {
+            if (!currentNode.containsValue(value)) {
                 LOG.debug("Current value is not found in the collection of values against the given key, no-op");
-                return false;
+                return currentNode;
+            }
+            if (!currentNode.isTerminal()) {
+                LOG.debug("Key found only as a prefix and not at a terminal node");
+                return currentNode;
+            }
+
+            LOG.debug("Given value is found in the collection of values against the given key");
+            RadixNode<T> newNode = currentNode.copy();
+            newNode.removeValue(value);
+            size -= 1;
+            if (newNode.getValues().size() > 0) {
+                return newNode;
+            }
+
+            LOG.debug("Exact match between current node's key: {} and remaining input key: {}",
+                    currentNode.getKey(), key);
+            if (newNode.getChildCount() == 0) {
+                //if child has no children & only one value, then delete and compact parent if needed
+                LOG.debug("Deleting the node");
+                return null;
+            } else if (newNode.getChildCount() > 1) {
+                // if child has more than one children just mark non terminal
+                newNode.setTerminal(false);
+            } else {
+                // if child has only one child then compact node
+                LOG.debug("compacting node with child as node to be deleted has only 1 child");
+                mergeWithOnlyChild(newNode);
             }
+            return newNode;
         }
 
         LOG.debug("Current node's key: {} is a prefix of the input key: {}", currentNode.getKey(), key);
         //find child to follow
-        RadixNode<T> newRoot = null;
         String remainingKey = key.substring(currentNode.getMatchLength(key));
-        for(RadixNode<T> el : currentNode.getChildren()){
-            LOG.trace("Finding next child to follow. Current child's key:{}", el.getKey());
-            if (el.getKey().charAt(0) == remainingKey.charAt(0)){
-                newRoot = el;
-                break;
-            }
+        int index = currentNode.indexOfChild(remainingKey.charAt(0));
+        if (index < 0){
+            LOG.debug("No child was found with common prefix with the remainder key: {}", key);
+            return currentNode;
         }
 
-        if (newRoot == null){
-            LOG.debug("No child was found with common prefix with the remainder key: {}", key);
-            return false;
-        }else {
-            LOG.debug("Found a child's key: {} with common prefix, recursing on it", newRoot.getKey());
-            return recursiveDelete(remainingKey, currentNode, newRoot, value);
+        RadixNode<T> child = currentNode.getChild(index);
+        LOG.debug("Found a child's key: {} with common prefix, recursing on it", child.getKey());
+        RadixNode<T> newChild = recursiveDelete(remainingKey, child, value);
+        if (newChild == child) {
+            return currentNode;
+        }
+
+        RadixNode<T> newNode = currentNode.copy();
+        if (newChild == null) {
+            newNode.removeChild(index);
+        } else {
+            newNode.setChild(index, newChild);
         }
+
+        // root will never be compacted as it is not a terminal node.
+        if (!newNode.isTerminal() && !newNode.isRoot() && newNode.getChildCount() == 1) {
+            // if only one child left in parent and parent is not root then join parent and the only child key
+            LOG.debug("Compacting child: {} and parent: {}", newNode.getChild(0).getKey(), newNode.getKey());
+            mergeWithOnlyChild(newNode);
+        }
+        return newNode;
+    }
+
+    private void mergeWithOnlyChild(RadixNode<T> node) {
+        RadixNode<T> onlyChild = node.getChild(0);
+        node.setKey(node.getKey() + onlyChild.getKey());
+        node.setChildren(onlyChild.getChildren());
+        node.setTerminal(onlyChild.isTerminal());
+        node.setValues(onlyChild.getValues());
     }
 
 
@@ -369,8 +361,8 @@ public class RadixTree<T> implements FeedPathStore<T>, Formattable {
             formatter.format("%s%n", node.getKey());
         }
 
-        for (RadixNode<T> child : node.getChildren()) {
-            formatNodeTo(formatter, level + 1, child);
+        for (int i = 0; i < node.getChildCount(); i++) {
+            formatNodeTo(formatter, level + 1, node.getChild(i));
         }
     }
 
@@ -388,45 +380,35 @@ public class RadixTree<T> implements FeedPathStore<T>, Formattable {
         }
         RadixNode<T> currentNode = root;
         String remainingText = key.trim();
-        List<String> result = new LinkedList<String>();
+        List<String> result = new ArrayList<String>();
         do{
-            boolean flag = false;
             // find the child with common prefix
-            for(RadixNode<T> child: currentNode.getChildren()){
-                LOG.debug("Checking for child key: {} against remainingText: {}", child.getKey(), remainingText);
-                if (child.getKey().charAt(0) == remainingText.charAt(0)){
-                    LOG.debug("Child key: {} found to have overlap with the remainingText: {}", child.getKey(),
-                            remainingText);
-                    flag = true;
-
-                    //if entire key doesn't match return null
-                    if (!remainingText.startsWith(child.getKey())){
-                        return null;
-                    }
-
-                    // if entire key equals remainingText - return it's children up to the specified limit
-                    if (StringUtils.equals(child.getKey(), remainingText)){
-                        int counter = 0;
-
-                        for(RadixNode<T> suffixChild: child.getChildren()){
-                            if (limit < 0 || counter < limit){
-                                result.add(suffixChild.getKey());
-                            }
-                        }
-                        return Collections.unmodifiableList(result);
-                    }
-
-                    //if entire key matches but it is not equal to entire remainingText - repeat
-                    remainingText = remainingText.substring(child.getKey().length());
-                    currentNode = child;
-                    break;
-
-                }
-            }
+            int index = currentNode.indexOfChild(remainingText.charAt(0));
             // if no child found with common prefix return null;
-            if (!flag){
+            if (index < 0){
+                return null;
+            }
+
+            RadixNode<T> child = currentNode.getChild(index);
+            LOG.debug("Child key: {} found to have overlap with the remainingText: {}", child.getKey(),
+                    remainingText);
+
+            //if entire key doesn't match return null
+            if (!remainingText.startsWith(child.getKey())){
                 return null;
             }
+
+            // if entire key equals remainingText - return it's children up to the specified limit
+            if (StringUtils.equals(child.getKey(), remainingText)){
+                for (int i = 0; i < child.getChildCount() && (limit < 0 || i < limit); i++) {
+                    result.add(child.getChild(i).getKey());
+                }
+                return Collections.unmodifiableList(result);
+            }
+
+            //if entire key matches but it is not equal to entire remainingText - repeat
+            remainingText = remainingText.substring(child.getKey().length());
+            currentNode = child;
         }while (true);
     }
 }
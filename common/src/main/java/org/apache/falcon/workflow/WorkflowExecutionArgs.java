@@ -79,6 +79,7 @@ public enum WorkflowExecutionArgs {
     BRKR_TTL("brokerTTL", "time to live for broker message in sec", false),
     USER_JMS_NOTIFICATION_ENABLED("userJMSNotificationEnabled", "Is User notification via JMS enabled?", false),
     SYSTEM_JMS_NOTIFICATION_ENABLED("systemJMSNotificationEnabled", "Is system notification via JMS enabled?", false),
+    SYSTEM_JMS_MESSAGE_FORMAT("systemJMSMessageFormat", "format of system notifications, map or compact", false),
 
     // state maintained
     LOG_FILE("logFile", "log file path where feeds to be deleted are recorded", false),
@@ -33,11 +33,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Date;
-import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 /**
  * A workflow job end notification service.
@@ -48,7 +48,8 @@ public class WorkflowJobEndNotificationService implements FalconService {
 
     public static final String SERVICE_NAME = WorkflowJobEndNotificationService.class.getSimpleName();
 
-    private Set<WorkflowExecutionListener> listeners = new LinkedHashSet<WorkflowExecutionListener>();
+    // notified from the JMS consumer workers while services may still be registering
+    private Set<WorkflowExecutionListener> listeners = new CopyOnWriteArraySet<WorkflowExecutionListener>();
 
     // Maintain a cache of context built, so we don't have to query Oozie for every state change.
     private Map<String, Properties> contextMap = new ConcurrentHashMap<>();
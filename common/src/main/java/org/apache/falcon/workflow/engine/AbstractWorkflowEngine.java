@@ -25,7 +25,9 @@ import org.apache.falcon.entity.v0.cluster.Cluster;
 import org.apache.falcon.resource.InstancesResult;
 import org.apache.falcon.resource.InstancesSummaryResult;
 
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -71,6 +73,28 @@ public abstract class AbstractWorkflowEngine {
 
     public abstract boolean isCompleted(Entity entity) throws FalconException;
 
+    /**
+     * Same as isActive, but when allowCached is set the answer may come from a cache and lag behind the
+     * engine. Only listings may allow that; checks which decide whether an action can proceed must not.
+     */
+    public boolean isActive(Entity entity, boolean allowCached) throws FalconException {
+        return isActive(entity);
+    }
+
+    /**
+     * Same as isSuspended, possibly answered from a cache when allowCached is set.
+     */
+    public boolean isSuspended(Entity entity, boolean allowCached) throws FalconException {
+        return isSuspended(entity);
+    }
+
+    /**
+     * Same as isCompleted, possibly answered from a cache when allowCached is set.
+     */
+    public boolean isCompleted(Entity entity, boolean allowCached) throws FalconException {
+        return isCompleted(entity);
+    }
+
     public abstract InstancesResult getRunningInstances(Entity entity,
                                                         List<LifeCycle> lifeCycles) throws FalconException;
 
@@ -89,6 +113,15 @@ public abstract class AbstractWorkflowEngine {
     public abstract InstancesResult getStatus(Entity entity, Date start, Date end,
                                               List<LifeCycle> lifeCycles, Boolean allAttempts) throws FalconException;
 
+    /**
+     * Returns the status of the first limit instances, in the order in which getStatus returns them.
+     * Engines which can't stop early return the status of all the instances.
+     */
+    public InstancesResult getStatus(Entity entity, Date start, Date end, List<LifeCycle> lifeCycles,
+                                     Boolean allAttempts, int limit) throws FalconException {
+        return getStatus(entity, start, end, lifeCycles, allAttempts);
+    }
+
     public abstract InstancesSummaryResult getSummary(Entity entity, Date start, Date end,
                                                       List<LifeCycle> lifeCycles) throws FalconException;
 
@@ -99,6 +132,19 @@ public abstract class AbstractWorkflowEngine {
 
     public abstract String getWorkflowStatus(String cluster, String jobId) throws FalconException;
 
+    /**
+     * Returns the status of several jobs of the given entities on a cluster, keyed by job id.
+     * Engines which can't look them up together ask for each status in turn.
+     */
+    public Map<String, String> getWorkflowStatuses(String cluster, Collection<Entity> entities,
+                                                   Collection<String> jobIds) throws FalconException {
+        Map<String, String> statuses = new HashMap<String, String>();
+        for (String jobId : jobIds) {
+            statuses.put(jobId, getWorkflowStatus(cluster, jobId));
+        }
+        return statuses;
+    }
+
     public abstract Properties getWorkflowProperties(String cluster, String jobId) throws FalconException;
 
     public abstract InstancesResult getJobDetails(String cluster, String jobId) throws FalconException;
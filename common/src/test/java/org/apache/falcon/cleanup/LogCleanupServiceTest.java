@@ -17,6 +17,7 @@
  */
 package org.apache.falcon.cleanup;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.falcon.FalconException;
 import org.apache.falcon.cluster.util.EmbeddedCluster;
 import org.apache.falcon.entity.AbstractTestBase;
@@ -26,6 +27,8 @@ import org.apache.falcon.entity.v0.Frequency;
 import org.apache.falcon.entity.v0.feed.Feed;
 import org.apache.falcon.entity.v0.process.Process;
 import org.apache.falcon.security.CurrentUser;
+import org.apache.falcon.util.RuntimeProperties;
+import org.apache.falcon.util.StartupProperties;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.testng.Assert;
@@ -33,6 +36,7 @@ import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -57,10 +61,14 @@ public class LogCleanupServiceTest extends AbstractTestBase {
         + "sample" + "/logs/latedata/2010-01-01-01-00");
     private final Path instanceLogPath5 = new Path("/projects/falcon/staging/falcon/workflows/process/"
             + "sample3" + "/logs/job-2010-01-01-01-00/000");
+    private final Path instanceLogPath6 = new Path("/projects/falcon/staging/falcon/workflows/process/"
+            + "sample2" + "/logs/job-2010-01-03-00-00/000");
     private final Path feedInstanceLogPath = new Path("/projects/falcon/staging/falcon/workflows/feed/"
         + "impressionFeed" + "/logs/job-2010-01-01-01-00/testCluster/000");
     private final Path feedInstanceLogPath1 = new Path("/projects/falcon/staging/falcon/workflows/feed/"
         + "impressionFeed2" + "/logs/job-2010-01-01-01-00/testCluster/000");
+    private final Path feedInstanceLogPath2 = new Path("/projects/falcon/staging/falcon/workflows/feed/"
+        + "impressionFeed" + "/logs/job-2010-01-01-05-00/testCluster/001");
 
 
     @AfterClass
@@ -76,6 +84,7 @@ public class LogCleanupServiceTest extends AbstractTestBase {
         conf = dfsCluster.getConf();
         fs = dfsCluster.getFileSystem();
         fs.delete(new Path("/"), true);
+        FileUtils.deleteDirectory(new File(StartupProperties.get().getProperty("falcon.cleanup.watermark.path")));
 
         storeEntity(EntityType.CLUSTER, "testCluster");
         System.setProperty("test.build.data", "target/tdfs/data" + System.currentTimeMillis());
@@ -167,4 +176,40 @@ public class LogCleanupServiceTest extends AbstractTestBase {
         Assert.assertTrue(fs.exists(feedInstanceLogPath1));
         Assert.assertTrue(tfs.exists(feedInstanceLogPath1));
     }
+
+    @Test (dependsOnMethods = "testProcessLogs")
+    public void testLogsKeptUntilExpiry() throws Exception {
+        String retentionProp = "log.cleanup.frequency.days.retention";
+        String retention = RuntimeProperties.get().getProperty(retentionProp);
+        RuntimeProperties.get().setProperty(retentionProp, "1000");
+        try {
+            fs.mkdirs(instanceLogPath6);
+
+            // days retention is 1 sec, the log is listed and kept till then
+            AbstractCleanupHandler processCleanupHandler = new ProcessCleanupHandler();
+            processCleanupHandler.cleanup();
+            Assert.assertTrue(fs.exists(instanceLogPath6));
+
+            Thread.sleep(1100);
+            processCleanupHandler.cleanup();
+            Assert.assertFalse(fs.exists(instanceLogPath6));
+            Assert.assertFalse(fs.exists(instanceLogPath3));
+        } finally {
+            RuntimeProperties.get().setProperty(retentionProp, retention);
+        }
+    }
+
+    @Test (dependsOnMethods = "testFeedLogs")
+    public void testLogAddedUnderListedJob() throws Exception {
+        fs.mkdirs(feedInstanceLogPath2.getParent());
+        AbstractCleanupHandler feedCleanupHandler = new FeedCleanupHandler();
+        feedCleanupHandler.cleanup();
+
+        // the log changes the cluster directory it is added to, not the job directory
+        fs.mkdirs(feedInstanceLogPath2);
+        feedCleanupHandler.cleanup();
+        Thread.sleep(600);
+        feedCleanupHandler.cleanup();
+        Assert.assertFalse(fs.exists(feedInstanceLogPath2));
+    }
 }
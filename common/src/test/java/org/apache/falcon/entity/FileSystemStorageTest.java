@@ -433,13 +433,93 @@ public class FileSystemStorageTest {
             FileSystemStorage fileSystemStorage = new FileSystemStorage(cluster.getFileSystem().
                     getUri().toString(), feed.getLocations());
             List<FeedInstanceStatus> actual = fileSystemStorage.
-                    getListing(feed, "TestFeedListing", LocationType.DATA, start, end);
+                    getListing(feed, "TestFeedListing", LocationType.DATA, start, end, true);
             Assert.assertEquals(actual, expected, "Feed instance Listings doesn't match");
         } finally {
             ConfigurationStore.get().remove(EntityType.CLUSTER, cluster.getCluster().getName());
         }
     }
 
+    @Test (dataProvider = "testListingDataProvider")
+    public void testListingWithoutSize(String availabilityFlag, Frequency frequency, TimeZone timeZone,
+                                       Date start, Date end) throws Exception {
+        EmbeddedCluster cluster = EmbeddedCluster.newCluster("TestFeedListing", false);
+        FileSystem fs = cluster.getFileSystem();
+        ConfigurationStore.get().publish(EntityType.CLUSTER, cluster.getCluster());
+        try {
+            Feed feed = getFeed(availabilityFlag, frequency, timeZone);
+            prepareData(fs, feed, start, end);
+            FileSystemStorage fileSystemStorage = new FileSystemStorage(cluster.getFileSystem().
+                    getUri().toString(), feed.getLocations());
+            List<FeedInstanceStatus> withSize = fileSystemStorage.
+                    getListing(feed, "TestFeedListing", LocationType.DATA, start, end, true);
+            // sizes are served from the cache the second time
+            Assert.assertEquals(fileSystemStorage.getListing(feed, "TestFeedListing", LocationType.DATA,
+                    start, end, true), withSize);
+
+            List<FeedInstanceStatus> withoutSize = fileSystemStorage.
+                    getListing(feed, "TestFeedListing", LocationType.DATA, start, end, false);
+            for (FeedInstanceStatus instance : withSize) {
+                instance.setSize(-1);
+            }
+            Assert.assertEquals(withoutSize, withSize, "Feed instance statuses don't match");
+        } finally {
+            ConfigurationStore.get().remove(EntityType.CLUSTER, cluster.getCluster().getName());
+        }
+    }
+
+    @Test
+    public void testEvict() throws Exception {
+        EmbeddedCluster cluster = EmbeddedCluster.newCluster("TestFeedEviction", false);
+        FileSystem fs = cluster.getFileSystem();
+        fs.delete(new Path("/TestFeedEviction"), true);
+        String template = "/TestFeedEviction/data/${YEAR}/${MONTH}/${DAY}/${HOUR}";
+        TimeZone utc = TimeZone.getTimeZone("UTC");
+        long hour = 3600000L;
+        long now = System.currentTimeMillis() / hour * hour;
+
+        List<Path> evicted = new ArrayList<Path>();
+        List<Path> retained = new ArrayList<Path>();
+        for (long time = now - 5 * 24 * hour; time <= now; time += hour) {
+            Path path = new Path(ExpressionHelper.substitute(template,
+                    ExpressionHelper.getTimeVariables(new Date(time), utc)));
+            fs.create(new Path(path, "file")).close();
+            // the retention limit is computed from the time of eviction, later than now
+            if (time < now - 48 * hour) {
+                evicted.add(fs.makeQualified(path));
+            } else if (time > now - 48 * hour) {
+                retained.add(fs.makeQualified(path));
+            }
+        }
+        // not an instance of the feed
+        fs.mkdirs(new Path("/TestFeedEviction/data/2000/01/bad"));
+
+        Location location = new Location();
+        location.setPath(template);
+        location.setType(LocationType.DATA);
+        List<Location> locations = new ArrayList<Location>();
+        locations.add(location);
+        FileSystemStorage storage = new FileSystemStorage(fs.getUri().toString(), locations);
+        Path logFile = new Path("/TestFeedEviction/logs/eviction.log");
+        String dates = storage.evict("hours(48)", "UTC", logFile).toString();
+
+        for (Path path : evicted) {
+            Assert.assertFalse(fs.exists(path), path.toString());
+        }
+        for (Path path : retained) {
+            Assert.assertTrue(fs.exists(new Path(path, "file")), path.toString());
+        }
+        int count = dates.split(",").length;
+        Assert.assertTrue(count == evicted.size() || count == evicted.size() + 1, dates);
+
+        // days left empty are removed, up to but not including the feed base path
+        Path oldest = evicted.get(0);
+        Assert.assertFalse(fs.exists(oldest.getParent()));
+        Assert.assertTrue(fs.exists(new Path("/TestFeedEviction/data/2000/01/bad")));
+        Assert.assertTrue(fs.exists(new Path("/TestFeedEviction/data")));
+        Assert.assertTrue(fs.exists(logFile));
+    }
+
     @SuppressWarnings("MagicConstant")
     private List<FeedInstanceStatus> prepareData(FileSystem fs, Feed feed,
                                                  Date start, Date end) throws Exception {
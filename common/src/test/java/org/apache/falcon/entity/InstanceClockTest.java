@@ -0,0 +1,192 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.falcon.entity;
+
+import org.apache.falcon.entity.v0.Frequency;
+import org.apache.falcon.entity.v0.SchemaHelper;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for InstanceClock, against instance times found by stepping a calendar.
+ */
+public class InstanceClockTest {
+
+    private static final TimeZone[] TIME_ZONES = {
+        TimeZone.getTimeZone("UTC"),
+        TimeZone.getTimeZone("America/Los_Angeles"),
+        TimeZone.getTimeZone("Asia/Kolkata"),
+        TimeZone.getTimeZone("Australia/Lord_Howe"),
+        TimeZone.getTimeZone("Europe/London"),
+    };
+
+    @Test
+    public void testInstanceTimes() {
+        TimeZone tz = TimeZone.getTimeZone("America/Los_Angeles");
+        InstanceClock clock = new InstanceClock(getTime("2015-03-07T10:00Z"), new Frequency("days(1)"), tz);
+        // wall clock time is kept across the daylight saving change
+        Assert.assertEquals(clock.getInstanceTime(2), getTime("2015-03-09T09:00Z"));
+        Assert.assertEquals(clock.getInstanceTime(-1), getTime("2015-03-06T10:00Z"));
+        Assert.assertEquals(clock.getInstanceIndex(getTime("2015-03-09T08:59Z")), 1);
+        Assert.assertEquals(clock.getInstanceIndex(getTime("2015-03-09T09:00Z")), 2);
+        Assert.assertEquals(clock.getNextInstanceIndex(getTime("2015-03-08T10:00Z")), 2);
+
+        clock = new InstanceClock(getTime("2015-01-31T00:00Z"), new Frequency("months(1)"), null);
+        Assert.assertEquals(clock.getInstanceTime(1), getTime("2015-02-28T00:00Z"));
+        Assert.assertEquals(clock.getInstanceTime(2), getTime("2015-03-31T00:00Z"));
+        Assert.assertEquals(clock.getInstanceTime(13), getTime("2016-02-29T00:00Z"));
+        Assert.assertEquals(clock.getInstanceIndex(getTime("2016-02-29T00:00Z")), 13);
+        Assert.assertEquals(clock.getInstanceIndex(getTime("2014-12-31T00:00Z")), -1);
+
+        clock = new InstanceClock(getTime("2015-01-01T00:00Z"), new Frequency("minutes(7)"), tz);
+        Assert.assertEquals(clock.getInstanceIndex(getTime("2015-01-01T00:13Z")), 1);
+        Assert.assertEquals(clock.getInstanceIndex(getTime("2014-12-31T23:59Z")), -1);
+        Assert.assertEquals(clock.getNextInstanceIndex(getTime("2015-01-01T00:14Z")), 2);
+    }
+
+    @DataProvider(name = "frequencies")
+    public Object[][] getFrequencies() {
+        return new Object[][] {
+            {"minutes(1)"}, {"minutes(5)"}, {"minutes(45)"},
+            {"hours(1)"}, {"hours(7)"},
+            {"days(1)"}, {"days(3)"},
+            {"months(1)"}, {"months(4)"},
+        };
+    }
+
+    @Test(dataProvider = "frequencies")
+    public void testMatchesCalendar(String freq) {
+        Frequency frequency = new Frequency(freq);
+        Random random = new Random(freq.hashCode());
+        long unit = getApproximateUnit(frequency);
+        for (int i = 0; i < 5000; i++) {
+            TimeZone tz = TIME_ZONES[random.nextInt(TIME_ZONES.length)];
+            Date start = getRandomStart(random, tz);
+            Date reference = new Date(start.getTime()
+                    + (long) ((random.nextDouble() - 0.1) * 200 * unit * frequency.getFrequencyAsInt()));
+            String message = freq + " " + tz.getID() + " " + SchemaHelper.formatDateUTC(start) + " "
+                    + SchemaHelper.formatDateUTC(reference);
+
+            Assert.assertEquals(EntityUtil.getNextStartTime(start, frequency, tz, reference),
+                    getNextStartTimeWithCalendar(start, frequency, tz, reference), message);
+            Assert.assertEquals(EntityUtil.getInstanceSequence(start, frequency, tz, reference),
+                    getInstanceSequenceWithCalendar(start, frequency, tz, reference), message);
+
+            int count = random.nextInt(100) - 10;
+            Assert.assertEquals(EntityUtil.getNextInstanceTime(start, frequency, tz, count),
+                    getNextInstanceTimeWithCalendar(start, frequency, tz, count), message);
+
+            if (!reference.before(start)) {
+                Date endRange = new Date(reference.getTime() + random.nextInt(20) * unit);
+                List<Date> instances = EntityUtil.getInstanceTimes(start, frequency, tz, reference, endRange);
+                Date expected = getPreviousInstanceTimeWithCalendar(start, frequency, tz, reference);
+                for (Date instance : instances) {
+                    Assert.assertEquals(instance, expected, message);
+                    expected = getNextStartTimeWithCalendar(start, frequency, tz, new Date(instance.getTime() + 1));
+                }
+                Assert.assertTrue(expected.after(endRange), message);
+            }
+        }
+    }
+
+    private static Date getRandomStart(Random random, TimeZone tz) {
+        Calendar cal = Calendar.getInstance(tz);
+        cal.clear();
+        // stepping a calendar from a wall clock time which doesn't exist on some days, or from a day which doesn't
+        // exist in some months, depends on the steps taken. Start times are kept clear of those.
+        cal.set(2000 + random.nextInt(30), random.nextInt(12), 1 + random.nextInt(28),
+                4 + random.nextInt(20), random.nextInt(60));
+        return cal.getTime();
+    }
+
+    private static long getApproximateUnit(Frequency frequency) {
+        switch (frequency.getTimeUnit()) {
+        case minutes:
+            return TimeUnit.MINUTES.toMillis(1);
+        case hours:
+            return TimeUnit.HOURS.toMillis(1);
+        case days:
+            return TimeUnit.DAYS.toMillis(1);
+        default:
+            return TimeUnit.DAYS.toMillis(30);
+        }
+    }
+
+    private static long getTime(String date) {
+        return SchemaHelper.parseDateUTC(date).getTime();
+    }
+
+    private static Date getNextStartTimeWithCalendar(Date startTime, Frequency frequency, TimeZone timezone,
+                                                     Date referenceTime) {
+        if (startTime.after(referenceTime)) {
+            return startTime;
+        }
+
+        Calendar startCal = Calendar.getInstance(timezone);
+        startCal.setTime(startTime);
+        while (startCal.getTime().before(referenceTime)) {
+            startCal.add(frequency.getTimeUnit().getCalendarUnit(), frequency.getFrequencyAsInt());
+        }
+        return startCal.getTime();
+    }
+
+    private static int getInstanceSequenceWithCalendar(Date startTime, Frequency frequency, TimeZone tz,
+                                                       Date instanceTime) {
+        if (startTime.after(instanceTime)) {
+            return -1;
+        }
+
+        Calendar startCal = Calendar.getInstance(tz);
+        startCal.setTime(startTime);
+        int count = 0;
+        while (startCal.getTime().before(instanceTime)) {
+            startCal.add(frequency.getTimeUnit().getCalendarUnit(), frequency.getFrequencyAsInt());
+            count++;
+        }
+        return count + 1;
+    }
+
+    private static Date getNextInstanceTimeWithCalendar(Date instanceTime, Frequency frequency, TimeZone tz,
+                                                        int instanceCount) {
+        Calendar insCal = Calendar.getInstance(tz);
+        insCal.setTime(instanceTime);
+        insCal.add(frequency.getTimeUnit().getCalendarUnit(), frequency.getFrequencyAsInt() * instanceCount);
+        return insCal.getTime();
+    }
+
+    private static Date getPreviousInstanceTimeWithCalendar(Date startTime, Frequency frequency, TimeZone tz,
+                                                            Date referenceTime) {
+        Calendar insCal = Calendar.getInstance(tz);
+        insCal.setTime(startTime);
+        Date previous = insCal.getTime();
+        while (!insCal.getTime().after(referenceTime)) {
+            previous = insCal.getTime();
+            insCal.add(frequency.getTimeUnit().getCalendarUnit(), frequency.getFrequencyAsInt());
+        }
+        return previous;
+    }
+}
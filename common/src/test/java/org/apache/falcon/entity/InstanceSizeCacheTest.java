@@ -0,0 +1,112 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.falcon.entity;
+
+import org.apache.falcon.security.CurrentUser;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * Tests for InstanceSizeCache.
+ */
+public class InstanceSizeCacheTest {
+
+    private final Path instance = new Path(new File("target/instance-size-cache/2015/01/01").getAbsolutePath());
+    private FileSystem fs;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        fs = FileSystem.getLocal(new Configuration());
+        fs.delete(instance.getParent(), true);
+        fs.mkdirs(new Path(instance, "part"));
+    }
+
+    @Test
+    public void testEmptySizeNotCached() throws Exception {
+        InstanceSizeCache cache = new InstanceSizeCache(2, 10, 60000);
+        Path data = new Path(instance, "part/data");
+        write(data, 0);
+        Assert.assertEquals(getSize(cache), 0);
+
+        // written deeper down, the instance keeps its modification time
+        long modificationTime = fs.getFileStatus(instance).getModificationTime();
+        write(data, 100);
+        Assert.assertEquals(fs.getFileStatus(instance).getModificationTime(), modificationTime);
+        Assert.assertTrue(getSize(cache) > 0);
+    }
+
+    @Test
+    public void testSizeCachedUntilExpiry() throws Exception {
+        InstanceSizeCache cache = new InstanceSizeCache(2, 10, 60000);
+        InstanceSizeCache expiring = new InstanceSizeCache(2, 10, 0);
+        Path data = new Path(instance, "part/data");
+        write(data, 100);
+        long size = getSize(cache);
+        Assert.assertTrue(size > 0);
+        Assert.assertEquals(getSize(expiring), size);
+
+        write(data, 1000);
+        Assert.assertEquals(getSize(cache), size);
+        Assert.assertTrue(getSize(expiring) > size);
+    }
+
+    @Test
+    public void testSizeCachedPerUser() throws Exception {
+        InstanceSizeCache cache = new InstanceSizeCache(2, 10, 60000);
+        Path data = new Path(instance, "part/data");
+        write(data, 100);
+        try {
+            CurrentUser.authenticate("first");
+            long size = getSize(cache);
+            Assert.assertTrue(size > 0);
+
+            // written deeper down, the instance keeps its modification time and the first user its cached size
+            write(data, 1000);
+            Assert.assertEquals(getSize(cache), size);
+            CurrentUser.authenticate("second");
+            Assert.assertTrue(getSize(cache) > size);
+        } finally {
+            CurrentUser.clear();
+        }
+    }
+
+    private long getSize(InstanceSizeCache cache) throws IOException {
+        FileStatus status = fs.getFileStatus(instance);
+        return cache.getSizes(fs, Collections.singletonList(status))[0];
+    }
+
+    private void write(Path path, int length) throws IOException {
+        FSDataOutputStream out = fs.create(path, true);
+        try {
+            out.write(new byte[length]);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.falcon.entity.common;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.falcon.entity.v0.SchemaHelper;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.regex.Matcher;
+
+/**
+ * Tests for FeedPathTemplate.
+ */
+public class FeedPathTemplateTest {
+
+    @Test
+    public void testLength() {
+        Assert.assertEquals(FeedPathTemplate.compile("/data/${YEAR}/${MONTH}/${DAY}").getLength(),
+                "/data/2014/09/09".length());
+        Assert.assertEquals(FeedPathTemplate.compile("${YEAR}${MONTH}${DAY}${HOUR}${MINUTE}").getLength(), 12);
+        Assert.assertEquals(FeedPathTemplate.compile("/data/plain").getLength(), "/data/plain".length());
+        Assert.assertEquals(FeedPathTemplate.compile("").getLength(), 0);
+        // incomplete variables are literal text
+        Assert.assertEquals(FeedPathTemplate.compile("/data/${YE").getLength(), "/data/${YE".length());
+    }
+
+    @DataProvider(name = "paths")
+    public Object[][] getPaths() {
+        return new Object[][] {
+            {"/data/${YEAR}/${MONTH}/${DAY}", "/data/2014/09/09", true},
+            {"/data/${YEAR}/${MONTH}/${DAY}", "/data/2014/13/09", false},
+            {"/data/${YEAR}/${MONTH}/${DAY}", "/data/2014/00/09", false},
+            {"/data/${YEAR}/${MONTH}/${DAY}", "/data/2014/09/32", false},
+            {"/data/${YEAR}/${MONTH}/${DAY}", "/data/2014/09/0a", false},
+            {"/data/${YEAR}/${MONTH}/${DAY}", "/data/2014/09/09/", false},
+            {"/data/${YEAR}/${MONTH}/${DAY}", "/data/2014/09/", false},
+            {"/data/${YEAR}/${MONTH}/${DAY}", "/data/20140909", false},
+            {"/data/${YEAR}/${MONTH}/${DAY}", "/other/2014/09/09", false},
+            {"/data/${HOUR}-${MINUTE}", "/data/24-60", true},
+            {"/data/${HOUR}-${MINUTE}", "/data/25-00", false},
+            {"/data/${HOUR}-${MINUTE}", "/data/00-61", false},
+            {"/data/${YEAR}", "/data/${YEAR}", false},
+        };
+    }
+
+    @Test(dataProvider = "paths")
+    public void testMatches(String template, String path, boolean expected) {
+        Assert.assertEquals(FeedPathTemplate.compile(template).matches(path), expected);
+    }
+
+    @Test
+    public void testMatchesAt() {
+        FeedPathTemplate template = FeedPathTemplate.compile("${YEAR}/${MONTH}");
+        Assert.assertTrue(template.matchesAt("/data/2014/09/trailing", 6));
+        Assert.assertFalse(template.matchesAt("/data/2014/09/trailing", 5));
+        Assert.assertFalse(template.matchesAt("/data/2014/0", 6));
+    }
+
+    @Test
+    public void testStartsAt() {
+        Assert.assertTrue(FeedPathTemplate.compile("${YEAR}/x").startsAt("/data/2014/09", 6));
+        Assert.assertFalse(FeedPathTemplate.compile("${YEAR}/x").startsAt("/data/20a4/09", 6));
+        Assert.assertTrue(FeedPathTemplate.compile("/x").startsAt("/data/2014/09", 10));
+        Assert.assertFalse(FeedPathTemplate.compile("x").startsAt("/data/2014/09", 10));
+        Assert.assertFalse(FeedPathTemplate.compile("/x").startsAt("/data", 5));
+    }
+
+    @Test
+    public void testGetTime() {
+        TimeZone utc = TimeZone.getTimeZone("UTC");
+        FeedPathTemplate template = FeedPathTemplate.compile("/data/${YEAR}/${MONTH}/${DAY}/${HOUR}");
+        Assert.assertEquals(template.getTime("/data/2014/05/06/07", utc), getTime("2014-05-06T07:00Z"));
+        // partitions after the instance path
+        Assert.assertEquals(template.getTime("/data/2014/05/06/07/region=us", utc), getTime("2014-05-06T07:00Z"));
+        // out of range values roll over
+        Assert.assertEquals(template.getTime("/data/2014/12/31/24", utc), getTime("2015-01-01T00:00Z"));
+        Assert.assertEquals(template.getTime("/data/2014/02/29/00", utc), getTime("2014-03-01T00:00Z"));
+        Assert.assertEquals(template.getTime("/data/2014/05/0a/07", utc), FeedPathTemplate.NO_MATCH);
+        Assert.assertEquals(template.getTime("/other/2014/05/06/07", utc), FeedPathTemplate.NO_MATCH);
+        Assert.assertEquals(template.getTime("/data/2014/05", utc), FeedPathTemplate.NO_MATCH);
+
+        Assert.assertEquals(FeedPathTemplate.compile("/data/${YEAR}${MONTH}/logs").getTime("/data/201405/x/logs", utc),
+                getTime("2014-05-01T00:00Z"));
+        Assert.assertEquals(FeedPathTemplate.compile("/data/${YEAR}${MONTH}/logs").getTime("/data/201405/x", utc),
+                FeedPathTemplate.NO_MATCH);
+        Assert.assertEquals(FeedPathTemplate.compile("/data/${YEAR}").getTime("/data/2014",
+                TimeZone.getTimeZone("GMT+05:30")), getTime("2013-12-31T18:30Z"));
+    }
+
+    @Test
+    public void testGetTimeMatchesCalendar() {
+        String[] templates = {
+            "/data/${YEAR}/${MONTH}/${DAY}/${HOUR}/${MINUTE}",
+            "/data/${YEAR}-${MONTH}-${DAY}/logs",
+            "${YEAR}${MONTH}${DAY}${HOUR}",
+            "/data/${MONTH}/${HOUR}${MINUTE}",
+            "/data/${YEAR}/${YEAR}",
+            "/data/plain",
+        };
+        TimeZone[] timeZones = {
+            TimeZone.getTimeZone("UTC"),
+            TimeZone.getTimeZone("America/Los_Angeles"),
+            TimeZone.getTimeZone("Asia/Kolkata"),
+            TimeZone.getTimeZone("Australia/Lord_Howe"),
+        };
+        String alphabet = "0123456789-+/ax";
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            String templatePath = templates[random.nextInt(templates.length)];
+            TimeZone timeZone = timeZones[random.nextInt(timeZones.length)];
+            StringBuilder path = new StringBuilder();
+            Matcher matcher = FeedDataPath.PATTERN.matcher(templatePath);
+            int lastEnd = 0;
+            while (matcher.find()) {
+                path.append(templatePath, lastEnd, matcher.start());
+                int size = FeedDataPath.VARS.from(matcher.group()).getValueSize();
+                // mostly plausible digits, with some out of range values and garbage
+                for (int j = 0; j < size; j++) {
+                    path.append(random.nextInt(20) == 0 ? alphabet.charAt(random.nextInt(alphabet.length()))
+                            : (char) ('0' + (j == 0 && size == 4 ? 1 + random.nextInt(2) : random.nextInt(10))));
+                }
+                lastEnd = matcher.end();
+            }
+            path.append(templatePath.substring(lastEnd));
+            if (random.nextBoolean()) {
+                path.append("/partition");
+            }
+
+            Date expected = getDateWithCalendar(templatePath, path.toString(), timeZone);
+            long actual = FeedPathTemplate.compile(templatePath).getTime(path.toString(), timeZone);
+            Assert.assertEquals(actual, expected == null ? FeedPathTemplate.NO_MATCH : expected.getTime(),
+                    templatePath + " " + path + " " + timeZone.getID());
+        }
+    }
+
+    @Test
+    public void testGetTimeNotSlowerThanCalendar() {
+        String templatePath = "/data/clicks/${YEAR}/${MONTH}/${DAY}/${HOUR}/${MINUTE}";
+        TimeZone utc = TimeZone.getTimeZone("UTC");
+        String[] paths = new String[50000];
+        Calendar cal = Calendar.getInstance(utc);
+        cal.setTimeInMillis(getTime("2014-01-01T00:00Z"));
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = String.format("/data/clicks/%1$tY/%1$tm/%1$td/%1$tH/%1$tM", cal);
+            cal.add(Calendar.MINUTE, 5);
+        }
+
+        // best of a few rounds, the first ones warming up both; the bound is loose so that slow builds pass
+        long calendarNanos = Long.MAX_VALUE;
+        long templateNanos = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long[] expected = new long[paths.length];
+            long start = System.nanoTime();
+            for (int i = 0; i < paths.length; i++) {
+                expected[i] = getDateWithCalendar(templatePath, paths[i], utc).getTime();
+            }
+            calendarNanos = Math.min(calendarNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            FeedPathTemplate template = FeedPathTemplate.compile(templatePath);
+            long[] actual = new long[paths.length];
+            for (int i = 0; i < paths.length; i++) {
+                actual[i] = template.getTime(paths[i], utc);
+            }
+            templateNanos = Math.min(templateNanos, System.nanoTime() - start);
+            Assert.assertEquals(actual, expected);
+        }
+        Assert.assertTrue(templateNanos <= calendarNanos * 2,
+                "template " + templateNanos + " ns, calendar " + calendarNanos + " ns");
+    }
+
+    private static long getTime(String date) {
+        return SchemaHelper.parseDateUTC(date).getTime();
+    }
+
+    /**
+     * Extraction of the instance time with a regular expression and a calendar, as FeedHelper.getDate did
+     * before feed path templates were compiled.
+     */
+    private static Date getDateWithCalendar(String templatePath, String instancePath, TimeZone timeZone) {
+        String path = instancePath;
+        Matcher matcher = FeedDataPath.PATTERN.matcher(templatePath);
+        Calendar cal = Calendar.getInstance(timeZone);
+        int lastEnd = 0;
+
+        Set<FeedDataPath.VARS> matchedVars = new HashSet<>();
+        while (matcher.find()) {
+            FeedDataPath.VARS pathVar = FeedDataPath.VARS.from(matcher.group());
+            String pad = templatePath.substring(lastEnd, matcher.start());
+            if (!path.startsWith(pad)) {
+                return null;
+            }
+
+            int value;
+            try {
+                value = Integer.parseInt(path.substring(pad.length(), pad.length() + pathVar.getValueSize()));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+
+            pathVar.setCalendar(cal, value);
+            lastEnd = matcher.end();
+            path = path.substring(pad.length() + pathVar.getValueSize());
+            matchedVars.add(pathVar);
+        }
+
+        String remTemplatePath = templatePath.substring(lastEnd);
+        if (StringUtils.isNotEmpty(path) && StringUtils.isNotEmpty(remTemplatePath)
+                && !path.contains(remTemplatePath)) {
+            return null;
+        }
+
+        for (FeedDataPath.VARS var : FeedDataPath.VARS.values()) {
+            if (!matchedVars.contains(var)) {
+                switch (var.getCalendarField()) {
+                case Calendar.DAY_OF_MONTH:
+                    cal.set(var.getCalendarField(), 1);
+                    break;
+                default:
+                    cal.set(var.getCalendarField(), 0);
+                }
+            }
+            cal.set(Calendar.SECOND, 0);
+            cal.set(Calendar.MILLISECOND, 0);
+        }
+        return cal.getTime();
+    }
+}
@@ -0,0 +1,198 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.falcon.entity.common;
+
+import org.apache.falcon.expression.ExpressionHelper;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FilterFileSystem;
+import org.apache.hadoop.fs.Path;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Tests for FeedPathWalker, against globbing the feed path.
+ */
+public class FeedPathWalkerTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final long HOUR = 3600000L;
+    // 2015-01-01T00:00Z
+    private static final long START = 1420070400000L;
+
+    private final String base = new File("target/feed-path-walker").getAbsolutePath();
+    private ListingFileSystem fs;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+        fs = new ListingFileSystem(FileSystem.getLocal(new Configuration()));
+        fs.delete(new Path(base), true);
+        // hourly instances over 60 days, with a success flag in each
+        for (long time = START; time < START + 60 * 24 * HOUR; time += HOUR) {
+            Path path = new Path(ExpressionHelper.substitute(base + "/data/${YEAR}/${MONTH}-${DAY}/${HOUR}",
+                    ExpressionHelper.getTimeVariables(new Date(time), UTC)));
+            fs.create(new Path(path, "_SUCCESS")).close();
+        }
+        fs.mkdirs(new Path(base + "/data/2015/01-bad"));
+        fs.create(new Path(base + "/data/2015/01-02/file")).close();
+    }
+
+    @Test
+    public void testFindInstancesBefore() throws Exception {
+        String template = base + "/data/${YEAR}/${MONTH}-${DAY}/${HOUR}";
+        FeedPathTemplate pathTemplate = FeedPathTemplate.compile(template);
+        long before = START + 10 * 24 * HOUR + 5 * HOUR;
+
+        fs.listings = 0;
+        List<Path> paths = FeedPathWalker.compile(template).findInstancesBefore(fs, UTC, before);
+        // the year, the days up to the day after the one looked for, the hours of those days
+        Assert.assertEquals(fs.listings, 1 + 1 + 12);
+
+        List<String> found = new ArrayList<String>();
+        for (Path path : paths) {
+            long time = pathTemplate.getTime(path.toUri().getPath(), UTC);
+            if (time < before) {
+                found.add(path.toUri().getPath());
+            }
+        }
+        Collections.sort(found);
+        Assert.assertEquals(found, glob(template, Long.MIN_VALUE, before - 1));
+        Assert.assertEquals(found.size(), 10 * 24 + 5);
+    }
+
+    @Test
+    public void testLiteralLeaf() throws Exception {
+        String template = base + "/data/${YEAR}/${MONTH}-${DAY}/${HOUR}/_SUCCESS";
+        List<Path> paths = FeedPathWalker.compile(template).findInstancesBefore(fs, UTC, START + 2 * HOUR);
+        // the hours of the day looked for and, within a day of slack, the first hours of the next day
+        Assert.assertEquals(paths.size(), 24 + 2, paths.toString());
+        for (Path path : paths) {
+            Assert.assertTrue(fs.isFile(path), path.toString());
+        }
+
+        Assert.assertTrue(FeedPathWalker.compile(base + "/missing/${YEAR}")
+                .findInstancesBefore(fs, UTC, Long.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    public void testFindInstances() throws Exception {
+        String template = base + "/data/${YEAR}/${MONTH}-${DAY}/${HOUR}";
+        FeedPathTemplate pathTemplate = FeedPathTemplate.compile(template);
+        long start = START + 40 * 24 * HOUR + 20 * HOUR;
+        long end = START + 42 * 24 * HOUR + 3 * HOUR;
+
+        fs.listings = 0;
+        List<FileStatus> statuses = FeedPathWalker.compile(template).findInstances(fs, UTC, start, end);
+        // the year, then the hours of the days in the range and of the days on either side of it
+        Assert.assertEquals(fs.listings, 1 + 1 + 5);
+
+        List<String> found = new ArrayList<String>();
+        for (FileStatus status : statuses) {
+            Assert.assertTrue(status.isDirectory());
+            long time = pathTemplate.getTime(status.getPath().toUri().getPath(), UTC);
+            if (time >= start && time <= end) {
+                found.add(status.getPath().toUri().getPath());
+            }
+        }
+        Collections.sort(found);
+        Assert.assertEquals(found, glob(template, start, end));
+        Assert.assertEquals(found.size(), 4 + 24 + 4);
+
+        Assert.assertTrue(FeedPathWalker.compile(template)
+                .findInstances(fs, UTC, START + 100 * 24 * HOUR, Long.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    public void testFindInstancesNotSlowerThanGlobbing() throws Exception {
+        String template = base + "/data/${YEAR}/${MONTH}-${DAY}/${HOUR}";
+        FeedPathWalker walker = FeedPathWalker.compile(template);
+        // the oldest day, as for retention
+        long start = START;
+        long end = START + 24 * HOUR - 1;
+
+        // best of a few rounds, the first ones warming up both; the bound is loose so that slow builds pass
+        long globNanos = Long.MAX_VALUE;
+        long walkNanos = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            fs.listings = 0;
+            long time = System.nanoTime();
+            List<String> globbed = glob(template, start, end);
+            globNanos = Math.min(globNanos, System.nanoTime() - time);
+            int globListings = fs.listings;
+
+            fs.listings = 0;
+            time = System.nanoTime();
+            List<FileStatus> statuses = walker.findInstances(fs, UTC, start, end);
+            walkNanos = Math.min(walkNanos, System.nanoTime() - time);
+            Assert.assertTrue(fs.listings < globListings, fs.listings + " listings, globbing " + globListings);
+
+            FeedPathTemplate pathTemplate = FeedPathTemplate.compile(template);
+            List<String> walked = new ArrayList<String>();
+            for (FileStatus status : statuses) {
+                long instanceTime = pathTemplate.getTime(status.getPath().toUri().getPath(), UTC);
+                if (instanceTime >= start && instanceTime <= end) {
+                    walked.add(status.getPath().toUri().getPath());
+                }
+            }
+            Collections.sort(walked);
+            Assert.assertEquals(walked, globbed);
+        }
+        Assert.assertTrue(walkNanos <= globNanos * 2, "walk " + walkNanos + " ns, glob " + globNanos + " ns");
+    }
+
+    private List<String> glob(String template, long start, long end) throws IOException {
+        FeedPathTemplate pathTemplate = FeedPathTemplate.compile(template);
+        List<String> result = new ArrayList<String>();
+        for (FileStatus status : fs.globStatus(new Path(template.replaceAll("\\$\\{[A-Z]+\\}", "*")))) {
+            String path = status.getPath().toUri().getPath();
+            long time = pathTemplate.getTime(path, UTC);
+            if (time != FeedPathTemplate.NO_MATCH && time >= start && time <= end) {
+                result.add(path);
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Counts the directory listings.
+     */
+    private static final class ListingFileSystem extends FilterFileSystem {
+        private int listings;
+
+        private ListingFileSystem(FileSystem fs) {
+            super(fs);
+        }
+
+        @Override
+        public FileStatus[] listStatus(Path path) throws IOException {
+            listings++;
+            return super.listStatus(path);
+        }
+    }
+}
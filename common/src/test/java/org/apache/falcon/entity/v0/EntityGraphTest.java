@@ -41,6 +41,9 @@ import org.apache.falcon.entity.v0.process.Process;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -213,6 +216,54 @@ public class EntityGraphTest extends AbstractTestBase {
         return f1;
     }
 
+    @Test
+    public void testUpstreamAndDownstream() throws Exception {
+        Cluster cluster = new Cluster();
+        cluster.setName("pipelineCluster");
+        cluster.setColo("3");
+        Process p1 = newProcess("pipelineP1", cluster);
+        Process p2 = newProcess("pipelineP2", cluster);
+        Feed f1 = addInput(p1, "pipelineF1", cluster);
+        Feed f2 = addOutput(p1, "pipelineF2", cluster);
+        addInput(p2, "pipelineF2", cluster);
+        Feed f3 = addOutput(p2, "pipelineF3", cluster);
+
+        store.publish(EntityType.CLUSTER, cluster);
+        store.publish(EntityType.FEED, f1);
+        store.publish(EntityType.FEED, f2);
+        store.publish(EntityType.FEED, f3);
+        store.publish(EntityType.PROCESS, p1);
+        store.publish(EntityType.PROCESS, p2);
+
+        Assert.assertEquals(graph.getDownstream(f1, 1), Collections.singleton(p1));
+        Assert.assertEquals(graph.getDownstream(f1, 3), new HashSet<Entity>(Arrays.asList(p1, f2, p2)));
+        Assert.assertEquals(graph.getDownstream(f1, Integer.MAX_VALUE),
+                new HashSet<Entity>(Arrays.asList(p1, f2, p2, f3)));
+        Assert.assertEquals(graph.getDownstream(p2, 1), Collections.singleton(f3));
+        Assert.assertTrue(graph.getDownstream(f3, 1).isEmpty());
+        Assert.assertTrue(graph.getDownstream(cluster, 1).isEmpty());
+
+        Assert.assertEquals(graph.getUpstream(f3, 2), new HashSet<Entity>(Arrays.asList(p2, f2)));
+        Assert.assertEquals(graph.getUpstream(f3, Integer.MAX_VALUE),
+                new HashSet<Entity>(Arrays.asList(p2, f2, p1, f1)));
+        Assert.assertEquals(graph.getUpstream(p1, 1), Collections.singleton(f1));
+
+        store.remove(EntityType.PROCESS, p2.getName());
+        Assert.assertEquals(graph.getDownstream(f1, Integer.MAX_VALUE), new HashSet<Entity>(Arrays.asList(p1, f2)));
+        Assert.assertTrue(graph.getUpstream(f3, Integer.MAX_VALUE).isEmpty());
+        Assert.assertEquals(graph.getDependents(f2), new HashSet<Entity>(Arrays.asList(p1, cluster)));
+    }
+
+    private Process newProcess(String name, Cluster cluster) {
+        Process process = new Process();
+        process.setName(name);
+        org.apache.falcon.entity.v0.process.Cluster processCluster = new org.apache.falcon.entity.v0.process.Cluster();
+        processCluster.setName(cluster.getName());
+        process.setClusters(new org.apache.falcon.entity.v0.process.Clusters());
+        process.getClusters().getClusters().add(processCluster);
+        return process;
+    }
+
     @Test
     public void testOnRemove() throws Exception {
         Process process = new Process();
@@ -17,14 +17,25 @@
  */
 package org.apache.falcon.expression;
 
+import org.apache.commons.el.ExpressionEvaluatorImpl;
 import org.apache.falcon.FalconException;
 import org.testng.Assert;
 import org.testng.annotations.BeforeTest;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import javax.servlet.jsp.el.FunctionMapper;
+import javax.servlet.jsp.el.VariableResolver;
+import java.lang.reflect.Method;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Unit test cases for EL Expressions.
@@ -46,6 +57,127 @@ public class ExpressionHelperTest {
         Assert.assertEquals(evalDateStr, expectedDateStr);
     }
 
+    @Test(dataProvider = "ElExpressions")
+    public void testCachedEvaluation(String expression, String expectedDateStr) throws Exception {
+        // parsed expressions are cached, evaluating one again has to give what the evaluator gives when parsing
+        Date evalDate = expressionHelper.evaluate(expression, Date.class);
+        Assert.assertEquals(expressionHelper.evaluate(expression, Date.class), evalDate);
+        Assert.assertEquals(new ExpressionEvaluatorImpl(true).evaluate("${" + expression + "}", Date.class,
+                expressionHelper, expressionHelper), evalDate);
+    }
+
+    @Test
+    public void testCachedEvaluationNotSlowerThanParsing() throws Exception {
+        // the evaluations of the SLA monitoring: a retention limit and the SLA limits of each pending instance
+        String[] expressions = {"days(7)", "hours(2)", "hours(4)"};
+        Date[] nominalTimes = new Date[20000];
+        for (int i = 0; i < nominalTimes.length; i++) {
+            nominalTimes[i] = new Date(1420070400000L + i * 300000L);
+        }
+
+        // best of a few rounds, the first ones warming up both; the bound is loose so that slow builds pass
+        ExpressionEvaluatorImpl evaluator = new ExpressionEvaluatorImpl(true);
+        ReflectiveResolver resolver = new ReflectiveResolver();
+        long parsingNanos = Long.MAX_VALUE;
+        long cachedNanos = Long.MAX_VALUE;
+        try {
+            for (int round = 0; round < 5; round++) {
+                long checksum = 0;
+                long start = System.nanoTime();
+                for (Date nominalTime : nominalTimes) {
+                    ExpressionHelper.setReferenceDate(nominalTime);
+                    for (String expression : expressions) {
+                        checksum += (Long) evaluator.evaluate("${" + expression + "}", Long.class, resolver,
+                                resolver);
+                    }
+                }
+                parsingNanos = Math.min(parsingNanos, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                for (Date nominalTime : nominalTimes) {
+                    for (String expression : expressions) {
+                        checksum -= expressionHelper.evaluate(expression, Long.class, nominalTime);
+                    }
+                }
+                cachedNanos = Math.min(cachedNanos, System.nanoTime() - start);
+                Assert.assertEquals(checksum, 0);
+            }
+        } finally {
+            init();
+        }
+        Assert.assertTrue(cachedNanos <= parsingNanos * 2,
+                "cached " + cachedNanos + " ns, parsing " + parsingNanos + " ns");
+    }
+
+    @Test
+    public void testEvaluateWithReferenceDate() throws Exception {
+        Date referenceDate = ExpressionHelper.FORMATTER.get().parse("2015-03-10T05:00Z");
+        Date evalDate = expressionHelper.evaluate("today(0,0)", Date.class, referenceDate);
+        Assert.assertEquals(ExpressionHelper.FORMATTER.get().format(evalDate), "2015-03-10T00:00Z");
+
+        // the reference date set on the thread is left as it was
+        evalDate = expressionHelper.evaluate("today(0,0)", Date.class);
+        Assert.assertEquals(ExpressionHelper.FORMATTER.get().format(evalDate), "2015-02-01T00:00Z");
+
+        Assert.assertEquals(expressionHelper.evaluateFullExpression("${YEAR}/${MONTH}/${HOUR}", String.class),
+                "2015/02/00");
+        Properties variables = new Properties();
+        variables.put("YEAR", "2016");
+        Assert.assertEquals(expressionHelper.evaluateFullExpression("/data/${YEAR}", String.class, variables),
+                "/data/2016");
+        Assert.assertEquals(expressionHelper.evaluateFullExpression("/data/${YEAR}", String.class),
+                "/data/2015");
+        Assert.assertEquals(expressionHelper.evaluate("hours(3)", Long.class, null), Long.valueOf(10800000L));
+    }
+
+    @Test
+    public void testConcurrentEvaluation() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int i = 0; i < 8; i++) {
+                final Date referenceDate = new Date(1420070400000L + i * 86400000L);
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        for (int j = 0; j < 1000; j++) {
+                            Date date = expressionHelper.evaluate("now(0,1)", Date.class, referenceDate);
+                            if (date.getTime() != referenceDate.getTime() + 60000L) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                Assert.assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Resolves functions the way ExpressionHelper did before its function table, looking through the declared
+     * methods on every call.
+     */
+    private static final class ReflectiveResolver implements FunctionMapper, VariableResolver {
+        @Override
+        public Method resolveFunction(String prefix, String name) {
+            for (Method method : ExpressionHelper.class.getDeclaredMethods()) {
+                if (method.getName().equals(name)) {
+                    return method;
+                }
+            }
+            throw new UnsupportedOperationException("Not found " + prefix + ":" + name);
+        }
+
+        @Override
+        public Object resolveVariable(String field) {
+            return null;
+        }
+    }
 
     @DataProvider(name = "ElExpressions")
     public Object[][] createOffsets() {
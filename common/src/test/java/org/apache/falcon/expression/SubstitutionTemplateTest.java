@@ -0,0 +1,120 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.falcon.expression;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Properties;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Tests for SubstitutionTemplate, against substitution with regular expressions.
+ */
+public class SubstitutionTemplateTest {
+
+    private static final TimeZone[] TIME_ZONES = {
+        TimeZone.getTimeZone("UTC"),
+        TimeZone.getTimeZone("America/Los_Angeles"),
+        TimeZone.getTimeZone("Asia/Kolkata"),
+        TimeZone.getTimeZone("Australia/Lord_Howe"),
+    };
+
+    @DataProvider(name = "templates")
+    public Object[][] getTemplates() {
+        return new Object[][] {
+            {"/data/${YEAR}/${MONTH}/${DAY}/${HOUR}/${MINUTE}"},
+            {"/data/${cluster.colo}/${YEAR}-${MONTH}-${DAY}/part"},
+            {"${YEAR}${MONTH}${DAY}${HOUR}${MINUTE}"},
+            {"/data/${unknown.var}/${YEAR}/${ $/${}/${MONTH"},
+            {"/data/${nested}/${DAY}"},
+            {"/data/${dollar}{DAY}/${HOUR}"},
+            {"/data/${DAY}/${DAY}/${override}"},
+            {"/data/static"},
+            {""},
+        };
+    }
+
+    @Test(dataProvider = "templates")
+    public void testRenderMatchesSubstitute(String template) {
+        Properties properties = new Properties();
+        properties.setProperty("cluster.colo", "west");
+        properties.setProperty("nested", "${HOUR}");
+        properties.setProperty("dollar", "a$");
+        properties.setProperty("override", "value");
+
+        SubstitutionTemplate compiled = SubstitutionTemplate.compile(template);
+        Assert.assertEquals(compiled.render(properties), ExpressionHelper.substituteWithPattern(template, properties));
+
+        SubstitutionTemplate bound = compiled.bind(properties);
+        Random random = new Random(template.hashCode());
+        for (int i = 0; i < 1000; i++) {
+            TimeZone tz = TIME_ZONES[random.nextInt(TIME_ZONES.length)];
+            long time = (long) (random.nextDouble() * 4102444800000L) - 1000000000000L;
+            Properties allProperties = ExpressionHelper.getTimeVariables(new Date(time), tz);
+            allProperties.putAll(properties);
+            Assert.assertEquals(bound.render(time, tz), ExpressionHelper.substituteWithPattern(template, allProperties),
+                    template + " " + time + " " + tz.getID());
+        }
+    }
+
+    @Test
+    public void testTimeVariables() {
+        Random random = new Random(7);
+        for (int i = 0; i < 10000; i++) {
+            TimeZone tz = TIME_ZONES[random.nextInt(TIME_ZONES.length)];
+            // from the year 1000 to 2100
+            long time = (long) (random.nextDouble() * 37234396800000L) - 30610224000000L;
+            Calendar cal = Calendar.getInstance(tz);
+            cal.setTimeInMillis(time);
+            Properties vars = ExpressionHelper.getTimeVariables(new Date(time), tz);
+            String message = time + " " + tz.getID();
+            Assert.assertEquals(vars.getProperty("YEAR"), String.format("%04d", cal.get(Calendar.YEAR)), message);
+            Assert.assertEquals(vars.getProperty("MONTH"), String.format("%02d", cal.get(Calendar.MONTH) + 1), message);
+            Assert.assertEquals(vars.getProperty("DAY"), String.format("%02d", cal.get(Calendar.DAY_OF_MONTH)),
+                    message);
+            Assert.assertEquals(vars.getProperty("HOUR"), String.format("%02d", cal.get(Calendar.HOUR_OF_DAY)),
+                    message);
+            Assert.assertEquals(vars.getProperty("MINUTE"), String.format("%02d", cal.get(Calendar.MINUTE)), message);
+        }
+    }
+
+    @Test
+    public void testRenderTimeTemplate() {
+        Properties properties = new Properties();
+        properties.setProperty("cluster.colo", "west");
+        properties.setProperty("HOUR", "12");
+        SubstitutionTemplate template = SubstitutionTemplate.compile(
+                "/data/${cluster.colo}/${YEAR}/${MONTH}/${HOUR}/${falcon.undefined.var}").bind(properties);
+        Assert.assertEquals(template.renderTimeTemplate(), "/data/west/${YEAR}/${MONTH}/12/${falcon.undefined.var}");
+    }
+
+    @Test
+    public void testSubstitute() {
+        Properties properties = new Properties();
+        properties.setProperty("falcon.home", "/opt/falcon");
+        Assert.assertEquals(ExpressionHelper.substitute("${falcon.home}/logs/${falcon.home}", properties),
+                "/opt/falcon/logs//opt/falcon");
+        Assert.assertEquals(ExpressionHelper.substitute("${falcon.undefined.var}/logs", properties),
+                "${falcon.undefined.var}/logs");
+    }
+}
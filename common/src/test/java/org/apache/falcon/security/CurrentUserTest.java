@@ -31,6 +31,10 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 /**
  * Test for current user's thread safety.
  */
@@ -71,6 +75,43 @@ public class CurrentUserTest {
         Assert.assertEquals(CurrentUser.getUser(), id);
     }
 
+    @Test
+    public void testWithCurrentUser() throws Exception {
+        Callable<String> getUsers = new Callable<String>() {
+            @Override
+            public String call() {
+                return CurrentUser.isAuthenticated()
+                        ? CurrentUser.getAuthenticatedUser() + "/" + CurrentUser.getUser() : null;
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // the worker starts out with a user of its own
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    CurrentUser.authenticate("stale");
+                }
+            }).get();
+
+            CurrentUser.authenticate("foo");
+            CurrentUser.proxy("bar", null);
+            Assert.assertEquals(executor.submit(CurrentUser.withCurrentUser(getUsers)).get(), "foo/bar");
+            Assert.assertNull(executor.submit(getUsers).get());
+
+            CurrentUser.clear();
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    CurrentUser.authenticate("stale");
+                }
+            }).get();
+            Assert.assertNull(executor.submit(CurrentUser.withCurrentUser(getUsers)).get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test (expectedExceptions = IllegalStateException.class)
     public void testAuthenticateBadUser() throws Exception {
         CurrentUser.authenticate("");
@@ -28,6 +28,8 @@ import org.testng.annotations.Test;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Tests for Radix Tree.
@@ -150,6 +152,22 @@ public class RadixTreeTest {
 
     }
 
+    @Test
+    public void testFindUsingRegexWithManyTemplates() {
+        int count = 100000;
+        for (int i = 0; i < count; i++) {
+            tree.insert("/data/feed" + i + "/${YEAR}/${MONTH}/${DAY}/${HOUR}", "feed" + i);
+        }
+
+        for (int i = 0; i < count; i += 7) {
+            Collection<String> result = tree.find("/data/feed" + i + "/2014/09/09/23", regexAlgorithm);
+            Assert.assertNotNull(result);
+            Assert.assertTrue(result.contains("feed" + i));
+        }
+        Assert.assertNull(tree.find("/data/feed" + count + "/2014/09/09/23", regexAlgorithm));
+        Assert.assertNull(tree.find("/data/feed1/2014/13/09/23", regexAlgorithm));
+    }
+
     // Tests for delete method
     @Test
     public void testDeleteChildOfTerminal() {
@@ -319,4 +337,42 @@ public class RadixTreeTest {
         tree.delete("keyWithMultipleValues", "value2");
         Assert.assertNull(tree.find("keyWithMultipleValues"));
     }
+
+    @Test
+    public void testFindWhileModified() throws Exception {
+        final RadixTree<String> sharedTree = new RadixTree<String>();
+        sharedTree.insert("/data/stable/${YEAR}", "stable");
+        final AtomicBoolean done = new AtomicBoolean(false);
+        final AtomicInteger misses = new AtomicInteger(0);
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                while (!done.get()) {
+                    Collection<String> result = sharedTree.find("/data/stable/2014", regexAlgorithm);
+                    if (result == null || !result.contains("stable")) {
+                        misses.incrementAndGet();
+                    }
+                }
+            }
+        };
+        reader.start();
+
+        try {
+            for (int i = 0; i < 5000; i++) {
+                sharedTree.insert("/data/s" + i + "/${YEAR}", "feed" + i);
+                sharedTree.insert("/data/stable/" + i, "feed" + i);
+            }
+            for (int i = 0; i < 5000; i++) {
+                Assert.assertTrue(sharedTree.delete("/data/s" + i + "/${YEAR}", "feed" + i));
+                Assert.assertTrue(sharedTree.delete("/data/stable/" + i, "feed" + i));
+            }
+        } finally {
+            done.set(true);
+            reader.join();
+        }
+
+        Assert.assertEquals(misses.get(), 0);
+        Assert.assertEquals(sharedTree.getSize(), 1);
+        Assert.assertEquals(sharedTree.find("/data/stable/2014", regexAlgorithm).size(), 1);
+    }
 }
@@ -498,6 +498,8 @@ public final class OozieBuilderUtils {
         props.put(WorkflowExecutionArgs.USER_JMS_NOTIFICATION_ENABLED.getName(), "true");
         props.put(WorkflowExecutionArgs.SYSTEM_JMS_NOTIFICATION_ENABLED.getName(),
                 RuntimeProperties.get().getProperty("falcon.jms.notification.enabled", "true"));
+        props.put(WorkflowExecutionArgs.SYSTEM_JMS_MESSAGE_FORMAT.getName(),
+                RuntimeProperties.get().getProperty("falcon.jms.message.format", "map"));
         //props in entity override the set props.
         props.putAll(EntityUtil.getEntityProperties(entity));
         return props;
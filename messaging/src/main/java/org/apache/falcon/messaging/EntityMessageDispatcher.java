@@ -0,0 +1,216 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.falcon.messaging;
+
+import org.apache.falcon.util.DaemonThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands the messages decoded on the JMS session thread over to a fixed set of workers, partitioned by entity,
+ * so the notifications of an entity are handled one at a time and in the order they were received.
+ *
+ * Messages not acknowledged before a crash are redelivered by the durable subscription, so a message is only
+ * acknowledged once it is handled, or right away if it is skipped. At most maxInFlight messages are being
+ * handled at a time:
+ * <ul>
+ * <li>With individual acknowledgement each message is acknowledged by the worker that handled it, and
+ * acknowledges no other message. Once maxInFlight messages are out, the session thread waits for one of them
+ * to finish.</li>
+ * <li>In client acknowledge mode acknowledging a message acknowledges every message the session delivered,
+ * including those still being handled. The session thread only acknowledges once nothing is in flight, and
+ * once maxInFlight messages are out it waits for all of them to finish.</li>
+ * </ul>
+ */
+class EntityMessageDispatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntityMessageDispatcher.class);
+
+    private final ExecutorService[] workers;
+    private final int maxInFlight;
+    private final boolean individualAcknowledge;
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition finished = lock.newCondition();
+    private int inFlight;
+    // in client acknowledge mode, the last message received and not acknowledged yet
+    private Message unacknowledged;
+
+    EntityMessageDispatcher(String name, int threads, int maxInFlight, boolean individualAcknowledge) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.individualAcknowledge = individualAcknowledge;
+        this.workers = new ExecutorService[Math.max(1, threads)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = Executors.newSingleThreadExecutor(new DaemonThreadFactory(name + "-" + i));
+        }
+    }
+
+    /**
+     * Runs the handler of a message on the worker of its entity. Called from the session thread only, it blocks
+     * while maxInFlight messages are being handled. If interrupted while waiting, the message is still
+     * dispatched and the interrupt status of the thread is set.
+     *
+     * @param message received message, acknowledged once handled
+     * @param partitionKey entity the message is about
+     * @param handler handles the message, its failures are reported by the caller
+     */
+    void dispatch(final Message message, String partitionKey, final Runnable handler) {
+        boolean interrupted = false;
+        lock.lock();
+        try {
+            if (individualAcknowledge) {
+                interrupted = awaitInFlight(maxInFlight - 1);
+            } else {
+                unacknowledged = message;
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+
+        workers[(partitionKey.hashCode() & Integer.MAX_VALUE) % workers.length].execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    handler.run();
+                } finally {
+                    complete(message);
+                }
+            }
+        });
+
+        if (!individualAcknowledge) {
+            // acknowledging acknowledges the messages in flight too, so wait for all of them once at the limit
+            lock.lock();
+            try {
+                if (inFlight >= maxInFlight) {
+                    interrupted = awaitInFlight(0);
+                }
+            } finally {
+                lock.unlock();
+            }
+            acknowledgeIfDrained(null);
+        }
+        if (interrupted) {
+            LOG.warn("Interrupted while waiting for the JMS message workers, dispatched {}", message);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // waits until at most count messages are in flight, called with the lock held; returns true if interrupted
+    private boolean awaitInFlight(int count) {
+        while (inFlight > count) {
+            try {
+                finished.await();
+            } catch (InterruptedException e) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Acknowledges a message which is not handled. Called from the session thread only.
+     */
+    void skip(Message message) {
+        if (individualAcknowledge) {
+            acknowledge(message, message);
+        } else {
+            acknowledgeIfDrained(message);
+        }
+    }
+
+    private void complete(Message message) {
+        if (individualAcknowledge) {
+            acknowledge(message, message);
+        }
+        lock.lock();
+        try {
+            inFlight--;
+            finished.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // in client acknowledge mode, acknowledges the messages received so far, including the given one which
+    // needs no handling, if none is in flight; called on the session thread or on the one closing the session
+    // once delivery stopped
+    private void acknowledgeIfDrained(Message received) {
+        Message last;
+        lock.lock();
+        try {
+            if (received != null) {
+                unacknowledged = received;
+            }
+            if (inFlight > 0 || unacknowledged == null) {
+                return;
+            }
+            last = unacknowledged;
+            unacknowledged = null;
+        } finally {
+            lock.unlock();
+        }
+        acknowledge(last, "JMS messages up to " + last);
+    }
+
+    private static void acknowledge(Message message, Object description) {
+        try {
+            message.acknowledge();
+        } catch (JMSException e) {
+            LOG.error("Unable to acknowledge {}, it will be redelivered", description, e);
+        }
+    }
+
+    /**
+     * Lets the workers finish the messages in flight, waiting up to the given time, stops them and acknowledges
+     * what they finished. Called once the delivery of messages to the session has stopped.
+     */
+    void shutdown(long timeout, TimeUnit unit) {
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        try {
+            for (ExecutorService worker : workers) {
+                if (!worker.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    LOG.warn("JMS message workers did not finish in time, unacknowledged messages will be redelivered");
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (ExecutorService worker : workers) {
+            worker.shutdownNow();
+        }
+        if (!individualAcknowledge) {
+            acknowledgeIfDrained(null);
+        }
+    }
+}
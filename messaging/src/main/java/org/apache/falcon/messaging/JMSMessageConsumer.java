@@ -18,6 +18,8 @@
 
 package org.apache.falcon.messaging;
 
+import org.apache.activemq.ActiveMQConnection;
+import org.apache.activemq.ActiveMQSession;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.falcon.FalconException;
 import org.apache.falcon.Pair;
@@ -25,8 +27,10 @@ import org.apache.falcon.Tag;
 import org.apache.falcon.aspect.GenericAlert;
 import org.apache.falcon.entity.WorkflowNameBuilder;
 import org.apache.falcon.entity.v0.EntityType;
+import org.apache.falcon.messaging.util.CompactMessageCodec;
 import org.apache.falcon.messaging.util.MessagingUtil;
 import org.apache.falcon.security.CurrentUser;
+import org.apache.falcon.util.StartupProperties;
 import org.apache.falcon.workflow.WorkflowExecutionArgs;
 import org.apache.falcon.workflow.WorkflowExecutionContext;
 import org.apache.falcon.workflow.WorkflowJobEndNotificationService;
@@ -35,6 +39,7 @@ import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.jms.BytesMessage;
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
 import javax.jms.ExceptionListener;
@@ -54,22 +59,38 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Subscribes to the falcon topic for handling retries and alerts.
+ *
+ * Messages are decoded on the session thread and handed to the listeners on workers partitioned by entity,
+ * see {@link EntityMessageDispatcher}. The notifications of different entities are handled concurrently, so
+ * the workflow execution listeners have to be thread safe. Those shipped are: the rerun handlers offer to a
+ * thread safe queue, the SLA monitoring handler updates synchronized pending instance timelines, the metadata
+ * mapping service commits each notification in a graph transaction of the worker thread with retries, the
+ * catalog partition handler keeps no state across calls and the job completion service notifies a
+ * synchronized set of handlers.
  */
 public class JMSMessageConsumer implements MessageListener, ExceptionListener {
     private static final Logger LOG = LoggerFactory.getLogger(JMSMessageConsumer.class);
 
     private static final String FALCON_CLIENT_ID = "falcon-server";
 
+    public static final String THREADS_PROP = "jms.consumer.threads";
+    public static final String MAX_IN_FLIGHT_PROP = "jms.consumer.max.inflight";
+    private static final long SHUTDOWN_TIMEOUT_SECS = 60;
+
     private final String implementation;
     private final String userName;
     private final String password;
     private final String url;
     private final String topicName;
     private final WorkflowJobEndNotificationService jobEndNotificationService;
+    private final int threads;
+    private final int maxInFlight;
 
+    private EntityMessageDispatcher dispatcher;
     private Connection connection;
     private TopicSession topicSession;
     private TopicSubscriber topicSubscriber;
@@ -77,20 +98,37 @@ public class JMSMessageConsumer implements MessageListener, ExceptionListener {
     public JMSMessageConsumer(String implementation, String userName,
                               String password, String url, String topicName,
                               WorkflowJobEndNotificationService jobEndNotificationService) {
+        this(implementation, userName, password, url, topicName, jobEndNotificationService,
+                Integer.parseInt(StartupProperties.get().getProperty(THREADS_PROP,
+                        String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                Integer.parseInt(StartupProperties.get().getProperty(MAX_IN_FLIGHT_PROP, "1000")));
+    }
+
+    public JMSMessageConsumer(String implementation, String userName,
+                              String password, String url, String topicName,
+                              WorkflowJobEndNotificationService jobEndNotificationService,
+                              int threads, int maxInFlight) {
         this.implementation = implementation;
         this.userName = userName;
         this.password = password;
         this.url = url;
         this.topicName = topicName;
         this.jobEndNotificationService = jobEndNotificationService;
+        this.threads = threads;
+        this.maxInFlight = maxInFlight;
     }
 
     public void startSubscriber() throws FalconException {
         try {
             connection = createAndGetConnection(implementation, userName, password, url);
             connection.setClientID(FALCON_CLIENT_ID);
+            // acknowledge each message once handled where the broker allows it, see EntityMessageDispatcher
+            boolean individualAcknowledge = connection instanceof ActiveMQConnection;
+            dispatcher = new EntityMessageDispatcher("JMSMessageConsumer", threads, maxInFlight,
+                    individualAcknowledge);
 
-            topicSession = (TopicSession) connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            topicSession = (TopicSession) connection.createSession(false, individualAcknowledge
+                    ? ActiveMQSession.INDIVIDUAL_ACKNOWLEDGE : Session.CLIENT_ACKNOWLEDGE);
             Topic destination = topicSession.createTopic(topicName);
             topicSubscriber = topicSession.createDurableSubscriber(destination, FALCON_CLIENT_ID);
             topicSubscriber.setMessageListener(this);
@@ -106,26 +144,50 @@ public class JMSMessageConsumer implements MessageListener, ExceptionListener {
     @Override
     public void onMessage(Message message) {
         LOG.info("Received JMS message {}", message.toString());
+        WorkflowExecutionContext context = null;
         try {
             if (message instanceof MapMessage) {
-                MapMessage mapMessage = (MapMessage) message;
-                WorkflowExecutionContext context = createContext(mapMessage);
+                context = createContext((MapMessage) message);
                 LOG.info("Created context from Falcon JMS message {}", context);
-                invokeListener(context);
+            } else if (message instanceof BytesMessage) {
+                context = WorkflowExecutionContext.create(CompactMessageCodec.decode((BytesMessage) message));
+                LOG.info("Created context from compact Falcon JMS message {}", context);
             // Due to backward compatibility, need to handle messages from post processing too.
             // Hence cannot use JMS selectors.
             } else if (shouldHandle(message)) {
-                TextMessage textMessage = (TextMessage) message;
-                WorkflowExecutionContext context = createContext(textMessage);
+                context = createContext((TextMessage) message);
                 LOG.info("Created context from Oozie JMS message {}", context);
-                invokeListener(context);
             }
         } catch (Exception e) {
-            String errorMessage = "Error in onMessage for topicSubscriber of topic: "
-                    + topicName + ", Message: " + message.toString();
-            LOG.info(errorMessage, e);
-            GenericAlert.alertJMSMessageConsumerFailed(errorMessage, e);
+            onMessageFailure(message, e);
+        }
+
+        if (context == null) {
+            dispatcher.skip(message);
+            return;
         }
+
+        final WorkflowExecutionContext messageContext = context;
+        final Message receivedMessage = message;
+        dispatcher.dispatch(message, context.getEntityType() + "/" + context.getEntityName(), new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    invokeListener(messageContext);
+                } catch (Exception e) {
+                    onMessageFailure(receivedMessage, e);
+                } finally {
+                    CurrentUser.clear();
+                }
+            }
+        });
+    }
+
+    private void onMessageFailure(Message message, Exception e) {
+        String errorMessage = "Error in onMessage for topicSubscriber of topic: "
+                + topicName + ", Message: " + message.toString();
+        LOG.info(errorMessage, e);
+        GenericAlert.alertJMSMessageConsumerFailed(errorMessage, e);
     }
 
     // Creates context from the JMS notification of the workflow engine
@@ -281,6 +343,17 @@ public class JMSMessageConsumer implements MessageListener, ExceptionListener {
 
     public void closeSubscriber() {
         LOG.info("Closing topicSubscriber on topic : " + this.topicName);
+        // stop the delivery and let the workers finish, so what they handled is acknowledged
+        if (connection != null) {
+            try {
+                connection.stop();
+            } catch (JMSException e) {
+                LOG.error("Error stopping JMS connection: " + connection, e);
+            }
+        }
+        if (dispatcher != null) {
+            dispatcher.shutdown(SHUTDOWN_TIMEOUT_SECS, TimeUnit.SECONDS);
+        }
         // closing each quietly so client id can be unsubscribed
         MessagingUtil.closeQuietly(topicSubscriber);
         MessagingUtil.closeQuietly(topicSession, FALCON_CLIENT_ID);
@@ -19,6 +19,7 @@
 package org.apache.falcon.messaging;
 
 import org.apache.falcon.hadoop.HadoopClientFactory;
+import org.apache.falcon.messaging.util.CompactMessageCodec;
 import org.apache.falcon.messaging.util.MessagingUtil;
 import org.apache.falcon.retention.EvictedInstanceSerDe;
 import org.apache.falcon.workflow.WorkflowExecutionArgs;
@@ -34,8 +35,8 @@ import javax.jms.DeliveryMode;
 import javax.jms.JMSException;
 import javax.jms.MapMessage;
 import javax.jms.Message;
+import javax.jms.MessageProducer;
 import javax.jms.Session;
-import javax.jms.Topic;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -163,16 +164,37 @@ public class JMSMessageProducer {
         Connection connection = null;
         try {
             connection = createAndStartConnection(getBrokerImplClass(), "", "", getBrokerUrl());
+            sendMessages(connection, messageList);
+        } finally {
+            MessagingUtil.closeQuietly(connection);
+        }
 
+        return 0;
+    }
+
+    /**
+     * Sends all messages in a single transacted session, so they are committed together.
+     */
+    private void sendMessages(Connection connection, List<Map<String, String>> messageList) throws JMSException {
+        Session session = null;
+        MessageProducer producer = null;
+        try {
+            session = connection.createSession(true, Session.SESSION_TRANSACTED);
+            producer = session.createProducer(session.createTopic(getTopicName()));
+            producer.setDeliveryMode(DeliveryMode.PERSISTENT);
+            producer.setTimeToLive(getBrokerTTL());
             for (Map<String, String> message : messageList) {
                 LOG.info("Sending message: {}", message);
-                sendMessage(connection, message);
+                producer.send(createMessage(session, message));
             }
+            session.commit();
         } finally {
-            MessagingUtil.closeQuietly(connection);
+            MessagingUtil.closeQuietly(producer);
+            if (session != null) {
+                // rolls back what was not committed
+                session.close();
+            }
         }
-
-        return 0;
     }
 
     private List<Map<String, String>> buildMessageList(WorkflowExecutionArgs[] filteredArgs) {
@@ -208,32 +230,14 @@ public class JMSMessageProducer {
         return messages;
     }
 
-    private void sendMessage(Connection connection,
-                             Map<String, String> message) throws JMSException {
-        Session session = null;
-        javax.jms.MessageProducer producer = null;
-        try {
-            session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
-            Topic entityTopic = session.createTopic(getTopicName());
-
-            producer = session.createProducer(entityTopic);
-            producer.setDeliveryMode(DeliveryMode.PERSISTENT);
-            producer.setTimeToLive(getBrokerTTL());
-
-            producer.send(createMessage(session, message));
-        } finally {
-            if (producer != null) {
-                producer.close();
-            }
-
-            if (session != null) {
-                session.close();
-            }
-        }
-    }
-
     public Message createMessage(Session session,
                                  Map<String, String> message) throws JMSException {
+        // only falcon reads system notifications, user notifications stay map messages
+        if (messageType == MessageType.FALCON && CompactMessageCodec.FORMAT.equals(
+                context.getValue(WorkflowExecutionArgs.SYSTEM_JMS_MESSAGE_FORMAT))) {
+            return CompactMessageCodec.encode(session, message);
+        }
+
         MapMessage mapMessage = session.createMapMessage();
 
         for (Map.Entry<String, String> entry : message.entrySet()) {
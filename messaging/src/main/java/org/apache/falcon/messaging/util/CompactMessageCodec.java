@@ -0,0 +1,200 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.falcon.messaging.util;
+
+import org.apache.falcon.workflow.WorkflowExecutionArgs;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Session;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of the falcon workflow notifications, sent as a {@link BytesMessage} instead of a
+ * map message keyed by the names of {@link WorkflowExecutionArgs}.
+ *
+ * The body starts with a magic byte and the schema version, followed by the number of entries. Each entry is the
+ * index of the argument in the schema of that version and its value as a length prefixed UTF-8 string. Empty
+ * values are left out, as consumers ignore them. The schema of a version must never change: a new argument goes
+ * into a new version, which lists the arguments of the previous one followed by the new ones.
+ */
+public final class CompactMessageCodec {
+
+    public static final String FORMAT = "compact";
+
+    private static final byte MAGIC = (byte) 0xFA;
+    private static final byte VERSION = 1;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final WorkflowExecutionArgs[] SCHEMA_V1 = {
+        WorkflowExecutionArgs.NOMINAL_TIME,
+        WorkflowExecutionArgs.ENTITY_TYPE,
+        WorkflowExecutionArgs.ENTITY_NAME,
+        WorkflowExecutionArgs.TIMESTAMP,
+        WorkflowExecutionArgs.CLUSTER_NAME,
+        WorkflowExecutionArgs.OPERATION,
+        WorkflowExecutionArgs.DATA_OPERATION,
+        WorkflowExecutionArgs.DATASOURCE_NAME,
+        WorkflowExecutionArgs.WORKFLOW_USER,
+        WorkflowExecutionArgs.USER_WORKFLOW_ENGINE,
+        WorkflowExecutionArgs.USER_WORKFLOW_NAME,
+        WorkflowExecutionArgs.USER_WORKFLOW_VERSION,
+        WorkflowExecutionArgs.WORKFLOW_ID,
+        WorkflowExecutionArgs.RUN_ID,
+        WorkflowExecutionArgs.STATUS,
+        WorkflowExecutionArgs.WF_ENGINE_URL,
+        WorkflowExecutionArgs.USER_SUBFLOW_ID,
+        WorkflowExecutionArgs.WF_START_TIME,
+        WorkflowExecutionArgs.WF_END_TIME,
+        WorkflowExecutionArgs.WF_DURATION,
+        WorkflowExecutionArgs.INPUT_FEED_NAMES,
+        WorkflowExecutionArgs.INPUT_FEED_PATHS,
+        WorkflowExecutionArgs.INPUT_NAMES,
+        WorkflowExecutionArgs.INPUT_STORAGE_TYPES,
+        WorkflowExecutionArgs.OUTPUT_FEED_NAMES,
+        WorkflowExecutionArgs.OUTPUT_FEED_PATHS,
+        WorkflowExecutionArgs.TOPIC_NAME,
+        WorkflowExecutionArgs.BRKR_IMPL_CLASS,
+        WorkflowExecutionArgs.BRKR_URL,
+        WorkflowExecutionArgs.USER_BRKR_IMPL_CLASS,
+        WorkflowExecutionArgs.USER_BRKR_URL,
+        WorkflowExecutionArgs.BRKR_TTL,
+        WorkflowExecutionArgs.USER_JMS_NOTIFICATION_ENABLED,
+        WorkflowExecutionArgs.SYSTEM_JMS_NOTIFICATION_ENABLED,
+        WorkflowExecutionArgs.SYSTEM_JMS_MESSAGE_FORMAT,
+        WorkflowExecutionArgs.LOG_FILE,
+        WorkflowExecutionArgs.LOG_DIR,
+        WorkflowExecutionArgs.CONTEXT_FILE,
+        WorkflowExecutionArgs.CONTEXT_TYPE,
+        WorkflowExecutionArgs.COUNTERS,
+    };
+
+    private static final Map<String, Integer> SCHEMA_V1_INDEX = new HashMap<String, Integer>();
+
+    static {
+        for (int i = 0; i < SCHEMA_V1.length; i++) {
+            SCHEMA_V1_INDEX.put(SCHEMA_V1[i].getName(), i);
+        }
+    }
+
+    private CompactMessageCodec() {
+    }
+
+    /**
+     * Encodes a notification keyed by argument names, arguments unknown to the schema are left out.
+     *
+     * @param session session to create the message on
+     * @param message argument names and values
+     * @return bytes message
+     * @throws JMSException
+     */
+    public static BytesMessage encode(Session session, Map<String, String> message) throws JMSException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            int count = 0;
+            for (Map.Entry<String, String> entry : message.entrySet()) {
+                if (isEncoded(entry)) {
+                    count++;
+                }
+            }
+
+            out.writeByte(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(count);
+            for (Map.Entry<String, String> entry : message.entrySet()) {
+                if (isEncoded(entry)) {
+                    byte[] value = entry.getValue().getBytes(UTF8);
+                    out.writeByte(SCHEMA_V1_INDEX.get(entry.getKey()));
+                    out.writeInt(value.length);
+                    out.write(value);
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw toJMSException("Unable to encode message", e);
+        }
+
+        BytesMessage bytesMessage = session.createBytesMessage();
+        bytesMessage.writeBytes(bytes.toByteArray());
+        return bytesMessage;
+    }
+
+    private static boolean isEncoded(Map.Entry<String, String> entry) {
+        return entry.getValue() != null && !entry.getValue().isEmpty() && SCHEMA_V1_INDEX.containsKey(entry.getKey());
+    }
+
+    /**
+     * Decodes a notification straight into the workflow properties. The body is read once, and each value is
+     * decoded from its slice of it.
+     *
+     * @param message bytes message written by {@link #encode(Session, Map)}
+     * @return workflow properties
+     * @throws JMSException if the message is not in a known version of the format
+     */
+    public static Map<WorkflowExecutionArgs, String> decode(BytesMessage message) throws JMSException {
+        long length = message.getBodyLength();
+        if (length < 3 || length > Integer.MAX_VALUE) {
+            throw new JMSException("Not a compact falcon message, body length: " + length);
+        }
+        byte[] body = new byte[(int) length];
+        message.readBytes(body);
+
+        if (body[0] != MAGIC) {
+            throw new JMSException("Not a compact falcon message, magic: " + body[0]);
+        }
+        if (body[1] != VERSION) {
+            throw new JMSException("Unsupported compact falcon message version: " + body[1]);
+        }
+
+        Map<WorkflowExecutionArgs, String> wfProperties =
+                new EnumMap<WorkflowExecutionArgs, String>(WorkflowExecutionArgs.class);
+        int count = body[2] & 0xFF;
+        int offset = 3;
+        try {
+            for (int i = 0; i < count; i++) {
+                int index = body[offset] & 0xFF;
+                int valueLength = ((body[offset + 1] & 0xFF) << 24) | ((body[offset + 2] & 0xFF) << 16)
+                        | ((body[offset + 3] & 0xFF) << 8) | (body[offset + 4] & 0xFF);
+                offset += 5;
+                if (index >= SCHEMA_V1.length || valueLength < 0 || offset + valueLength > body.length) {
+                    throw new JMSException("Corrupt compact falcon message at offset " + offset);
+                }
+                wfProperties.put(SCHEMA_V1[index], new String(body, offset, valueLength, UTF8));
+                offset += valueLength;
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw toJMSException("Truncated compact falcon message", e);
+        }
+        return wfProperties;
+    }
+
+    private static JMSException toJMSException(String message, Exception e) {
+        JMSException jmsException = new JMSException(message + ": " + e.getMessage());
+        jmsException.setLinkedException(e);
+        jmsException.initCause(e);
+        return jmsException;
+    }
+}
@@ -0,0 +1,270 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.falcon.messaging;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.ActiveMQSession;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test for the dispatch of JMS messages to workers partitioned by entity.
+ */
+public class EntityMessageDispatcherTest {
+
+    private static final String BROKER_URL = "vm://dispatcher-test?broker.persistent=false&broker.useJmx=false";
+    private static final long RECEIVE_TIMEOUT = 2000;
+    private static final Runnable NO_OP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    private Connection connection;
+    private Queue queue;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        connection = new ActiveMQConnectionFactory(BROKER_URL).createConnection();
+        connection.start();
+        queue = new ActiveMQQueue("FALCON.DISPATCHER.TEST");
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        // drops the queue along with the broker, which stops once its last connection is closed
+        connection.close();
+    }
+
+    @Test
+    public void testOrderPerEntity() throws Exception {
+        EntityMessageDispatcher dispatcher = new EntityMessageDispatcher("test", 4, 16, true);
+        final List<Integer> first = Collections.synchronizedList(new ArrayList<Integer>());
+        final List<Integer> second = Collections.synchronizedList(new ArrayList<Integer>());
+        for (int i = 0; i < 100; i++) {
+            final int index = i;
+            dispatcher.dispatch(Mockito.mock(Message.class), "PROCESS/first", new Runnable() {
+                @Override
+                public void run() {
+                    first.add(index);
+                }
+            });
+            dispatcher.dispatch(Mockito.mock(Message.class), "PROCESS/second", new Runnable() {
+                @Override
+                public void run() {
+                    second.add(index);
+                }
+            });
+        }
+        dispatcher.shutdown(10, TimeUnit.SECONDS);
+
+        Assert.assertEquals(first.size(), 100);
+        Assert.assertEquals(second.size(), 100);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(first.get(i).intValue(), i);
+            Assert.assertEquals(second.get(i).intValue(), i);
+        }
+    }
+
+    @Test(timeOut = 30000)
+    public void testAcknowledgeOnceHandled() throws Exception {
+        EntityMessageDispatcher dispatcher = new EntityMessageDispatcher("test", 2, 16, true);
+        Session session = connection.createSession(false, ActiveMQSession.INDIVIDUAL_ACKNOWLEDGE);
+        MessageConsumer consumer = session.createConsumer(queue);
+        send("handled", "blocked", "skipped");
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        dispatcher.dispatch(consumer.receive(RECEIVE_TIMEOUT), "PROCESS/first", NO_OP);
+        // the worker moves on to the blocked message once the handled one is acknowledged
+        dispatcher.dispatch(consumer.receive(RECEIVE_TIMEOUT), "PROCESS/first", block(started, release));
+        started.await();
+        dispatcher.skip(consumer.receive(RECEIVE_TIMEOUT));
+
+        // the messages not acknowledged by a crash are redelivered
+        session.close();
+        release.countDown();
+        dispatcher.shutdown(10, TimeUnit.SECONDS);
+        Assert.assertEquals(receiveAll(), Collections.singletonList("blocked"));
+    }
+
+    @Test(timeOut = 30000)
+    public void testWaitForFreeSlot() throws Exception {
+        EntityMessageDispatcher dispatcher = new EntityMessageDispatcher("test", 2, 2, true);
+        Session session = connection.createSession(false, ActiveMQSession.INDIVIDUAL_ACKNOWLEDGE);
+        MessageConsumer consumer = session.createConsumer(queue);
+        send("quick", "blocked", "next");
+        String otherKey = getKeyOfOtherWorker("PROCESS/first", 2);
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        dispatcher.dispatch(consumer.receive(RECEIVE_TIMEOUT), otherKey, NO_OP);
+        dispatcher.dispatch(consumer.receive(RECEIVE_TIMEOUT), "PROCESS/first", block(started, release));
+        // a slot is free once the quick message is done, without waiting for the blocked one
+        dispatcher.dispatch(consumer.receive(RECEIVE_TIMEOUT), otherKey, block(started, release));
+        started.await();
+
+        session.close();
+        release.countDown();
+        dispatcher.shutdown(10, TimeUnit.SECONDS);
+        Assert.assertEquals(receiveAll(), Arrays.asList("blocked", "next"));
+    }
+
+    @Test(timeOut = 30000)
+    public void testClientAcknowledgeOnceDrained() throws Exception {
+        EntityMessageDispatcher dispatcher = new EntityMessageDispatcher("test", 2, 16, false);
+        Session session = connection.createSession(false, Session.CLIENT_ACKNOWLEDGE);
+        MessageConsumer consumer = session.createConsumer(queue);
+        send("handled", "blocked", "skipped");
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        dispatcher.dispatch(consumer.receive(RECEIVE_TIMEOUT), "PROCESS/first", NO_OP);
+        dispatcher.dispatch(consumer.receive(RECEIVE_TIMEOUT), "PROCESS/first", block(started, release));
+        started.await();
+        // acknowledging the skipped message would acknowledge the one still in flight
+        dispatcher.skip(consumer.receive(RECEIVE_TIMEOUT));
+
+        session.close();
+        release.countDown();
+        dispatcher.shutdown(10, TimeUnit.SECONDS);
+        Assert.assertEquals(receiveAll(), Arrays.asList("handled", "blocked", "skipped"));
+
+        // once nothing is in flight, everything received is acknowledged
+        dispatcher = new EntityMessageDispatcher("test", 2, 16, false);
+        session = connection.createSession(false, Session.CLIENT_ACKNOWLEDGE);
+        consumer = session.createConsumer(queue);
+        send("handled", "skipped");
+        dispatcher.dispatch(consumer.receive(RECEIVE_TIMEOUT), "PROCESS/first", NO_OP);
+        dispatcher.skip(consumer.receive(RECEIVE_TIMEOUT));
+        dispatcher.shutdown(10, TimeUnit.SECONDS);
+        session.close();
+        Assert.assertEquals(receiveAll(), Collections.<String>emptyList());
+    }
+
+    @Test
+    public void testAcknowledgeOnSessionThread() throws Exception {
+        EntityMessageDispatcher dispatcher = new EntityMessageDispatcher("test", 4, 16, false);
+        final List<Thread> acknowledging = Collections.synchronizedList(new ArrayList<Thread>());
+        Answer<Void> recordThread = new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                acknowledging.add(Thread.currentThread());
+                return null;
+            }
+        };
+        final CountDownLatch handled = new CountDownLatch(1);
+        Message first = Mockito.mock(Message.class);
+        Mockito.doAnswer(recordThread).when(first).acknowledge();
+        Message second = Mockito.mock(Message.class);
+        Mockito.doAnswer(recordThread).when(second).acknowledge();
+        Message skipped = Mockito.mock(Message.class);
+        Mockito.doAnswer(recordThread).when(skipped).acknowledge();
+
+        dispatcher.dispatch(first, "PROCESS/first", NO_OP);
+        dispatcher.dispatch(second, "PROCESS/first", new Runnable() {
+            @Override
+            public void run() {
+                handled.countDown();
+            }
+        });
+        handled.await();
+        dispatcher.skip(skipped);
+
+        dispatcher.shutdown(10, TimeUnit.SECONDS);
+        Assert.assertFalse(acknowledging.isEmpty());
+        for (Thread thread : acknowledging) {
+            Assert.assertSame(thread, Thread.currentThread());
+        }
+    }
+
+    private void send(String... texts) throws JMSException {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        try {
+            MessageProducer producer = session.createProducer(queue);
+            for (String text : texts) {
+                producer.send(session.createTextMessage(text));
+            }
+        } finally {
+            session.close();
+        }
+    }
+
+    // receives and acknowledges the messages left on the queue
+    private List<String> receiveAll() throws JMSException {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        try {
+            MessageConsumer consumer = session.createConsumer(queue);
+            List<String> texts = new ArrayList<String>();
+            for (Message message = consumer.receive(RECEIVE_TIMEOUT); message != null;
+                 message = consumer.receive(RECEIVE_TIMEOUT)) {
+                texts.add(((TextMessage) message).getText());
+            }
+            return texts;
+        } finally {
+            session.close();
+        }
+    }
+
+    private static Runnable block(final CountDownLatch started, final CountDownLatch release) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    // a partition key handled by another worker than the given one, out of the given number of workers
+    private static String getKeyOfOtherWorker(String partitionKey, int workers) {
+        int worker = (partitionKey.hashCode() & Integer.MAX_VALUE) % workers;
+        for (int i = 0;; i++) {
+            String key = "PROCESS/other-" + i;
+            if ((key.hashCode() & Integer.MAX_VALUE) % workers != worker) {
+                return key;
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.falcon.messaging.util;
+
+import org.apache.activemq.command.ActiveMQBytesMessage;
+import org.apache.falcon.workflow.WorkflowExecutionArgs;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Session;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test for the compact encoding of falcon notifications.
+ */
+public class CompactMessageCodecTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Map<String, String> message = new HashMap<String, String>();
+        message.put(WorkflowExecutionArgs.ENTITY_NAME.getName(), "agg-coord");
+        message.put(WorkflowExecutionArgs.ENTITY_TYPE.getName(), "PROCESS");
+        message.put(WorkflowExecutionArgs.OUTPUT_FEED_PATHS.getName(), "/click-logs/10/05/05/00/20");
+        message.put(WorkflowExecutionArgs.WORKFLOW_USER.getName(), "falcon-é");
+        message.put(WorkflowExecutionArgs.LOG_FILE.getName(), "");
+        message.put(WorkflowExecutionArgs.RUN_ID.getName(), null);
+        message.put("unknown", "value");
+
+        Map<WorkflowExecutionArgs, String> decoded = CompactMessageCodec.decode(encode(message));
+
+        Assert.assertEquals(decoded.size(), 4);
+        Assert.assertEquals(decoded.get(WorkflowExecutionArgs.ENTITY_NAME), "agg-coord");
+        Assert.assertEquals(decoded.get(WorkflowExecutionArgs.ENTITY_TYPE), "PROCESS");
+        Assert.assertEquals(decoded.get(WorkflowExecutionArgs.OUTPUT_FEED_PATHS), "/click-logs/10/05/05/00/20");
+        Assert.assertEquals(decoded.get(WorkflowExecutionArgs.WORKFLOW_USER), "falcon-é");
+    }
+
+    @Test(expectedExceptions = JMSException.class)
+    public void testUnknownVersion() throws Exception {
+        ActiveMQBytesMessage message = new ActiveMQBytesMessage();
+        message.writeBytes(new byte[]{(byte) 0xFA, 99, 0});
+        message.reset();
+        CompactMessageCodec.decode(message);
+    }
+
+    @Test(expectedExceptions = JMSException.class)
+    public void testTruncated() throws Exception {
+        Map<String, String> message = new HashMap<String, String>();
+        message.put(WorkflowExecutionArgs.ENTITY_NAME.getName(), "agg-coord");
+        BytesMessage encoded = encode(message);
+        byte[] body = new byte[(int) encoded.getBodyLength() - 2];
+        encoded.readBytes(body);
+
+        ActiveMQBytesMessage truncated = new ActiveMQBytesMessage();
+        truncated.writeBytes(body);
+        truncated.reset();
+        CompactMessageCodec.decode(truncated);
+    }
+
+    private BytesMessage encode(Map<String, String> message) throws JMSException {
+        Session session = Mockito.mock(Session.class);
+        Mockito.when(session.createBytesMessage()).thenReturn(new ActiveMQBytesMessage());
+        ActiveMQBytesMessage encoded = (ActiveMQBytesMessage) CompactMessageCodec.encode(session, message);
+        encoded.reset();
+        return encoded;
+    }
+}
@@ -119,6 +119,8 @@ public abstract class OozieCoordinatorBuilder<T extends Entity> extends OozieEnt
         props.put(WorkflowExecutionArgs.USER_JMS_NOTIFICATION_ENABLED.getName(), "true");
         props.put(WorkflowExecutionArgs.SYSTEM_JMS_NOTIFICATION_ENABLED.getName(),
                 RuntimeProperties.get().getProperty("falcon.jms.notification.enabled", "true"));
+        props.put(WorkflowExecutionArgs.SYSTEM_JMS_MESSAGE_FORMAT.getName(),
+                RuntimeProperties.get().getProperty("falcon.jms.message.format", "map"));
 
         return props;
     }
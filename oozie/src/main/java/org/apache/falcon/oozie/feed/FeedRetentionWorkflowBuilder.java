@@ -23,6 +23,7 @@ import org.apache.falcon.LifeCycle;
 import org.apache.falcon.Tag;
 import org.apache.falcon.entity.EntityUtil;
 import org.apache.falcon.entity.FeedHelper;
+import org.apache.falcon.entity.FileSystemStorage;
 import org.apache.falcon.entity.HiveUtil;
 import org.apache.falcon.entity.Storage;
 import org.apache.falcon.entity.v0.cluster.Cluster;
@@ -30,6 +31,7 @@ import org.apache.falcon.entity.v0.feed.Feed;
 import org.apache.falcon.oozie.OozieOrchestrationWorkflowBuilder;
 import org.apache.falcon.oozie.workflow.ACTION;
 import org.apache.falcon.oozie.workflow.WORKFLOWAPP;
+import org.apache.falcon.util.StartupProperties;
 import org.apache.falcon.workflow.WorkflowExecutionArgs;
 import org.apache.falcon.workflow.WorkflowExecutionContext;
 import org.apache.hadoop.fs.Path;
@@ -104,6 +106,9 @@ public class FeedRetentionWorkflowBuilder extends OozieOrchestrationWorkflowBuil
                 feedDataPath.replaceAll(Storage.DOLLAR_EXPR_START_REGEX, Storage.QUESTION_EXPR_START_REGEX));
 
         props.put("limit", feedCluster.getRetention().getLimit().toString());
+        // the evictor runs in the launcher, the server settings reach it through the action configuration
+        props.put("evictionThreads", StartupProperties.get().getProperty(FileSystemStorage.EVICTION_THREADS,
+                String.valueOf(FileSystemStorage.DEFAULT_EVICTION_THREADS)));
 
         props.put(WorkflowExecutionArgs.OUTPUT_FEED_NAMES.getName(), entity.getName());
         props.put(WorkflowExecutionArgs.OUTPUT_FEED_PATHS.getName(), IGNORE);
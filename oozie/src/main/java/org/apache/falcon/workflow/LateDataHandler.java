@@ -57,6 +57,13 @@ public class LateDataHandler extends Configured implements Tool {
 
     private static final Logger LOG = LoggerFactory.getLogger(LateDataHandler.class);
 
+    /**
+     * Key of the line recording the kind of metrics in a metrics file. Files without it, written by earlier
+     * versions, record the size of the file system instances rather than their fingerprint.
+     */
+    public static final String METRICS_VERSION_KEY = "falcon.late.metrics.version";
+    private static final long FINGERPRINT_VERSION = 2;
+
     public static void main(String[] args) throws Exception {
         Configuration conf = OozieActionConfigurationHelper.createActionConf();
         ToolRunner.run(conf, new LateDataHandler(), args);
@@ -138,6 +145,7 @@ public class LateDataHandler extends Configured implements Tool {
             FileSystem fs = HadoopClientFactory.get().createProxiedFileSystem(file.toUri());
             out = fs.create(file);
 
+            out.write((METRICS_VERSION_KEY + "=" + FINGERPRINT_VERSION + "\n").getBytes());
             for (Map.Entry<String, Long> entry : metrics.entrySet()) {
                 out.write((entry.getKey() + "=" + entry.getValue() + "\n").getBytes());
             }
@@ -154,11 +162,11 @@ public class LateDataHandler extends Configured implements Tool {
 
     /**
      * This method computes the storage metrics for a given feed's instance or partition.
-     * It uses size on disk as the metric for File System Storage.
+     * It uses a fingerprint of the listing as the metric for File System Storage.
      * It uses create time as the metric for Catalog Table Storage.
      *
      * The assumption is that if a partition has changed or reinstated, the underlying
-     * metric would change, either size or create time.
+     * metric would change, either the listing or create time.
      *
      * @param feedUri URI for the feed storage, filesystem path or table uri
      * @param feedStorageType feed storage type
@@ -170,12 +178,31 @@ public class LateDataHandler extends Configured implements Tool {
      */
     public long computeStorageMetric(String feedUri, String feedStorageType, Configuration conf)
         throws IOException, FalconException, URISyntaxException {
+        return computeStorageMetric(feedUri, feedStorageType, conf, true);
+    }
+
+    /**
+     * Same as {@link #computeStorageMetric(String, String, Configuration)}, computing the size of file system
+     * instances instead of their fingerprint if asked to, to compare with metrics recorded by earlier versions.
+     *
+     * @param feedUri URI for the feed storage, filesystem path or table uri
+     * @param feedStorageType feed storage type
+     * @param conf configuration
+     * @param fingerprint whether the metric of file system instances is their fingerprint or their size
+     * @return computed metric
+     * @throws IOException
+     * @throws FalconException
+     * @throws URISyntaxException
+     */
+    public long computeStorageMetric(String feedUri, String feedStorageType, Configuration conf,
+                                     boolean fingerprint)
+        throws IOException, FalconException, URISyntaxException {
 
         Storage.TYPE storageType = Storage.TYPE.valueOf(feedStorageType);
 
         if (storageType == Storage.TYPE.FILESYSTEM) {
-            // usage on file system is the metric
-            return getFileSystemUsageMetric(feedUri, conf);
+            // fingerprint or usage on file system is the metric
+            return getFileSystemMetric(feedUri, conf, fingerprint);
         } else if (storageType == Storage.TYPE.TABLE) {
             // todo: this should have been done in oozie mapper but el ${coord:dataIn('input')} returns hcat scheme
             feedUri = feedUri.replace("hcat", "thrift");
@@ -187,26 +214,59 @@ public class LateDataHandler extends Configured implements Tool {
     }
 
     /**
-     * The storage metric for File System Storage is the size of content
-     * this feed's instance represented by the path uses on the file system.
+     * The storage metric for File System Storage is a fingerprint of the listing of each path of
+     * this feed's instance: the number of entries, their total length and their latest modification
+     * time, along with that of the path itself. It takes one listing per path, where the size took
+     * a walk of the whole instance on the namenode.
      *
-     * If this instance was reinstated, the assumption is that the size of
-     * this instance on disk would change.
+     * If this instance was reinstated, the assumption is that its listing would change. Entries
+     * added to or removed from a directory of the instance change the modification time of that
+     * directory, but changes to files deeper than the directories listed go unnoticed.
      *
      * @param pathGroup path on file system
      * @param conf configuration
-     * @return metric as the size of data on file system
+     * @param fingerprint whether the metric is the fingerprint or the size of data on file system
+     * @return metric as the fingerprint or the size of data on file system
      * @throws IOException
      */
-    private long getFileSystemUsageMetric(String pathGroup, Configuration conf)
+    private long getFileSystemMetric(String pathGroup, Configuration conf, boolean fingerprint)
         throws IOException, FalconException {
-        long usage = 0;
+        long metric = 0;
         for (String pathElement : pathGroup.split(",")) {
             Path inPath = new Path(pathElement);
-            usage += usage(inPath, conf);
+            if (fingerprint) {
+                metric = metric * 31 + fingerprint(inPath, conf);
+            } else {
+                metric += usage(inPath, conf);
+            }
+        }
+
+        return metric;
+    }
+
+    private long fingerprint(Path inPath, Configuration conf) throws IOException, FalconException {
+        FileSystem fs = HadoopClientFactory.get().createProxiedFileSystem(inPath.toUri(), conf);
+        FileStatus[] fileStatuses = fs.globStatus(inPath);
+        if (fileStatuses == null || fileStatuses.length == 0) {
+            return 0;
         }
 
-        return usage;
+        long count = 0;
+        long length = 0;
+        long modificationTime = 0;
+        for (FileStatus fileStatus : fileStatuses) {
+            FileStatus[] entries = {fileStatus};
+            if (fileStatus.isDirectory()) {
+                modificationTime = Math.max(modificationTime, fileStatus.getModificationTime());
+                entries = fs.listStatus(fileStatus.getPath());
+            }
+            for (FileStatus entry : entries) {
+                count++;
+                length += entry.getLen();
+                modificationTime = Math.max(modificationTime, entry.getModificationTime());
+            }
+        }
+        return ((count * 1000003) ^ length) * 1000003 ^ modificationTime;
     }
 
     private long usage(Path inPath, Configuration conf) throws IOException, FalconException {
@@ -246,6 +306,18 @@ public class LateDataHandler extends Configured implements Tool {
         return partition == null ? 0 : partition.getCreateTime();
     }
 
+    /**
+     * Checks if the recorded metrics are fingerprints of file system instances, rather than their size
+     * as recorded by earlier versions.
+     *
+     * @param recordedMetrics metrics read with {@link #readMetrics(Path, Configuration)}
+     * @return true if the metrics are fingerprints
+     */
+    public static boolean recordsFingerprints(Map<String, Long> recordedMetrics) {
+        Long version = recordedMetrics.get(METRICS_VERSION_KEY);
+        return version != null && version >= FINGERPRINT_VERSION;
+    }
+
     /**
      * This method compares the recorded metrics persisted in file against
      * the recently computed metrics and returns the list of feeds that has changed.
@@ -258,13 +330,54 @@ public class LateDataHandler extends Configured implements Tool {
      */
     public String detectChanges(Path file, Map<String, Long> metrics, Configuration conf)
         throws Exception {
+        return detectChanges(readMetrics(file, conf), metrics);
+    }
 
+    /**
+     * Same as {@link #detectChanges(Path, Map, Configuration)}, against metrics already read from the file.
+     *
+     * @param recordedMetrics metrics read with {@link #readMetrics(Path, Configuration)}
+     * @param metrics newly computed metrics
+     * @return list if feed names which has changed, empty string is none has changed
+     */
+    public String detectChanges(Map<String, Long> recordedMetrics, Map<String, Long> metrics) {
         StringBuilder buffer = new StringBuilder();
+        for (Map.Entry<String, Long> entry : metrics.entrySet()) {
+            if (entry.getKey().equals(METRICS_VERSION_KEY)) {
+                continue;
+            }
+            if (recordedMetrics.get(entry.getKey()) == null) {
+                LOG.info("No matching key {}", entry.getKey());
+                continue;
+            }
+            if (!recordedMetrics.get(entry.getKey()).equals(entry.getValue())) {
+                LOG.info("Recorded metric: {} is different from new metric {}",
+                        recordedMetrics.get(entry.getKey()), entry.getValue());
+                buffer.append(entry.getKey()).append(',');
+            }
+        }
+        if (buffer.length() == 0) {
+            return "";
+        } else {
+            return buffer.substring(0, buffer.length() - 1);
+        }
+    }
+
+    /**
+     * Reads the metrics persisted in file by the first run, along with the version of the metrics.
+     *
+     * @param file persisted metrics from the first run
+     * @param conf configuration
+     * @return metrics by feed name, and the version under {@link #METRICS_VERSION_KEY} if recorded
+     * @throws IOException
+     * @throws FalconException
+     */
+    public Map<String, Long> readMetrics(Path file, Configuration conf) throws IOException, FalconException {
         FileSystem fs = HadoopClientFactory.get().createProxiedFileSystem(file.toUri(), conf);
         BufferedReader in = new BufferedReader(new InputStreamReader(fs.open(file)));
-        String line;
         try {
             Map<String, Long> recordedMetrics = new LinkedHashMap<String, Long>();
+            String line;
             while ((line = in.readLine()) != null) {
                 if (line.isEmpty()) {
                     continue;
@@ -274,24 +387,7 @@ public class LateDataHandler extends Configured implements Tool {
                 long size = Long.parseLong(line.substring(index + 1));
                 recordedMetrics.put(key, size);
             }
-
-            for (Map.Entry<String, Long> entry : metrics.entrySet()) {
-                if (recordedMetrics.get(entry.getKey()) == null) {
-                    LOG.info("No matching key {}", entry.getKey());
-                    continue;
-                }
-                if (!recordedMetrics.get(entry.getKey()).equals(entry.getValue())) {
-                    LOG.info("Recorded size: {} is different from new size {}",
-                            recordedMetrics.get(entry.getKey()), entry.getValue());
-                    buffer.append(entry.getKey()).append(',');
-                }
-            }
-            if (buffer.length() == 0) {
-                return "";
-            } else {
-                return buffer.substring(0, buffer.length() - 1);
-            }
-
+            return recordedMetrics;
         } finally {
             in.close();
         }
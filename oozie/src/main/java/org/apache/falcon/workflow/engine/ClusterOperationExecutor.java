@@ -0,0 +1,155 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.falcon.workflow.engine;
+
+import org.apache.falcon.FalconException;
+import org.apache.falcon.security.CurrentUser;
+import org.apache.falcon.util.DaemonThreadFactory;
+import org.apache.falcon.util.StartupProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs an oozie operation of an entity on each of its clusters in parallel, using a bounded
+ * thread pool shared by all workflow engine calls.
+ *
+ * The calling user is carried over to the pool threads. Each cluster gets the configured timeout,
+ * and failures are collected per cluster and reported together once all the clusters are done.
+ * An operation on a single cluster is run in the calling thread.
+ */
+public final class ClusterOperationExecutor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ClusterOperationExecutor.class);
+
+    public static final String THREADS_PROP = "oozie.cluster.operation.threads";
+    public static final String TIMEOUT_SECS_PROP = "oozie.cluster.operation.timeout.secs";
+
+    private static final ClusterOperationExecutor INSTANCE = new ClusterOperationExecutor();
+
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+
+    private ClusterOperationExecutor() {
+        this(Integer.parseInt(StartupProperties.get().getProperty(THREADS_PROP, "20")), TimeUnit.SECONDS.toMillis(
+                Long.parseLong(StartupProperties.get().getProperty(TIMEOUT_SECS_PROP, "600"))));
+    }
+
+    ClusterOperationExecutor(int threads, long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory("ClusterOperation"));
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static ClusterOperationExecutor get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Operation to be performed on a single cluster.
+     *
+     * @param <T> result of the operation
+     */
+    public interface ClusterOperation<T> {
+        T call(String cluster) throws FalconException;
+    }
+
+    /**
+     * Runs the operation on all the given clusters and waits for them to complete.
+     *
+     * @param clusters clusters to run the operation on
+     * @param operation operation
+     * @param <T> result type
+     * @return result of the operation for each cluster, in the iteration order of clusters
+     * @throws FalconException if the operation failed or timed out on any of the clusters
+     */
+    public <T> Map<String, T> execute(Collection<String> clusters,
+                                      final ClusterOperation<T> operation) throws FalconException {
+        Map<String, T> results = new LinkedHashMap<>();
+        if (clusters.size() <= 1) {
+            for (String cluster : clusters) {
+                results.put(cluster, operation.call(cluster));
+            }
+            return results;
+        }
+
+        Map<String, Future<T>> futures = new LinkedHashMap<>();
+        for (final String cluster : clusters) {
+            futures.put(cluster, executor.submit(CurrentUser.withCurrentUser(new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    return operation.call(cluster);
+                }
+            })));
+        }
+
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        Map<String, Throwable> failures = new LinkedHashMap<>();
+        for (Map.Entry<String, Future<T>> entry : futures.entrySet()) {
+            String cluster = entry.getKey();
+            Future<T> future = entry.getValue();
+            try {
+                results.put(cluster, future.get(Math.max(deadline - System.currentTimeMillis(), 0),
+                        TimeUnit.MILLISECONDS));
+            } catch (ExecutionException e) {
+                failures.put(cluster, e.getCause());
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                failures.put(cluster, new FalconException("Timed out after "
+                        + TimeUnit.MILLISECONDS.toSeconds(timeoutMillis) + " secs"));
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                Thread.currentThread().interrupt();
+                failures.put(cluster, e);
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            throw failure(failures);
+        }
+        return results;
+    }
+
+    private static FalconException failure(Map<String, Throwable> failures) {
+        List<String> messages = new ArrayList<>();
+        for (Map.Entry<String, Throwable> entry : failures.entrySet()) {
+            LOG.error("Operation failed on cluster {}", entry.getKey(), entry.getValue());
+            messages.add(entry.getKey() + ": " + entry.getValue().getMessage());
+        }
+        Throwable cause = failures.values().iterator().next();
+        if (failures.size() == 1 && cause instanceof FalconException) {
+            return (FalconException) cause;
+        }
+        return new FalconException("Operation failed on clusters " + failures.keySet() + ". " + messages, cause);
+    }
+}
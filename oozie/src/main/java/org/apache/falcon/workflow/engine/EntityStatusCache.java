@@ -0,0 +1,328 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.falcon.workflow.engine;
+
+import org.apache.falcon.FalconException;
+import org.apache.falcon.entity.EntityUtil;
+import org.apache.falcon.entity.store.ConfigurationStore;
+import org.apache.falcon.entity.v0.Entity;
+import org.apache.falcon.entity.v0.EntityType;
+import org.apache.falcon.entity.v0.cluster.Cluster;
+import org.apache.falcon.security.CurrentUser;
+import org.apache.falcon.util.DaemonThreadFactory;
+import org.apache.falcon.util.StartupProperties;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.apache.oozie.client.BundleJob;
+import org.apache.oozie.client.OozieClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of the latest oozie bundle per cluster of scheduled entities, used to answer entity status
+ * queries (list, summary, status) without going to oozie for every entity on every request.
+ *
+ * Cached entries expire after a configurable TTL. Entries which are being read are kept fresh by a
+ * background poller which queries oozie in batches, one bundle listing per cluster for all cached entities.
+ * Entries are invalidated as soon as the entity is scheduled, suspended, resumed or deleted.
+ *
+ * The bundles held here come from oozie's bundle listing and carry no coordinator information, they must
+ * only be used for status checks.
+ */
+public final class EntityStatusCache implements WorkflowEngineActionListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntityStatusCache.class);
+
+    public static final String TTL_SECS_PROP = "oozie.entity.status.cache.ttl.secs";
+    public static final String BATCH_SIZE_PROP = "oozie.entity.status.cache.batch.size";
+
+    // entries which haven't been read for these many TTLs are no longer refreshed by the poller
+    private static final int IDLE_TTL_COUNT = 10;
+    private static final int BUNDLES_PAGE_SIZE = 1000;
+
+    private static final EntityStatusCache INSTANCE = new EntityStatusCache();
+
+    private final Map<String, CachedBundles> cache = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+    private final int batchSize;
+    private ScheduledExecutorService poller;
+
+    private EntityStatusCache() {
+        ttlMillis = TimeUnit.SECONDS.toMillis(
+                Long.parseLong(StartupProperties.get().getProperty(TTL_SECS_PROP, "60")));
+        batchSize = Integer.parseInt(StartupProperties.get().getProperty(BATCH_SIZE_PROP, "50"));
+    }
+
+    public static EntityStatusCache get() {
+        return INSTANCE;
+    }
+
+    public boolean isEnabled() {
+        return ttlMillis > 0;
+    }
+
+    /**
+     * Returns the cached latest bundle for each cluster of the entity, or null if there is no fresh entry.
+     * Clusters on which the entity is not scheduled are not part of the returned map.
+     *
+     * @param entity entity
+     * @return latest bundle per cluster or null
+     */
+    public Map<String, BundleJob> get(Entity entity) {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        CachedBundles cached = cache.get(getKey(entity));
+        long now = System.currentTimeMillis();
+        if (cached == null || now - cached.loadedAt > ttlMillis) {
+            return null;
+        }
+        cached.lastAccessedAt = now;
+        return new HashMap<>(cached.bundles);
+    }
+
+    /**
+     * Caches the latest bundle for each cluster of the entity.
+     *
+     * @param entity entity
+     * @param bundles latest bundle per cluster, clusters without a bundle are skipped
+     */
+    public void put(Entity entity, Map<String, BundleJob> bundles) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        cache.put(getKey(entity), new CachedBundles(bundles));
+        startPoller();
+    }
+
+    public void invalidate(Entity entity) {
+        if (cache.remove(getKey(entity)) != null) {
+            LOG.debug("Invalidated cached status of {}", entity.toShortString());
+        }
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    private static String getKey(Entity entity) {
+        return entity.getEntityType().name() + "/" + entity.getName();
+    }
+
+    private synchronized void startPoller() {
+        if (poller != null) {
+            return;
+        }
+
+        poller = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("EntityStatusCachePoller"));
+        long interval = Math.max(ttlMillis / 2, 1);
+        poller.scheduleWithFixedDelay(new Poller(), interval, interval, TimeUnit.MILLISECONDS);
+        LOG.info("Started entity status cache poller with interval {} ms", interval);
+    }
+
+    /**
+     * Refreshes all the entries which have been read recently, with one batched oozie query per cluster.
+     */
+    private class Poller implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                CurrentUser.authenticate(UserGroupInformation.getLoginUser().getShortUserName());
+                refresh();
+            } catch (Throwable e) {
+                LOG.error("Failed to refresh entity status cache", e);
+            }
+        }
+
+        private void refresh() throws FalconException {
+            Map<String, CachedBundles> snapshot = new HashMap<>(cache);
+            Map<String, Entity> entities = new HashMap<>();
+            Map<String, List<Entity>> clusterEntities = new HashMap<>();
+            long now = System.currentTimeMillis();
+            for (Map.Entry<String, CachedBundles> entry : snapshot.entrySet()) {
+                String[] typeAndName = entry.getKey().split("/", 2);
+                Entity entity = ConfigurationStore.get().get(EntityType.getEnum(typeAndName[0]), typeAndName[1]);
+                if (entity == null || now - entry.getValue().lastAccessedAt > IDLE_TTL_COUNT * ttlMillis) {
+                    cache.remove(entry.getKey(), entry.getValue());
+                    continue;
+                }
+
+                entities.put(entry.getKey(), entity);
+                for (String cluster : EntityUtil.getClustersDefinedInColos(entity)) {
+                    List<Entity> list = clusterEntities.get(cluster);
+                    if (list == null) {
+                        list = new ArrayList<>();
+                        clusterEntities.put(cluster, list);
+                    }
+                    list.add(entity);
+                }
+            }
+
+            Map<String, Map<String, BundleJob>> refreshed = new HashMap<>();
+            for (String key : entities.keySet()) {
+                refreshed.put(key, new HashMap<String, BundleJob>());
+            }
+            for (Map.Entry<String, List<Entity>> entry : clusterEntities.entrySet()) {
+                String cluster = entry.getKey();
+                try {
+                    Map<String, BundleJob> latest = findLatestBundles(cluster, entry.getValue());
+                    for (Entity entity : entry.getValue()) {
+                        Map<String, BundleJob> bundles = refreshed.get(getKey(entity));
+                        BundleJob bundle = latest.get(getKey(entity));
+                        if (bundles != null && bundle != null) {
+                            bundles.put(cluster, bundle);
+                        }
+                    }
+                } catch (Exception e) {
+                    // entities on this cluster are not refreshed and will be loaded on demand after expiry
+                    LOG.warn("Unable to refresh status of {} entities on cluster {}",
+                            entry.getValue().size(), cluster, e);
+                    for (Entity entity : entry.getValue()) {
+                        refreshed.remove(getKey(entity));
+                    }
+                }
+            }
+
+            for (Map.Entry<String, Map<String, BundleJob>> entry : refreshed.entrySet()) {
+                CachedBundles old = snapshot.get(entry.getKey());
+                CachedBundles fresh = new CachedBundles(entry.getValue());
+                fresh.lastAccessedAt = old.lastAccessedAt;
+                // skip entries invalidated while refreshing, they will be reloaded on the next read
+                cache.replace(entry.getKey(), old, fresh);
+            }
+            LOG.debug("Refreshed status of {} entities across {} clusters", refreshed.size(), clusterEntities.size());
+        }
+
+        private Map<String, BundleJob> findLatestBundles(String clusterName,
+                                                         List<Entity> entities) throws Exception {
+            Cluster cluster = ConfigurationStore.get().get(EntityType.CLUSTER, clusterName);
+            OozieClient client = OozieClientFactory.get(cluster);
+            Map<String, BundleJob> latest = new HashMap<>();
+            for (int i = 0; i < entities.size(); i += batchSize) {
+                List<Entity> batch = entities.subList(i, Math.min(i + batchSize, entities.size()));
+                Map<String, Entity> byWorkflowName = new HashMap<>();
+                StringBuilder filter = new StringBuilder();
+                for (Entity entity : batch) {
+                    String workflowName = EntityUtil.getWorkflowName(entity).toString();
+                    byWorkflowName.put(workflowName, entity);
+                    filter.append(OozieClient.FILTER_NAME).append('=').append(workflowName).append(';');
+                }
+
+                for (BundleJob job : listBundles(client, filter.toString())) {
+                    Entity entity = byWorkflowName.get(job.getAppName());
+                    if (entity == null || !EntityUtil.isStagingPath(cluster, entity,
+                            new Path((new Path(job.getAppPath())).toUri().getPath()))) {
+                        continue;
+                    }
+
+                    BundleJob current = latest.get(getKey(entity));
+                    if (current == null || current.getCreatedTime().before(job.getCreatedTime())) {
+                        latest.put(getKey(entity), job);
+                    }
+                }
+            }
+            return latest;
+        }
+
+        private List<BundleJob> listBundles(OozieClient client, String filter) throws Exception {
+            List<BundleJob> bundles = new ArrayList<>();
+            int start = 1;
+            while (true) {
+                List<BundleJob> page = client.getBundleJobsInfo(filter, start, BUNDLES_PAGE_SIZE);
+                if (page == null) {
+                    break;
+                }
+                bundles.addAll(page);
+                if (page.size() < BUNDLES_PAGE_SIZE) {
+                    break;
+                }
+                start += BUNDLES_PAGE_SIZE;
+            }
+            return bundles;
+        }
+    }
+
+    /**
+     * Latest bundles of an entity along with the time they were loaded.
+     */
+    private static final class CachedBundles {
+        private final Map<String, BundleJob> bundles;
+        private final long loadedAt;
+        private volatile long lastAccessedAt;
+
+        private CachedBundles(Map<String, BundleJob> bundles) {
+            this.bundles = Collections.unmodifiableMap(new HashMap<>(bundles));
+            this.loadedAt = System.currentTimeMillis();
+            this.lastAccessedAt = loadedAt;
+        }
+    }
+
+    @Override
+    public void beforeSchedule(Entity entity, String cluster) throws FalconException {
+        invalidate(entity);
+    }
+
+    @Override
+    public void afterSchedule(Entity entity, String cluster) throws FalconException {
+        invalidate(entity);
+    }
+
+    @Override
+    public void beforeDelete(Entity entity, String cluster) throws FalconException {
+        invalidate(entity);
+    }
+
+    @Override
+    public void afterDelete(Entity entity, String cluster) throws FalconException {
+        invalidate(entity);
+    }
+
+    @Override
+    public void beforeSuspend(Entity entity, String cluster) throws FalconException {
+        invalidate(entity);
+    }
+
+    @Override
+    public void afterSuspend(Entity entity, String cluster) throws FalconException {
+        invalidate(entity);
+    }
+
+    @Override
+    public void beforeResume(Entity entity, String cluster) throws FalconException {
+        invalidate(entity);
+    }
+
+    @Override
+    public void afterResume(Entity entity, String cluster) throws FalconException {
+        invalidate(entity);
+    }
+}
@@ -0,0 +1,233 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.falcon.workflow.engine;
+
+import org.apache.falcon.FalconException;
+import org.apache.falcon.entity.EntityUtil;
+import org.apache.falcon.entity.v0.Entity;
+import org.apache.falcon.entity.v0.cluster.Cluster;
+import org.apache.falcon.util.StartupProperties;
+import org.apache.hadoop.fs.Path;
+import org.apache.oozie.client.BundleJob;
+import org.apache.oozie.client.Job;
+import org.apache.oozie.client.OozieClient;
+import org.apache.oozie.client.OozieClientException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per cluster index of the oozie bundles of each entity, keyed by the entity's workflow name.
+ *
+ * The bundle ids of an entity are listed once and reused until the entry expires or the entity is
+ * scheduled, updated or deleted. Bundles in a terminal state never change, so they are kept along with
+ * their coordinators and carried over when the entry is refreshed. Only live bundles are fetched from oozie
+ * on each lookup, as their status and coordinators must be current. An entry without any live bundle is
+ * listed again on lookup, since a bundle scheduled by another falcon server or directly in oozie wouldn't
+ * be in it.
+ */
+public final class OozieBundleIndex implements WorkflowEngineActionListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OozieBundleIndex.class);
+
+    public static final String REFRESH_SECS_PROP = "oozie.bundle.index.refresh.secs";
+
+    private static final int BUNDLES_LIST_SIZE = 256;
+
+    // DONEWITHERROR is left out, a rerun of the failed actions takes a bundle out of it
+    private static final List<Job.Status> BUNDLE_TERMINAL_STATUS = Arrays.asList(Job.Status.SUCCEEDED,
+            Job.Status.FAILED, Job.Status.KILLED);
+
+    private static final OozieBundleIndex INSTANCE = new OozieBundleIndex();
+
+    private final ConcurrentMap<String, Map<String, IndexEntry>> clusterIndex = new ConcurrentHashMap<>();
+    // bumped on every invalidation, so that listings which raced with a schedule are not cached
+    private final AtomicLong generation = new AtomicLong();
+    private final long refreshMillis;
+
+    private OozieBundleIndex() {
+        refreshMillis = TimeUnit.SECONDS.toMillis(
+                Long.parseLong(StartupProperties.get().getProperty(REFRESH_SECS_PROP, "300")));
+    }
+
+    public static OozieBundleIndex get() {
+        return INSTANCE;
+    }
+
+    public boolean isEnabled() {
+        return refreshMillis > 0;
+    }
+
+    /**
+     * Returns all the bundles of the entity on the cluster, with coordinator info.
+     *
+     * @param entity entity
+     * @param cluster cluster
+     * @return bundles of the entity
+     * @throws FalconException if oozie can't be reached
+     */
+    public List<BundleJob> getBundles(Entity entity, Cluster cluster) throws FalconException {
+        OozieClient client = OozieClientFactory.get(cluster);
+        String workflowName = EntityUtil.getWorkflowName(entity).toString();
+        IndexEntry entry = isEnabled() ? getIndex(cluster.getName()).get(workflowName) : null;
+        if (entry == null || System.currentTimeMillis() - entry.listedAt > refreshMillis) {
+            return getBundles(client, list(client, entity, cluster, workflowName, entry));
+        }
+
+        List<BundleJob> bundles = getBundles(client, entry);
+        if (!entry.hasLiveBundles()) {
+            entry = list(client, entity, cluster, workflowName, entry);
+            bundles = getBundles(client, entry);
+        }
+        return bundles;
+    }
+
+    private List<BundleJob> getBundles(OozieClient client, IndexEntry entry) throws FalconException {
+        List<BundleJob> bundles = new ArrayList<>();
+        for (String bundleId : entry.bundleIds) {
+            BundleJob bundle = entry.completed.get(bundleId);
+            if (bundle == null) {
+                //Load bundle as coord info is not returned in getBundleJobsInfo()
+                bundle = getBundleInfo(client, bundleId);
+                if (BUNDLE_TERMINAL_STATUS.contains(bundle.getStatus())) {
+                    entry.completed.put(bundleId, bundle);
+                }
+            }
+            bundles.add(bundle);
+        }
+        return bundles;
+    }
+
+    public void invalidate(Entity entity, String cluster) throws FalconException {
+        generation.incrementAndGet();
+        if (getIndex(cluster).remove(EntityUtil.getWorkflowName(entity).toString()) != null) {
+            LOG.debug("Invalidated bundle index of {} on cluster {}", entity.toShortString(), cluster);
+        }
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        clusterIndex.clear();
+    }
+
+    private Map<String, IndexEntry> getIndex(String cluster) {
+        Map<String, IndexEntry> index = clusterIndex.get(cluster);
+        if (index == null) {
+            clusterIndex.putIfAbsent(cluster, new ConcurrentHashMap<String, IndexEntry>());
+            index = clusterIndex.get(cluster);
+        }
+        return index;
+    }
+
+    private IndexEntry list(OozieClient client, Entity entity, Cluster cluster, String workflowName,
+                            IndexEntry previous) throws FalconException {
+        long listGeneration = generation.get();
+        List<BundleJob> jobs;
+        try {
+            jobs = client.getBundleJobsInfo(OozieClient.FILTER_NAME + "=" + workflowName + ";", 0, BUNDLES_LIST_SIZE);
+        } catch (OozieClientException e) {
+            throw new FalconException(e);
+        }
+
+        IndexEntry entry = new IndexEntry();
+        if (jobs != null) {
+            for (BundleJob job : jobs) {
+                // Path is extracted twice as to handle changes in hadoop configurations for nameservices.
+                if (EntityUtil.isStagingPath(cluster, entity,
+                        new Path((new Path(job.getAppPath())).toUri().getPath()))) {
+                    entry.bundleIds.add(job.getId());
+                    if (previous != null && previous.completed.containsKey(job.getId())) {
+                        entry.completed.put(job.getId(), previous.completed.get(job.getId()));
+                    }
+                    LOG.debug("Found bundle {} with app path {} and status {}",
+                            job.getId(), job.getAppPath(), job.getStatus());
+                }
+            }
+        }
+
+        if (isEnabled() && generation.get() == listGeneration) {
+            getIndex(cluster.getName()).put(workflowName, entry);
+        }
+        return entry;
+    }
+
+    private static BundleJob getBundleInfo(OozieClient client, String bundleId) throws FalconException {
+        try {
+            return client.getBundleJobInfo(bundleId);
+        } catch (OozieClientException e) {
+            throw new FalconException(e);
+        }
+    }
+
+    /**
+     * Bundle ids of an entity on a cluster, along with the bundles which have completed.
+     */
+    private static final class IndexEntry {
+        private final long listedAt = System.currentTimeMillis();
+        private final List<String> bundleIds = new ArrayList<>();
+        private final Map<String, BundleJob> completed = new ConcurrentHashMap<>();
+
+        private boolean hasLiveBundles() {
+            return completed.size() < bundleIds.size();
+        }
+    }
+
+    @Override
+    public void beforeSchedule(Entity entity, String cluster) throws FalconException {
+        invalidate(entity, cluster);
+    }
+
+    @Override
+    public void afterSchedule(Entity entity, String cluster) throws FalconException {
+        invalidate(entity, cluster);
+    }
+
+    @Override
+    public void beforeDelete(Entity entity, String cluster) throws FalconException {
+    }
+
+    @Override
+    public void afterDelete(Entity entity, String cluster) throws FalconException {
+        invalidate(entity, cluster);
+    }
+
+    @Override
+    public void beforeSuspend(Entity entity, String cluster) throws FalconException {
+    }
+
+    @Override
+    public void afterSuspend(Entity entity, String cluster) throws FalconException {
+    }
+
+    @Override
+    public void beforeResume(Entity entity, String cluster) throws FalconException {
+    }
+
+    @Override
+    public void afterResume(Entity entity, String cluster) throws FalconException {
+    }
+}
@@ -40,6 +40,9 @@ public final class OozieClientFactory {
 
     private static volatile boolean localInitialized = false;
 
+    // handed out in place of new clients when set, only by tests
+    private static volatile OozieClient testClient;
+
     private OozieClientFactory() {}
 
     public static synchronized OozieClient get(Cluster cluster)
@@ -55,9 +58,19 @@ public final class OozieClientFactory {
         return get((Cluster) ConfigurationStore.get().get(EntityType.CLUSTER, clusterName));
     }
 
+    /**
+     * Makes every cluster use the given client, or new clients again if null. For tests only.
+     */
+    static void setTestClient(OozieClient client) {
+        testClient = client;
+    }
+
     private static OozieClient getClientRef(String oozieUrl)
         throws FalconException {
 
+        if (testClient != null) {
+            return testClient;
+        }
         if (OozieConstants.LOCAL_OOZIE.equals(oozieUrl)) {
             return getLocalOozieClient();
         } else {
@@ -0,0 +1,199 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.falcon.workflow.engine;
+
+import org.apache.falcon.FalconException;
+import org.apache.oozie.client.CoordinatorAction;
+import org.apache.oozie.client.CoordinatorJob;
+import org.apache.oozie.client.OozieClient;
+import org.apache.oozie.client.OozieClientException;
+import org.apache.oozie.client.WorkflowJob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Short lived cache of oozie jobs on a single cluster, shared by all the lookups of one API call.
+ *
+ * Coordinator actions are fetched a page at a time through the coordinator job info instead of one
+ * call per action, and workflow and coordinator jobs are fetched at most once per call.
+ * Not thread safe, an instance must only be used by the thread serving one cluster of a request.
+ */
+final class OozieJobCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OozieJobCache.class);
+
+    // maximum number of coordinator actions fetched in a single call
+    private static final int ACTIONS_PAGE_SIZE = 1000;
+
+    private final String cluster;
+    private final OozieClient client;
+    private final Map<String, WorkflowJob> workflows = new HashMap<>();
+    private final Map<String, CoordinatorJob> coords = new HashMap<>();
+    private final Map<String, CoordinatorAction> coordActions = new HashMap<>();
+
+    OozieJobCache(String cluster) throws FalconException {
+        this(cluster, OozieClientFactory.get(cluster));
+    }
+
+    OozieJobCache(String cluster, OozieClient client) {
+        this.cluster = cluster;
+        this.client = client;
+    }
+
+    String getCluster() {
+        return cluster;
+    }
+
+    OozieClient getClient() {
+        return client;
+    }
+
+    WorkflowJob getWorkflowJob(String wfId) throws FalconException {
+        WorkflowJob wf = workflows.get(wfId);
+        if (wf == null) {
+            try {
+                wf = client.getJobInfo(wfId);
+            } catch (OozieClientException e) {
+                throw new FalconException(e);
+            }
+            workflows.put(wfId, wf);
+        }
+        return wf;
+    }
+
+    CoordinatorJob getCoordJob(String coordId) throws FalconException {
+        CoordinatorJob coord = coords.get(coordId);
+        if (coord == null) {
+            try {
+                // job attributes are all that is needed, so fetch as few actions as possible
+                coord = client.getCoordJobInfo(coordId, null, 1, 1);
+            } catch (OozieClientException e) {
+                throw new FalconException(e);
+            }
+            coords.put(coordId, coord);
+        }
+        return coord;
+    }
+
+    /**
+     * Returns the coordinator action, fetching it on its own if it wasn't part of a page fetched earlier.
+     *
+     * @param actionId coordinator action id
+     * @return coordinator action or null if it doesn't exist
+     */
+    CoordinatorAction getCoordAction(String actionId) {
+        CoordinatorAction action = coordActions.get(actionId);
+        if (action == null) {
+            try {
+                action = client.getCoordActionInfo(actionId);
+                coordActions.put(actionId, action);
+            } catch (OozieClientException e) {
+                LOG.debug("Unable to get action for {} {}", actionId, e.getMessage());
+            }
+        }
+        return action;
+    }
+
+    /**
+     * Fetches the given coordinator actions, using one call per page of the coordinator's actions.
+     *
+     * @param actionIds coordinator action ids of the form coordId@actionNumber
+     */
+    void prefetchCoordActions(Collection<String> actionIds) throws FalconException {
+        Map<String, TreeSet<Integer>> coordSequences = new HashMap<>();
+        for (String actionId : actionIds) {
+            if (coordActions.containsKey(actionId)) {
+                continue;
+            }
+            int separator = actionId.lastIndexOf('@');
+            if (separator < 0) {
+                continue;
+            }
+            String coordId = actionId.substring(0, separator);
+            TreeSet<Integer> sequences = coordSequences.get(coordId);
+            if (sequences == null) {
+                sequences = new TreeSet<>();
+                coordSequences.put(coordId, sequences);
+            }
+            sequences.add(Integer.parseInt(actionId.substring(separator + 1)));
+        }
+
+        for (Map.Entry<String, TreeSet<Integer>> entry : coordSequences.entrySet()) {
+            prefetchCoordActions(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Returns the coordinator actions with the given action numbers in the given order, skipping the ones
+     * that don't exist.
+     *
+     * @param coordId coordinator id
+     * @param sequences action numbers
+     * @return coordinator actions
+     */
+    List<CoordinatorAction> getCoordActions(String coordId, List<Integer> sequences) throws FalconException {
+        List<String> actionIds = new ArrayList<>();
+        for (Integer sequence : sequences) {
+            actionIds.add(coordId + "@" + sequence);
+        }
+        prefetchCoordActions(actionIds);
+
+        List<CoordinatorAction> actions = new ArrayList<>();
+        for (String actionId : actionIds) {
+            CoordinatorAction action = getCoordAction(actionId);
+            if (action != null) {
+                actions.add(action);
+            }
+        }
+        return actions;
+    }
+
+    private void prefetchCoordActions(String coordId, TreeSet<Integer> sequences) throws FalconException {
+        int start = sequences.first();
+        int last = sequences.last();
+        while (start <= last) {
+            int len = Math.min(ACTIONS_PAGE_SIZE, last - start + 1);
+            CoordinatorJob coord;
+            try {
+                coord = client.getCoordJobInfo(coordId, null, start, len);
+            } catch (OozieClientException e) {
+                throw new FalconException(e);
+            }
+            if (!coords.containsKey(coordId)) {
+                coords.put(coordId, coord);
+            }
+            if (coord.getActions() != null) {
+                for (CoordinatorAction action : coord.getActions()) {
+                    coordActions.put(action.getId(), action);
+                }
+            }
+
+            // skip over pages with no requested action
+            Integer next = sequences.ceiling(start + len);
+            start = next == null ? last + 1 : next;
+        }
+    }
+}
@@ -50,6 +50,7 @@ import org.apache.falcon.util.DateUtil;
 import org.apache.falcon.util.OozieUtils;
 import org.apache.falcon.util.RuntimeProperties;
 import org.apache.falcon.util.StartupProperties;
+import org.apache.falcon.workflow.engine.ClusterOperationExecutor.ClusterOperation;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -73,10 +74,13 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -123,6 +127,10 @@ public class OozieWorkflowEngine extends AbstractWorkflowEngine {
     private static final String FALCON_SKIP_DRYRUN = "falcon.skip.dryrun";
 
     private static final int WORKFLOW_STATUS_RETRY_DELAY_MS = 100; // milliseconds
+    // workflow statuses are listed together from this many jobs on, in a page of a few times as many workflows
+    static final int WORKFLOW_STATUS_LIST_THRESHOLD = 5;
+    static final int WORKFLOW_STATUS_LIST_FACTOR = 2;
+    private static final int WORKFLOW_STATUS_LIST_SIZE = 1000;
     private static final String WORKFLOW_STATUS_RETRY_COUNT = "workflow.status.retry.count";
 
     private static final List<String> PARENT_WF_ACTION_NAMES = Arrays.asList(
@@ -139,6 +147,8 @@ public class OozieWorkflowEngine extends AbstractWorkflowEngine {
 
     public OozieWorkflowEngine() {
         registerListener(new OozieHouseKeepingService());
+        registerListener(EntityStatusCache.get());
+        registerListener(OozieBundleIndex.get());
     }
 
     @Override
@@ -151,38 +161,51 @@ public class OozieWorkflowEngine extends AbstractWorkflowEngine {
     }
 
     @Override
-    public void schedule(Entity entity, Boolean skipDryRun, Map<String, String> suppliedProps) throws FalconException {
-        Map<String, BundleJob> bundleMap = findLatestBundle(entity);
-        List<String> schedClusters = new ArrayList<String>();
-        for (Map.Entry<String, BundleJob> entry : bundleMap.entrySet()) {
-            String cluster = entry.getKey();
-            BundleJob bundleJob = entry.getValue();
-            if (bundleJob == MISSING) {
-                schedClusters.add(cluster);
-            } else {
-                LOG.debug("Entity {} is already scheduled on cluster {}", entity.getName(), cluster);
-            }
-        }
-
-        if (!schedClusters.isEmpty()) {
-            OozieEntityBuilder builder = OozieEntityBuilder.get(entity);
-            for (String clusterName: schedClusters) {
-                Cluster cluster = STORE.get(EntityType.CLUSTER, clusterName);
-                prepareEntityBuildPath(entity, cluster);
-                Path buildPath = EntityUtil.getNewStagingPath(cluster, entity);
-                Properties properties = builder.build(cluster, buildPath, suppliedProps);
-                if (properties == null) {
-                    LOG.info("Entity {} is not scheduled on cluster {}", entity.getName(), cluster);
-                    continue;
+    public void schedule(final Entity entity, final Boolean skipDryRun,
+                         final Map<String, String> suppliedProps) throws FalconException {
+        try {
+            Map<String, BundleJob> bundleMap = findLatestBundle(entity);
+            List<String> schedClusters = new ArrayList<String>();
+            for (Map.Entry<String, BundleJob> entry : bundleMap.entrySet()) {
+                String cluster = entry.getKey();
+                BundleJob bundleJob = entry.getValue();
+                if (bundleJob == MISSING) {
+                    schedClusters.add(cluster);
+                } else {
+                    LOG.debug("Entity {} is already scheduled on cluster {}", entity.getName(), cluster);
                 }
+            }
 
-                //Do dryRun of coords before schedule as schedule is asynchronous
-                dryRunInternal(cluster, new Path(properties.getProperty(OozieEntityBuilder.ENTITY_PATH)), skipDryRun);
-                scheduleEntity(clusterName, properties, entity);
+            if (!schedClusters.isEmpty()) {
+                ClusterOperationExecutor.get().execute(schedClusters, new ClusterOperation<String>() {
+                    @Override
+                    public String call(String clusterName) throws FalconException {
+                        return schedule(entity, clusterName, skipDryRun, suppliedProps);
+                    }
+                });
             }
+        } finally {
+            // also when scheduling failed part way, a listing may have cached the status in between
+            EntityStatusCache.get().invalidate(entity);
         }
     }
 
+    private String schedule(Entity entity, String clusterName, Boolean skipDryRun,
+                            Map<String, String> suppliedProps) throws FalconException {
+        Cluster cluster = STORE.get(EntityType.CLUSTER, clusterName);
+        prepareEntityBuildPath(entity, cluster);
+        Path buildPath = EntityUtil.getNewStagingPath(cluster, entity);
+        Properties properties = OozieEntityBuilder.get(entity).build(cluster, buildPath, suppliedProps);
+        if (properties == null) {
+            LOG.info("Entity {} is not scheduled on cluster {}", entity.getName(), cluster);
+            return null;
+        }
+
+        //Do dryRun of coords before schedule as schedule is asynchronous
+        dryRunInternal(cluster, new Path(properties.getProperty(OozieEntityBuilder.ENTITY_PATH)), skipDryRun);
+        return scheduleEntity(clusterName, properties, entity);
+    }
+
     /**
      * Prepare the staging and logs dir for this entity with default permissions.
      *
@@ -246,22 +269,56 @@ public class OozieWorkflowEngine extends AbstractWorkflowEngine {
 
     @Override
     public boolean isActive(Entity entity) throws FalconException {
-        return isBundleInState(findLatestBundle(entity), BundleStatus.ACTIVE);
+        return isActive(entity, false);
+    }
+
+    @Override
+    public boolean isActive(Entity entity, boolean allowCached) throws FalconException {
+        return isBundleInState(findLatestBundleForStatus(entity, allowCached), BundleStatus.ACTIVE);
     }
 
     @Override
     public boolean isSuspended(Entity entity) throws FalconException {
-        return isBundleInState(findLatestBundle(entity), BundleStatus.SUSPENDED);
+        return isSuspended(entity, false);
+    }
+
+    @Override
+    public boolean isSuspended(Entity entity, boolean allowCached) throws FalconException {
+        return isBundleInState(findLatestBundleForStatus(entity, allowCached), BundleStatus.SUSPENDED);
     }
 
     @Override
     public boolean isCompleted(Entity entity) throws FalconException {
-        Map<String, BundleJob> bundles = findLatestBundle(entity);
+        return isCompleted(entity, false);
+    }
+
+    @Override
+    public boolean isCompleted(Entity entity, boolean allowCached) throws FalconException {
+        Map<String, BundleJob> bundles = findLatestBundleForStatus(entity, allowCached);
         return (isBundleInState(bundles, BundleStatus.SUCCEEDED)
                 || isBundleInState(bundles, BundleStatus.FAILED)
                 || isBundleInState(bundles, BundleStatus.KILLED));
     }
 
+    //Return latest bundle for the entity for each cluster, served from the status cache if allowed and fresh.
+    //Bundles looked up in oozie refresh the cache either way.
+    private Map<String, BundleJob> findLatestBundleForStatus(Entity entity,
+                                                             boolean allowCached) throws FalconException {
+        EntityStatusCache statusCache = EntityStatusCache.get();
+        Map<String, BundleJob> bundles = allowCached ? statusCache.get(entity) : null;
+        if (bundles == null) {
+            bundles = findLatestBundle(entity);
+            Map<String, BundleJob> scheduled = new HashMap<String, BundleJob>();
+            for (Map.Entry<String, BundleJob> entry : bundles.entrySet()) {
+                if (entry.getValue() != MISSING) {
+                    scheduled.put(entry.getKey(), entry.getValue());
+                }
+            }
+            statusCache.put(entity, scheduled);
+        }
+        return bundles;
+    }
+
     private enum BundleStatus {
         ACTIVE, RUNNING, SUSPENDED, FAILED, KILLED, SUCCEEDED
     }
@@ -331,48 +388,29 @@ public class OozieWorkflowEngine extends AbstractWorkflowEngine {
     //Return all bundles for the entity in the requested cluster
     private List<BundleJob> findBundles(Entity entity, String clusterName) throws FalconException {
         Cluster cluster = STORE.get(EntityType.CLUSTER, clusterName);
-        List<BundleJob> filteredJobs = new ArrayList<BundleJob>();
-        try {
-            List<BundleJob> jobs = OozieClientFactory.get(cluster.getName()).getBundleJobsInfo(OozieClient.FILTER_NAME
-                + "=" + EntityUtil.getWorkflowName(entity) + ";", 0, 256);
-            if (jobs != null) {
-                for (BundleJob job : jobs) {
-                    // Path is extracted twice as to handle changes in hadoop configurations for nameservices.
-                    if (EntityUtil.isStagingPath(cluster, entity,
-                            new Path((new Path(job.getAppPath())).toUri().getPath()))) {
-                        //Load bundle as coord info is not returned in getBundleJobsInfo()
-                        BundleJob bundle = getBundleInfo(clusterName, job.getId());
-                        filteredJobs.add(bundle);
-                        LOG.debug("Found bundle {} with app path {} and status {}",
-                                job.getId(), job.getAppPath(), job.getStatus());
-                    }
-                }
-            }
-        } catch (OozieClientException e) {
-            throw new FalconException(e);
-        }
-        return filteredJobs;
+        return OozieBundleIndex.get().getBundles(entity, cluster);
     }
 
     //Return all bundles for the entity for each cluster
-    private Map<String, List<BundleJob>> findBundles(Entity entity) throws FalconException {
+    private Map<String, List<BundleJob>> findBundles(final Entity entity) throws FalconException {
         Set<String> clusters = EntityUtil.getClustersDefinedInColos(entity);
-        Map<String, List<BundleJob>> jobMap = new HashMap<String, List<BundleJob>>();
-        for (String cluster : clusters) {
-            jobMap.put(cluster, findBundles(entity, cluster));
-        }
-        return jobMap;
+        return ClusterOperationExecutor.get().execute(clusters, new ClusterOperation<List<BundleJob>>() {
+            @Override
+            public List<BundleJob> call(String cluster) throws FalconException {
+                return findBundles(entity, cluster);
+            }
+        });
     }
 
     //Return latest bundle(last created) for the entity for each cluster
-    private Map<String, BundleJob> findLatestBundle(Entity entity) throws FalconException {
+    private Map<String, BundleJob> findLatestBundle(final Entity entity) throws FalconException {
         Set<String> clusters = EntityUtil.getClustersDefinedInColos(entity);
-        Map<String, BundleJob> jobMap = new HashMap<String, BundleJob>();
-        for (String cluster : clusters) {
-            BundleJob bundleJob = findLatestBundle(entity, cluster);
-            jobMap.put(cluster, bundleJob);
-        }
-        return jobMap;
+        return ClusterOperationExecutor.get().execute(clusters, new ClusterOperation<BundleJob>() {
+            @Override
+            public BundleJob call(String cluster) throws FalconException {
+                return findLatestBundle(entity, cluster);
+            }
+        });
     }
 
     //Return latest bundle(last created) for the entity in the requested cluster
@@ -414,46 +452,58 @@ public class OozieWorkflowEngine extends AbstractWorkflowEngine {
         SUSPEND, RESUME, KILL
     }
 
-    private String doBundleAction(Entity entity, BundleAction action) throws FalconException {
+    private String doBundleAction(final Entity entity, final BundleAction action) throws FalconException {
         Set<String> clusters = EntityUtil.getClustersDefinedInColos(entity);
         String result = null;
-        for (String cluster : clusters) {
-            result = doBundleAction(entity, action, cluster);
+        Map<String, String> results = ClusterOperationExecutor.get().execute(clusters,
+            new ClusterOperation<String>() {
+                @Override
+                public String call(String cluster) throws FalconException {
+                    return doBundleAction(entity, action, cluster);
+                }
+            });
+        for (String clusterResult : results.values()) {
+            result = clusterResult;
         }
         return result;
     }
 
     private String doBundleAction(Entity entity, BundleAction action, String cluster) throws FalconException {
-        List<BundleJob> jobs = findBundles(entity, cluster);
-        beforeAction(entity, action, cluster);
-        for (BundleJob job : jobs) {
-            switch (action) {
-            case SUSPEND:
-                // not already suspended and preconditions are true
-                if (!BUNDLE_SUSPENDED_STATUS.contains(job.getStatus()) && BUNDLE_SUSPEND_PRECOND.contains(
-                    job.getStatus())) {
-                    suspend(cluster, job.getId());
-                }
-                break;
+        try {
+            List<BundleJob> jobs = findBundles(entity, cluster);
+            beforeAction(entity, action, cluster);
+            for (BundleJob job : jobs) {
+                switch (action) {
+                case SUSPEND:
+                    // not already suspended and preconditions are true
+                    if (!BUNDLE_SUSPENDED_STATUS.contains(job.getStatus()) && BUNDLE_SUSPEND_PRECOND.contains(
+                        job.getStatus())) {
+                        suspend(cluster, job.getId());
+                    }
+                    break;
 
-            case RESUME:
-                // not already running and preconditions are true
-                if (!BUNDLE_RUNNING_STATUS.contains(job.getStatus()) && BUNDLE_RESUME_PRECOND.contains(
-                    job.getStatus())) {
-                    resume(cluster, job.getId());
-                }
-                break;
+                case RESUME:
+                    // not already running and preconditions are true
+                    if (!BUNDLE_RUNNING_STATUS.contains(job.getStatus()) && BUNDLE_RESUME_PRECOND.contains(
+                        job.getStatus())) {
+                        resume(cluster, job.getId());
+                    }
+                    break;
 
-            case KILL:
-                // not already killed and preconditions are true
-                killBundle(cluster, job);
-                break;
+                case KILL:
+                    // not already killed and preconditions are true
+                    killBundle(cluster, job);
+                    break;
 
-            default:
+                default:
+                }
             }
+            afterAction(entity, action, cluster);
+            return "SUCCESS";
+        } finally {
+            // also when the action failed part way, a listing may have cached the status in between
+            EntityStatusCache.get().invalidate(entity);
         }
-        afterAction(entity, action, cluster);
-        return "SUCCESS";
     }
 
     private void killBundle(String clusterName, BundleJob job) throws FalconException {
@@ -514,40 +564,61 @@ public class OozieWorkflowEngine extends AbstractWorkflowEngine {
     }
 
     @Override
-    public InstancesResult getRunningInstances(Entity entity, List<LifeCycle> lifeCycles) throws FalconException {
-        try {
-            Set<String> clusters = EntityUtil.getClustersDefinedInColos(entity);
-            List<Instance> runInstances = new ArrayList<Instance>();
-
-            for (String cluster : clusters) {
-                OozieClient client = OozieClientFactory.get(cluster);
-                List<String> wfNames = EntityUtil.getWorkflowNames(entity);
-                List<WorkflowJob> wfs = getRunningWorkflows(cluster, wfNames);
-                if (wfs != null) {
-                    for (WorkflowJob job : wfs) {
-                        WorkflowJob wf = client.getJobInfo(job.getId());
-                        if (StringUtils.isEmpty(wf.getParentId())) {
-                            continue;
-                        }
-
-                        CoordinatorAction action = client.getCoordActionInfo(wf.getParentId());
-                        String nominalTimeStr = SchemaHelper.formatDateUTC(action.getNominalTime());
-                        Instance instance = new Instance(cluster, nominalTimeStr, WorkflowStatus.RUNNING);
-                        instance.startTime = wf.getStartTime();
-                        if (entity.getEntityType() == EntityType.FEED) {
-                            instance.sourceCluster = getSourceCluster(cluster, action, entity);
-                        }
-                        runInstances.add(instance);
-                    }
+    public InstancesResult getRunningInstances(final Entity entity,
+                                               List<LifeCycle> lifeCycles) throws FalconException {
+        Set<String> clusters = EntityUtil.getClustersDefinedInColos(entity);
+        List<Instance> runInstances = new ArrayList<Instance>();
+        Map<String, List<Instance>> clusterInstances = ClusterOperationExecutor.get().execute(clusters,
+            new ClusterOperation<List<Instance>>() {
+                @Override
+                public List<Instance> call(String cluster) throws FalconException {
+                    return getRunningInstances(entity, cluster);
                 }
+            });
+        for (List<Instance> instances : clusterInstances.values()) {
+            runInstances.addAll(instances);
+        }
+        InstancesResult result = new InstancesResult(APIResult.Status.SUCCEEDED, "Running Instances");
+        result.setInstances(runInstances.toArray(new Instance[runInstances.size()]));
+        return result;
+    }
+
+    private List<Instance> getRunningInstances(Entity entity, String cluster) throws FalconException {
+        List<Instance> runInstances = new ArrayList<Instance>();
+        OozieJobCache jobs = new OozieJobCache(cluster);
+        List<String> wfNames = EntityUtil.getWorkflowNames(entity);
+        List<WorkflowJob> wfs = getRunningWorkflows(cluster, wfNames);
+        if (wfs == null) {
+            return runInstances;
+        }
+
+        // parent id and start time are part of the listing, so workflows are only fetched if they are missing
+        List<WorkflowJob> coordWfs = new ArrayList<WorkflowJob>();
+        List<String> parentIds = new ArrayList<String>();
+        for (WorkflowJob job : wfs) {
+            WorkflowJob wf = StringUtils.isEmpty(job.getParentId()) ? jobs.getWorkflowJob(job.getId()) : job;
+            if (StringUtils.isEmpty(wf.getParentId())) {
+                continue;
             }
-            InstancesResult result = new InstancesResult(APIResult.Status.SUCCEEDED, "Running Instances");
-            result.setInstances(runInstances.toArray(new Instance[runInstances.size()]));
-            return result;
+            coordWfs.add(wf);
+            parentIds.add(wf.getParentId());
+        }
+        jobs.prefetchCoordActions(parentIds);
 
-        } catch (OozieClientException e) {
-            throw new FalconException(e);
+        for (WorkflowJob wf : coordWfs) {
+            CoordinatorAction action = jobs.getCoordAction(wf.getParentId());
+            if (action == null) {
+                throw new FalconException("Unable to get coordinator action " + wf.getParentId());
+            }
+            String nominalTimeStr = SchemaHelper.formatDateUTC(action.getNominalTime());
+            Instance instance = new Instance(cluster, nominalTimeStr, WorkflowStatus.RUNNING);
+            instance.startTime = wf.getStartTime();
+            if (entity.getEntityType() == EntityType.FEED) {
+                instance.sourceCluster = getSourceCluster(jobs, action, entity);
+            }
+            runInstances.add(instance);
         }
+        return runInstances;
     }
 
     @Override
@@ -563,7 +634,8 @@ public class OozieWorkflowEngine extends AbstractWorkflowEngine {
         if (isForced == null) {
             isForced = false;
         }
-        return doJobAction(JobAction.RERUN, entity, start, end, props, lifeCycles, false, isForced);
+        return doJobAction(JobAction.RERUN, entity, start, end, props, lifeCycles, false, isForced,
+                Integer.MAX_VALUE);
     }
 
     @Override
@@ -585,6 +657,12 @@ public class OozieWorkflowEngine extends AbstractWorkflowEngine {
         return doJobAction(JobAction.STATUS, entity, start, end, null, lifeCycles, allAttempts);
     }
 
+    @Override
+    public InstancesResult getStatus(Entity entity, Date start, Date end, List<LifeCycle> lifeCycles,
+                                     Boolean allAttempts, int limit) throws FalconException {
+        return doJobAction(JobAction.STATUS, entity, start, end, null, lifeCycles, allAttempts, false, limit);
+    }
+
     @Override
     public InstancesSummaryResult getSummary(Entity entity, Date start, Date end,
                                              List<LifeCycle> lifeCycles) throws FalconException {
@@ -621,17 +699,9 @@ public class OozieWorkflowEngine extends AbstractWorkflowEngine {
         KILL, SUSPEND, RESUME, RERUN, STATUS, SUMMARY, PARAMS
     }
 
-    private WorkflowJob getWorkflowInfo(String cluster, String wfId) throws FalconException {
-        try {
-            return OozieClientFactory.get(cluster).getJobInfo(wfId);
-        } catch (OozieClientException e) {
-            throw new FalconException(e);
-        }
-    }
-
-    private List<WorkflowJob> getWfsForCoordAction(String cluster, String coordActionId) throws FalconException {
+    private List<WorkflowJob> getWfsForCoordAction(OozieJobCache jobs, String coordActionId) throws FalconException {
         try {
-            return OozieClientFactory.get(cluster).getWfsForCoordAction(coordActionId);
+            return jobs.getClient().getWfsForCoordAction(coordActionId);
         } catch (OozieClientException e) {
             throw new FalconException(e);
         }
@@ -643,66 +713,42 @@ public class OozieWorkflowEngine extends AbstractWorkflowEngine {
     }
 
     //SUSPEND CHECKSTYLE CHECK ParameterNumberCheck
-    private InstancesResult doJobAction(JobAction action, Entity entity, Date start, Date end,
-                                        Properties props, List<LifeCycle> lifeCycles,
-                                        Boolean allAttempts, boolean isForced) throws FalconException {
-        Map<String, List<CoordinatorAction>> actionsMap = getCoordActions(entity, start, end, lifeCycles);
+    // actions are looked up in coordinator order until limit actions are found on a cluster
+    private InstancesResult doJobAction(final JobAction action, final Entity entity, final Date start,
+                                        final Date end, final Properties props, final List<LifeCycle> lifeCycles,
+                                        final Boolean allAttempts, final boolean isForced,
+                                        final int limit) throws FalconException {
+        final Map<String, List<BundleJob>> bundlesMap = findBundles(entity);
         List<String> clusterList = getIncludedClusters(props, FALCON_INSTANCE_ACTION_CLUSTERS);
-        List<String> sourceClusterList = getIncludedClusters(props, FALCON_INSTANCE_SOURCE_CLUSTERS);
+        final List<String> sourceClusterList = getIncludedClusters(props, FALCON_INSTANCE_SOURCE_CLUSTERS);
         APIResult.Status overallStatus = APIResult.Status.SUCCEEDED;
         int instanceCount = 0;
 
-        List<Instance> instances = new ArrayList<Instance>();
-        for (Map.Entry<String, List<CoordinatorAction>> entry : actionsMap.entrySet()) {
-            String cluster = entry.getKey();
-            if (clusterList.size() != 0 && !clusterList.contains(cluster)) {
-                continue;
+        List<String> clusters = new ArrayList<String>();
+        for (String cluster : bundlesMap.keySet()) {
+            if (clusterList.size() == 0 || clusterList.contains(cluster)) {
+                clusters.add(cluster);
             }
+        }
 
-            List<CoordinatorAction> actions = entry.getValue();
-            String sourceCluster = null;
-            for (CoordinatorAction coordinatorAction : actions) {
-                if (entity.getEntityType() == EntityType.FEED) {
-                    sourceCluster = getSourceCluster(cluster, coordinatorAction, entity);
-                    if (sourceClusterList.size() != 0 && !sourceClusterList.contains(sourceCluster)) {
-                        continue;
-                    }
-                }
-                instanceCount++;
-                String nominalTimeStr = SchemaHelper.formatDateUTC(coordinatorAction.getNominalTime());
-                List<InstancesResult.Instance> instanceList = new ArrayList<>();
-                InstancesResult.Instance instance =
-                        new InstancesResult.Instance(cluster, nominalTimeStr, null);
-                instance.sourceCluster = sourceCluster;
-                if (action.equals(JobAction.STATUS) && Boolean.TRUE.equals(allAttempts)) {
-                    try {
-                        performAction(cluster, action, coordinatorAction, props, instance, isForced);
-                        if (instance.getRunId() > 0) {
-                            instanceList = getAllInstances(cluster, coordinatorAction, nominalTimeStr);
-                        } else {
-                            instanceList.add(instance);
-                        }
-                    } catch (FalconException e) {
-                        LOG.warn("Unable to perform action {} on cluster", action, e);
-                        instance.status = WorkflowStatus.ERROR;
-                        overallStatus = APIResult.Status.PARTIAL;
-                    }
-                    for (InstancesResult.Instance instanceResult : instanceList) {
-                        instanceResult.details = coordinatorAction.getMissingDependencies();
-                        instanceResult.sourceCluster = sourceCluster;
-                        instances.add(instanceResult);
-                    }
-                } else {
-                    try {
-                        performAction(cluster, action, coordinatorAction, props, instance, isForced);
-                    } catch (FalconException e) {
-                        LOG.warn("Unable to perform action {} on cluster", action, e);
-                        instance.status = WorkflowStatus.ERROR;
-                        overallStatus = APIResult.Status.PARTIAL;
-                    }
-                    instance.details = coordinatorAction.getMissingDependencies();
-                    instances.add(instance);
+        Map<String, ClusterInstances> clusterInstances = ClusterOperationExecutor.get().execute(clusters,
+            new ClusterOperation<ClusterInstances>() {
+                @Override
+                public ClusterInstances call(String cluster) throws FalconException {
+                    OozieJobCache jobs = new OozieJobCache(cluster);
+                    List<CoordinatorAction> actions =
+                        getCoordActions(jobs, bundlesMap.get(cluster), start, end, lifeCycles, limit);
+                    return doJobAction(action, entity, jobs, actions, props, sourceClusterList, allAttempts,
+                            isForced);
                 }
+            });
+
+        List<Instance> instances = new ArrayList<Instance>();
+        for (ClusterInstances result : clusterInstances.values()) {
+            instanceCount += result.instanceCount;
+            instances.addAll(result.instances);
+            if (result.partial) {
+                overallStatus = APIResult.Status.PARTIAL;
             }
         }
         if (instanceCount < 2 && overallStatus == APIResult.Status.PARTIAL) {
@@ -713,89 +759,158 @@ public class OozieWorkflowEngine extends AbstractWorkflowEngine {
         return instancesResult;
     }
 
+    private ClusterInstances doJobAction(JobAction action, Entity entity, OozieJobCache jobs,
+                                         List<CoordinatorAction> actions, Properties props,
+                                         List<String> sourceClusterList, Boolean allAttempts,
+                                         boolean isForced) throws FalconException {
+        ClusterInstances result = new ClusterInstances();
+        String cluster = jobs.getCluster();
+        String sourceCluster = null;
+        for (CoordinatorAction coordinatorAction : actions) {
+            if (entity.getEntityType() == EntityType.FEED) {
+                sourceCluster = getSourceCluster(jobs, coordinatorAction, entity);
+                if (sourceClusterList.size() != 0 && !sourceClusterList.contains(sourceCluster)) {
+                    continue;
+                }
+            }
+            result.instanceCount++;
+            String nominalTimeStr = SchemaHelper.formatDateUTC(coordinatorAction.getNominalTime());
+            List<InstancesResult.Instance> instanceList = new ArrayList<>();
+            InstancesResult.Instance instance =
+                    new InstancesResult.Instance(cluster, nominalTimeStr, null);
+            instance.sourceCluster = sourceCluster;
+            if (action.equals(JobAction.STATUS) && Boolean.TRUE.equals(allAttempts)) {
+                try {
+                    performAction(jobs, action, coordinatorAction, props, instance, isForced);
+                    if (instance.getRunId() > 0) {
+                        instanceList = getAllInstances(jobs, coordinatorAction, nominalTimeStr);
+                    } else {
+                        instanceList.add(instance);
+                    }
+                } catch (FalconException e) {
+                    LOG.warn("Unable to perform action {} on cluster", action, e);
+                    instance.status = WorkflowStatus.ERROR;
+                    result.partial = true;
+                }
+                for (InstancesResult.Instance instanceResult : instanceList) {
+                    instanceResult.details = coordinatorAction.getMissingDependencies();
+                    instanceResult.sourceCluster = sourceCluster;
+                    result.instances.add(instanceResult);
+                }
+            } else {
+                try {
+                    performAction(jobs, action, coordinatorAction, props, instance, isForced);
+                } catch (FalconException e) {
+                    LOG.warn("Unable to perform action {} on cluster", action, e);
+                    instance.status = WorkflowStatus.ERROR;
+                    result.partial = true;
+                }
+                instance.details = coordinatorAction.getMissingDependencies();
+                result.instances.add(instance);
+            }
+        }
+        return result;
+    }
+
     //RESUME CHECKSTYLE CHECK ParameterNumberCheck
 
+    /**
+     * Outcome of an instance action on a single cluster.
+     */
+    private static final class ClusterInstances {
+        private final List<Instance> instances = new ArrayList<Instance>();
+        private int instanceCount;
+        private boolean partial;
+    }
+
     private InstancesResult doJobAction(JobAction action, Entity entity, Date start, Date end, Properties props,
                                         List<LifeCycle> lifeCycles, Boolean allAttempts) throws FalconException {
-        return doJobAction(action, entity, start, end, props, lifeCycles, allAttempts, false);
+        return doJobAction(action, entity, start, end, props, lifeCycles, allAttempts, false, Integer.MAX_VALUE);
     }
 
-    private InstancesSummaryResult doSummaryJobAction(Entity entity, Date start,
-                                                      Date end, Properties props,
-                                                      List<LifeCycle> lifeCycles) throws FalconException {
+    private InstancesSummaryResult doSummaryJobAction(Entity entity, final Date start,
+                                                      final Date end, Properties props,
+                                                      final List<LifeCycle> lifeCycles) throws FalconException {
 
-        Map<String, List<BundleJob>> bundlesMap = findBundles(entity);
-        List<InstanceSummary> instances = new ArrayList<InstanceSummary>();
+        final Map<String, List<BundleJob>> bundlesMap = findBundles(entity);
         List<String> clusterList = getIncludedClusters(props, FALCON_INSTANCE_ACTION_CLUSTERS);
-
-        for (Map.Entry<String, List<BundleJob>> entry : bundlesMap.entrySet()) {
-            Map<String, Long> instancesSummary = new HashMap<String, Long>();
-            String cluster = entry.getKey();
-            if (clusterList.size() != 0 && !clusterList.contains(cluster)) {
-                continue;
+        List<String> clusters = new ArrayList<String>();
+        for (String cluster : bundlesMap.keySet()) {
+            if (clusterList.size() == 0 || clusterList.contains(cluster)) {
+                clusters.add(cluster);
             }
+        }
 
-            List<BundleJob> bundles = entry.getValue();
-            OozieClient client = OozieClientFactory.get(cluster);
-            List<CoordinatorJob> applicableCoords = getApplicableCoords(client, start, end,
-                    bundles, lifeCycles);
-            long unscheduledInstances = 0;
-
-            for (int i = 0; i < applicableCoords.size(); i++) {
-                boolean isLastCoord = false;
-                CoordinatorJob coord = applicableCoords.get(i);
-                Frequency freq = createFrequency(String.valueOf(coord.getFrequency()), coord.getTimeUnit());
-                TimeZone tz = EntityUtil.getTimeZone(coord.getTimeZone());
-                Date iterStart = EntityUtil.getNextStartTime(coord.getStartTime(), freq, tz, start);
-                Date iterEnd = (coord.getLastActionTime() != null && coord.getLastActionTime().before(end)
-                    ? coord.getLastActionTime() : end);
-
-                if (i == 0) {
-                    isLastCoord = true;
+        Map<String, InstanceSummary> summaries = ClusterOperationExecutor.get().execute(clusters,
+            new ClusterOperation<InstanceSummary>() {
+                @Override
+                public InstanceSummary call(String cluster) throws FalconException {
+                    return getInstanceSummary(cluster, bundlesMap.get(cluster), start, end, lifeCycles);
                 }
+            });
+        List<InstanceSummary> instances = new ArrayList<InstanceSummary>(summaries.values());
 
-                int startActionNumber = EntityUtil.getInstanceSequence(coord.getStartTime(), freq, tz, iterStart);
-                int lastMaterializedActionNumber =
-                    EntityUtil.getInstanceSequence(coord.getStartTime(), freq, tz, iterEnd);
-                int endActionNumber = EntityUtil.getInstanceSequence(coord.getStartTime(), freq, tz, end);
+        InstancesSummaryResult instancesSummaryResult =
+            new InstancesSummaryResult(APIResult.Status.SUCCEEDED, JobAction.SUMMARY.name());
+        instancesSummaryResult.setInstancesSummary(instances.toArray(new InstanceSummary[instances.size()]));
+        return instancesSummaryResult;
+    }
 
-                if (lastMaterializedActionNumber < startActionNumber) {
-                    continue;
-                }
+    private InstanceSummary getInstanceSummary(String cluster, List<BundleJob> bundles, Date start, Date end,
+                                               List<LifeCycle> lifeCycles) throws FalconException {
+        Map<String, Long> instancesSummary = new HashMap<String, Long>();
+        OozieClient client = OozieClientFactory.get(cluster);
+        List<CoordinatorJob> applicableCoords = getApplicableCoords(start, end, bundles, lifeCycles);
+        long unscheduledInstances = 0;
 
-                if (isLastCoord && endActionNumber != lastMaterializedActionNumber) {
-                    unscheduledInstances = endActionNumber - lastMaterializedActionNumber;
-                }
+        for (int i = 0; i < applicableCoords.size(); i++) {
+            boolean isLastCoord = false;
+            CoordinatorJob coord = applicableCoords.get(i);
+            Frequency freq = createFrequency(String.valueOf(coord.getFrequency()), coord.getTimeUnit());
+            TimeZone tz = EntityUtil.getTimeZone(coord.getTimeZone());
+            Date iterStart = EntityUtil.getNextStartTime(coord.getStartTime(), freq, tz, start);
+            Date iterEnd = (coord.getLastActionTime() != null && coord.getLastActionTime().before(end)
+                ? coord.getLastActionTime() : end);
 
-                CoordinatorJob coordJob;
-                try {
-                    coordJob = client.getCoordJobInfo(coord.getId(), null, startActionNumber,
-                        (lastMaterializedActionNumber - startActionNumber));
-                } catch (OozieClientException e) {
-                    LOG.debug("Unable to get details for coordinator {}", coord.getId(), e);
-                    throw new FalconException(e);
-                }
+            if (i == 0) {
+                isLastCoord = true;
+            }
 
-                if (coordJob != null) {
-                    updateInstanceSummary(coordJob, instancesSummary);
-                }
+            int startActionNumber = EntityUtil.getInstanceSequence(coord.getStartTime(), freq, tz, iterStart);
+            int lastMaterializedActionNumber =
+                EntityUtil.getInstanceSequence(coord.getStartTime(), freq, tz, iterEnd);
+            int endActionNumber = EntityUtil.getInstanceSequence(coord.getStartTime(), freq, tz, end);
+
+            if (lastMaterializedActionNumber < startActionNumber) {
+                continue;
+            }
+
+            if (isLastCoord && endActionNumber != lastMaterializedActionNumber) {
+                unscheduledInstances = endActionNumber - lastMaterializedActionNumber;
             }
 
-            if (unscheduledInstances > 0) {
-                instancesSummary.put("UNSCHEDULED", unscheduledInstances);
+            CoordinatorJob coordJob;
+            try {
+                coordJob = client.getCoordJobInfo(coord.getId(), null, startActionNumber,
+                    (lastMaterializedActionNumber - startActionNumber));
+            } catch (OozieClientException e) {
+                LOG.debug("Unable to get details for coordinator {}", coord.getId(), e);
+                throw new FalconException(e);
             }
 
-            InstanceSummary summary = new InstanceSummary(cluster, instancesSummary);
-            instances.add(summary);
+            if (coordJob != null) {
+                updateInstanceSummary(coordJob, instancesSummary);
+            }
         }
 
-        InstancesSummaryResult instancesSummaryResult =
-            new InstancesSummaryResult(APIResult.Status.SUCCEEDED, JobAction.SUMMARY.name());
-        instancesSummaryResult.setInstancesSummary(instances.toArray(new InstanceSummary[instances.size()]));
-        return instancesSummaryResult;
+        if (unscheduledInstances > 0) {
+            instancesSummary.put("UNSCHEDULED", unscheduledInstances);
+        }
+
+        return new InstanceSummary(cluster, instancesSummary);
     }
 
-    private void populateInstanceActions(String cluster, WorkflowJob wfJob, Instance instance)
+    private void populateInstanceActions(OozieJobCache jobs, WorkflowJob wfJob, Instance instance)
         throws FalconException {
 
         List<InstancesResult.InstanceAction> instanceActions = new ArrayList<InstancesResult.InstanceAction>();
@@ -806,8 +921,7 @@ public class OozieWorkflowEngine extends AbstractWorkflowEngine {
         for (WorkflowAction action : wfActions) {
             if (action.getType().equalsIgnoreCase("sub-workflow") && StringUtils.isNotEmpty(action.getExternalId())) {
                 // if the action is sub-workflow, get job urls of all actions within the sub-workflow
-                List<WorkflowAction> subWorkFlowActions = getWorkflowInfo(cluster,
-                        action.getExternalId()).getActions();
+                List<WorkflowAction> subWorkFlowActions = jobs.getWorkflowJob(action.getExternalId()).getActions();
                 for (WorkflowAction subWfAction : subWorkFlowActions) {
                     if (!subWfAction.getType().startsWith(":")) {
                         InstancesResult.InstanceAction instanceAction =
@@ -863,20 +977,21 @@ public class OozieWorkflowEngine extends AbstractWorkflowEngine {
         }
     }
 
-    private List<InstancesResult.Instance> getAllInstances(String cluster, CoordinatorAction coordinatorAction,
+    private List<InstancesResult.Instance> getAllInstances(OozieJobCache jobs, CoordinatorAction coordinatorAction,
                                                            String nominalTimeStr) throws FalconException {
         List<InstancesResult.Instance> instanceList = new ArrayList<>();
         if (StringUtils.isNotBlank(coordinatorAction.getExternalId())) {
-            List<WorkflowJob> workflowJobList = getWfsForCoordAction(cluster, coordinatorAction.getExternalId());
+            List<WorkflowJob> workflowJobList = getWfsForCoordAction(jobs, coordinatorAction.getExternalId());
             if (workflowJobList != null && workflowJobList.size()>0) {
                 for (WorkflowJob workflowJob : workflowJobList) {
-                    InstancesResult.Instance newInstance = new InstancesResult.Instance(cluster, nominalTimeStr, null);
-                    WorkflowJob wfJob = getWorkflowInfo(cluster, workflowJob.getId());
+                    InstancesResult.Instance newInstance =
+                            new InstancesResult.Instance(jobs.getCluster(), nominalTimeStr, null);
+                    WorkflowJob wfJob = jobs.getWorkflowJob(workflowJob.getId());
                     if (wfJob!=null) {
                         newInstance.startTime = wfJob.getStartTime();
                         newInstance.endTime = wfJob.getEndTime();
                         newInstance.logFile = wfJob.getConsoleUrl();
-                        populateInstanceActions(cluster, wfJob, newInstance);
+                        populateInstanceActions(jobs, wfJob, newInstance);
                         newInstance.status = WorkflowStatus.valueOf(mapActionStatus(wfJob.getStatus().name()));
                         instanceList.add(newInstance);
                     }
@@ -886,12 +1001,13 @@ public class OozieWorkflowEngine extends AbstractWorkflowEngine {
         return instanceList;
     }
 
-    private void performAction(String cluster, JobAction action, CoordinatorAction coordinatorAction,
+    private void performAction(OozieJobCache jobs, JobAction action, CoordinatorAction coordinatorAction,
         Properties props, InstancesResult.Instance instance, boolean isForced) throws FalconException {
+        String cluster = jobs.getCluster();
         WorkflowJob jobInfo = null;
         String status = coordinatorAction.getStatus().name();
         if (StringUtils.isNotEmpty(coordinatorAction.getExternalId())) {
-            jobInfo = getWorkflowInfo(cluster, coordinatorAction.getExternalId());
+            jobInfo = jobs.getWorkflowJob(coordinatorAction.getExternalId());
             status = jobInfo.getStatus().name();
             instance.startTime = jobInfo.getStartTime();
             instance.endTime = jobInfo.getEndTime();
@@ -942,7 +1058,7 @@ public class OozieWorkflowEngine extends AbstractWorkflowEngine {
 
         case STATUS:
             if (StringUtils.isNotEmpty(coordinatorAction.getExternalId())) {
-                populateInstanceActions(cluster, jobInfo, instance);
+                populateInstanceActions(jobs, jobInfo, instance);
             }
             break;
 
@@ -1002,13 +1118,15 @@ public class OozieWorkflowEngine extends AbstractWorkflowEngine {
             + "expected statuses: " + Arrays.toString(statuses));
     }
 
-    private String getSourceCluster(String cluster, CoordinatorAction coordinatorAction, Entity entity)
+    private String getSourceCluster(OozieJobCache jobs, CoordinatorAction coordinatorAction, Entity entity)
         throws FalconException {
         try {
-            CoordinatorJob coordJob = OozieClientFactory.get(cluster).getCoordJobInfo(coordinatorAction.getJobId());
+            CoordinatorJob coordJob = jobs.getCoordJob(coordinatorAction.getJobId());
             return EntityUtil.getWorkflowNameSuffix(coordJob.getAppName(), entity);
-        } catch (OozieClientException e) {
-            throw new FalconException("Unable to get oozie job id:" + e);
+        } catch (FalconException e) {
+            // failures of the oozie client come wrapped, report the oozie error when there is one
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            throw new FalconException("Unable to get oozie job id:" + cause, cause);
         }
     }
 
@@ -1040,73 +1158,77 @@ public class OozieWorkflowEngine extends AbstractWorkflowEngine {
         }
     }
 
-    @SuppressWarnings("MagicConstant")
-    protected Map<String, List<CoordinatorAction>> getCoordActions(Entity entity, Date start, Date end,
-                                                                   List<LifeCycle> lifeCycles) throws FalconException {
-        Map<String, List<BundleJob>> bundlesMap = findBundles(entity);
-        Map<String, List<CoordinatorAction>> actionsMap = new HashMap<String, List<CoordinatorAction>>();
-
-        for (Map.Entry<String, List<BundleJob>> entry : bundlesMap.entrySet()) {
-            String cluster = entry.getKey();
-            List<BundleJob> bundles = entry.getValue();
-            OozieClient client = OozieClientFactory.get(cluster);
-            List<CoordinatorJob> applicableCoords =
-                getApplicableCoords(client, start, end, bundles, lifeCycles);
-            List<CoordinatorAction> actions = new ArrayList<CoordinatorAction>();
-            int maxRetentionInstancesCount =
-                Integer.parseInt(RuntimeProperties.get().getProperty("retention.instances.displaycount", "2"));
-            int retentionInstancesCount = 0;
-
-            for (CoordinatorJob coord : applicableCoords) {
-                Date nextMaterializedTime = coord.getNextMaterializedTime();
-                if (nextMaterializedTime == null) {
-                    continue;
+    protected Map<String, List<CoordinatorAction>> getCoordActions(Entity entity, final Date start, final Date end,
+                                                                   final List<LifeCycle> lifeCycles)
+        throws FalconException {
+        final Map<String, List<BundleJob>> bundlesMap = findBundles(entity);
+        return ClusterOperationExecutor.get().execute(bundlesMap.keySet(),
+            new ClusterOperation<List<CoordinatorAction>>() {
+                @Override
+                public List<CoordinatorAction> call(String cluster) throws FalconException {
+                    return getCoordActions(new OozieJobCache(cluster), bundlesMap.get(cluster), start, end,
+                            lifeCycles, Integer.MAX_VALUE);
                 }
+            });
+    }
 
-                boolean retentionCoord  = isRetentionCoord(coord);
-                Frequency freq = createFrequency(String.valueOf(coord.getFrequency()), coord.getTimeUnit());
-                TimeZone tz = EntityUtil.getTimeZone(coord.getTimeZone());
+    @SuppressWarnings("MagicConstant")
+    List<CoordinatorAction> getCoordActions(OozieJobCache jobs, List<BundleJob> bundles, Date start,
+                                                    Date end, List<LifeCycle> lifeCycles,
+                                                    int limit) throws FalconException {
+        List<CoordinatorJob> applicableCoords = getApplicableCoords(start, end, bundles, lifeCycles);
+        List<CoordinatorAction> actions = new ArrayList<CoordinatorAction>();
+        int maxRetentionInstancesCount =
+            Integer.parseInt(RuntimeProperties.get().getProperty("retention.instances.displaycount", "2"));
+        int retentionInstancesCount = 0;
+
+        for (CoordinatorJob coord : applicableCoords) {
+            Date nextMaterializedTime = coord.getNextMaterializedTime();
+            if (nextMaterializedTime == null) {
+                continue;
+            }
 
-                Date iterEnd = ((nextMaterializedTime.before(end) || retentionCoord) ? nextMaterializedTime : end);
-                Calendar endCal = Calendar.getInstance(EntityUtil.getTimeZone(coord.getTimeZone()));
-                endCal.setTime(EntityUtil.getNextStartTime(coord.getStartTime(), freq, tz, iterEnd));
+            boolean retentionCoord  = isRetentionCoord(coord);
+            Frequency freq = createFrequency(String.valueOf(coord.getFrequency()), coord.getTimeUnit());
+            TimeZone tz = EntityUtil.getTimeZone(coord.getTimeZone());
+
+            Date iterEnd = ((nextMaterializedTime.before(end) || retentionCoord) ? nextMaterializedTime : end);
+            Calendar endCal = Calendar.getInstance(EntityUtil.getTimeZone(coord.getTimeZone()));
+            endCal.setTime(EntityUtil.getNextStartTime(coord.getStartTime(), freq, tz, iterEnd));
+            endCal.add(freq.getTimeUnit().getCalendarUnit(), -(Integer.parseInt((coord.getFrequency()))));
+
+            List<Integer> sequences = new ArrayList<Integer>();
+            while (start.compareTo(endCal.getTime()) <= 0) {
+                if (retentionCoord) {
+                    if (retentionInstancesCount >= maxRetentionInstancesCount) {
+                        break;
+                    }
+                    retentionInstancesCount++;
+                }
+
+                sequences.add(EntityUtil.getInstanceSequence(coord.getStartTime(), freq, tz, endCal.getTime()));
                 endCal.add(freq.getTimeUnit().getCalendarUnit(), -(Integer.parseInt((coord.getFrequency()))));
 
-                while (start.compareTo(endCal.getTime()) <= 0) {
-                    if (retentionCoord) {
-                        if (retentionInstancesCount >= maxRetentionInstancesCount) {
-                            break;
-                        }
-                        retentionInstancesCount++;
+                // fetch as soon as enough actions are requested, some of them may not exist
+                if (sequences.size() >= limit - actions.size()) {
+                    actions.addAll(jobs.getCoordActions(coord.getId(), sequences));
+                    sequences.clear();
+                    if (actions.size() >= limit) {
+                        return actions;
                     }
-
-                    int sequence = EntityUtil.getInstanceSequence(coord.getStartTime(), freq, tz, endCal.getTime());
-                    String actionId = coord.getId() + "@" + sequence;
-                    addCoordAction(client, actions, actionId);
-                    endCal.add(freq.getTimeUnit().getCalendarUnit(), -(Integer.parseInt((coord.getFrequency()))));
                 }
             }
-            actionsMap.put(cluster, actions);
+            if (!sequences.isEmpty()) {
+                actions.addAll(jobs.getCoordActions(coord.getId(), sequences));
+            }
         }
-        return actionsMap;
+        return actions;
     }
 
     private boolean isRetentionCoord(CoordinatorJob coord){
         return coord.getAppName().contains(LifeCycle.EVICTION.getTag().name());
     }
 
-    private void addCoordAction(OozieClient client, List<CoordinatorAction> actions, String actionId) {
-        CoordinatorAction coordActionInfo = null;
-        try {
-            coordActionInfo = client.getCoordActionInfo(actionId);
-        } catch (OozieClientException e) {
-            LOG.debug("Unable to get action for " + actionId + " " + e.getMessage());
-        }
-        if (coordActionInfo != null) {
-            actions.add(coordActionInfo);
-        }
-    }
-
     private Frequency createFrequency(String frequency, Timeunit timeUnit) {
         return new Frequency(frequency, OozieTimeUnit.valueOf(timeUnit.name()).getFalconTimeUnit());
     }
@@ -1132,34 +1254,29 @@ public class OozieWorkflowEngine extends AbstractWorkflowEngine {
         }
     }
 
-    private List<CoordinatorJob> getApplicableCoords(OozieClient client, Date start, Date end,
-                                                     List<BundleJob> bundles,
-                                                     List<LifeCycle> lifeCycles) throws FalconException {
+    // bundles are the ones loaded by findBundles, which carry coordinator info
+    private List<CoordinatorJob> getApplicableCoords(Date start, Date end, List<BundleJob> bundles,
+                                                     List<LifeCycle> lifeCycles) {
         List<CoordinatorJob> applicableCoords = new ArrayList<CoordinatorJob>();
-        try {
-            for (BundleJob bundle : bundles) {
-                List<CoordinatorJob> coords = client.getBundleJobInfo(bundle.getId()).getCoordinators();
-                for (CoordinatorJob coord : coords) {
-                    // ignore coords in PREP state, not yet running and retention coord
-
-                    if (coord.getStatus() == Status.PREP
-                            || !isCoordApplicable(coord.getAppName(), lifeCycles)) {
-                        continue;
-                    }
+        for (BundleJob bundle : bundles) {
+            for (CoordinatorJob coord : bundle.getCoordinators()) {
+                // ignore coords in PREP state, not yet running and retention coord
 
-                    // if end time is before coord-start time or start time is
-                    // after coord-end time ignore.
-                    if (!(end.compareTo(coord.getStartTime()) <= 0 || start.compareTo(coord.getEndTime()) >= 0)) {
-                        applicableCoords.add(coord);
-                    }
+                if (coord.getStatus() == Status.PREP
+                        || !isCoordApplicable(coord.getAppName(), lifeCycles)) {
+                    continue;
                 }
-            }
 
-            sortDescByStartTime(applicableCoords);
-            return applicableCoords;
-        } catch (OozieClientException e) {
-            throw new FalconException(e);
+                // if end time is before coord-start time or start time is
+                // after coord-end time ignore.
+                if (!(end.compareTo(coord.getStartTime()) <= 0 || start.compareTo(coord.getEndTime()) >= 0)) {
+                    applicableCoords.add(coord);
+                }
+            }
         }
+
+        sortDescByStartTime(applicableCoords);
+        return applicableCoords;
     }
 
     private boolean isCoordApplicable(String appName, List<LifeCycle> lifeCycles) {
@@ -1583,6 +1700,49 @@ public class OozieWorkflowEngine extends AbstractWorkflowEngine {
         }
     }
 
+    /**
+     * Lists the latest workflows of the entities on the cluster in one call, and looks up the status of the
+     * jobs not in that listing one at a time. Below {@link #WORKFLOW_STATUS_LIST_THRESHOLD} jobs, they are all
+     * looked up one at a time.
+     */
+    @Override
+    public Map<String, String> getWorkflowStatuses(String cluster, Collection<Entity> entities,
+                                                   Collection<String> jobIds) throws FalconException {
+        Map<String, String> statuses = new HashMap<String, String>();
+        Set<String> workflowNames = new LinkedHashSet<String>();
+        for (Entity entity : entities) {
+            workflowNames.addAll(EntityUtil.getWorkflowNames(entity));
+        }
+
+        if (!workflowNames.isEmpty() && jobIds.size() >= WORKFLOW_STATUS_LIST_THRESHOLD) {
+            StringBuilder filter = new StringBuilder();
+            for (String workflowName : workflowNames) {
+                filter.append(OozieClient.FILTER_NAME).append('=').append(workflowName).append(';');
+            }
+            try {
+                Set<String> wanted = new HashSet<String>(jobIds);
+                int pageSize = (int) Math.min((long) jobIds.size() * WORKFLOW_STATUS_LIST_FACTOR,
+                        WORKFLOW_STATUS_LIST_SIZE);
+                for (WorkflowJob job : OozieClientFactory.get(cluster).getJobsInfo(filter.toString(), 1,
+                        pageSize)) {
+                    if (wanted.contains(job.getId())) {
+                        statuses.put(job.getId(), job.getStatus().name());
+                    }
+                }
+            } catch (OozieClientException e) {
+                LOG.warn("Unable to list workflows of {} on {}, looking them up one at a time",
+                        workflowNames, cluster, e);
+            }
+        }
+
+        for (String jobId : jobIds) {
+            if (!statuses.containsKey(jobId)) {
+                statuses.put(jobId, getWorkflowStatus(cluster, jobId));
+            }
+        }
+        return statuses;
+    }
+
     private String scheduleEntity(String cluster, Properties props, Entity entity) throws FalconException {
         for (WorkflowEngineActionListener listener : listeners) {
             listener.beforeSchedule(entity, cluster);
@@ -196,6 +196,7 @@ public class OozieFeedWorkflowBuilderTest extends AbstractTestBase {
         Assert.assertEquals(wfProps.get("queueName"), "retention");
         Assert.assertEquals(wfProps.get("limit"), "hours(2)");
         Assert.assertEquals(wfProps.get("jobPriority"), "LOW");
+        Assert.assertEquals(wfProps.get("evictionThreads"), "10");
     }
 
     @Test
@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.falcon.workflow;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tests for the file system metrics of LateDataHandler.
+ */
+public class LateDataHandlerTest {
+
+    private final String base = new File("target/late-data").toURI().toString();
+    private final Configuration conf = new Configuration();
+    private FileSystem fs;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        fs = FileSystem.getLocal(conf);
+        fs.delete(new Path(base), true);
+        write(new Path(base + "/in1/part-0"), "data");
+        write(new Path(base + "/in2/part-0"), "more data");
+    }
+
+    @Test
+    public void testDetectChanges() throws Exception {
+        Path metricsFile = new Path(base + "/metrics");
+        String paths = base + "/in1#" + base + "/in2," + base + "/missing";
+        LateDataHandler handler = new LateDataHandler();
+        handler.setConf(conf);
+        Assert.assertEquals(handler.run(new String[]{"-out", metricsFile.toString(), "-paths", paths,
+            "-falconInputNames", "in1#in2", "-falconInputFeedStorageTypes", "FILESYSTEM#FILESYSTEM", }), 0);
+        Assert.assertTrue(LateDataHandler.recordsFingerprints(handler.readMetrics(metricsFile, conf)));
+        Assert.assertEquals(handler.detectChanges(metricsFile, computeMetrics(handler, paths, true), conf), "");
+
+        // a file added or removed changes the listing of the instance
+        write(new Path(base + "/in2/part-1"), "late data");
+        Assert.assertEquals(handler.detectChanges(metricsFile, computeMetrics(handler, paths, true), conf), "in2");
+        fs.delete(new Path(base + "/in2/part-1"), false);
+        fs.delete(new Path(base + "/in1/part-0"), false);
+        Assert.assertEquals(handler.detectChanges(metricsFile, computeMetrics(handler, paths, true), conf),
+                "in1,in2");
+    }
+
+    @Test
+    public void testDetectChangesOfRecordedSizes() throws Exception {
+        // metrics recorded by earlier versions, with the size of the instances
+        Path metricsFile = new Path(base + "/metrics");
+        write(metricsFile, "in1=4\nin2=9\n");
+        String paths = base + "/in1#" + base + "/in2";
+        LateDataHandler handler = new LateDataHandler();
+        Map<String, Long> recordedMetrics = handler.readMetrics(metricsFile, conf);
+        Assert.assertFalse(LateDataHandler.recordsFingerprints(recordedMetrics));
+        Assert.assertEquals(handler.detectChanges(recordedMetrics, computeMetrics(handler, paths, false)), "");
+
+        write(new Path(base + "/in1/part-1"), "late data");
+        Assert.assertEquals(handler.detectChanges(metricsFile, computeMetrics(handler, paths, false), conf), "in1");
+    }
+
+    private Map<String, Long> computeMetrics(LateDataHandler handler, String paths, boolean fingerprints)
+        throws Exception {
+        Map<String, Long> metrics = new LinkedHashMap<String, Long>();
+        String[] pathGroups = paths.split("#");
+        for (int i = 0; i < pathGroups.length; i++) {
+            metrics.put("in" + (i + 1), handler.computeStorageMetric(pathGroups[i], "FILESYSTEM", conf,
+                    fingerprints));
+        }
+        return metrics;
+    }
+
+    private void write(Path path, String data) throws Exception {
+        OutputStream out = fs.create(path);
+        try {
+            out.write(data.getBytes());
+        } finally {
+            out.close();
+        }
+    }
+}
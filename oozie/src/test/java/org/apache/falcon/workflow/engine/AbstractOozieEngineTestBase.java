@@ -0,0 +1,126 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.falcon.workflow.engine;
+
+import org.apache.falcon.cluster.util.EmbeddedCluster;
+import org.apache.falcon.entity.ClusterHelper;
+import org.apache.falcon.entity.EntityUtil;
+import org.apache.falcon.entity.store.ConfigurationStore;
+import org.apache.falcon.entity.v0.EntityType;
+import org.apache.falcon.entity.v0.cluster.Cluster;
+import org.apache.falcon.entity.v0.cluster.Interfacetype;
+import org.apache.falcon.entity.v0.process.Process;
+import org.apache.falcon.hadoop.HadoopClientFactory;
+import org.apache.falcon.oozie.process.AbstractTestBase;
+import org.apache.falcon.security.CurrentUser;
+import org.apache.falcon.util.FalconTestUtil;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.oozie.client.BundleJob;
+import org.apache.oozie.client.CoordinatorJob;
+import org.apache.oozie.client.Job;
+import org.apache.oozie.client.OozieClient;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Base for workflow engine tests, with a process scheduled on a cluster whose oozie client is a mock.
+ */
+public abstract class AbstractOozieEngineTestBase extends AbstractTestBase {
+
+    private static final String CLUSTER_XML = "/config/cluster/cluster-0.1.xml";
+    private static final String FEED_XML = "/config/feed/feed-0.1.xml";
+    private static final String PROCESS_XML = "/config/process/process-0.1.xml";
+
+    protected OozieClient client;
+    protected Cluster cluster;
+    protected Process process;
+    private String hdfsUrl;
+    private FileSystem fs;
+
+    @BeforeClass
+    public void setUpDFS() throws Exception {
+        CurrentUser.authenticate(FalconTestUtil.TEST_USER_1);
+        hdfsUrl = EmbeddedCluster.newCluster("testCluster").getConf().get(HadoopClientFactory.FS_DEFAULT_NAME_KEY);
+        fs = new Path(hdfsUrl).getFileSystem(EmbeddedCluster.newConfiguration());
+    }
+
+    @BeforeMethod
+    public void setUpEntities() throws Exception {
+        CurrentUser.authenticate(FalconTestUtil.TEST_USER_1);
+        storeEntity(EntityType.CLUSTER, "corp", CLUSTER_XML, null);
+        storeEntity(EntityType.FEED, "clicks", FEED_XML, null);
+        storeEntity(EntityType.FEED, "impressions", FEED_XML, null);
+        storeEntity(EntityType.PROCESS, "clicksummary", PROCESS_XML, null);
+        cluster = ConfigurationStore.get().get(EntityType.CLUSTER, "corp");
+        ClusterHelper.getInterface(cluster, Interfacetype.WRITE).setEndpoint(hdfsUrl);
+        process = ConfigurationStore.get().get(EntityType.PROCESS, "clicksummary");
+
+        client = mock(OozieClient.class);
+        OozieClientFactory.setTestClient(client);
+        OozieBundleIndex.get().clear();
+        EntityStatusCache.get().clear();
+    }
+
+    @AfterMethod
+    public void tearDownEntities() throws Exception {
+        OozieClientFactory.setTestClient(null);
+        OozieBundleIndex.get().clear();
+        EntityStatusCache.get().clear();
+        cleanupStore();
+    }
+
+    /**
+     * Creates a bundle of the process, with its app path in the staging area of the process.
+     */
+    protected BundleJob bundle(String id, Job.Status status, long createdTime,
+                               CoordinatorJob... coords) throws Exception {
+        Path appPath = new Path(EntityUtil.getBaseStagingPath(cluster, process), id);
+        fs.mkdirs(appPath);
+
+        BundleJob bundle = mock(BundleJob.class);
+        when(bundle.getId()).thenReturn(id);
+        when(bundle.getAppName()).thenReturn(EntityUtil.getWorkflowName(process).toString());
+        when(bundle.getAppPath()).thenReturn(hdfsUrl + appPath.toUri().getPath());
+        when(bundle.getStatus()).thenReturn(status);
+        when(bundle.getCreatedTime()).thenReturn(new Date(createdTime));
+        when(bundle.getCoordinators()).thenReturn(Arrays.asList(coords));
+        return bundle;
+    }
+
+    /**
+     * Makes oozie list the given bundles for any bundle filter, and return each of them on lookup.
+     */
+    protected void stubBundles(BundleJob... bundles) throws Exception {
+        when(client.getBundleJobsInfo(anyString(), anyInt(), anyInt()))
+                .thenReturn(new ArrayList<BundleJob>(Arrays.asList(bundles)));
+        for (BundleJob bundle : bundles) {
+            when(client.getBundleJobInfo(bundle.getId())).thenReturn(bundle);
+        }
+    }
+}
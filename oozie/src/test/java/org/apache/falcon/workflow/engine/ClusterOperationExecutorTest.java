@@ -0,0 +1,163 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.falcon.workflow.engine;
+
+import org.apache.falcon.FalconException;
+import org.apache.falcon.security.CurrentUser;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Tests for ClusterOperationExecutor.
+ */
+public class ClusterOperationExecutorTest {
+
+    @AfterMethod
+    public void tearDown() {
+        CurrentUser.clear();
+    }
+
+    @Test
+    public void testSingleClusterRunsInline() throws Exception {
+        final Thread caller = Thread.currentThread();
+        ClusterOperationExecutor executor = new ClusterOperationExecutor(2, 1000);
+        Map<String, Boolean> results = executor.execute(Collections.singletonList("c1"),
+            new ClusterOperationExecutor.ClusterOperation<Boolean>() {
+                @Override
+                public Boolean call(String cluster) {
+                    return Thread.currentThread() == caller;
+                }
+            });
+        Assert.assertEquals(results, Collections.singletonMap("c1", true));
+    }
+
+    @Test
+    public void testResultsInClusterOrder() throws Exception {
+        ClusterOperationExecutor executor = new ClusterOperationExecutor(2, 1000);
+        Map<String, String> results = executor.execute(Arrays.asList("c1", "c2", "c3"),
+            new ClusterOperationExecutor.ClusterOperation<String>() {
+                @Override
+                public String call(String cluster) {
+                    return cluster.toUpperCase();
+                }
+            });
+        Assert.assertEquals(results.keySet().toArray(), new String[]{"c1", "c2", "c3"});
+        Assert.assertEquals(results.get("c2"), "C2");
+    }
+
+    @Test
+    public void testTimeoutPerCluster() throws Exception {
+        ClusterOperationExecutor executor = new ClusterOperationExecutor(2, 200);
+        try {
+            executor.execute(Arrays.asList("fast", "slow"), new ClusterOperationExecutor.ClusterOperation<String>() {
+                @Override
+                public String call(String cluster) throws FalconException {
+                    if (cluster.equals("slow")) {
+                        try {
+                            Thread.sleep(10000);
+                        } catch (InterruptedException e) {
+                            throw new FalconException(e);
+                        }
+                    }
+                    return cluster;
+                }
+            });
+            Assert.fail("Expected the slow cluster to time out");
+        } catch (FalconException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Timed out"), e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSingleFailureIsRethrown() throws Exception {
+        final FalconException failure = new FalconException("c2 is down");
+        ClusterOperationExecutor executor = new ClusterOperationExecutor(2, 1000);
+        try {
+            executor.execute(Arrays.asList("c1", "c2"), new ClusterOperationExecutor.ClusterOperation<String>() {
+                @Override
+                public String call(String cluster) throws FalconException {
+                    if (cluster.equals("c2")) {
+                        throw failure;
+                    }
+                    return cluster;
+                }
+            });
+            Assert.fail("Expected the failure of c2");
+        } catch (FalconException e) {
+            Assert.assertSame(e, failure);
+        }
+    }
+
+    @Test
+    public void testFailuresAreAggregated() throws Exception {
+        ClusterOperationExecutor executor = new ClusterOperationExecutor(2, 1000);
+        try {
+            executor.execute(Arrays.asList("c1", "c2", "c3"), new ClusterOperationExecutor.ClusterOperation<String>() {
+                @Override
+                public String call(String cluster) throws FalconException {
+                    if (cluster.equals("c2")) {
+                        return cluster;
+                    }
+                    throw new FalconException(cluster + " is down");
+                }
+            });
+            Assert.fail("Expected the failures of c1 and c3");
+        } catch (FalconException e) {
+            Assert.assertTrue(e.getMessage().contains("[c1, c3]"), e.getMessage());
+            Assert.assertTrue(e.getMessage().contains("c1: c1 is down"), e.getMessage());
+            Assert.assertTrue(e.getMessage().contains("c3: c3 is down"), e.getMessage());
+            Assert.assertEquals(e.getCause().getMessage(), "c1 is down");
+        }
+    }
+
+    @Test
+    public void testUserCarriedToPoolThreads() throws Exception {
+        CurrentUser.authenticate("falcon");
+        CurrentUser.proxy("owner", null);
+        final Thread caller = Thread.currentThread();
+        // a single pool thread runs both clusters, so the second one also shows the user was cleared in between
+        ClusterOperationExecutor executor = new ClusterOperationExecutor(1, 1000);
+        Map<String, String> results = executor.execute(Arrays.asList("c1", "c2"),
+            new ClusterOperationExecutor.ClusterOperation<String>() {
+                @Override
+                public String call(String cluster) {
+                    Assert.assertNotSame(Thread.currentThread(), caller);
+                    String user = CurrentUser.getAuthenticatedUser() + "/" + CurrentUser.getUser();
+                    CurrentUser.authenticate("other");
+                    return user;
+                }
+            });
+        Assert.assertEquals(results.get("c1"), "falcon/owner");
+        Assert.assertEquals(results.get("c2"), "falcon/owner");
+
+        CurrentUser.clear();
+        results = executor.execute(Arrays.asList("c1", "c2"), new ClusterOperationExecutor.ClusterOperation<String>() {
+            @Override
+            public String call(String cluster) {
+                return String.valueOf(CurrentUser.isAuthenticated());
+            }
+        });
+        Assert.assertEquals(results.get("c1"), "false");
+        Assert.assertEquals(results.get("c2"), "false");
+    }
+}
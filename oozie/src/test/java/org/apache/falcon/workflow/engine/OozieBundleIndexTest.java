@@ -0,0 +1,114 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.falcon.workflow.engine;
+
+import org.apache.oozie.client.BundleJob;
+import org.apache.oozie.client.Job;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for OozieBundleIndex.
+ */
+public class OozieBundleIndexTest extends AbstractOozieEngineTestBase {
+
+    @Test
+    public void testBundleIdsListedOnce() throws Exception {
+        stubBundles(bundle("b1", Job.Status.RUNNING, 1000));
+
+        Assert.assertEquals(ids(OozieBundleIndex.get().getBundles(process, cluster)), "[b1]");
+        Assert.assertEquals(ids(OozieBundleIndex.get().getBundles(process, cluster)), "[b1]");
+        verify(client, times(1)).getBundleJobsInfo(anyString(), anyInt(), anyInt());
+        // live bundles are looked up every time
+        verify(client, times(2)).getBundleJobInfo("b1");
+    }
+
+    @Test
+    public void testTerminalBundlesKept() throws Exception {
+        stubBundles(bundle("b1", Job.Status.SUCCEEDED, 1000), bundle("b2", Job.Status.RUNNING, 2000),
+                bundle("b3", Job.Status.DONEWITHERROR, 3000));
+
+        Assert.assertEquals(ids(OozieBundleIndex.get().getBundles(process, cluster)), "[b1, b2, b3]");
+        Assert.assertEquals(ids(OozieBundleIndex.get().getBundles(process, cluster)), "[b1, b2, b3]");
+        verify(client, times(1)).getBundleJobInfo("b1");
+        verify(client, times(2)).getBundleJobInfo("b2");
+        // a rerun can take a bundle out of DONEWITHERROR
+        verify(client, times(2)).getBundleJobInfo("b3");
+    }
+
+    @Test
+    public void testListedAgainWithoutLiveBundles() throws Exception {
+        stubBundles();
+        Assert.assertTrue(OozieBundleIndex.get().getBundles(process, cluster).isEmpty());
+
+        // scheduled by another falcon server
+        stubBundles(bundle("b1", Job.Status.RUNNING, 1000));
+        Assert.assertEquals(ids(OozieBundleIndex.get().getBundles(process, cluster)), "[b1]");
+        verify(client, times(2)).getBundleJobsInfo(anyString(), anyInt(), anyInt());
+
+        Assert.assertEquals(ids(OozieBundleIndex.get().getBundles(process, cluster)), "[b1]");
+        verify(client, times(2)).getBundleJobsInfo(anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testListedAgainWhenAllBundlesCompleted() throws Exception {
+        BundleJob killed = bundle("b1", Job.Status.KILLED, 1000);
+        stubBundles(killed);
+        Assert.assertEquals(ids(OozieBundleIndex.get().getBundles(process, cluster)), "[b1]");
+
+        stubBundles(killed, bundle("b2", Job.Status.RUNNING, 2000));
+        Assert.assertEquals(ids(OozieBundleIndex.get().getBundles(process, cluster)), "[b1, b2]");
+        verify(client, times(1)).getBundleJobInfo("b1");
+    }
+
+    @Test
+    public void testInvalidatedOnSchedule() throws Exception {
+        stubBundles(bundle("b1", Job.Status.RUNNING, 1000));
+        Assert.assertEquals(ids(OozieBundleIndex.get().getBundles(process, cluster)), "[b1]");
+
+        stubBundles(bundle("b1", Job.Status.RUNNING, 1000), bundle("b2", Job.Status.RUNNING, 2000));
+        Assert.assertEquals(ids(OozieBundleIndex.get().getBundles(process, cluster)), "[b1]");
+        OozieBundleIndex.get().afterSchedule(process, cluster.getName());
+        Assert.assertEquals(ids(OozieBundleIndex.get().getBundles(process, cluster)), "[b1, b2]");
+    }
+
+    @Test
+    public void testBundlesOutsideStagingIgnored() throws Exception {
+        BundleJob other = bundle("b1", Job.Status.RUNNING, 1000);
+        when(other.getAppPath()).thenReturn("hdfs://localhost:8020/elsewhere/b1");
+        stubBundles(other, bundle("b2", Job.Status.RUNNING, 2000));
+        Assert.assertEquals(ids(OozieBundleIndex.get().getBundles(process, cluster)), "[b2]");
+    }
+
+    private static String ids(List<BundleJob> bundles) {
+        List<String> ids = new ArrayList<String>();
+        for (BundleJob bundle : bundles) {
+            ids.add(bundle.getId());
+        }
+        return ids.toString();
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.falcon.workflow.engine;
+
+import org.apache.oozie.client.CoordinatorAction;
+import org.apache.oozie.client.CoordinatorJob;
+import org.apache.oozie.client.OozieClient;
+import org.apache.oozie.client.OozieClientException;
+import org.apache.oozie.client.WorkflowJob;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for OozieJobCache.
+ */
+public class OozieJobCacheTest {
+
+    private static final String COORD_ID = "0000001-oozie-C";
+
+    private OozieClient client;
+    private OozieJobCache jobs;
+
+    @BeforeMethod
+    public void setUp() {
+        client = mock(OozieClient.class);
+        jobs = new OozieJobCache("corp", client);
+    }
+
+    @Test
+    public void testJobsFetchedOnce() throws Exception {
+        WorkflowJob wf = mock(WorkflowJob.class);
+        when(client.getJobInfo("wf1")).thenReturn(wf);
+        CoordinatorJob coord = coord();
+        when(client.getCoordJobInfo(COORD_ID, null, 1, 1)).thenReturn(coord);
+
+        Assert.assertSame(jobs.getWorkflowJob("wf1"), wf);
+        Assert.assertSame(jobs.getWorkflowJob("wf1"), wf);
+        Assert.assertSame(jobs.getCoordJob(COORD_ID), coord);
+        Assert.assertSame(jobs.getCoordJob(COORD_ID), coord);
+        verify(client, times(1)).getJobInfo("wf1");
+        verify(client, times(1)).getCoordJobInfo(COORD_ID, null, 1, 1);
+    }
+
+    @Test
+    public void testCoordActionsFetchedInPages() throws Exception {
+        doReturn(coord(1, 3)).when(client).getCoordJobInfo(COORD_ID, null, 1, 1000);
+        doReturn(coord(2500)).when(client).getCoordJobInfo(COORD_ID, null, 2500, 1);
+
+        List<CoordinatorAction> actions = jobs.getCoordActions(COORD_ID, Arrays.asList(3, 2500, 1));
+        Assert.assertEquals(ids(actions), Arrays.asList(COORD_ID + "@3", COORD_ID + "@2500", COORD_ID + "@1"));
+
+        // the pages in between have no requested action and are skipped
+        verify(client, times(2)).getCoordJobInfo(anyString(), anyString(), anyInt(), anyInt());
+        verify(client, never()).getCoordActionInfo(anyString());
+
+        // the coordinator came along with the actions
+        Assert.assertNotNull(jobs.getCoordJob(COORD_ID));
+        verify(client, times(2)).getCoordJobInfo(anyString(), anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testMissingCoordActionSkipped() throws Exception {
+        doReturn(coord(1, 3)).when(client).getCoordJobInfo(COORD_ID, null, 1, 3);
+        when(client.getCoordActionInfo(COORD_ID + "@2")).thenThrow(new OozieClientException("E0605", "missing"));
+
+        List<CoordinatorAction> actions = jobs.getCoordActions(COORD_ID, Arrays.asList(1, 2, 3));
+        Assert.assertEquals(ids(actions), Arrays.asList(COORD_ID + "@1", COORD_ID + "@3"));
+        Assert.assertNull(jobs.getCoordAction(COORD_ID + "@2"));
+    }
+
+    @Test
+    public void testCoordActionFetchedOnItsOwn() throws Exception {
+        CoordinatorAction action = action(7);
+        when(client.getCoordActionInfo(COORD_ID + "@7")).thenReturn(action);
+
+        Assert.assertSame(jobs.getCoordAction(COORD_ID + "@7"), action);
+        Assert.assertSame(jobs.getCoordAction(COORD_ID + "@7"), action);
+        verify(client, times(1)).getCoordActionInfo(COORD_ID + "@7");
+        verify(client, never()).getCoordJobInfo(anyString(), anyString(), anyInt(), anyInt());
+    }
+
+    private static CoordinatorJob coord(int... sequences) {
+        List<CoordinatorAction> actions = new ArrayList<CoordinatorAction>();
+        for (int sequence : sequences) {
+            actions.add(action(sequence));
+        }
+        CoordinatorJob coord = mock(CoordinatorJob.class);
+        when(coord.getId()).thenReturn(COORD_ID);
+        when(coord.getActions()).thenReturn(actions);
+        return coord;
+    }
+
+    private static CoordinatorAction action(int sequence) {
+        CoordinatorAction action = mock(CoordinatorAction.class);
+        when(action.getId()).thenReturn(COORD_ID + "@" + sequence);
+        return action;
+    }
+
+    private static List<String> ids(List<CoordinatorAction> actions) {
+        List<String> ids = new ArrayList<String>();
+        for (CoordinatorAction action : actions) {
+            ids.add(action.getId());
+        }
+        return ids;
+    }
+}
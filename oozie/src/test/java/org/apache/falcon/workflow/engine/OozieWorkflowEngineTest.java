@@ -0,0 +1,260 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.falcon.workflow.engine;
+
+import org.apache.falcon.FalconException;
+import org.apache.falcon.LifeCycle;
+import org.apache.falcon.entity.v0.Entity;
+import org.apache.falcon.entity.v0.SchemaHelper;
+import org.apache.oozie.client.BundleJob;
+import org.apache.oozie.client.CoordinatorAction;
+import org.apache.oozie.client.CoordinatorJob;
+import org.apache.oozie.client.Job;
+import org.apache.oozie.client.OozieClientException;
+import org.apache.oozie.client.WorkflowJob;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for OozieWorkflowEngine, against a mocked oozie.
+ */
+public class OozieWorkflowEngineTest extends AbstractOozieEngineTestBase {
+
+    private static final String COORD_ID = "0000001-oozie-C";
+    private static final Date START = SchemaHelper.parseDateUTC("2015-01-01T00:00Z");
+    private static final Date END = SchemaHelper.parseDateUTC("2015-01-01T10:00Z");
+
+    @Test
+    public void testListingStatusServedFromCache() throws Exception {
+        stubBundles(bundle("b1", Job.Status.RUNNING, 1000));
+        OozieWorkflowEngine engine = new OozieWorkflowEngine();
+
+        Assert.assertTrue(engine.isActive(process, true));
+        Assert.assertFalse(engine.isSuspended(process, true));
+        Assert.assertFalse(engine.isCompleted(process, true));
+        verify(client, times(1)).getBundleJobInfo("b1");
+
+        // suspended behind falcon's back, listings see the cached status until it expires
+        stubBundles(bundle("b1", Job.Status.SUSPENDED, 1000));
+        Assert.assertFalse(engine.isSuspended(process, true));
+        verify(client, times(1)).getBundleJobInfo("b1");
+    }
+
+    @Test
+    public void testPreconditionStatusFromOozie() throws Exception {
+        stubBundles(bundle("b1", Job.Status.RUNNING, 1000));
+        OozieWorkflowEngine engine = new OozieWorkflowEngine();
+        Assert.assertFalse(engine.isSuspended(process, true));
+
+        BundleJob suspended = bundle("b1", Job.Status.SUSPENDED, 1000);
+        stubBundles(suspended);
+        Assert.assertTrue(engine.isActive(process));
+        Assert.assertTrue(engine.isSuspended(process));
+        verify(client, times(3)).getBundleJobInfo("b1");
+
+        // the status looked up in oozie also refreshes the one listings see
+        Assert.assertTrue(engine.isSuspended(process, true));
+        verify(client, times(3)).getBundleJobInfo("b1");
+
+        stubBundles(bundle("b1", Job.Status.KILLED, 1000));
+        Assert.assertFalse(engine.isActive(process));
+        Assert.assertTrue(engine.isCompleted(process));
+    }
+
+    @Test
+    public void testStatusEvictedWhenSuspendFails() throws Exception {
+        stubBundles(bundle("b1", Job.Status.RUNNING, 1000));
+        final OozieWorkflowEngine engine = new OozieWorkflowEngine();
+        // a listing while the suspend is under way caches the running status
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                Assert.assertFalse(engine.isSuspended(process, true));
+                throw new OozieClientException("E0000", "suspend failed");
+            }
+        }).when(client).suspend("b1");
+
+        try {
+            engine.suspend(process);
+            Assert.fail("Expected the suspend to fail");
+        } catch (FalconException e) {
+            // expected
+        }
+
+        // suspended after all, the next listing asks oozie again
+        stubBundles(bundle("b1", Job.Status.SUSPENDED, 1000));
+        Assert.assertTrue(engine.isSuspended(process, true));
+    }
+
+    @Test
+    public void testCoordActionsStopAtLimit() throws Exception {
+        doReturn(page(8, 9, 10)).when(client).getCoordJobInfo(COORD_ID, null, 8, 3);
+
+        // the latest instances come first, only as many as the limit are fetched
+        Assert.assertEquals(getCoordActions(3), Arrays.asList(10, 9, 8));
+        verify(client, times(1)).getCoordJobInfo(anyString(), anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testCoordActionsWithoutLimit() throws Exception {
+        doReturn(page(1, 2, 3, 4, 5, 6, 7, 8, 9, 10)).when(client).getCoordJobInfo(COORD_ID, null, 1, 10);
+
+        Assert.assertEquals(getCoordActions(Integer.MAX_VALUE), Arrays.asList(10, 9, 8, 7, 6, 5, 4, 3, 2, 1));
+        verify(client, times(1)).getCoordJobInfo(anyString(), anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testCoordActionsLimitSkipsMissingActions() throws Exception {
+        doReturn(page(8, 10)).when(client).getCoordJobInfo(COORD_ID, null, 8, 3);
+        when(client.getCoordActionInfo(COORD_ID + "@9")).thenThrow(new OozieClientException("E0605", "missing"));
+        doReturn(page(7)).when(client).getCoordJobInfo(COORD_ID, null, 7, 1);
+
+        Assert.assertEquals(getCoordActions(3), Arrays.asList(10, 8, 7));
+        verify(client, times(2)).getCoordJobInfo(anyString(), anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testWorkflowStatusesListedTogether() throws Exception {
+        int count = OozieWorkflowEngine.WORKFLOW_STATUS_LIST_THRESHOLD;
+        // all but the oldest job are listed, along with a job not asked for
+        List<WorkflowJob> jobs = new ArrayList<WorkflowJob>();
+        Map<String, String> expected = new HashMap<String, String>();
+        for (int i = 1; i < count; i++) {
+            jobs.add(workflow(jobId(i), WorkflowJob.Status.SUCCEEDED));
+            expected.put(jobId(i), "SUCCEEDED");
+        }
+        jobs.add(workflow(jobId(count), WorkflowJob.Status.RUNNING));
+        doReturn(jobs).when(client).getJobsInfo(anyString(), anyInt(), anyInt());
+        WorkflowJob older = workflow(jobId(0), WorkflowJob.Status.FAILED);
+        doReturn(older).when(client).getJobInfo(jobId(0));
+        expected.put(jobId(0), "FAILED");
+
+        // the job no longer in the listing is looked up by itself
+        Assert.assertEquals(getWorkflowStatuses(count), expected);
+        verify(client, times(1)).getJobsInfo(anyString(), eq(1),
+                eq(count * OozieWorkflowEngine.WORKFLOW_STATUS_LIST_FACTOR));
+        verify(client, times(1)).getJobInfo(anyString());
+    }
+
+    @Test
+    public void testWorkflowStatusesWhenListingFails() throws Exception {
+        int count = OozieWorkflowEngine.WORKFLOW_STATUS_LIST_THRESHOLD;
+        when(client.getJobsInfo(anyString(), anyInt(), anyInt())).thenThrow(new OozieClientException("E0001", "down"));
+        Map<String, String> expected = new HashMap<String, String>();
+        for (int i = 0; i < count; i++) {
+            WorkflowJob job = workflow(jobId(i), WorkflowJob.Status.RUNNING);
+            doReturn(job).when(client).getJobInfo(jobId(i));
+            expected.put(jobId(i), "RUNNING");
+        }
+
+        Assert.assertEquals(getWorkflowStatuses(count), expected);
+        verify(client, times(count)).getJobInfo(anyString());
+    }
+
+    @Test
+    public void testFewWorkflowStatusesNotListed() throws Exception {
+        int count = OozieWorkflowEngine.WORKFLOW_STATUS_LIST_THRESHOLD - 1;
+        Map<String, String> expected = new HashMap<String, String>();
+        for (int i = 0; i < count; i++) {
+            WorkflowJob job = workflow(jobId(i), WorkflowJob.Status.SUCCEEDED);
+            doReturn(job).when(client).getJobInfo(jobId(i));
+            expected.put(jobId(i), "SUCCEEDED");
+        }
+
+        Assert.assertEquals(getWorkflowStatuses(count), expected);
+        verify(client, never()).getJobsInfo(anyString(), anyInt(), anyInt());
+    }
+
+    // the statuses of the first count jobs
+    private Map<String, String> getWorkflowStatuses(int count) throws Exception {
+        List<String> jobIds = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            jobIds.add(jobId(i));
+        }
+        return new OozieWorkflowEngine().getWorkflowStatuses(cluster.getName(),
+                Collections.<Entity>singletonList(process), jobIds);
+    }
+
+    private static String jobId(int index) {
+        return String.format("%07d-oozie-W", index);
+    }
+
+    private static WorkflowJob workflow(String id, WorkflowJob.Status status) {
+        WorkflowJob job = mock(WorkflowJob.class);
+        when(job.getId()).thenReturn(id);
+        when(job.getStatus()).thenReturn(status);
+        return job;
+    }
+
+    private List<Integer> getCoordActions(int limit) throws Exception {
+        CoordinatorJob coord = mock(CoordinatorJob.class);
+        when(coord.getId()).thenReturn(COORD_ID);
+        when(coord.getAppName()).thenReturn("FALCON_PROCESS_DEFAULT_" + process.getName());
+        when(coord.getStatus()).thenReturn(Job.Status.RUNNING);
+        when(coord.getStartTime()).thenReturn(START);
+        when(coord.getEndTime()).thenReturn(SchemaHelper.parseDateUTC("2016-01-01T00:00Z"));
+        when(coord.getNextMaterializedTime()).thenReturn(END);
+        when(coord.getFrequency()).thenReturn("1");
+        when(coord.getTimeUnit()).thenReturn(CoordinatorJob.Timeunit.HOUR);
+        when(coord.getTimeZone()).thenReturn("UTC");
+
+        List<CoordinatorAction> actions = new OozieWorkflowEngine().getCoordActions(
+                new OozieJobCache(cluster.getName(), client),
+                Collections.singletonList(bundle("b1", Job.Status.RUNNING, 1000, coord)), START, END,
+                Collections.singletonList(LifeCycle.EXECUTION), limit);
+        List<Integer> sequences = new ArrayList<Integer>();
+        for (CoordinatorAction action : actions) {
+            sequences.add(action.getActionNumber());
+        }
+        return sequences;
+    }
+
+    private static CoordinatorJob page(int... sequences) {
+        List<CoordinatorAction> actions = new ArrayList<CoordinatorAction>();
+        for (int sequence : sequences) {
+            CoordinatorAction action = mock(CoordinatorAction.class);
+            when(action.getId()).thenReturn(COORD_ID + "@" + sequence);
+            when(action.getActionNumber()).thenReturn(sequence);
+            actions.add(action);
+        }
+        CoordinatorJob coord = mock(CoordinatorJob.class);
+        when(coord.getActions()).thenReturn(actions);
+        return coord;
+    }
+}
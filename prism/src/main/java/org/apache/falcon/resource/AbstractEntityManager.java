@@ -561,16 +561,22 @@ public abstract class AbstractEntityManager {
     }
 
     protected Pair<EntityStatus, String> getStatus(Entity entity, EntityType type) throws FalconException {
+        return getStatus(entity, type, false);
+    }
+
+    // listings may be served a cached status, a few seconds stale
+    private Pair<EntityStatus, String> getStatus(Entity entity, EntityType type,
+                                                 boolean allowCached) throws FalconException {
         EntityStatus status = EntityStatus.SUBMITTED;
         AbstractWorkflowEngine workflowEngine = getWorkflowEngine(entity);
         if (type.isSchedulable()) {
-            if (workflowEngine.isActive(entity)) {
-                if (workflowEngine.isSuspended(entity)) {
+            if (workflowEngine.isActive(entity, allowCached)) {
+                if (workflowEngine.isSuspended(entity, allowCached)) {
                     status = EntityStatus.SUSPENDED;
                 } else {
                     status = EntityStatus.RUNNING;
                 }
-            } else if (workflowEngine.isCompleted(entity)) {
+            } else if (workflowEngine.isCompleted(entity, allowCached)) {
                 status = EntityStatus.COMPLETED;
             }
         }
@@ -851,7 +857,7 @@ public abstract class AbstractEntityManager {
     protected String getStatusString(Entity entity) {
         String statusString;
         try {
-            statusString = getStatus(entity, entity.getEntityType()).first.name();
+            statusString = getStatus(entity, entity.getEntityType(), true).first.name();
         } catch (Throwable throwable) {
             // Unable to fetch statusString, setting it to unknown for backwards compatibility
             statusString = "UNKNOWN";
@@ -31,7 +31,6 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.Queue;
 import java.util.Set;
 
 import javax.servlet.ServletInputStream;
@@ -45,18 +44,14 @@ import org.apache.falcon.Pair;
 import org.apache.falcon.entity.EntityNotRegisteredException;
 import org.apache.falcon.entity.EntityUtil;
 import org.apache.falcon.entity.FeedHelper;
-import org.apache.falcon.entity.FeedInstanceStatus;
 import org.apache.falcon.entity.ProcessHelper;
-import org.apache.falcon.entity.Storage;
 import org.apache.falcon.entity.parser.ValidationException;
-import org.apache.falcon.entity.store.ConfigurationStore;
 import org.apache.falcon.entity.v0.Entity;
 import org.apache.falcon.entity.v0.EntityType;
 import org.apache.falcon.entity.v0.Frequency;
 import org.apache.falcon.entity.v0.SchemaHelper;
 import org.apache.falcon.entity.v0.cluster.Cluster;
 import org.apache.falcon.entity.v0.feed.Feed;
-import org.apache.falcon.entity.v0.feed.LocationType;
 import org.apache.falcon.entity.v0.process.Process;
 import org.apache.falcon.logging.LogProvider;
 import org.apache.falcon.resource.InstancesResult.Instance;
@@ -174,7 +169,8 @@ public abstract class AbstractInstanceManager extends AbstractEntityManager {
             // LifeCycle lifeCycleObject = EntityUtil.getLifeCycle(lifeCycle);
             AbstractWorkflowEngine wfEngine = getWorkflowEngine(entityObject);
             return getInstanceResultSubset(wfEngine.getStatus(entityObject,
-                            startAndEndDate.first, startAndEndDate.second, lifeCycles, allAttempts),
+                            startAndEndDate.first, startAndEndDate.second, lifeCycles, allAttempts,
+                            getInstanceLimit(filterBy, orderBy, offset, numResults)),
                     filterBy, orderBy, sortOrder, offset, numResults);
         } catch (FalconException e) {
             LOG.error("Failed to get instances status", e);
@@ -285,6 +281,18 @@ public abstract class AbstractInstanceManager extends AbstractEntityManager {
 
     //RESUME CHECKSTYLE CHECK ParameterNumberCheck
 
+    /**
+     * Number of instances the workflow engine needs to look up to serve the requested page. Without a
+     * filter or an order, the page is a prefix of the engine's own order and later instances are never read.
+     */
+    static int getInstanceLimit(String filterBy, String orderBy, Integer offset, Integer numResults) {
+        if (StringUtils.isNotEmpty(filterBy) || StringUtils.isNotEmpty(orderBy)
+                || offset == null || numResults == null || numResults < 1) {
+            return Integer.MAX_VALUE;
+        }
+        return (int) Math.min((long) Math.max(offset, 0) + numResults, Integer.MAX_VALUE);
+    }
+
     private InstancesResult getInstanceResultSubset(InstancesResult resultSet, String filterBy,
                                                     String orderBy, String sortOrder, Integer offset,
                                                     Integer numResults) throws FalconException {
@@ -682,125 +690,9 @@ public abstract class AbstractInstanceManager extends AbstractEntityManager {
         throws FalconException {
 
         Date instanceDate = SchemaHelper.parseDateUTC(instanceTime);
-        LineageGraphResult result = new LineageGraphResult();
-        Set<String> vertices = new HashSet<>();
-        Set<LineageGraphResult.Edge> edges = new HashSet<>();
-        Map<String, String> instanceStatusMap = new HashMap<>();
-
-        // queue containing all instances which need to be triaged
-        Queue<SchedulableEntityInstance> remainingInstances = new LinkedList<>();
-        SchedulableEntityInstance currentInstance = new SchedulableEntityInstance(entity.getName(), cluster.getName(),
+        SchedulableEntityInstance instance = new SchedulableEntityInstance(entity.getName(), cluster.getName(),
                 instanceDate, entityType);
-        remainingInstances.add(currentInstance);
-
-        while (!remainingInstances.isEmpty()) {
-            currentInstance = remainingInstances.remove();
-            if (currentInstance.getEntityType() == EntityType.FEED) {
-                Feed feed = ConfigurationStore.get().get(EntityType.FEED, currentInstance.getEntityName());
-                FeedInstanceStatus.AvailabilityStatus status = getFeedInstanceStatus(feed,
-                        currentInstance.getInstanceTime(), cluster);
-
-                // add vertex to the graph
-                vertices.add(currentInstance.toString());
-                if (status == null) {
-                    instanceStatusMap.put(currentInstance.toString(), "[ Not Available ]");
-                } else {
-                    instanceStatusMap.put(currentInstance.toString(), "[" + status.name() + "]");
-                    if (status == FeedInstanceStatus.AvailabilityStatus.AVAILABLE) {
-                        continue;
-                    }
-                }
-
-                // find producer process instance and add it to the queue
-                SchedulableEntityInstance producerInstance = FeedHelper.getProducerInstance(feed,
-                        currentInstance.getInstanceTime(), cluster);
-                if (producerInstance != null) {
-                    remainingInstances.add(producerInstance);
-
-                    //add edge from producerProcessInstance to the feedInstance
-                    LineageGraphResult.Edge edge = new LineageGraphResult.Edge(producerInstance.toString(),
-                            currentInstance.toString(), "produces");
-                    edges.add(edge);
-                }
-            } else { // entity type is PROCESS
-                Process process = ConfigurationStore.get().get(EntityType.PROCESS, currentInstance.getEntityName());
-                InstancesResult.WorkflowStatus status = getProcessInstanceStatus(process,
-                        currentInstance.getInstanceTime());
-
-                // add current process instance as a vertex
-                vertices.add(currentInstance.toString());
-                if (status == null) {
-                    instanceStatusMap.put(currentInstance.toString(), "[ Not Available ]");
-                } else {
-                    instanceStatusMap.put(currentInstance.toString(), "[" + status.name() + "]");
-                    if (status == InstancesResult.WorkflowStatus.SUCCEEDED) {
-                        continue;
-                    }
-                }
-
-                // find list of input feed instances - only mandatory ones and not optional ones
-                Set<SchedulableEntityInstance> inputFeedInstances = ProcessHelper.getInputFeedInstances(process,
-                        currentInstance.getInstanceTime(), cluster, false);
-                for (SchedulableEntityInstance inputFeedInstance : inputFeedInstances) {
-                    remainingInstances.add(inputFeedInstance);
-
-                    //Add edge from inputFeedInstance to consumer processInstance
-                    LineageGraphResult.Edge edge = new LineageGraphResult.Edge(inputFeedInstance.toString(),
-                            currentInstance.toString(), "consumed by");
-                    edges.add(edge);
-                }
-            }
-        }
-
-        // append status to each vertex
-        Set<String> relabeledVertices = new HashSet<>();
-        for (String instance : vertices) {
-            String status = instanceStatusMap.get(instance);
-            relabeledVertices.add(instance + status);
-        }
-
-        // append status to each edge
-        for (LineageGraphResult.Edge edge : edges) {
-            String oldTo = edge.getTo();
-            String oldFrom = edge.getFrom();
-
-            String newFrom = oldFrom + instanceStatusMap.get(oldFrom);
-            String newTo = oldTo + instanceStatusMap.get(oldTo);
-
-            edge.setFrom(newFrom);
-            edge.setTo(newTo);
-        }
-
-        result.setEdges(edges.toArray(new LineageGraphResult.Edge[0]));
-        result.setVertices(relabeledVertices.toArray(new String[0]));
-        return result;
-    }
-
-    private FeedInstanceStatus.AvailabilityStatus getFeedInstanceStatus(Feed feed, Date instanceTime, Cluster cluster)
-        throws FalconException {
-        Storage storage = FeedHelper.createStorage(cluster, feed);
-        Date endRange = new Date(instanceTime.getTime() + 200);
-        List<FeedInstanceStatus> feedListing = storage.getListing(feed, cluster.getName(), LocationType.DATA,
-                instanceTime, endRange);
-        if (feedListing.size() > 0) {
-            return feedListing.get(0).getStatus();
-        }
-        LOG.warn("No instances were found for the given feed: {} & instanceTime: {}", feed, instanceTime);
-        return null;
-    }
-
-    private InstancesResult.WorkflowStatus getProcessInstanceStatus(Process process, Date instanceTime)
-        throws FalconException {
-        AbstractWorkflowEngine wfEngine = getWorkflowEngine(process);
-        List<LifeCycle> lifeCycles = new ArrayList<LifeCycle>();
-        lifeCycles.add(LifeCycle.valueOf(LifeCycle.EXECUTION.name()));
-        Date endRange = new Date(instanceTime.getTime() + 200);
-        Instance[] response = wfEngine.getStatus(process, instanceTime, endRange, lifeCycles, null).getInstances();
-        if (response.length > 0) {
-            return response[0].getStatus();
-        }
-        LOG.warn("No instances were found for the given process: {} & instanceTime: {}", process, instanceTime);
-        return null;
+        return new InstanceTriage(cluster).triage(instance);
     }
 
     public InstancesResult reRunInstance(String type, String entity, String startStr, String endStr,
@@ -0,0 +1,391 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.falcon.resource;
+
+import org.apache.falcon.FalconException;
+import org.apache.falcon.LifeCycle;
+import org.apache.falcon.entity.FeedHelper;
+import org.apache.falcon.entity.FeedInstanceStatus;
+import org.apache.falcon.entity.ProcessHelper;
+import org.apache.falcon.entity.Storage;
+import org.apache.falcon.entity.store.ConfigurationStore;
+import org.apache.falcon.entity.v0.EntityType;
+import org.apache.falcon.entity.v0.Frequency;
+import org.apache.falcon.entity.v0.SchemaHelper;
+import org.apache.falcon.entity.v0.cluster.Cluster;
+import org.apache.falcon.entity.v0.feed.Feed;
+import org.apache.falcon.entity.v0.feed.LocationType;
+import org.apache.falcon.entity.v0.process.Process;
+import org.apache.falcon.resource.InstancesResult.Instance;
+import org.apache.falcon.security.CurrentUser;
+import org.apache.falcon.util.DaemonThreadFactory;
+import org.apache.falcon.util.StartupProperties;
+import org.apache.falcon.workflow.WorkflowEngineFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Walks the lineage of an instance on a cluster, up through the producers of its input feed instances, and
+ * builds the graph of the instances found along with their status. A line of the lineage ends at an
+ * instance which has succeeded or is available.
+ *
+ * The walk goes one level of the lineage at a time. The statuses of a level are looked up in parallel on a
+ * bounded thread pool shared by all triage requests, with one lookup for each run of nearby instances of the
+ * same feed or process. Every instance is checked once, however many instances it is reached from. The walk
+ * stops after the configured number of levels or time, and the instances found but not yet checked are then
+ * reported as not triaged.
+ */
+class InstanceTriage {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InstanceTriage.class);
+
+    public static final String THREADS_PROP = "triage.threads";
+    public static final String MAX_DEPTH_PROP = "triage.max.depth";
+    public static final String TIMEOUT_SECS_PROP = "triage.timeout.secs";
+
+    static final String NOT_AVAILABLE = "[ Not Available ]";
+    static final String NOT_TRIAGED = "[ Not Triaged ]";
+
+    // a single status lookup covers instances at most this many periods of the entity apart
+    static final int MAX_BATCH_PERIODS = 100;
+    // and no gap of more than this many periods between neighbouring instances, which it would list for nothing
+    static final int MAX_BATCH_GAP_PERIODS = 4;
+    // the listing and status calls include instances up to this many millis after the end time
+    private static final long END_MARGIN = 200;
+
+    private static final ThreadPoolExecutor EXECUTOR;
+    private static final int MAX_DEPTH;
+    private static final long TIMEOUT_MILLIS;
+
+    static {
+        int threads = Integer.parseInt(StartupProperties.get().getProperty(THREADS_PROP, "10"));
+        MAX_DEPTH = Integer.parseInt(StartupProperties.get().getProperty(MAX_DEPTH_PROP, "100"));
+        TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(
+                Long.parseLong(StartupProperties.get().getProperty(TIMEOUT_SECS_PROP, "60")));
+
+        EXECUTOR = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory("InstanceTriage"));
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private final Cluster cluster;
+    private final int maxDepth;
+    private final long deadline;
+
+    // instances found so far, with their status once checked
+    private final Map<String, String> instanceStatusMap = new HashMap<>();
+    private final Set<LineageGraphResult.Edge> edges = new HashSet<>();
+
+    InstanceTriage(Cluster cluster) {
+        this(cluster, MAX_DEPTH, TIMEOUT_MILLIS);
+    }
+
+    InstanceTriage(Cluster cluster, int maxDepth, long timeoutMillis) {
+        this.cluster = cluster;
+        this.maxDepth = maxDepth;
+        this.deadline = System.currentTimeMillis() + timeoutMillis;
+    }
+
+    /**
+     * Triages the given instance and returns the graph of its lineage.
+     *
+     * @param instance instance to triage
+     * @return lineage graph, with the status appended to each vertex
+     * @throws FalconException if a status lookup fails
+     */
+    LineageGraphResult triage(SchedulableEntityInstance instance) throws FalconException {
+        List<SchedulableEntityInstance> level = Collections.singletonList(instance);
+        instanceStatusMap.put(instance.toString(), NOT_TRIAGED);
+        for (int depth = 0; !level.isEmpty() && depth < maxDepth && System.currentTimeMillis() < deadline;
+             depth++) {
+            level = checkLevel(level);
+        }
+        if (!level.isEmpty()) {
+            LOG.info("Stopped triage of {} with {} instances left to check", instance, level.size());
+        }
+
+        // append status to each vertex
+        Set<String> relabeledVertices = new HashSet<>();
+        for (Map.Entry<String, String> entry : instanceStatusMap.entrySet()) {
+            relabeledVertices.add(entry.getKey() + entry.getValue());
+        }
+
+        // append status to each edge
+        for (LineageGraphResult.Edge edge : edges) {
+            edge.setFrom(edge.getFrom() + instanceStatusMap.get(edge.getFrom()));
+            edge.setTo(edge.getTo() + instanceStatusMap.get(edge.getTo()));
+        }
+
+        LineageGraphResult result = new LineageGraphResult();
+        result.setEdges(edges.toArray(new LineageGraphResult.Edge[0]));
+        result.setVertices(relabeledVertices.toArray(new String[0]));
+        return result;
+    }
+
+    // checks the instances of a level and returns the instances of the next level not seen before
+    private List<SchedulableEntityInstance> checkLevel(List<SchedulableEntityInstance> level)
+        throws FalconException {
+
+        Map<String, List<SchedulableEntityInstance>> byEntity = new LinkedHashMap<>();
+        for (SchedulableEntityInstance instance : level) {
+            String key = instance.getEntityType() + "/" + instance.getEntityName();
+            List<SchedulableEntityInstance> instances = byEntity.get(key);
+            if (instances == null) {
+                instances = new ArrayList<>();
+                byEntity.put(key, instances);
+            }
+            instances.add(instance);
+        }
+
+        List<Future<Map<SchedulableEntityInstance, Check>>> futures = new ArrayList<>();
+        for (final List<SchedulableEntityInstance> instances : getBatches(byEntity.values())) {
+            futures.add(EXECUTOR.submit(CurrentUser.withCurrentUser(
+                    new Callable<Map<SchedulableEntityInstance, Check>>() {
+                        @Override
+                        public Map<SchedulableEntityInstance, Check> call() throws Exception {
+                            return check(instances);
+                        }
+                    })));
+        }
+
+        List<SchedulableEntityInstance> nextLevel = new ArrayList<>();
+        for (Future<Map<SchedulableEntityInstance, Check>> future : futures) {
+            Map<SchedulableEntityInstance, Check> checks = get(future);
+            if (checks == null) {
+                continue;
+            }
+
+            for (Map.Entry<SchedulableEntityInstance, Check> entry : checks.entrySet()) {
+                String instance = entry.getKey().toString();
+                Check check = entry.getValue();
+                instanceStatusMap.put(instance, check.status);
+                for (SchedulableEntityInstance upstream : check.upstream) {
+                    String upstreamInstance = upstream.toString();
+                    if (entry.getKey().getEntityType() == EntityType.FEED) {
+                        edges.add(new LineageGraphResult.Edge(upstreamInstance, instance, "produces"));
+                    } else {
+                        edges.add(new LineageGraphResult.Edge(upstreamInstance, instance, "consumed by"));
+                    }
+                    if (!instanceStatusMap.containsKey(upstreamInstance)) {
+                        instanceStatusMap.put(upstreamInstance, NOT_TRIAGED);
+                        nextLevel.add(upstream);
+                    }
+                }
+            }
+        }
+        return nextLevel;
+    }
+
+    // waits for a batch until the deadline, after which the batch is abandoned and its instances left unchecked
+    private Map<SchedulableEntityInstance, Check> get(Future<Map<SchedulableEntityInstance, Check>> future)
+        throws FalconException {
+        try {
+            return future.get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return null;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new FalconException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof FalconException) {
+                throw (FalconException) e.getCause();
+            }
+            throw new FalconException(e.getCause());
+        }
+    }
+
+    // splits the instances of each entity into runs of instances close enough to be looked up together
+    private List<List<SchedulableEntityInstance>> getBatches(
+            Iterable<List<SchedulableEntityInstance>> instancesByEntity) throws FalconException {
+        List<List<SchedulableEntityInstance>> batches = new ArrayList<>();
+        for (List<SchedulableEntityInstance> instances : instancesByEntity) {
+            Collections.sort(instances);
+            long period = getPeriod(instances.get(0));
+            long maxSpan = period * MAX_BATCH_PERIODS;
+            long maxGap = period * MAX_BATCH_GAP_PERIODS;
+            List<SchedulableEntityInstance> batch = new ArrayList<>();
+            for (SchedulableEntityInstance instance : instances) {
+                long time = instance.getInstanceTime().getTime();
+                if (!batch.isEmpty()
+                        && (time - batch.get(0).getInstanceTime().getTime() > maxSpan
+                        || time - batch.get(batch.size() - 1).getInstanceTime().getTime() > maxGap)) {
+                    batches.add(batch);
+                    batch = new ArrayList<>();
+                }
+                batch.add(instance);
+            }
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    // period of the entity of the instance in millis, 0 if unknown
+    long getPeriod(SchedulableEntityInstance instance) throws FalconException {
+        Frequency frequency;
+        if (instance.getEntityType() == EntityType.FEED) {
+            Feed feed = ConfigurationStore.get().get(EntityType.FEED, instance.getEntityName());
+            frequency = feed == null ? null : feed.getFrequency();
+        } else {
+            Process process = ConfigurationStore.get().get(EntityType.PROCESS, instance.getEntityName());
+            frequency = process == null ? null : process.getFrequency();
+        }
+        if (frequency == null) {
+            return 0;
+        }
+
+        long unit;
+        switch (frequency.getTimeUnit()) {
+        case minutes:
+            unit = TimeUnit.MINUTES.toMillis(1);
+            break;
+        case hours:
+            unit = TimeUnit.HOURS.toMillis(1);
+            break;
+        case days:
+            unit = TimeUnit.DAYS.toMillis(1);
+            break;
+        default:
+            unit = TimeUnit.DAYS.toMillis(28);
+        }
+        return unit * frequency.getFrequencyAsInt();
+    }
+
+    // looks up the statuses of sorted instances of one entity, and finds the upstream instances of the ones
+    // which haven't succeeded
+    Map<SchedulableEntityInstance, Check> check(List<SchedulableEntityInstance> instances)
+        throws FalconException {
+        Map<SchedulableEntityInstance, Check> checks = new LinkedHashMap<>();
+        SchedulableEntityInstance first = instances.get(0);
+        Date start = first.getInstanceTime();
+        Date end = new Date(instances.get(instances.size() - 1).getInstanceTime().getTime() + END_MARGIN);
+        if (first.getEntityType() == EntityType.FEED) {
+            Feed feed = ConfigurationStore.get().get(EntityType.FEED, first.getEntityName());
+            Map<String, FeedInstanceStatus.AvailabilityStatus> statuses = getFeedInstanceStatuses(feed, start, end);
+            for (SchedulableEntityInstance instance : instances) {
+                Check check = new Check();
+                String instanceTime = SchemaHelper.formatDateUTC(instance.getInstanceTime());
+                FeedInstanceStatus.AvailabilityStatus status = statuses.get(instanceTime);
+                if (status == null) {
+                    LOG.warn("No instances were found for the given feed: {} & instanceTime: {}", feed, instanceTime);
+                    check.status = NOT_AVAILABLE;
+                } else {
+                    check.status = "[" + status.name() + "]";
+                }
+                if (status != FeedInstanceStatus.AvailabilityStatus.AVAILABLE) {
+                    // find producer process instance
+                    SchedulableEntityInstance producerInstance = FeedHelper.getProducerInstance(feed,
+                            instance.getInstanceTime(), cluster);
+                    if (producerInstance != null) {
+                        check.upstream = Collections.singleton(producerInstance);
+                    }
+                }
+                checks.put(instance, check);
+            }
+        } else {
+            Process process = ConfigurationStore.get().get(EntityType.PROCESS, first.getEntityName());
+            Map<String, InstancesResult.WorkflowStatus> statuses = getProcessInstanceStatuses(process, start, end);
+            for (SchedulableEntityInstance instance : instances) {
+                Check check = new Check();
+                String instanceTime = SchemaHelper.formatDateUTC(instance.getInstanceTime());
+                InstancesResult.WorkflowStatus status = statuses.get(instanceTime);
+                if (status == null) {
+                    LOG.warn("No instances were found for the given process: {} & instanceTime: {}",
+                            process, instanceTime);
+                    check.status = NOT_AVAILABLE;
+                } else {
+                    check.status = "[" + status.name() + "]";
+                }
+                if (status != InstancesResult.WorkflowStatus.SUCCEEDED) {
+                    // find list of input feed instances - only mandatory ones and not optional ones
+                    check.upstream = ProcessHelper.getInputFeedInstances(process, instance.getInstanceTime(),
+                            cluster, false);
+                }
+                checks.put(instance, check);
+            }
+        }
+        return checks;
+    }
+
+    private Map<String, FeedInstanceStatus.AvailabilityStatus> getFeedInstanceStatuses(Feed feed, Date start,
+                                                                                     Date end)
+        throws FalconException {
+        Storage storage = FeedHelper.createStorage(cluster, feed);
+        Map<String, FeedInstanceStatus.AvailabilityStatus> statuses = new HashMap<>();
+        // only the statuses are needed, not the sizes
+        for (FeedInstanceStatus instance : storage.getListing(feed, cluster.getName(), LocationType.DATA,
+                start, end, false)) {
+            statuses.put(instance.getInstance(), instance.getStatus());
+        }
+        return statuses;
+    }
+
+    private Map<String, InstancesResult.WorkflowStatus> getProcessInstanceStatuses(Process process, Date start,
+                                                                                 Date end)
+        throws FalconException {
+        List<LifeCycle> lifeCycles = new ArrayList<LifeCycle>();
+        lifeCycles.add(LifeCycle.EXECUTION);
+        Instance[] response = WorkflowEngineFactory.getWorkflowEngine(process)
+                .getStatus(process, start, end, lifeCycles, null).getInstances();
+        Map<String, InstancesResult.WorkflowStatus> statuses = new HashMap<>();
+        if (response != null) {
+            for (Instance instance : response) {
+                // instances of the cluster being triaged take precedence over the same instance on other clusters
+                if (!statuses.containsKey(instance.getInstance()) || cluster.getName().equals(instance.getCluster())) {
+                    statuses.put(instance.getInstance(), instance.getStatus());
+                }
+            }
+        }
+        return statuses;
+    }
+
+    /**
+     * Status of an instance and the instances it depends on, if they need to be checked.
+     */
+    static final class Check {
+        private String status;
+        private Set<SchedulableEntityInstance> upstream = Collections.emptySet();
+
+        Check() {
+        }
+
+        Check(String status, Set<SchedulableEntityInstance> upstream) {
+            this.status = status;
+            this.upstream = upstream;
+        }
+    }
+}
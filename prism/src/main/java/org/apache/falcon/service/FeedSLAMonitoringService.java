@@ -18,22 +18,30 @@
 package org.apache.falcon.service;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.falcon.FalconException;
 import org.apache.falcon.Pair;
 import org.apache.falcon.entity.EntityUtil;
 import org.apache.falcon.entity.FeedHelper;
 import org.apache.falcon.entity.FeedInstanceStatus;
+import org.apache.falcon.entity.FileSystemStorage;
+import org.apache.falcon.entity.Storage;
 import org.apache.falcon.entity.v0.Entity;
 import org.apache.falcon.entity.v0.EntityType;
 import org.apache.falcon.entity.v0.Frequency;
 import org.apache.falcon.entity.v0.feed.Cluster;
 import org.apache.falcon.entity.v0.feed.Feed;
+import org.apache.falcon.entity.v0.feed.LocationType;
 import org.apache.falcon.entity.v0.feed.Sla;
 import org.apache.falcon.expression.ExpressionHelper;
+import org.apache.falcon.expression.SubstitutionTemplate;
 import org.apache.falcon.hadoop.HadoopClientFactory;
 import org.apache.falcon.resource.SchedulableEntityInstance;
+import org.apache.falcon.util.DaemonThreadFactory;
 import org.apache.falcon.util.DeploymentUtil;
 import org.apache.falcon.util.StartupProperties;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.permission.FsAction;
@@ -42,21 +50,27 @@ import org.eclipse.jetty.util.ConcurrentHashSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -70,6 +84,10 @@ public final class FeedSLAMonitoringService implements ConfigurationChangeListen
 
     private static final int ONE_MS = 1;
 
+    // "FSLA", distinguishes the binary state from the serialized java objects written before it
+    private static final int STATE_MAGIC = 0x46534c41;
+    private static final int STATE_VERSION = 1;
+
     private static final FeedSLAMonitoringService SERVICE = new FeedSLAMonitoringService();
 
     private FeedSLAMonitoringService() {
@@ -94,10 +112,10 @@ public final class FeedSLAMonitoringService implements ConfigurationChangeListen
 
 
     /**
-     * Map<Pair<feedName, clusterName>, Set<instanceTime> to store
+     * Map<Pair<feedName, clusterName>, timeline of instanceTime> to store
      * each missing instance of a feed.
      */
-    protected Map<Pair<String, String>, BlockingQueue<Date>> pendingInstances;
+    protected Map<Pair<String, String>, PendingInstanceTimeline> pendingInstances;
 
 
     /**
@@ -124,6 +142,16 @@ public final class FeedSLAMonitoringService implements ConfigurationChangeListen
      */
     private int lookAheadWindowMillis; // 15 MINUTES
 
+    /**
+     * Executor checking the availability of pending feed instances in parallel.
+     */
+    protected ExecutorService statusCheckExecutor;
+
+    /**
+     * Executor running the monitor every status check interval.
+     */
+    private ScheduledThreadPoolExecutor monitorExecutor;
+
 
     /**
      * Frequency in milliseconds of serializing(for backup) monitoring service's state.
@@ -247,6 +275,10 @@ public final class FeedSLAMonitoringService implements ConfigurationChangeListen
         String size = StartupProperties.get().getProperty("feed.sla.queue.size", "288");
         queueSize = Integer.parseInt(size);
 
+        String threads = StartupProperties.get().getProperty("feed.sla.statusCheck.threads", "10");
+        statusCheckExecutor = Executors.newFixedThreadPool(Integer.parseInt(threads),
+                new DaemonThreadFactory("FeedSLAStatusCheck"));
+
         try {
             if (fileSystem.exists(filePath)) {
                 deserialize(filePath);
@@ -257,12 +289,19 @@ public final class FeedSLAMonitoringService implements ConfigurationChangeListen
         } catch (IOException e) {
             throw new FalconException("Couldn't check the existence of " + filePath, e);
         }
-        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
-        executor.scheduleWithFixedDelay(new Monitor(), 0, statusCheckFrequencySeconds, TimeUnit.SECONDS);
+        monitorExecutor = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("FeedSLAMonitor"));
+        monitorExecutor.scheduleWithFixedDelay(new Monitor(), 0, statusCheckFrequencySeconds, TimeUnit.SECONDS);
     }
 
     @Override
     public void destroy() throws FalconException {
+        // stop the checks first, so the state stored is not changed while it is written
+        if (monitorExecutor != null) {
+            monitorExecutor.shutdownNow();
+        }
+        if (statusCheckExecutor != null) {
+            statusCheckExecutor.shutdownNow();
+        }
         serializeState(); // store the state of monitoring service to the disk.
     }
 
@@ -271,8 +310,9 @@ public final class FeedSLAMonitoringService implements ConfigurationChangeListen
                 clusterName, nominalTime);
         Pair<String, String> feedCluster = new Pair<>(feedName, clusterName);
         // Slas for feeds not having sla tag are not stored.
-        if (pendingInstances.get(feedCluster) != null) {
-            pendingInstances.get(feedCluster).remove(nominalTime);
+        PendingInstanceTimeline instances = pendingInstances.get(feedCluster);
+        if (instances != null) {
+            instances.remove(nominalTime.getTime());
         }
     }
 
@@ -326,34 +366,26 @@ public final class FeedSLAMonitoringService implements ConfigurationChangeListen
                 if (currentClusters.contains(feedCluster.getName())) {
                     Date nextInstanceTime = from;
                     Pair<String, String> key = new Pair<>(feed.getName(), feedCluster.getName());
-                    BlockingQueue<Date> instances = pendingInstances.get(key);
+                    PendingInstanceTimeline instances = pendingInstances.get(key);
                     if (instances == null) {
-                        instances = new LinkedBlockingQueue<>(queueSize);
+                        instances = new PendingInstanceTimeline(queueSize);
                         Date feedStartTime = feedCluster.getValidity().getStart();
                         Frequency retentionFrequency = FeedHelper.getRetentionFrequency(feed, feedCluster);
-                        ExpressionHelper evaluator = ExpressionHelper.get();
-                        ExpressionHelper.setReferenceDate(new Date());
-                        Date retention = new Date(evaluator.evaluate(retentionFrequency.toString(), Long.class));
+                        Date retention = new Date(ExpressionHelper.get().evaluate(retentionFrequency.toString(),
+                                Long.class, new Date()));
                         if (feedStartTime.before(retention)) {
                             feedStartTime = retention;
                         }
                         nextInstanceTime = feedStartTime;
                     }
-                    Set<Date> exists = new HashSet<>(instances);
                     org.apache.falcon.entity.v0.cluster.Cluster currentCluster =
                             EntityUtil.getEntity(EntityType.CLUSTER, feedCluster.getName());
                     nextInstanceTime = EntityUtil.getNextStartTime(feed, currentCluster, nextInstanceTime);
                     Date endDate = FeedHelper.getClusterValidity(feed, currentCluster.getName()).getEnd();
                     while (nextInstanceTime.before(to) && nextInstanceTime.before(endDate)) {
-                        if (instances.size() >= queueSize) { // if no space, first make some space
-                            LOG.debug("Removing instance={} for <feed,cluster>={}", instances.peek(), key);
-                            exists.remove(instances.peek());
-                            instances.remove();
-                        }
+                        // if there is no space, the oldest instance makes room for the new one
                         LOG.debug("Adding instance={} for <feed,cluster>={}", nextInstanceTime, key);
-                        if (exists.add(nextInstanceTime)) {
-                            instances.add(nextInstanceTime);
-                        }
+                        instances.add(nextInstanceTime.getTime());
                         nextInstanceTime = new Date(nextInstanceTime.getTime() + ONE_MS);
                         nextInstanceTime = EntityUtil.getNextStartTime(feed, currentCluster, nextInstanceTime);
                     }
@@ -366,15 +398,159 @@ public final class FeedSLAMonitoringService implements ConfigurationChangeListen
 
     /**
      * Checks the availability of all the pendingInstances and removes the ones which have become available.
+     *
+     * An instance on file system storage is available once its path, or its availability flag, exists. These
+     * checks are grouped by the directory holding the path, so that a single listing covers all the instances
+     * of a feed in it, and the groups are checked in parallel sharing a file system per storage.
+     */
+    void checkPendingInstanceAvailability() throws FalconException {
+        Map<String, FileSystem> fileSystems = new HashMap<>();
+        Map<Pair<FileSystem, Path>, List<InstanceCheck>> directoryChecks = new HashMap<>();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (Map.Entry<Pair<String, String>, PendingInstanceTimeline> entry: pendingInstances.entrySet()) {
+            long[] times = entry.getValue().toArray();
+            if (times.length == 0) {
+                continue;
+            }
+
+            String feedName = entry.getKey().first;
+            String clusterName = entry.getKey().second;
+            try {
+                Feed feed = EntityUtil.getEntity(EntityType.FEED, feedName);
+                Storage storage = FeedHelper.createStorage(clusterName, feed);
+                if (storage instanceof FileSystemStorage) {
+                    FileSystemStorage fsStorage = (FileSystemStorage) storage;
+                    FileSystem fs = fileSystems.get(fsStorage.getStorageUrl());
+                    if (fs == null) {
+                        fs = HadoopClientFactory.get().createProxiedFileSystem(fsStorage.getConf());
+                        fileSystems.put(fsStorage.getStorageUrl(), fs);
+                    }
+                    addDirectoryChecks(directoryChecks, fs, fsStorage, feed, clusterName, entry.getValue(), times);
+                } else {
+                    for (long time : times) {
+                        tasks.add(new InstanceCheck(entry.getValue(), feedName, clusterName, time, null));
+                    }
+                }
+            } catch (FalconException e) {
+                LOG.error("Couldn't check pending instances of feed:{}, cluster:{}", feedName, clusterName, e);
+            }
+        }
+
+        for (Map.Entry<Pair<FileSystem, Path>, List<InstanceCheck>> entry : directoryChecks.entrySet()) {
+            tasks.add(new DirectoryCheck(entry.getKey().first, entry.getKey().second, entry.getValue()));
+        }
+        try {
+            for (Future<Void> result : statusCheckExecutor.invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FalconException("Interrupted while checking pending feed instances", e);
+        } catch (ExecutionException e) {
+            throw new FalconException("Couldn't check pending feed instances", e.getCause());
+        }
+    }
+
+    //SUSPEND CHECKSTYLE CHECK ParameterNumberCheck
+    private void addDirectoryChecks(Map<Pair<FileSystem, Path>, List<InstanceCheck>> directoryChecks, FileSystem fs,
+                                    FileSystemStorage storage, Feed feed, String clusterName,
+                                    PendingInstanceTimeline timeline, long[] times) throws FalconException {
+        SubstitutionTemplate template = storage.getInstancePathTemplate(feed, clusterName, LocationType.DATA);
+        String availabilityFlag = feed.getAvailabilityFlag();
+        for (long time : times) {
+            Path path = new Path(template.render(time, feed.getTimezone()));
+            if (StringUtils.isNotEmpty(availabilityFlag)) {
+                path = new Path(path, availabilityFlag);
+            }
+
+            Pair<FileSystem, Path> key = new Pair<>(fs, path.getParent() == null ? path : path.getParent());
+            List<InstanceCheck> checks = directoryChecks.get(key);
+            if (checks == null) {
+                checks = new ArrayList<>();
+                directoryChecks.put(key, checks);
+            }
+            checks.add(new InstanceCheck(timeline, feed.getName(), clusterName, time,
+                    path.getParent() == null ? null : path.getName()));
+        }
+    }
+    //RESUME CHECKSTYLE CHECK ParameterNumberCheck
+
+    /**
+     * Check of a pending instance, by the name of its path in the directory checked or else by its status.
+     */
+    private final class InstanceCheck implements Callable<Void> {
+        private final PendingInstanceTimeline timeline;
+        private final String feedName;
+        private final String clusterName;
+        private final long time;
+        private final String name;
+
+        private InstanceCheck(PendingInstanceTimeline timeline, String feedName, String clusterName, long time,
+                              String name) {
+            this.timeline = timeline;
+            this.feedName = feedName;
+            this.clusterName = clusterName;
+            this.time = time;
+            this.name = name;
+        }
+
+        private void setAvailable() {
+            LOG.debug("Feed instance(feed:{}, cluster:{}, instanceTime:{}) is available.", feedName, clusterName,
+                    new Date(time));
+            timeline.remove(time);
+        }
+
+        @Override
+        public Void call() throws FalconException {
+            if (checkFeedInstanceAvailability(feedName, clusterName, new Date(time))) {
+                timeline.remove(time);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Checks the pending instances whose paths are in a directory, listing it if there is more than one.
      */
-    private void checkPendingInstanceAvailability() throws FalconException {
-        for (Map.Entry<Pair<String, String>, BlockingQueue<Date>> entry: pendingInstances.entrySet()) {
-            for (Date date : entry.getValue()) {
-                boolean status = checkFeedInstanceAvailability(entry.getKey().first, entry.getKey().second, date);
-                if (status) {
-                    pendingInstances.get(entry.getKey()).remove(date);
+    private static final class DirectoryCheck implements Callable<Void> {
+        private final FileSystem fs;
+        private final Path directory;
+        private final List<InstanceCheck> checks;
+
+        private DirectoryCheck(FileSystem fs, Path directory, List<InstanceCheck> checks) {
+            this.fs = fs;
+            this.directory = directory;
+            this.checks = checks;
+        }
+
+        @Override
+        public Void call() {
+            try {
+                if (checks.size() == 1) {
+                    InstanceCheck check = checks.get(0);
+                    if (fs.exists(check.name == null ? directory : new Path(directory, check.name))) {
+                        check.setAvailable();
+                    }
+                    return null;
+                }
+
+                Set<String> names = new HashSet<>();
+                try {
+                    for (FileStatus status : fs.listStatus(directory)) {
+                        names.add(status.getPath().getName());
+                    }
+                } catch (FileNotFoundException e) {
+                    LOG.debug("Directory {} doesn't exist yet", directory);
+                }
+                for (InstanceCheck check : checks) {
+                    if (check.name == null ? fs.exists(directory) : names.contains(check.name)) {
+                        check.setAvailable();
+                    }
                 }
+            } catch (Throwable e) {
+                LOG.error("Couldn't check the pending feed instances in {}", directory, e);
             }
+            return null;
         }
     }
 
@@ -407,49 +583,72 @@ public final class FeedSLAMonitoringService implements ConfigurationChangeListen
 
         //create a temporary file and rename it.
         Path tmp = new Path(storePath , "tmp");
-        ObjectOutputStream oos = null;
+        DataOutputStream out = null;
         try {
-            OutputStream out = fileSystem.create(tmp);
-            oos = new ObjectOutputStream(out);
-            Map<String, Object> state = new HashMap<>();
-            state.put("lastSerializedAt", lastSerializedAt.getTime());
-            state.put("lastCheckedAt", lastCheckedAt.getTime());
-            state.put("pendingInstances", pendingInstances);
-            oos.writeObject(state);
+            out = fileSystem.create(tmp);
+            writeState(out);
+            out.close();
             fileSystem.rename(tmp, filePath);
         } catch (IOException e) {
             throw new FalconException("Error serializing context to : " + storePath.toUri(),  e);
         } finally {
-            IOUtils.closeQuietly(oos);
+            IOUtils.closeQuietly(out);
+        }
+    }
+
+    /**
+     * Writes the state as a header of magic number, format version and the two timestamps, followed by the
+     * number of feed clusters and for each of them the feed name, the cluster name and the pending instances.
+     */
+    void writeState(DataOutput out) throws IOException {
+        out.writeInt(STATE_MAGIC);
+        out.writeInt(STATE_VERSION);
+        out.writeLong(lastSerializedAt.getTime());
+        out.writeLong(lastCheckedAt.getTime());
+        // the map may change while it is written, so the count is of the entries taken
+        List<Map.Entry<Pair<String, String>, PendingInstanceTimeline>> entries =
+                new ArrayList<>(pendingInstances.entrySet());
+        out.writeInt(entries.size());
+        for (Map.Entry<Pair<String, String>, PendingInstanceTimeline> entry : entries) {
+            out.writeUTF(entry.getKey().first);
+            out.writeUTF(entry.getKey().second);
+            entry.getValue().write(out);
+        }
+    }
+
+    void readState(DataInput in) throws IOException {
+        if (in.readInt() != STATE_MAGIC) {
+            throw new IOException("Not a feed sla state");
+        }
+        int version = in.readInt();
+        if (version != STATE_VERSION) {
+            throw new IOException("Unsupported feed sla state version " + version);
+        }
+        lastSerializedAt = new Date(in.readLong());
+        lastCheckedAt = new Date(in.readLong());
+        pendingInstances = new ConcurrentHashMap<>();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            Pair<String, String> key = new Pair<>(in.readUTF(), in.readUTF());
+            // queue size can change during restarts, the latest instances are kept
+            pendingInstances.put(key, PendingInstanceTimeline.read(in, queueSize));
         }
     }
 
-    @SuppressWarnings("unchecked")
     private void deserialize(Path path) throws FalconException {
         try {
-            Map<String, Object> state = deserializeInternal(path);
-            pendingInstances = new ConcurrentHashMap<>();
-            Map<Pair<String, String>, BlockingQueue<Date>> pendingInstancesCopy =
-                    (Map<Pair<String, String>, BlockingQueue<Date>>) state.get("pendingInstances");
-            // queue size can change during restarts, hence copy
-            for (Map.Entry<Pair<String, String>, BlockingQueue<Date>> entry : pendingInstancesCopy.entrySet()) {
-                BlockingQueue<Date> value = new LinkedBlockingQueue<>(queueSize);
-                BlockingQueue<Date> oldValue = entry.getValue();
-                LOG.debug("Number of old instances:{}, new queue size:{}", oldValue.size(), queueSize);
-                while (!oldValue.isEmpty()) {
-                    Date instance = oldValue.remove();
-                    if (value.size() == queueSize) { // if full
-                        LOG.debug("Deserialization: Removing value={} for <feed,cluster>={}", value.peek(),
-                            entry.getKey());
-                        value.remove();
-                    }
-                    LOG.debug("Deserialization Adding: key={} to <feed,cluster>={}", entry.getKey(), instance);
-                    value.add(instance);
+            FSDataInputStream in = fileSystem.open(path);
+            try {
+                if (in.readInt() == STATE_MAGIC) {
+                    in.seek(0);
+                    readState(in);
+                } else {
+                    in.close();
+                    readLegacyState(path);
                 }
-                pendingInstances.put(entry.getKey(), value);
+            } finally {
+                IOUtils.closeQuietly(in);
             }
-            lastCheckedAt = new Date((Long) state.get("lastCheckedAt"));
-            lastSerializedAt = new Date((Long) state.get("lastSerializedAt"));
             monitoredFeeds = new ConcurrentHashSet<>(); // will be populated on the onLoad of entities.
             LOG.debug("Restored the service from old state.");
         } catch (IOException | ClassNotFoundException e) {
@@ -457,6 +656,25 @@ public final class FeedSLAMonitoringService implements ConfigurationChangeListen
         }
     }
 
+    // state written as a serialized map of queues of dates, before the binary format
+    @SuppressWarnings("unchecked")
+    private void readLegacyState(Path path) throws IOException, ClassNotFoundException {
+        Map<String, Object> state = deserializeInternal(path);
+        pendingInstances = new ConcurrentHashMap<>();
+        Map<Pair<String, String>, Collection<Date>> pendingInstancesCopy =
+                (Map<Pair<String, String>, Collection<Date>>) state.get("pendingInstances");
+        for (Map.Entry<Pair<String, String>, Collection<Date>> entry : pendingInstancesCopy.entrySet()) {
+            PendingInstanceTimeline value = new PendingInstanceTimeline(queueSize);
+            LOG.debug("Number of old instances:{}, new queue size:{}", entry.getValue().size(), queueSize);
+            for (Date instance : entry.getValue()) {
+                value.add(instance.getTime());
+            }
+            pendingInstances.put(entry.getKey(), value);
+        }
+        lastCheckedAt = new Date((Long) state.get("lastCheckedAt"));
+        lastSerializedAt = new Date((Long) state.get("lastSerializedAt"));
+    }
+
     protected void initializeService() {
         pendingInstances = new ConcurrentHashMap<>();
         lastCheckedAt = new Date();
@@ -492,13 +710,14 @@ public final class FeedSLAMonitoringService implements ConfigurationChangeListen
     public Set<SchedulableEntityInstance> getFeedSLAMissPendingAlerts(Date start, Date end)
         throws FalconException {
         Set<SchedulableEntityInstance> result = new HashSet<>();
-        for (Map.Entry<Pair<String, String>, BlockingQueue<Date>> feedInstances : pendingInstances.entrySet()) {
+        for (Map.Entry<Pair<String, String>, PendingInstanceTimeline> feedInstances : pendingInstances.entrySet()) {
             Pair<String, String> feedClusterPair = feedInstances.getKey();
             Feed feed = EntityUtil.getEntity(EntityType.FEED, feedClusterPair.first);
             Cluster cluster = FeedHelper.getCluster(feed, feedClusterPair.second);
             Sla sla = FeedHelper.getSLA(cluster, feed);
             if (sla != null) {
-                Set<Pair<Date, String>> slaStatus = getSLAStatus(sla, start, end, feedInstances.getValue());
+                Set<Pair<Date, String>> slaStatus = getSLAStatus(sla, start, end,
+                        feedInstances.getValue().getInstances(start, end));
                 for (Pair<Date, String> status : slaStatus){
                     SchedulableEntityInstance instance = new SchedulableEntityInstance(feedClusterPair.first,
                             feedClusterPair.second, status.first, EntityType.FEED);
@@ -525,12 +744,13 @@ public final class FeedSLAMonitoringService implements ConfigurationChangeListen
 
         Set<SchedulableEntityInstance> result = new HashSet<>();
         Pair<String, String> feedClusterPair = new Pair<>(feedName, clusterName);
-        BlockingQueue<Date> missingInstances = pendingInstances.get(feedClusterPair);
+        PendingInstanceTimeline missingInstances = pendingInstances.get(feedClusterPair);
         Feed feed = EntityUtil.getEntity(EntityType.FEED, feedName);
         Cluster cluster = FeedHelper.getCluster(feed, feedClusterPair.second);
         Sla sla = FeedHelper.getSLA(cluster, feed);
         if (missingInstances != null && sla != null) {
-            Set<Pair<Date, String>> slaStatus = getSLAStatus(sla, start, end, missingInstances);
+            Set<Pair<Date, String>> slaStatus = getSLAStatus(sla, start, end,
+                    missingInstances.getInstances(start, end));
             for (Pair<Date, String> status : slaStatus){
                 SchedulableEntityInstance instance = new SchedulableEntityInstance(feedName, clusterName, status.first,
                         EntityType.FEED);
@@ -541,7 +761,7 @@ public final class FeedSLAMonitoringService implements ConfigurationChangeListen
         return result;
     }
 
-    Set<Pair<Date, String>> getSLAStatus(Sla sla, Date start, Date end, BlockingQueue<Date> missingInstances)
+    Set<Pair<Date, String>> getSLAStatus(Sla sla, Date start, Date end, Collection<Date> missingInstances)
         throws FalconException {
         String tagCritical = "Missed SLA High";
         String tagWarn = "Missed SLA Low";
@@ -549,12 +769,11 @@ public final class FeedSLAMonitoringService implements ConfigurationChangeListen
         Frequency slaLow = sla.getSlaLow();
         Frequency slaHigh = sla.getSlaHigh();
         Set<Pair<Date, String>> result = new HashSet<>();
+        ExpressionHelper evaluator = ExpressionHelper.get();
         for (Date nominalTime : missingInstances) {
             if (!nominalTime.before(start) && !nominalTime.after(end)) {
-                ExpressionHelper.setReferenceDate(nominalTime);
-                ExpressionHelper evaluator = ExpressionHelper.get();
-                Long slaHighDuration = evaluator.evaluate(slaHigh.toString(), Long.class);
-                Long slaLowDuration = evaluator.evaluate(slaLow.toString(), Long.class);
+                Long slaHighDuration = evaluator.evaluate(slaHigh.toString(), Long.class, nominalTime);
+                Long slaLowDuration = evaluator.evaluate(slaLow.toString(), Long.class, nominalTime);
                 Date slaCriticalTime = new Date(nominalTime.getTime() + slaHighDuration);
                 Date slaWarnTime = new Date(nominalTime.getTime() + slaLowDuration);
                 if (slaCriticalTime.before(now)) {
@@ -0,0 +1,201 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.falcon.service;
+
+import org.apache.hadoop.io.WritableUtils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Bounded set of pending instance times of a feed on a cluster, kept in ascending order in a ring buffer of
+ * primitive longs.
+ *
+ * Instances are mostly added in time order, which is an append; anything else is found by binary search. When
+ * the timeline is full, the oldest instance is dropped to make room. Instances are thread safe.
+ */
+final class PendingInstanceTimeline {
+
+    private final int capacity;
+    private final long[] times;
+    // index of the oldest instance in times
+    private int head;
+    private int size;
+
+    PendingInstanceTimeline(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity should be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.times = new long[capacity];
+    }
+
+    /**
+     * Adds an instance, dropping the oldest one if the timeline is full.
+     *
+     * @param time instance time in millis since epoch
+     * @return false if the instance was already pending or is older than all instances of a full timeline
+     */
+    synchronized boolean add(long time) {
+        if (size == 0 || time > get(size - 1)) {
+            if (size == capacity) {
+                head = (head + 1) % capacity;
+                size--;
+            }
+            times[(head + size) % capacity] = time;
+            size++;
+            return true;
+        }
+
+        int index = indexOf(time);
+        if (index >= 0) {
+            return false;
+        }
+
+        int insertion = -index - 1;
+        if (size == capacity) {
+            if (insertion == 0) {
+                return false;
+            }
+            head = (head + 1) % capacity;
+            size--;
+            insertion--;
+        }
+        for (int i = size; i > insertion; i--) {
+            times[(head + i) % capacity] = get(i - 1);
+        }
+        times[(head + insertion) % capacity] = time;
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes an instance.
+     *
+     * @param time instance time in millis since epoch
+     * @return true if the instance was pending
+     */
+    synchronized boolean remove(long time) {
+        int index = indexOf(time);
+        if (index < 0) {
+            return false;
+        }
+
+        for (int i = index; i < size - 1; i++) {
+            times[(head + i) % capacity] = get(i + 1);
+        }
+        size--;
+        return true;
+    }
+
+    synchronized boolean contains(long time) {
+        return indexOf(time) >= 0;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return pending instance times in ascending order
+     */
+    synchronized long[] toArray() {
+        long[] result = new long[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = get(i);
+        }
+        return result;
+    }
+
+    /**
+     * @return pending instances between start and end, both inclusive, in ascending order
+     */
+    synchronized List<Date> getInstances(Date start, Date end) {
+        int from = indexOf(start.getTime());
+        from = from < 0 ? -from - 1 : from;
+        List<Date> result = new ArrayList<>();
+        for (int i = from; i < size && get(i) <= end.getTime(); i++) {
+            result.add(new Date(get(i)));
+        }
+        return result;
+    }
+
+    /**
+     * Writes the instances as a count followed by the first time and the deltas between consecutive times,
+     * all variable length encoded.
+     */
+    synchronized void write(DataOutput out) throws IOException {
+        WritableUtils.writeVInt(out, size);
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            WritableUtils.writeVLong(out, get(i) - previous);
+            previous = get(i);
+        }
+    }
+
+    /**
+     * Reads instances written by {@link #write(DataOutput)}, keeping the latest ones if there are more than the
+     * capacity.
+     */
+    static PendingInstanceTimeline read(DataInput in, int capacity) throws IOException {
+        PendingInstanceTimeline timeline = new PendingInstanceTimeline(capacity);
+        int count = WritableUtils.readVInt(in);
+        long time = 0;
+        for (int i = 0; i < count; i++) {
+            time += WritableUtils.readVLong(in);
+            timeline.add(time);
+        }
+        return timeline;
+    }
+
+    // binary search over the logical positions, same contract as Arrays.binarySearch
+    private int indexOf(long time) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midTime = get(mid);
+            if (midTime < time) {
+                low = mid + 1;
+            } else if (midTime > time) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private long get(int index) {
+        return times[(head + index) % capacity];
+    }
+
+    @Override
+    public synchronized String toString() {
+        return Arrays.toString(toArray());
+    }
+}
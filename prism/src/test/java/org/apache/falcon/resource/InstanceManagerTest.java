@@ -19,6 +19,7 @@
 package org.apache.falcon.resource;
 
 import org.apache.falcon.FalconWebException;
+import org.testng.Assert;
 import org.testng.annotations.Test;
 
 /**
@@ -30,4 +31,26 @@ public class InstanceManagerTest extends AbstractInstanceManager {
     public void test() {
         super.triageInstance("process", "random", "2014-05-07T00:00Z", "default");
     }
+
+    @Test
+    public void testInstanceLimit() {
+        Assert.assertEquals(getInstanceLimit(null, null, 0, 10), 10);
+        Assert.assertEquals(getInstanceLimit("", "", 20, 10), 30);
+        Assert.assertEquals(getInstanceLimit(null, null, -5, 10), 10);
+        Assert.assertEquals(getInstanceLimit(null, null, Integer.MAX_VALUE, 10), Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testInstanceLimitWithoutPage() {
+        Assert.assertEquals(getInstanceLimit(null, null, null, 10), Integer.MAX_VALUE);
+        Assert.assertEquals(getInstanceLimit(null, null, 0, null), Integer.MAX_VALUE);
+        Assert.assertEquals(getInstanceLimit(null, null, 0, 0), Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testNoInstanceLimitWithFilterOrOrder() {
+        // the page is no longer a prefix of the engine's order
+        Assert.assertEquals(getInstanceLimit("STATUS:RUNNING", null, 0, 10), Integer.MAX_VALUE);
+        Assert.assertEquals(getInstanceLimit(null, "startTime", 0, 10), Integer.MAX_VALUE);
+    }
 }
@@ -0,0 +1,254 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.falcon.resource;
+
+import org.apache.falcon.FalconException;
+import org.apache.falcon.entity.v0.EntityType;
+import org.apache.falcon.entity.v0.cluster.Cluster;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Tests for InstanceTriage, with the status lookups stubbed.
+ */
+public class InstanceTriageTest {
+
+    private static final long HOUR = 3600000L;
+    // 2015-01-01T00:00Z
+    private static final long START = 1420070400000L;
+    private static final String SUCCEEDED = "[SUCCEEDED]";
+    private static final String FAILED = "[FAILED]";
+    private static final String MISSING = "[MISSING]";
+
+    @Test
+    public void testBatching() throws Exception {
+        StubTriage triage = new StubTriage(100, 60000);
+        SchedulableEntityInstance root = process("summary", START + 200 * HOUR);
+        Set<SchedulableEntityInstance> inputs = new LinkedHashSet<>();
+        for (int i = 150; i > 0; i--) {
+            inputs.add(feed("clicks", START + (200 - i) * HOUR));
+        }
+        inputs.add(feed("impressions", START + 200 * HOUR));
+        triage.lineage(root, FAILED, inputs);
+
+        LineageGraphResult result = triage.triage(root);
+        Assert.assertEquals(result.getVertices().length, 1 + 150 + 1);
+        Assert.assertEquals(result.getEdges().length, 150 + 1);
+
+        // the clicks more than the batch span apart are looked up separately, one lookup per entity otherwise
+        Assert.assertEquals(triage.batches.size(), 4);
+        List<Integer> sizes = new ArrayList<>();
+        for (List<SchedulableEntityInstance> batch : triage.batches) {
+            sizes.add(batch.size());
+            List<SchedulableEntityInstance> sorted = new ArrayList<>(batch);
+            Collections.sort(sorted);
+            Assert.assertEquals(batch, sorted);
+            for (SchedulableEntityInstance instance : batch) {
+                Assert.assertEquals(instance.getEntityName(), batch.get(0).getEntityName());
+            }
+        }
+        Collections.sort(sizes);
+        Assert.assertEquals(sizes, Arrays.asList(1, 1, 150 - InstanceTriage.MAX_BATCH_PERIODS - 1,
+                InstanceTriage.MAX_BATCH_PERIODS + 1));
+    }
+
+    @Test
+    public void testBatchingSplitsAtGaps() throws Exception {
+        StubTriage triage = new StubTriage(100, 60000);
+        SchedulableEntityInstance root = process("summary", START + 200 * HOUR);
+        Set<SchedulableEntityInstance> inputs = new LinkedHashSet<>();
+        int gap = InstanceTriage.MAX_BATCH_GAP_PERIODS;
+        for (long hour : new long[] {0, 1, 2, 3 + gap, 3 + 2 * gap, 4 + 3 * gap}) {
+            inputs.add(feed("clicks", START + hour * HOUR));
+        }
+        triage.lineage(root, FAILED, inputs);
+        triage.triage(root);
+
+        // a gap of more than the allowed periods between neighbouring instances starts a new lookup
+        Map<Integer, List<Integer>> hours = new TreeMap<>();
+        for (List<SchedulableEntityInstance> batch : triage.batches) {
+            if (batch.get(0).getEntityName().equals("clicks")) {
+                List<Integer> batchHours = new ArrayList<>();
+                for (SchedulableEntityInstance instance : batch) {
+                    batchHours.add((int) ((instance.getInstanceTime().getTime() - START) / HOUR));
+                }
+                hours.put(batchHours.get(0), batchHours);
+            }
+        }
+        Assert.assertEquals(new ArrayList<>(hours.values()), Arrays.asList(Arrays.asList(0, 1, 2), Arrays.asList(3 + gap, 3 + 2 * gap),
+                Collections.singletonList(4 + 3 * gap)));
+    }
+
+    @Test
+    public void testInstancesCheckedOnce() throws Exception {
+        StubTriage triage = new StubTriage(100, 60000);
+        long time = START + 10 * HOUR;
+        SchedulableEntityInstance root = process("report", time);
+        SchedulableEntityInstance clicks = feed("clicks", time);
+        SchedulableEntityInstance impressions = feed("impressions", time);
+        SchedulableEntityInstance generator = process("generator", time);
+        triage.lineage(root, FAILED, clicks, impressions);
+        triage.lineage(clicks, MISSING, generator);
+        triage.lineage(impressions, MISSING, generator);
+        triage.lineage(generator, FAILED, root);
+
+        LineageGraphResult result = triage.triage(root);
+        Assert.assertEquals(triage.getCheckCount(root), 1);
+        Assert.assertEquals(triage.getCheckCount(generator), 1);
+        Assert.assertEquals(triage.getCheckCount(clicks), 1);
+        Assert.assertEquals(triage.getCheckCount(impressions), 1);
+
+        Set<String> vertices = new LinkedHashSet<>(Arrays.asList(result.getVertices()));
+        Assert.assertEquals(vertices.size(), 4);
+        Assert.assertTrue(vertices.contains(generator + FAILED), vertices.toString());
+        Assert.assertTrue(vertices.contains(clicks + MISSING), vertices.toString());
+        // the edges of the instance reached twice, and the one back to where the walk started
+        Assert.assertEquals(result.getEdges().length, 5);
+    }
+
+    @Test
+    public void testDepthLimit() throws Exception {
+        StubTriage triage = new StubTriage(2, 60000);
+        SchedulableEntityInstance root = process("report", START);
+        SchedulableEntityInstance input = feed("clicks", START);
+        SchedulableEntityInstance producer = process("generator", START);
+        SchedulableEntityInstance producerInput = feed("raw", START);
+        triage.lineage(root, FAILED, input);
+        triage.lineage(input, MISSING, producer);
+        triage.lineage(producer, FAILED, producerInput);
+
+        LineageGraphResult result = triage.triage(root);
+        Assert.assertEquals(triage.getCheckCount(producer), 0);
+        Assert.assertEquals(triage.getCheckCount(producerInput), 0);
+        Set<String> vertices = new LinkedHashSet<>(Arrays.asList(result.getVertices()));
+        Assert.assertEquals(vertices, new LinkedHashSet<>(Arrays.asList(root + FAILED, input + MISSING,
+                producer + InstanceTriage.NOT_TRIAGED)));
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        StubTriage triage = new StubTriage(100, 1000);
+        SchedulableEntityInstance root = process("report", START);
+        SchedulableEntityInstance input = feed("clicks", START);
+        SchedulableEntityInstance slow = feed("slow", START);
+        triage.lineage(root, FAILED, input, slow);
+        triage.slow = slow.getEntityName();
+
+        long start = System.currentTimeMillis();
+        LineageGraphResult result = triage.triage(root);
+        Assert.assertTrue(System.currentTimeMillis() - start < 10000);
+
+        // the lookup running past the deadline is abandoned, the others are reported
+        Set<String> vertices = new LinkedHashSet<>(Arrays.asList(result.getVertices()));
+        Assert.assertEquals(vertices, new LinkedHashSet<>(Arrays.asList(root + FAILED, input + SUCCEEDED,
+                slow + InstanceTriage.NOT_TRIAGED)));
+        for (LineageGraphResult.Edge edge : result.getEdges()) {
+            Assert.assertTrue(vertices.contains(edge.getFrom()), edge.getFrom());
+            Assert.assertTrue(vertices.contains(edge.getTo()), edge.getTo());
+        }
+    }
+
+    private static SchedulableEntityInstance process(String name, long time) {
+        return new SchedulableEntityInstance(name, "corp", new Date(time), EntityType.PROCESS);
+    }
+
+    private static SchedulableEntityInstance feed(String name, long time) {
+        return new SchedulableEntityInstance(name, "corp", new Date(time), EntityType.FEED);
+    }
+
+    /**
+     * Triage with hourly entities and the status and upstream instances of each instance given by the test.
+     * Instances not given have succeeded.
+     */
+    private static final class StubTriage extends InstanceTriage {
+        private final Map<String, InstanceTriage.Check> checks = new HashMap<>();
+        private final List<List<SchedulableEntityInstance>> batches =
+                Collections.synchronizedList(new ArrayList<List<SchedulableEntityInstance>>());
+        private volatile String slow;
+
+        private StubTriage(int maxDepth, long timeoutMillis) {
+            super(newCluster(), maxDepth, timeoutMillis);
+        }
+
+        private static Cluster newCluster() {
+            Cluster cluster = new Cluster();
+            cluster.setName("corp");
+            return cluster;
+        }
+
+        private void lineage(SchedulableEntityInstance instance, String status,
+                             SchedulableEntityInstance... upstream) {
+            lineage(instance, status, new LinkedHashSet<>(Arrays.asList(upstream)));
+        }
+
+        private void lineage(SchedulableEntityInstance instance, String status,
+                             Set<SchedulableEntityInstance> upstream) {
+            checks.put(instance.toString(), new InstanceTriage.Check(status, upstream));
+        }
+
+        private int getCheckCount(SchedulableEntityInstance instance) {
+            int count = 0;
+            synchronized (batches) {
+                for (List<SchedulableEntityInstance> batch : batches) {
+                    count += Collections.frequency(batch, instance);
+                }
+            }
+            return count;
+        }
+
+        @Override
+        long getPeriod(SchedulableEntityInstance instance) {
+            return HOUR;
+        }
+
+        @Override
+        Map<SchedulableEntityInstance, InstanceTriage.Check> check(List<SchedulableEntityInstance> instances)
+            throws FalconException {
+            batches.add(new ArrayList<>(instances));
+            if (instances.get(0).getEntityName().equals(slow)) {
+                try {
+                    Thread.sleep(30000);
+                } catch (InterruptedException e) {
+                    throw new FalconException(e);
+                }
+            }
+
+            Map<SchedulableEntityInstance, InstanceTriage.Check> result = new LinkedHashMap<>();
+            for (SchedulableEntityInstance instance : instances) {
+                InstanceTriage.Check check = checks.get(instance.toString());
+                result.put(instance, check == null
+                        ? new InstanceTriage.Check(SUCCEEDED, Collections.<SchedulableEntityInstance>emptySet())
+                        : check);
+            }
+            return result;
+        }
+    }
+}
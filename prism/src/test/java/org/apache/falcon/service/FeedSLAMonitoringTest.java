@@ -18,6 +18,11 @@
 
 package org.apache.falcon.service;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -26,8 +31,10 @@ import java.util.HashSet;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.falcon.FalconException;
 import org.apache.falcon.Pair;
 import org.apache.falcon.entity.AbstractTestBase;
@@ -40,6 +47,9 @@ import org.apache.falcon.entity.v0.cluster.Cluster;
 import org.apache.falcon.entity.v0.feed.ClusterType;
 import org.apache.falcon.entity.v0.feed.Clusters;
 import org.apache.falcon.entity.v0.feed.Feed;
+import org.apache.falcon.entity.v0.feed.Location;
+import org.apache.falcon.entity.v0.feed.LocationType;
+import org.apache.falcon.entity.v0.feed.Locations;
 import org.apache.falcon.entity.v0.feed.Sla;
 import org.apache.falcon.entity.v0.feed.Validity;
 import org.apache.falcon.resource.AbstractSchedulableEntityManager;
@@ -127,9 +137,9 @@ public class FeedSLAMonitoringTest extends AbstractTestBase {
         Date nextInstanceDate = SchemaHelper.parseDateUTC("2015-11-20T01:00Z");
         Pair<String, String> feedCluster = new Pair<>("testFeed", "testCluster");
 
-        BlockingQueue<Date> missingInstances = new LinkedBlockingQueue<>();
-        missingInstances.add(instanceDate);
-        missingInstances.add(nextInstanceDate);
+        PendingInstanceTimeline missingInstances = new PendingInstanceTimeline(10);
+        missingInstances.add(instanceDate.getTime());
+        missingInstances.add(nextInstanceDate.getTime());
 
         FeedSLAMonitoringService.get().initializeService();
         FeedSLAMonitoringService.get().pendingInstances.put(feedCluster, missingInstances);
@@ -155,6 +165,81 @@ public class FeedSLAMonitoringTest extends AbstractTestBase {
         Assert.assertEquals(service.pendingInstances.get(feedCluster).size(), 5);
     }
 
+    @Test
+    public void testStateRoundTrip() throws Exception {
+        FeedSLAMonitoringService service = FeedSLAMonitoringService.get();
+        service.initializeService();
+        service.queueSize = 3;
+        PendingInstanceTimeline instances = new PendingInstanceTimeline(5);
+        for (int i = 0; i < 5; i++) {
+            instances.add(SchemaHelper.parseDateUTC("2015-11-20T00:00Z").getTime() + i * 3600000L);
+        }
+        Pair<String, String> feedCluster = new Pair<>(FEED_NAME, CLUSTER_NAME);
+        service.pendingInstances.put(feedCluster, instances);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        service.writeState(new DataOutputStream(bytes));
+        service.initializeService();
+        service.readState(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        // only the latest instances which fit the queue size are restored
+        Assert.assertEquals(service.pendingInstances.size(), 1);
+        long[] restored = service.pendingInstances.get(feedCluster).toArray();
+        Assert.assertEquals(restored.length, 3);
+        Assert.assertEquals(restored[0], SchemaHelper.parseDateUTC("2015-11-20T02:00Z").getTime());
+        Assert.assertEquals(restored[2], SchemaHelper.parseDateUTC("2015-11-20T04:00Z").getTime());
+    }
+
+    @Test
+    public void testCheckPendingInstanceAvailability() throws Exception {
+        storeEntity(EntityType.CLUSTER, "slaCluster");
+        File dataDir = new File("target/sla-data").getAbsoluteFile();
+        FileUtils.deleteDirectory(dataDir);
+        Feed feed = new Feed();
+        feed.setName("slaFeed");
+        feed.setFrequency(new Frequency("hours(1)"));
+        feed.setTimezone(UTC);
+        Clusters fClusters = new Clusters();
+        org.apache.falcon.entity.v0.feed.Cluster fCluster = new org.apache.falcon.entity.v0.feed.Cluster();
+        fCluster.setType(ClusterType.SOURCE);
+        fCluster.setName("slaCluster");
+        fCluster.setValidity(getFeedValidity("2015-11-20 00:00 UTC", "2015-11-21 00:00 UTC"));
+        fClusters.getClusters().add(fCluster);
+        feed.setClusters(fClusters);
+        Locations locations = new Locations();
+        Location location = new Location();
+        location.setType(LocationType.DATA);
+        location.setPath(dataDir + "/${YEAR}/${MONTH}/${DAY}/${HOUR}");
+        locations.getLocations().add(location);
+        feed.setLocations(locations);
+        getStore().publish(EntityType.FEED, feed);
+
+        Assert.assertTrue(new File(dataDir, "2015/11/20/00").mkdirs());
+        Assert.assertTrue(new File(dataDir, "2015/11/20/02").mkdirs());
+        Assert.assertTrue(new File(dataDir, "2015/11/21/05").mkdirs());
+
+        FeedSLAMonitoringService service = FeedSLAMonitoringService.get();
+        service.initializeService();
+        service.statusCheckExecutor = Executors.newFixedThreadPool(2);
+        try {
+            PendingInstanceTimeline instances = new PendingInstanceTimeline(10);
+            for (int hour = 0; hour < 4; hour++) {
+                instances.add(SchemaHelper.parseDateUTC("2015-11-20T00:00Z").getTime() + hour * 3600000L);
+            }
+            instances.add(SchemaHelper.parseDateUTC("2015-11-21T05:00Z").getTime());
+            service.pendingInstances.put(new Pair<>("slaFeed", "slaCluster"), instances);
+
+            service.checkPendingInstanceAvailability();
+            Assert.assertEquals(instances.toArray(), new long[]{
+                SchemaHelper.parseDateUTC("2015-11-20T01:00Z").getTime(),
+                SchemaHelper.parseDateUTC("2015-11-20T03:00Z").getTime(),
+            });
+        } finally {
+            service.statusCheckExecutor.shutdownNow();
+            getStore().remove(EntityType.FEED, "slaFeed");
+        }
+    }
+
     private Cluster publishCluster() throws FalconException {
         Cluster cluster = new Cluster();
         cluster.setName(CLUSTER_NAME);
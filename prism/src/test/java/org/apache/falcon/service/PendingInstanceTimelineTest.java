@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.falcon.service;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Date;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Tests for PendingInstanceTimeline.
+ */
+public class PendingInstanceTimelineTest {
+
+    @Test
+    public void testAddAndRemove() {
+        PendingInstanceTimeline timeline = new PendingInstanceTimeline(3);
+        Assert.assertTrue(timeline.add(20));
+        Assert.assertTrue(timeline.add(30));
+        Assert.assertFalse(timeline.add(20));
+        Assert.assertTrue(timeline.add(10));
+        Assert.assertEquals(timeline.toArray(), new long[]{10, 20, 30});
+
+        // full, the oldest instance makes room
+        Assert.assertTrue(timeline.add(40));
+        Assert.assertEquals(timeline.toArray(), new long[]{20, 30, 40});
+        Assert.assertTrue(timeline.add(25));
+        Assert.assertEquals(timeline.toArray(), new long[]{25, 30, 40});
+        Assert.assertFalse(timeline.add(5));
+
+        Assert.assertTrue(timeline.remove(30));
+        Assert.assertFalse(timeline.remove(30));
+        Assert.assertEquals(timeline.toArray(), new long[]{25, 40});
+        Assert.assertEquals(timeline.getInstances(new Date(25), new Date(39)).size(), 1);
+        Assert.assertEquals(timeline.getInstances(new Date(26), new Date(40)).get(0), new Date(40));
+    }
+
+    @Test
+    public void testMatchesSortedSet() throws Exception {
+        Random random = new Random(11);
+        PendingInstanceTimeline timeline = new PendingInstanceTimeline(50);
+        TreeSet<Long> expected = new TreeSet<>();
+        for (int i = 0; i < 20000; i++) {
+            long time = random.nextInt(200);
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals(timeline.remove(time), expected.remove(time));
+            } else if (expected.size() < 50 || time > expected.first()) {
+                Assert.assertEquals(timeline.add(time), expected.add(time));
+                if (expected.size() > 50) {
+                    expected.pollFirst();
+                }
+            }
+            Assert.assertEquals(timeline.size(), expected.size());
+        }
+
+        long[] times = timeline.toArray();
+        int index = 0;
+        for (Long time : expected) {
+            Assert.assertEquals(times[index++], time.longValue());
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        timeline.write(new DataOutputStream(bytes));
+        PendingInstanceTimeline copy = PendingInstanceTimeline.read(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), 50);
+        Assert.assertEquals(copy.toArray(), times);
+    }
+}
@@ -17,23 +17,46 @@
  */
 package org.apache.falcon.rerun.handler;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.falcon.FalconException;
 import org.apache.falcon.aspect.GenericAlert;
 import org.apache.falcon.entity.EntityNotRegisteredException;
+import org.apache.falcon.entity.EntityUtil;
+import org.apache.falcon.entity.v0.Entity;
+import org.apache.falcon.entity.v0.EntityType;
 import org.apache.falcon.entity.v0.Frequency;
 import org.apache.falcon.rerun.event.RerunEvent;
 import org.apache.falcon.rerun.policy.AbstractRerunPolicy;
 import org.apache.falcon.rerun.policy.ExpBackoffPolicy;
 import org.apache.falcon.rerun.queue.DelayedQueue;
 import org.apache.falcon.security.CurrentUser;
+import org.apache.falcon.util.DaemonThreadFactory;
+import org.apache.falcon.util.StartupProperties;
 import org.apache.falcon.workflow.engine.AbstractWorkflowEngine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
 /**
  * Base class for a rerun consumer.
  *
+ * The consumer takes the events due together, up to the batch size. Their workflow statuses are looked up with
+ * one call per cluster, user and workflow engine, and the reruns are then handled in parallel on a pool of
+ * threads. Each rerun takes one of as many slots as there are threads, and waits for one to be free, so the
+ * reruns of the next events start as soon as those of earlier ones finish, not once the whole batch is handled.
+ *
  * @param <T> a rerun event
  * @param <M> a rerun handler
  */
@@ -42,28 +65,53 @@ public abstract class AbstractRerunConsumer<T extends RerunEvent, M extends Abst
 
     protected static final Logger LOG = LoggerFactory.getLogger(AbstractRerunConsumer.class);
 
+    public static final String THREADS_PROP = "rerun.consumer.threads";
+    public static final String BATCH_SIZE_PROP = "rerun.consumer.batch.size";
+
     protected M handler;
 
+    private final int batchSize;
+    private final int threads;
+    private final ExecutorService executor;
+    // a permit per rerun handled or waiting for a thread
+    private final Semaphore slots;
+
     public AbstractRerunConsumer(M handler) {
         this.handler = handler;
+        this.batchSize = Math.max(1, Integer.parseInt(StartupProperties.get().getProperty(BATCH_SIZE_PROP, "100")));
+        this.threads = Math.max(1, Integer.parseInt(StartupProperties.get().getProperty(THREADS_PROP, "10")));
+
+        this.executor = Executors.newFixedThreadPool(threads, new DaemonThreadFactory(getClass().getSimpleName()));
+        this.slots = new Semaphore(threads);
     }
 
     @Override
     public void run() {
+        try {
+            consume();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void consume() {
         int attempt = 1;
         AbstractRerunPolicy policy = new ExpBackoffPolicy();
         Frequency frequency = new Frequency("minutes(1)");
         while (!Thread.currentThread().isInterrupted()) {
-            T message = null;
             try {
+                List<T> messages = new ArrayList<T>();
                 try {
-                    message = handler.takeFromQueue();
+                    messages.add(handler.takeFromQueue());
+                    if (batchSize > 1) {
+                        messages.addAll(handler.takeDueFromQueue(batchSize - 1));
+                    }
                     attempt = 1;
                 } catch (FalconException e) {
                     if (ExceptionUtils.getRootCause(e) instanceof InterruptedException){
                         LOG.info("Rerun handler daemon has been interrupted");
                         return;
-                    } else {
+                    } else if (messages.isEmpty()) {
                         LOG.error("Error while reading message from the queue", e);
                         GenericAlert.alertRerunConsumerFailed(
                                 "Error while reading message from the queue: ", e);
@@ -71,30 +119,154 @@ public abstract class AbstractRerunConsumer<T extends RerunEvent, M extends Abst
                         handler.reconnect();
                         attempt++;
                         continue;
+                    } else {
+                        LOG.error("Error while reading due messages from the queue", e);
                     }
                 }
 
-                // Login the user to access WfEngine as this user
-                CurrentUser.authenticate(message.getWorkflowUser());
+                handleReruns(messages);
+            } catch (InterruptedException e) {
+                LOG.info("Rerun handler daemon has been interrupted");
+                return;
+            } catch (Throwable e) {
+                LOG.error("Error in rerun consumer", e);
+            }
+        }
+    }
+
+    // looks up the workflow statuses of the messages and hands their reruns to the pool, waiting for a free slot
+    // before each of them
+    void handleReruns(List<T> messages) throws InterruptedException {
+        Map<String, StatusLookup> lookups = new LinkedHashMap<String, StatusLookup>();
+        for (T message : messages) {
+            try {
                 AbstractWorkflowEngine wfEngine = handler.getWfEngine(message.getEntityType(),
                         message.getEntityName());
-                String jobStatus = wfEngine.getWorkflowStatus(
-                        message.getClusterName(), message.getWfId());
-                handleRerun(message.getClusterName(), jobStatus, message,
-                        message.getEntityType(), message.getEntityName());
-
-            } catch (Throwable e) {
-                if (e instanceof EntityNotRegisteredException) {
-                    LOG.warn("Entity {} of type {} doesn't exist in config store. Rerun "
-                                    + "cannot be done for workflow ", message.getEntityName(),
-                            message.getEntityType(), message.getWfId());
-                    return;
+                String key = message.getClusterName() + "/" + message.getWorkflowUser() + "/" + wfEngine.getName();
+                StatusLookup lookup = lookups.get(key);
+                if (lookup == null) {
+                    lookup = new StatusLookup(message.getClusterName(), message.getWorkflowUser(), wfEngine);
+                    lookups.put(key, lookup);
                 }
-                LOG.error("Error in rerun consumer", e);
+                lookup.add(message);
+            } catch (EntityNotRegisteredException e) {
+                warnNotRegistered(message);
+            } catch (Throwable e) {
+                LOG.error("Error in rerun consumer for workflow {}", message.getWfId(), e);
+            }
+        }
+
+        List<Runnable> reruns = new ArrayList<Runnable>();
+        for (Map.Entry<StatusLookup, Future<Map<String, String>>> entry
+                : lookupStatuses(lookups.values()).entrySet()) {
+            Map<String, String> statuses;
+            try {
+                statuses = entry.getValue().get();
+            } catch (ExecutionException e) {
+                LOG.warn("Unable to look up workflow statuses on cluster {} together, looking them up one at a time",
+                        entry.getKey().cluster, e.getCause());
+                statuses = Collections.emptyMap();
+            }
+            for (T message : entry.getKey().messages) {
+                reruns.add(rerun(entry.getKey().wfEngine, message, statuses.get(message.getWfId())));
+            }
+        }
+        for (Runnable rerun : reruns) {
+            slots.acquire();
+            try {
+                executor.execute(rerun);
+            } catch (RuntimeException e) {
+                slots.release();
+                throw e;
             }
         }
     }
 
+    // waits until no rerun is in flight
+    void awaitReruns() throws InterruptedException {
+        slots.acquire(threads);
+        slots.release(threads);
+    }
+
+    private Map<StatusLookup, Future<Map<String, String>>> lookupStatuses(Iterable<StatusLookup> lookups) {
+        Map<StatusLookup, Future<Map<String, String>>> statuses =
+                new LinkedHashMap<StatusLookup, Future<Map<String, String>>>();
+        for (final StatusLookup lookup : lookups) {
+            statuses.put(lookup, executor.submit(new Callable<Map<String, String>>() {
+                @Override
+                public Map<String, String> call() throws Exception {
+                    // Login the user to access WfEngine as this user
+                    CurrentUser.authenticate(lookup.user);
+                    try {
+                        return lookup.wfEngine.getWorkflowStatuses(lookup.cluster, lookup.entities.values(),
+                                lookup.wfIds);
+                    } finally {
+                        CurrentUser.clear();
+                    }
+                }
+            }));
+        }
+        return statuses;
+    }
+
+    // the rerun of a message, which frees its slot once done
+    private Runnable rerun(final AbstractWorkflowEngine wfEngine, final T message, final String status) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    // Login the user to access WfEngine as this user
+                    CurrentUser.authenticate(message.getWorkflowUser());
+                    String jobStatus = status != null ? status
+                            : wfEngine.getWorkflowStatus(message.getClusterName(), message.getWfId());
+                    handleRerun(message.getClusterName(), jobStatus, message,
+                            message.getEntityType(), message.getEntityName());
+                } catch (Throwable e) {
+                    LOG.error("Error in rerun consumer for workflow {}", message.getWfId(), e);
+                } finally {
+                    CurrentUser.clear();
+                    slots.release();
+                }
+            }
+        };
+    }
+
+    private void warnNotRegistered(T message) {
+        LOG.warn("Entity {} of type {} doesn't exist in config store. Rerun "
+                        + "cannot be done for workflow {}", message.getEntityName(),
+                message.getEntityType(), message.getWfId());
+    }
+
     protected abstract void handleRerun(String clusterName, String jobStatus, T message,
                                         String entityType, String entityName);
+
+    /**
+     * Events whose workflow statuses are looked up together.
+     */
+    private final class StatusLookup {
+        private final String cluster;
+        private final String user;
+        private final AbstractWorkflowEngine wfEngine;
+        private final Map<String, Entity> entities = new LinkedHashMap<String, Entity>();
+        private final List<String> wfIds = new ArrayList<String>();
+        private final List<T> messages = new ArrayList<T>();
+
+        private StatusLookup(String cluster, String user, AbstractWorkflowEngine wfEngine) {
+            this.cluster = cluster;
+            this.user = user;
+            this.wfEngine = wfEngine;
+        }
+
+        private void add(T message) throws FalconException {
+            if (StringUtils.isNotBlank(message.getEntityType()) && StringUtils.isNotBlank(message.getEntityName())) {
+                String key = message.getEntityType() + "/" + message.getEntityName();
+                if (!entities.containsKey(key)) {
+                    entities.put(key, EntityUtil.getEntity(EntityType.valueOf(message.getEntityType()),
+                            message.getEntityName()));
+                }
+            }
+            wfIds.add(message.getWfId());
+            messages.add(message);
+        }
+    }
 }
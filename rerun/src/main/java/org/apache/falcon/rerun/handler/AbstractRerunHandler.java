@@ -31,6 +31,8 @@ import org.apache.falcon.workflow.engine.AbstractWorkflowEngine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+
 /**
  * Base class for handling reruns.
  *
@@ -77,6 +79,10 @@ public abstract class AbstractRerunHandler<T extends RerunEvent, M extends Delay
         return delayQueue.take();
     }
 
+    public List<T> takeDueFromQueue(int maxEvents) throws FalconException {
+        return delayQueue.takeDue(maxEvents);
+    }
+
     public void reconnect() throws FalconException {
         delayQueue.reconnect();
     }
@@ -122,6 +122,9 @@ public class LateRerunConsumer<T extends LateRerunHandler<DelayedQueue<LaterunEv
         String[] inputs = falconInputs.split("#");
         String[] inputFeedStorageTypes = falconInputFeedStorageTypes.split("#");
 
+        // metrics recorded before fingerprints are sizes, which have to be computed the same way
+        Map<String, Long> recordedMetrics = late.readMetrics(lateLogPath, conf);
+        boolean fingerprints = LateDataHandler.recordsFingerprints(recordedMetrics);
         Map<String, Long> computedMetrics = new LinkedHashMap<String, Long>();
         Entity entity = EntityUtil.getEntity(message.getEntityType(), message.getEntityName());
         if (EntityUtil.getLateProcess(entity) != null) {
@@ -133,7 +136,7 @@ public class LateRerunConsumer<T extends LateRerunHandler<DelayedQueue<LaterunEv
             for (int index = 0; index < pathGroups.length; index++) {
                 if (lateInput.contains(inputs[index])) {
                     long computedMetric = late.computeStorageMetric(
-                            pathGroups[index], inputFeedStorageTypes[index], conf);
+                            pathGroups[index], inputFeedStorageTypes[index], conf, fingerprints);
                     computedMetrics.put(inputs[index], computedMetric);
                 }
             }
@@ -142,6 +145,6 @@ public class LateRerunConsumer<T extends LateRerunHandler<DelayedQueue<LaterunEv
                     message.getEntityType(), message.getEntityName());
         }
 
-        return late.detectChanges(lateLogPath, computedMetrics, conf);
+        return late.detectChanges(recordedMetrics, computedMetrics);
     }
 }
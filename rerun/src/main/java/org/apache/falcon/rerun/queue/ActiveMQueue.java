@@ -32,6 +32,7 @@ import javax.jms.MessageConsumer;
 import javax.jms.MessageProducer;
 import javax.jms.Session;
 import javax.jms.TextMessage;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -54,8 +55,9 @@ public class ActiveMQueue<T extends RerunEvent> extends DelayedQueue<T> {
         this.destinationName = destinationName;
     }
 
+    // the producer is shared by the consumer threads re-offering events
     @Override
-    public boolean offer(T event) throws FalconException {
+    public synchronized boolean offer(T event) throws FalconException {
         Session session;
         try {
             session = getSession();
@@ -94,6 +96,24 @@ public class ActiveMQueue<T extends RerunEvent> extends DelayedQueue<T> {
         }
     }
 
+    @Override
+    public List<T> takeDue(int maxEvents) throws FalconException {
+        List<T> events = new ArrayList<T>();
+        try {
+            TextMessage textMessage;
+            while (events.size() < maxEvents && (textMessage = (TextMessage) consumer.receiveNoWait()) != null) {
+                T event = new RerunEventFactory<T>().getRerunEvent(
+                        textMessage.getStringProperty("TYPE"),
+                        textMessage.getText());
+                LOG.debug("Dequeued Message: {}", event.toString());
+                events.add(event);
+            }
+        } catch (Exception e) {
+            throw new FalconException("Error getting the messages from ActiveMQ: ", e);
+        }
+        return events;
+    }
+
     @Override
     public void populateQueue(List<T> events) {
     }
@@ -22,6 +22,7 @@ import org.apache.falcon.rerun.event.RerunEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -35,6 +36,16 @@ public abstract class DelayedQueue<T extends RerunEvent> {
 
     public abstract T take() throws FalconException;
 
+    /**
+     * Takes the events which are already due, without waiting for more.
+     *
+     * @param maxEvents maximum number of events to take
+     * @return due events, none if the queue can't tell them without waiting
+     */
+    public List<T> takeDue(int maxEvents) throws FalconException {
+        return Collections.emptyList();
+    }
+
     public abstract void populateQueue(List<T> events);
 
     public abstract void init();
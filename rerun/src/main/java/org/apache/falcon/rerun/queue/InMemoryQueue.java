@@ -17,40 +17,42 @@
  */
 package org.apache.falcon.rerun.queue;
 
-import org.apache.commons.codec.CharEncoding;
 import org.apache.falcon.FalconException;
-import org.apache.commons.io.IOUtils;
 import org.apache.falcon.aspect.GenericAlert;
 import org.apache.falcon.rerun.event.RerunEvent;
-import org.apache.falcon.rerun.event.RerunEventFactory;
+import org.apache.falcon.util.StartupProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.DelayQueue;
 
 /**
- * An in-memory implementation of a DelayedQueue.
+ * An in-memory implementation of a DelayedQueue, persisted in a {@link RerunEventLog}.
  * @param <T>
  */
 public class InMemoryQueue<T extends RerunEvent> extends DelayedQueue<T> {
 
     public static final Logger LOG = LoggerFactory.getLogger(DelayedQueue.class);
 
+    public static final String SEGMENT_SIZE_PROP = "rerun.queue.segment.size.bytes";
+    public static final String SYNC_INTERVAL_PROP = "rerun.queue.sync.interval.millis";
+
     protected DelayQueue<T> delayQueue = new DelayQueue<T>();
-    private final File serializeFilePath;
+
+    private final RerunEventLog<T> eventLog;
 
     public InMemoryQueue(File serializeFilePath) {
-        this.serializeFilePath = serializeFilePath;
+        this(serializeFilePath,
+                Long.parseLong(StartupProperties.get().getProperty(SEGMENT_SIZE_PROP, "16777216")),
+                Long.parseLong(StartupProperties.get().getProperty(SYNC_INTERVAL_PROP, "1000")));
+    }
+
+    public InMemoryQueue(File serializeFilePath, long segmentSize, long syncIntervalMillis) {
+        this.eventLog = new RerunEventLog<T>(serializeFilePath, segmentSize, syncIntervalMillis);
     }
 
     @Override
@@ -74,6 +76,17 @@ public class InMemoryQueue<T extends RerunEvent> extends DelayedQueue<T> {
         return event;
     }
 
+    @Override
+    public List<T> takeDue(int maxEvents) {
+        List<T> events = new ArrayList<T>();
+        delayQueue.drainTo(events, maxEvents);
+        for (T event : events) {
+            afterRetry(event);
+            LOG.debug("Dequeued Message: {}", event.toString());
+        }
+        return events;
+    }
+
     public void populateQueue(List<T> events) {
         for (T event : events) {
             delayQueue.offer(event);
@@ -82,7 +95,7 @@ public class InMemoryQueue<T extends RerunEvent> extends DelayedQueue<T> {
 
     @Override
     public void init() {
-        List<T> events = bootstrap();
+        List<T> events = eventLog.open();
         populateQueue(events);
     }
 
@@ -92,70 +105,30 @@ public class InMemoryQueue<T extends RerunEvent> extends DelayedQueue<T> {
     }
 
     private void beforeRetry(T event) {
-        File retryFile = getRetryFile(serializeFilePath, event);
-        BufferedWriter out = null;
         try {
-            out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(retryFile, true)));
-            out.write(event.toString());
-            out.newLine();
-            out.close();
+            eventLog.append(event);
         } catch (IOException e) {
             LOG.warn("Unable to write entry for process-instance: {}:{}",
                             event.getEntityName(), event.getInstance(), e);
-        } finally {
-            IOUtils.closeQuietly(out);
         }
     }
 
-    private File getRetryFile(File basePath, T event) {
-        return new File(basePath, (event.getType().name()) + "-"
-                + event.getEntityName() + "-"
-                + event.getInstance().replaceAll(":", "-"));
-    }
-
     private void afterRetry(T event) {
-        File retryFile = getRetryFile(serializeFilePath, event);
-        if (!retryFile.exists()) {
-            LOG.warn("Rerun file deleted or renamed for process-instance: {}:{}",
-                    event.getEntityName(), event.getInstance());
-            GenericAlert.alertRetryFailed(event.getEntityType(), event.getEntityName(), event.getInstance(),
-                    event.getWfId(), event.getWorkflowUser(), Integer.toString(event.getRunId()),
-                    "Rerun file deleted or renamed for process-instance:");
-        } else {
-            if (!retryFile.delete()) {
-                LOG.warn("Unable to remove rerun file {}", event.getWfId());
-                retryFile.deleteOnExit();
-            }
-        }
-    }
-
-    private List<T> bootstrap() {
-        List<T> rerunEvents = new ArrayList<T>();
-        File[] files = serializeFilePath.listFiles();
-        if (files != null) {
-            for (File rerunFile : files) {
-                BufferedReader reader = null;
-                try {
-                    reader = new BufferedReader(new InputStreamReader(new FileInputStream(rerunFile),
-                            CharEncoding.UTF_8));
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        T event = new RerunEventFactory<T>().getRerunEvent(
-                                rerunFile.getName(), line);
-                        rerunEvents.add(event);
-                    }
-                } catch (Exception e) {
-                    LOG.warn("Not able to read rerun entry {}", rerunFile.getAbsolutePath(), e);
-                } finally {
-                    IOUtils.closeQuietly(reader);
-                }
+        try {
+            if (!eventLog.remove(event)) {
+                LOG.warn("Rerun entry missing for process-instance: {}:{}",
+                        event.getEntityName(), event.getInstance());
+                GenericAlert.alertRetryFailed(event.getEntityType(), event.getEntityName(), event.getInstance(),
+                        event.getWfId(), event.getWorkflowUser(), Integer.toString(event.getRunId()),
+                        "Rerun entry missing for process-instance:");
             }
+        } catch (IOException e) {
+            LOG.warn("Unable to remove rerun entry {}", event.getWfId(), e);
         }
-        return rerunEvents;
     }
 
     @Override
     public void close() {
-        //Do nothing
+        eventLog.close();
     }
 }
@@ -0,0 +1,394 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.falcon.rerun.queue;
+
+import org.apache.commons.codec.CharEncoding;
+import org.apache.commons.io.IOUtils;
+import org.apache.falcon.rerun.event.RerunEvent;
+import org.apache.falcon.rerun.event.RerunEventFactory;
+import org.apache.falcon.util.DaemonThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only log of the events in a delayed queue, split in segments.
+ *
+ * Each offered event is appended as an add record with an id, and each taken event as a remove record of that
+ * id. Records are flushed to the file system as they are written and synced to disk in batches, every sync
+ * interval. When the active segment grows past the segment size, and to at least twice what the live events
+ * took when last compacted, the live events are compacted into a new segment, the checkpoint is moved to it,
+ * and the older segments are deleted. So a compaction follows at least as many bytes appended as it writes,
+ * however many events are live. A failed compaction is retried once another segment size was appended.
+ * Recovery reads the segments from the checkpointed one on, in order.
+ *
+ * Files of the former layout, one per entity instance, are read and folded into the log on open.
+ *
+ * @param <T>
+ */
+class RerunEventLog<T extends RerunEvent> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RerunEventLog.class);
+
+    private static final String SEGMENT_PREFIX = "rerun-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "rerun.checkpoint";
+    private static final char ADD = '+';
+    private static final char REMOVE = '-';
+
+    private final File basePath;
+    private final long segmentSize;
+    private final long syncIntervalMillis;
+
+    private final Map<Long, T> live = new LinkedHashMap<Long, T>();
+    private final Map<T, Long> ids = new IdentityHashMap<T, Long>();
+    private long nextId;
+    private long segment;
+    private long segmentBytes;
+    // size the active segment has to reach for the next compaction
+    private long compactionBytes;
+    private FileOutputStream segmentStream;
+    private Writer segmentWriter;
+    private boolean dirty;
+    private boolean open;
+    private boolean closed;
+    private ScheduledExecutorService syncer;
+
+    RerunEventLog(File basePath, long segmentSize, long syncIntervalMillis) {
+        this.basePath = basePath;
+        this.segmentSize = segmentSize;
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.compactionBytes = segmentSize;
+    }
+
+    /**
+     * Recovers the events left in the log, and compacts them into a new segment.
+     *
+     * @return events offered and not taken
+     */
+    synchronized List<T> open() {
+        if (open || closed) {
+            return new ArrayList<T>(live.values());
+        }
+
+        long checkpoint = readCheckpoint();
+        long lastSegment = checkpoint;
+        for (long seq : listSegments()) {
+            if (seq >= checkpoint) {
+                replay(segmentFile(seq));
+            }
+            lastSegment = Math.max(lastSegment, seq);
+        }
+        segment = lastSegment;
+        List<File> legacyFiles = readLegacyFiles();
+
+        open = true;
+        compact();
+        for (File legacyFile : legacyFiles) {
+            if (!legacyFile.delete()) {
+                LOG.warn("Unable to remove rerun file {}", legacyFile);
+            }
+        }
+
+        if (syncIntervalMillis > 0) {
+            syncer = Executors.newSingleThreadScheduledExecutor(
+                    new DaemonThreadFactory("RerunEventLogSync-" + basePath.getName()));
+            syncer.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    sync();
+                }
+            }, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        LOG.info("Recovered {} rerun events from {}", live.size(), basePath);
+        return new ArrayList<T>(live.values());
+    }
+
+    synchronized void append(T event) throws IOException {
+        open();
+        long id = nextId++;
+        live.put(id, event);
+        ids.put(event, id);
+        write(ADD + Long.toString(id) + ' ' + event.getType().name() + ' ' + event.toString());
+        if (segmentBytes >= compactionBytes) {
+            compact();
+        }
+    }
+
+    /**
+     * @return false if the event was not in the log
+     */
+    synchronized boolean remove(T event) throws IOException {
+        open();
+        Long id = ids.remove(event);
+        if (id == null) {
+            return false;
+        }
+        live.remove(id);
+        write(REMOVE + Long.toString(id));
+        return true;
+    }
+
+    synchronized void close() {
+        if (syncer != null) {
+            syncer.shutdownNow();
+            syncer = null;
+        }
+        sync();
+        IOUtils.closeQuietly(segmentWriter);
+        segmentWriter = null;
+        segmentStream = null;
+        closed = true;
+    }
+
+    private void write(String record) throws IOException {
+        if (segmentWriter == null) {
+            throw new IOException("Rerun event log " + basePath + " is not writable");
+        }
+        segmentWriter.write(record);
+        segmentWriter.write('\n');
+        segmentWriter.flush();
+        // the records are written in UTF-8, the position is what they took on disk
+        segmentBytes = segmentStream.getChannel().position();
+        dirty = true;
+    }
+
+    private synchronized void sync() {
+        if (!dirty || segmentStream == null) {
+            return;
+        }
+        try {
+            segmentStream.getChannel().force(false);
+            dirty = false;
+        } catch (IOException e) {
+            LOG.warn("Unable to sync rerun event log {}", segmentFile(segment), e);
+        }
+    }
+
+    // writes the live events to a new segment, checkpoints it and deletes the segments before it
+    private void compact() {
+        long previous = segment;
+        File file = segmentFile(previous + 1);
+        FileOutputStream stream = null;
+        Writer writer = null;
+        long bytes = 0;
+        try {
+            stream = new FileOutputStream(file, false);
+            writer = new BufferedWriter(new OutputStreamWriter(stream, CharEncoding.UTF_8));
+            for (Map.Entry<Long, T> entry : live.entrySet()) {
+                String record = ADD + Long.toString(entry.getKey()) + ' ' + entry.getValue().getType().name()
+                        + ' ' + entry.getValue().toString();
+                writer.write(record);
+                writer.write('\n');
+            }
+            writer.flush();
+            bytes = stream.getChannel().position();
+            stream.getChannel().force(false);
+            writeCheckpoint(previous + 1);
+        } catch (IOException e) {
+            LOG.error("Unable to compact rerun event log into {}, appending to {}", file, segmentFile(previous), e);
+            IOUtils.closeQuietly(writer);
+            if (!file.delete()) {
+                LOG.warn("Unable to remove rerun event log segment {}", file);
+            }
+            if (segmentWriter == null) {
+                openSegment(previous);
+            }
+            compactionBytes = segmentBytes + segmentSize;
+            return;
+        }
+
+        sync();
+        IOUtils.closeQuietly(segmentWriter);
+        segment = previous + 1;
+        segmentStream = stream;
+        segmentWriter = writer;
+        segmentBytes = bytes;
+        compactionBytes = Math.max(segmentSize, 2 * bytes);
+        dirty = false;
+        for (long seq : listSegments()) {
+            if (seq < segment && !segmentFile(seq).delete()) {
+                LOG.warn("Unable to remove rerun event log segment {}", segmentFile(seq));
+            }
+        }
+    }
+
+    private void openSegment(long seq) {
+        try {
+            segmentStream = new FileOutputStream(segmentFile(seq), true);
+            segmentWriter = new BufferedWriter(new OutputStreamWriter(segmentStream, CharEncoding.UTF_8));
+            segmentBytes = segmentFile(seq).length();
+        } catch (IOException e) {
+            LOG.error("Unable to open rerun event log segment {}", segmentFile(seq), e);
+        }
+    }
+
+    private void replay(File file) {
+        RerunEventFactory<T> factory = new RerunEventFactory<T>();
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), CharEncoding.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    if (line.charAt(0) == ADD) {
+                        int idEnd = line.indexOf(' ');
+                        int typeEnd = line.indexOf(' ', idEnd + 1);
+                        long id = Long.parseLong(line.substring(1, idEnd));
+                        T event = factory.getRerunEvent(line.substring(idEnd + 1, typeEnd),
+                                line.substring(typeEnd + 1));
+                        if (event != null) {
+                            live.put(id, event);
+                            ids.put(event, id);
+                        }
+                        nextId = Math.max(nextId, id + 1);
+                    } else if (line.charAt(0) == REMOVE) {
+                        T event = live.remove(Long.parseLong(line.substring(1)));
+                        if (event != null) {
+                            ids.remove(event);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    // a record torn by a crash can only be the last one written
+                    LOG.warn("Skipping unreadable record in rerun event log {}: {}", file, line, e);
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Not able to read rerun event log {}", file, e);
+        } finally {
+            IOUtils.closeQuietly(reader);
+        }
+    }
+
+    private List<File> readLegacyFiles() {
+        List<File> legacyFiles = new ArrayList<File>();
+        File[] files = basePath.listFiles();
+        if (files == null) {
+            return legacyFiles;
+        }
+
+        RerunEventFactory<T> factory = new RerunEventFactory<T>();
+        for (File rerunFile : files) {
+            String name = rerunFile.getName();
+            if (!rerunFile.isFile() || !(name.startsWith(RerunEvent.RerunType.RETRY.name() + "-")
+                    || name.startsWith(RerunEvent.RerunType.LATE.name() + "-"))) {
+                continue;
+            }
+            BufferedReader reader = null;
+            try {
+                reader = new BufferedReader(new InputStreamReader(new FileInputStream(rerunFile),
+                        CharEncoding.UTF_8));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    T event = factory.getRerunEvent(name, line);
+                    if (event != null) {
+                        long id = nextId++;
+                        live.put(id, event);
+                        ids.put(event, id);
+                    }
+                }
+                legacyFiles.add(rerunFile);
+            } catch (Exception e) {
+                LOG.warn("Not able to read rerun entry {}", rerunFile.getAbsolutePath(), e);
+            } finally {
+                IOUtils.closeQuietly(reader);
+            }
+        }
+        return legacyFiles;
+    }
+
+    private List<Long> listSegments() {
+        List<Long> segments = new ArrayList<Long>();
+        String[] names = basePath.list();
+        if (names != null) {
+            for (String name : names) {
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        segments.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                                name.length() - SEGMENT_SUFFIX.length())));
+                    } catch (NumberFormatException ignore) {
+                        // not a segment
+                    }
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private File segmentFile(long seq) {
+        return new File(basePath, String.format("%s%020d%s", SEGMENT_PREFIX, seq, SEGMENT_SUFFIX));
+    }
+
+    private long readCheckpoint() {
+        File file = new File(basePath, CHECKPOINT_FILE);
+        if (!file.exists()) {
+            return 0;
+        }
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), CharEncoding.UTF_8));
+            return Long.parseLong(reader.readLine().trim());
+        } catch (Exception e) {
+            LOG.warn("Unable to read rerun event log checkpoint {}, replaying all segments", file, e);
+            return 0;
+        } finally {
+            IOUtils.closeQuietly(reader);
+        }
+    }
+
+    private void writeCheckpoint(long seq) throws IOException {
+        File tmp = new File(basePath, CHECKPOINT_FILE + ".tmp");
+        FileOutputStream out = new FileOutputStream(tmp, false);
+        try {
+            out.write((Long.toString(seq) + "\n").getBytes(CharEncoding.UTF_8));
+            out.getChannel().force(false);
+        } finally {
+            out.close();
+        }
+        File file = new File(basePath, CHECKPOINT_FILE);
+        if (!tmp.renameTo(file)) {
+            // renameTo does not replace an existing file on every platform
+            if (!file.delete() || !tmp.renameTo(file)) {
+                throw new IOException("Unable to move rerun event log checkpoint to " + file);
+            }
+        }
+    }
+}
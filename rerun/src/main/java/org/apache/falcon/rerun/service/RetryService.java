@@ -40,6 +40,8 @@ public class RetryService implements FalconService {
 
     private static final Logger LOG = LoggerFactory.getLogger(RetryService.class);
 
+    private InMemoryQueue<RetryEvent> queue;
+
     @Override
     public String getName() {
         return "Falcon Retry failed Instance";
@@ -53,7 +55,7 @@ public class RetryService implements FalconService {
 
         AbstractRerunHandler<RetryEvent, DelayedQueue<RetryEvent>> rerunHandler =
             RerunHandlerFactory.getRerunHandler(RerunType.RETRY);
-        InMemoryQueue<RetryEvent> queue = new InMemoryQueue<RetryEvent>(getBasePath());
+        queue = new InMemoryQueue<RetryEvent>(getBasePath());
         rerunHandler.init(queue);
 
         Services.get().<WorkflowJobEndNotificationService>getService(
@@ -62,6 +64,9 @@ public class RetryService implements FalconService {
 
     @Override
     public void destroy() throws FalconException {
+        if (queue != null) {
+            queue.close();
+        }
         LOG.info("RetryHandler thread destroyed");
     }
 
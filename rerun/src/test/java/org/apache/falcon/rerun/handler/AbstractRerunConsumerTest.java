@@ -0,0 +1,203 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.falcon.rerun.handler;
+
+import org.apache.falcon.FalconException;
+import org.apache.falcon.entity.EntityNotRegisteredException;
+import org.apache.falcon.entity.v0.Entity;
+import org.apache.falcon.rerun.event.RetryEvent;
+import org.apache.falcon.rerun.queue.DelayedQueue;
+import org.apache.falcon.security.CurrentUser;
+import org.apache.falcon.util.StartupProperties;
+import org.apache.falcon.workflow.engine.AbstractWorkflowEngine;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Tests for the workflow status lookups of the rerun consumer.
+ *
+ * The events have no entity type, so that they are not looked up in the config store; the handler picks the
+ * workflow engine by entity name.
+ */
+public class AbstractRerunConsumerTest {
+
+    private RetryHandler<DelayedQueue<RetryEvent>> handler;
+    private AbstractWorkflowEngine engine;
+    private AbstractWorkflowEngine otherEngine;
+    private Set<String> lookups;
+
+    @BeforeMethod
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        lookups = Collections.synchronizedSet(new HashSet<String>());
+        engine = mockEngine("oozie");
+        otherEngine = mockEngine("other");
+        handler = Mockito.mock(RetryHandler.class);
+        Mockito.when(handler.getWfEngine(Matchers.anyString(), Matchers.eq("entity"))).thenReturn(engine);
+        Mockito.when(handler.getWfEngine(Matchers.anyString(), Matchers.eq("other-entity"))).thenReturn(otherEngine);
+        Mockito.when(handler.getWfEngine(Matchers.anyString(), Matchers.eq("missing")))
+                .thenThrow(new EntityNotRegisteredException("missing not registered"));
+    }
+
+    @Test
+    public void testStatusesLookedUpPerClusterUserAndEngine() throws Exception {
+        RecordingConsumer consumer = new RecordingConsumer(handler);
+        consumer.handleReruns(Arrays.asList(event("c1", "wf1", "entity", "user1"),
+                event("c1", "wf2", "entity", "user1"), event("c2", "wf3", "entity", "user1"),
+                event("c1", "wf4", "entity", "user2"), event("c1", "wf5", "other-entity", "user1"),
+                event("c1", "wf6", "missing", "user1")));
+        consumer.awaitReruns();
+
+        Assert.assertEquals(lookups, new HashSet<String>(Arrays.asList("oozie c1 user1 [wf1, wf2]",
+                "oozie c2 user1 [wf3]", "oozie c1 user2 [wf4]", "other c1 user1 [wf5]")));
+        Map<String, String> expected = new HashMap<String, String>();
+        for (String wfId : Arrays.asList("wf1", "wf2", "wf3", "wf4", "wf5")) {
+            expected.put(wfId, "RUNNING");
+        }
+        // the event of an entity no longer registered is dropped
+        Assert.assertEquals(consumer.statuses, expected);
+        Assert.assertEquals(consumer.users.get("wf4"), "user2");
+        Assert.assertEquals(consumer.users.get("wf5"), "user1");
+        Mockito.verify(engine, Mockito.never()).getWorkflowStatus(Matchers.anyString(), Matchers.anyString());
+    }
+
+    @Test
+    public void testStatusesLookedUpOneAtATime() throws Exception {
+        // a status missing from the lookup, and a lookup failing
+        Mockito.when(engine.getWorkflowStatuses(Matchers.anyString(), Matchers.anyCollectionOf(Entity.class),
+                Matchers.anyCollectionOf(String.class))).thenReturn(Collections.singletonMap("wf1", "RUNNING"));
+        Mockito.when(otherEngine.getWorkflowStatuses(Matchers.anyString(), Matchers.anyCollectionOf(Entity.class),
+                Matchers.anyCollectionOf(String.class))).thenThrow(new FalconException("unreachable"));
+        Mockito.when(engine.getWorkflowStatus(Matchers.anyString(), Matchers.anyString())).thenReturn("KILLED");
+        Mockito.when(otherEngine.getWorkflowStatus(Matchers.anyString(), Matchers.anyString())).thenReturn("FAILED");
+
+        RecordingConsumer consumer = new RecordingConsumer(handler);
+        consumer.handleReruns(Arrays.asList(event("c1", "wf1", "entity", "user1"),
+                event("c1", "wf2", "entity", "user1"), event("c1", "wf3", "other-entity", "user1")));
+        consumer.awaitReruns();
+
+        Map<String, String> expected = new HashMap<String, String>();
+        expected.put("wf1", "RUNNING");
+        expected.put("wf2", "KILLED");
+        expected.put("wf3", "FAILED");
+        Assert.assertEquals(consumer.statuses, expected);
+        Mockito.verify(engine, Mockito.never()).getWorkflowStatus("c1", "wf1");
+        Mockito.verify(engine).getWorkflowStatus("c1", "wf2");
+        Mockito.verify(otherEngine).getWorkflowStatus("c1", "wf3");
+    }
+
+    @Test(timeOut = 30000)
+    public void testRerunsStartAsSlotsFree() throws Exception {
+        String threads = StartupProperties.get().getProperty(AbstractRerunConsumer.THREADS_PROP);
+        StartupProperties.get().setProperty(AbstractRerunConsumer.THREADS_PROP, "2");
+        try {
+            RecordingConsumer consumer = new RecordingConsumer(handler);
+            consumer.blocked = "wf1";
+            consumer.handleReruns(Arrays.asList(event("c1", "wf1", "entity", "user1"),
+                    event("c1", "wf2", "entity", "user1")));
+
+            // a slot is free once wf2 is handled, without waiting for wf1
+            consumer.handleReruns(Collections.singletonList(event("c1", "wf3", "entity", "user1")));
+            while (!consumer.statuses.containsKey("wf3")) {
+                Thread.sleep(10);
+            }
+            Assert.assertFalse(consumer.statuses.containsKey("wf1"));
+
+            consumer.release.countDown();
+            consumer.awaitReruns();
+            Assert.assertEquals(consumer.statuses.keySet(), new HashSet<String>(Arrays.asList("wf1", "wf2", "wf3")));
+        } finally {
+            if (threads == null) {
+                StartupProperties.get().remove(AbstractRerunConsumer.THREADS_PROP);
+            } else {
+                StartupProperties.get().setProperty(AbstractRerunConsumer.THREADS_PROP, threads);
+            }
+        }
+    }
+
+    private AbstractWorkflowEngine mockEngine(final String name) throws FalconException {
+        AbstractWorkflowEngine wfEngine = Mockito.mock(AbstractWorkflowEngine.class);
+        Mockito.when(wfEngine.getName()).thenReturn(name);
+        Mockito.when(wfEngine.getWorkflowStatuses(Matchers.anyString(), Matchers.anyCollectionOf(Entity.class),
+                Matchers.anyCollectionOf(String.class))).thenAnswer(new Answer<Map<String, String>>() {
+                    @Override
+                    public Map<String, String> answer(InvocationOnMock invocation) {
+                        Collection<?> wfIds = (Collection<?>) invocation.getArguments()[2];
+                        lookups.add(name + " " + invocation.getArguments()[0] + " " + CurrentUser.getUser()
+                                + " " + new ArrayList<Object>(wfIds));
+                        Map<String, String> statuses = new HashMap<String, String>();
+                        for (Object wfId : wfIds) {
+                            statuses.put((String) wfId, "RUNNING");
+                        }
+                        return statuses;
+                    }
+                });
+        return wfEngine;
+    }
+
+    private static RetryEvent event(String cluster, String wfId, String entityName, String user) {
+        return new RetryEvent(cluster, wfId, System.currentTimeMillis(), 0, "", entityName,
+                "2016-01-01T00:00Z", 0, 1, 3, user);
+    }
+
+    /**
+     * Records the status and user each rerun is handled with, holding back the rerun of the blocked workflow
+     * until released.
+     */
+    private static final class RecordingConsumer
+            extends AbstractRerunConsumer<RetryEvent, RetryHandler<DelayedQueue<RetryEvent>>> {
+        private final Map<String, String> statuses = new ConcurrentHashMap<String, String>();
+        private final Map<String, String> users = new ConcurrentHashMap<String, String>();
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile String blocked;
+
+        private RecordingConsumer(RetryHandler<DelayedQueue<RetryEvent>> handler) {
+            super(handler);
+        }
+
+        @Override
+        protected void handleRerun(String clusterName, String jobStatus, RetryEvent message, String entityType,
+                                   String entityName) {
+            if (message.getWfId().equals(blocked)) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            statuses.put(message.getWfId(), jobStatus);
+            users.put(message.getWfId(), CurrentUser.getUser());
+        }
+    }
+}
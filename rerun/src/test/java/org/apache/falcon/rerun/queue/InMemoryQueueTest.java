@@ -17,14 +17,19 @@
  */
 package org.apache.falcon.rerun.queue;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.falcon.FalconException;
 import org.apache.falcon.rerun.event.RerunEvent;
+import org.apache.falcon.rerun.event.RetryEvent;
 import org.apache.falcon.util.FalconTestUtil;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import java.io.File;
+import java.io.FilenameFilter;
+import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.Set;
 
 /**
  * Test class for the InMemory Queue implementation of the DelayedQueue.
@@ -69,6 +74,98 @@ public class InMemoryQueueTest {
         }
     }
 
+    @Test
+    public void testRecoveryFromLog() throws Exception {
+        File basePath = new File("target/rerun-log");
+        FileUtils.deleteQuietly(basePath);
+        Assert.assertTrue(basePath.mkdirs());
+        FileUtils.writeStringToFile(new File(basePath, "RETRY-legacy-2016-01-01T00-00Z"),
+                retryEvent("legacy", 0).toString() + "\n");
+
+        // a tiny segment size compacts the log whenever it doubled
+        InMemoryQueue<RetryEvent> queue = new InMemoryQueue<RetryEvent>(basePath, 64, 0);
+        queue.init();
+        Assert.assertEquals(queue.delayQueue.size(), 1);
+        Assert.assertFalse(new File(basePath, "RETRY-legacy-2016-01-01T00-00Z").exists());
+
+        queue.offer(retryEvent("taken", 0));
+        for (int i = 0; i < 5; i++) {
+            queue.offer(retryEvent("pending-" + i, 3600000));
+        }
+        Set<String> taken = new HashSet<String>();
+        taken.add(queue.take().getWfId());
+        taken.add(queue.take().getWfId());
+        Assert.assertTrue(taken.contains("legacy"));
+        Assert.assertTrue(taken.contains("taken"));
+        queue.close();
+
+        InMemoryQueue<RetryEvent> recovered = new InMemoryQueue<RetryEvent>(basePath, 64, 0);
+        recovered.init();
+        Set<String> pending = new HashSet<String>();
+        for (RetryEvent event : recovered.delayQueue) {
+            pending.add(event.getWfId());
+        }
+        Assert.assertEquals(pending.size(), 5);
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue(pending.contains("pending-" + i));
+        }
+        recovered.close();
+    }
+
+    @Test
+    public void testCompactionWithManyLiveEvents() throws Exception {
+        File basePath = new File("target/rerun-compaction");
+        FileUtils.deleteQuietly(basePath);
+        Assert.assertTrue(basePath.mkdirs());
+
+        InMemoryQueue<RetryEvent> queue = new InMemoryQueue<RetryEvent>(basePath, 64, 0);
+        queue.init();
+        for (int i = 0; i < 1000; i++) {
+            queue.offer(retryEvent("pending-" + i, 3600000));
+        }
+        queue.close();
+
+        // the live events are compacted once the log doubled, not on every write past the segment size
+        String[] segments = basePath.list(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith("rerun-") && name.endsWith(".log");
+            }
+        });
+        Assert.assertEquals(segments.length, 1);
+        long segment = Long.parseLong(segments[0].substring("rerun-".length(), segments[0].length() - 4));
+        Assert.assertTrue(segment < 20, segments[0]);
+
+        InMemoryQueue<RetryEvent> recovered = new InMemoryQueue<RetryEvent>(basePath, 64, 0);
+        recovered.init();
+        Assert.assertEquals(recovered.delayQueue.size(), 1000);
+        recovered.close();
+    }
+
+    @Test
+    public void testTakeDue() throws Exception {
+        File basePath = new File("target/rerun-due");
+        FileUtils.deleteQuietly(basePath);
+        Assert.assertTrue(basePath.mkdirs());
+
+        InMemoryQueue<RetryEvent> queue = new InMemoryQueue<RetryEvent>(basePath, 1024 * 1024, 0);
+        queue.init();
+        for (int i = 0; i < 3; i++) {
+            queue.offer(retryEvent("due-" + i, 0));
+        }
+        queue.offer(retryEvent("later", 3600000));
+
+        Assert.assertEquals(queue.takeDue(2).size(), 2);
+        Assert.assertEquals(queue.takeDue(10).size(), 1);
+        Assert.assertTrue(queue.takeDue(10).isEmpty());
+        queue.close();
+    }
+
+    private RetryEvent retryEvent(String wfId, long delay) {
+        return new RetryEvent("someCluster", wfId, System.currentTimeMillis(), delay, "PROCESS", "someName",
+                "2016-01-01T00:00Z", 0, 1, 3, FalconTestUtil.TEST_USER_1);
+    }
+
     private class MyEvent extends RerunEvent {
 
         //SUSPEND CHECKSTYLE CHECK VisibilityModifierCheck
@@ -176,6 +176,7 @@ public class OozieDAGEngine implements DAGEngine {
         props.put("feedInstancePaths", "NONE");
         props.put("userJMSNotificationEnabled", "true");
         props.put("systemJMSNotificationEnabled", "false");
+        props.put("systemJMSMessageFormat", "map");
         return props;
     }
 
@@ -194,6 +195,7 @@ public class OozieDAGEngine implements DAGEngine {
         props.put("feedInstancePaths", "NONE");
         props.put("userJMSNotificationEnabled", "true");
         props.put("systemJMSNotificationEnabled", "false");
+        props.put("systemJMSMessageFormat", "map");
         return props;
     }
 